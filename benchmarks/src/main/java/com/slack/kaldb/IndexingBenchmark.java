@@ -5,6 +5,7 @@ import com.slack.kaldb.logstore.DocumentBuilder;
 import com.slack.kaldb.logstore.LogDocumentBuilderImpl;
 import com.slack.kaldb.logstore.LogMessage;
 import com.slack.kaldb.logstore.LuceneIndexStoreImpl;
+import com.slack.kaldb.proto.config.KaldbConfigs;
 import com.slack.kaldb.writer.LogMessageWriterImpl;
 import com.slack.service.murron.Murron;
 import io.micrometer.core.instrument.MeterRegistry;
@@ -17,12 +18,17 @@ import java.nio.file.Path;
 import java.nio.file.Paths;
 import java.time.Duration;
 import java.util.Comparator;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
 import java.util.Random;
 import java.util.stream.Stream;
+import org.apache.commons.io.FileUtils;
 import org.apache.kafka.clients.consumer.ConsumerRecord;
 import org.apache.kafka.common.record.TimestampType;
 import org.apache.lucene.document.*;
 import org.apache.lucene.index.IndexWriter;
+import org.apache.lucene.store.Directory;
 import org.openjdk.jmh.annotations.*;
 
 @State(Scope.Thread)
@@ -40,6 +46,10 @@ public class IndexingBenchmark {
   private LogMessage logMessage;
   private Document luceneDocument;
 
+  // Compares the default field treatment against per field index options tuned for the api log.
+  @Param({"default", "tuned"})
+  public String fieldConfigs;
+
   @Setup(Level.Iteration)
   public void createIndexer() throws Exception {
     random = new Random();
@@ -47,9 +57,11 @@ public class IndexingBenchmark {
     tempDirectory =
         Files.createDirectories(
             Paths.get("jmh-output", String.valueOf(random.nextInt(Integer.MAX_VALUE))));
+    Map<String, KaldbConfigs.FieldConfig> fieldConfigMap =
+        fieldConfigs.equals("tuned") ? tunedFieldConfigs() : Map.of();
     logStore =
         LuceneIndexStoreImpl.makeLogStore(
-            tempDirectory.toFile(), commitInterval, refreshInterval, registry);
+            tempDirectory.toFile(), commitInterval, refreshInterval, fieldConfigMap, registry);
 
     String message =
         "{\"ip_address\":\"127.0.0.1\",\"http_method\":\"POST\",\"method\":\"callbacks.test\",\"enterprise\":\"E1234ABCD56\",\"team\":\"T98765XYZ12\",\"user\":\"U000111222A\",\"status\":\"ok\",\"http_params\":\"param1=value1&param2=value2&param3=false\",\"ua\":\"Hello-World-Web\\/vef2bd:1234\",\"unique_id\":\"YBBccDDuu17CxYza6abcDEFzYzz\",\"request_queue_time\":2262,\"microtime_elapsed\":1418,\"mysql_query_count\":0,\"mysql_query_time\":0,\"mysql_conns_count\":0,\"mysql_conns_time\":0,\"mysql_rows_count\":0,\"mysql_rows_affected\":0,\"my_queries_count\":11,\"my_queries_time\":6782,\"frl_time\":0,\"init_time\":1283,\"api_dispatch_time\":0,\"api_output_time\":0,\"api_output_size\":0,\"api_strict\":false,\"decrypt_reqs_time\":0,\"decrypt_reqs_count\":0,\"encrypt_reqs_time\":0,\"encrypt_reqs_count\":0,\"grpc_req_count\":0,\"grpc_req_time\":0,\"service_req_count\":0,\"service_req_time\":0,\"trace\":\"#route_main() -> lib_controller.php:12#Controller::handlePost() -> Controller.php:58#CallbackApiController::handleRequest() -> api.php:100#local_callbacks_api_main_inner() -> api.php:250#api_dispatch() -> lib_api.php:000#api_callbacks_service_verifyToken() -> api__callbacks_service.php:1500#api_output_fb_thrift() -> lib_api_output.php:390#_api_output_log_call()\",\"client_connection_state\":\"unset\",\"ms_requests_count\":0,\"ms_requests_time\":0,\"token_type\":\"cookie\",\"another_param\":\"\",\"another_value\":\"\",\"auth\":true,\"ab_id\":\"1234abc12d:host-abc-dev-region-1234\",\"external_user\":\"W012XYZAB\",\"timestamp\":\"2021-02-05 10:41:52.340\",\"sha\":\"unknown\",\"php_version\":\"5.11.0\",\"paramX\":\"yet.another.value\",\"php_type\":\"api\",\"bucket_type_something\":0,\"cluster_name\":\"cluster\",\"cluster_param\":\"normal\",\"env\":\"env-value\",\"last_param\":\"lastvalue\",\"level\":\"info\"};";
@@ -80,13 +92,82 @@ public class IndexingBenchmark {
 
     logMessage = LogMessageWriterImpl.apiLogTransformer.toLogMessage(kafkaRecord).get(0);
 
-    DocumentBuilder<LogMessage> documentBuilder = LogDocumentBuilderImpl.build(false);
+    DocumentBuilder<LogMessage> documentBuilder =
+        LogDocumentBuilderImpl.build(false, fieldConfigMap);
 
     luceneDocument = documentBuilder.fromMessage(logMessage);
   }
 
+  private static Map<String, KaldbConfigs.FieldConfig> tunedFieldConfigs() {
+    Map<String, KaldbConfigs.FieldConfig> fieldConfigs = new HashMap<>();
+    KaldbConfigs.FieldConfig keyword =
+        KaldbConfigs.FieldConfig.newBuilder()
+            .setType(KaldbConfigs.FieldConfig.FieldType.KEYWORD)
+            .build();
+    for (String field :
+        List.of(
+            "ip_address",
+            "http_method",
+            "method",
+            "enterprise",
+            "team",
+            "user",
+            "status",
+            "unique_id",
+            "external_user",
+            "sha",
+            "php_version",
+            "php_type",
+            "cluster_name",
+            "cluster_param",
+            "env",
+            "level")) {
+      fieldConfigs.put(field, keyword);
+    }
+    KaldbConfigs.FieldConfig number =
+        KaldbConfigs.FieldConfig.newBuilder()
+            .setType(KaldbConfigs.FieldConfig.FieldType.LONG)
+            .build();
+    for (String field :
+        List.of(
+            "request_queue_time",
+            "microtime_elapsed",
+            "mysql_query_count",
+            "mysql_query_time",
+            "my_queries_count",
+            "my_queries_time",
+            "init_time",
+            "api_output_size")) {
+      fieldConfigs.put(field, number);
+    }
+    // Only read back with the document, never searched.
+    KaldbConfigs.FieldConfig notIndexed =
+        KaldbConfigs.FieldConfig.newBuilder()
+            .setType(KaldbConfigs.FieldConfig.FieldType.KEYWORD)
+            .setIndexOptions(KaldbConfigs.FieldConfig.IndexOptions.NONE)
+            .build();
+    fieldConfigs.put("trace", notIndexed);
+    fieldConfigs.put("http_params", notIndexed);
+    fieldConfigs.put("ua", notIndexed);
+    return fieldConfigs;
+  }
+
   @TearDown(Level.Iteration)
   public void tearDown() throws IOException {
+    logStore.commit();
+    Directory directory = logStore.getIndexWriter().getDirectory();
+    long indexedBytes = 0;
+    for (String segmentFile : directory.listAll()) {
+      indexedBytes += directory.fileLength(segmentFile);
+    }
+    System.out.println(
+        "Field configs = "
+            + fieldConfigs
+            + " Indexed = "
+            + logStore.getIndexWriter().getDocStats().numDocs
+            + " Index size = "
+            + FileUtils.byteCountToDisplaySize(indexedBytes));
+
     logStore.close();
     try (Stream<Path> walk = Files.walk(tempDirectory)) {
       walk.sorted(Comparator.reverseOrder()).map(Path::toFile).forEach(File::delete);
@@ -0,0 +1,71 @@
+package com.slack.kaldb;
+
+import static com.slack.kaldb.proto.metadata.Metadata.IndexType.LOGS_LUCENE9;
+
+import com.google.protobuf.InvalidProtocolBufferException;
+import com.slack.kaldb.metadata.snapshot.SnapshotMetadata;
+import com.slack.kaldb.metadata.snapshot.SnapshotMetadataSerializer;
+import java.time.Instant;
+import java.util.UUID;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+
+/**
+ * Compares the JSON and the binary protobuf encoding of a metadata node. The cluster manager and
+ * the query nodes parse every snapshot node when their caches are built, so the parse cost and the
+ * node size are what matter most here.
+ */
+@State(Scope.Thread)
+public class MetadataSerializerBenchmark {
+  private final SnapshotMetadataSerializer serializer = new SnapshotMetadataSerializer();
+
+  private SnapshotMetadata snapshotMetadata;
+  private byte[] jsonSnapshot;
+  private byte[] binarySnapshot;
+
+  @Setup(Level.Trial)
+  public void createSnapshot() throws InvalidProtocolBufferException {
+    String snapshotId = UUID.randomUUID().toString();
+    long now = Instant.now().toEpochMilli();
+    snapshotMetadata =
+        new SnapshotMetadata(
+            snapshotId,
+            "s3://kaldb-snapshots/" + snapshotId,
+            now - 3600_000,
+            now,
+            123456789,
+            "12",
+            LOGS_LUCENE9,
+            4_000_000_000L,
+            15_000_000);
+
+    jsonSnapshot = serializer.toBytes(snapshotMetadata, false);
+    binarySnapshot = serializer.toBytes(snapshotMetadata, true);
+    System.out.printf(
+        "%nSnapshot node size: json=%d bytes, binary=%d bytes%n",
+        jsonSnapshot.length, binarySnapshot.length);
+  }
+
+  @Benchmark
+  public SnapshotMetadata parseJson() throws InvalidProtocolBufferException {
+    return serializer.fromBytes(jsonSnapshot);
+  }
+
+  @Benchmark
+  public SnapshotMetadata parseBinary() throws InvalidProtocolBufferException {
+    return serializer.fromBytes(binarySnapshot);
+  }
+
+  @Benchmark
+  public byte[] serializeJson() throws InvalidProtocolBufferException {
+    return serializer.toBytes(snapshotMetadata, false);
+  }
+
+  @Benchmark
+  public byte[] serializeBinary() throws InvalidProtocolBufferException {
+    return serializer.toBytes(snapshotMetadata, true);
+  }
+}
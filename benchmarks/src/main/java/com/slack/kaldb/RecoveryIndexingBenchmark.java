@@ -0,0 +1,162 @@
+package com.slack.kaldb;
+
+import com.google.protobuf.ByteString;
+import com.slack.kaldb.logstore.LogMessage;
+import com.slack.kaldb.logstore.LuceneIndexStoreImpl;
+import com.slack.kaldb.writer.LogMessageWriterImpl;
+import com.slack.service.murron.Murron;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import java.io.File;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Random;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.stream.Stream;
+import org.apache.kafka.clients.consumer.ConsumerRecord;
+import org.apache.kafka.common.record.TimestampType;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+
+/**
+ * Measures the time a recovery node takes to index the messages of an offset range from many
+ * threads, into one index that is ready to upload. The threads either share one index writer, or
+ * each thread writes its own index which are then merged into one time sorted index with
+ * addIndexes, like the recovery chunk manager does with an index writer per thread.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.SingleShotTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+public class RecoveryIndexingBenchmark {
+  private final Duration commitInterval = Duration.ofSeconds(5 * 60);
+  private final Duration refreshInterval = Duration.ofSeconds(5 * 60);
+
+  @Param({"100000"})
+  public int offsetCount;
+
+  @Param({"8"})
+  public int threadCount;
+
+  @Param({"false", "true"})
+  public boolean writerPerThread;
+
+  private List<LogMessage> messages;
+  private ExecutorService executorService;
+  private MeterRegistry registry;
+  private Path tempDirectory;
+
+  @Setup(Level.Trial)
+  public void createMessages() throws Exception {
+    Random random = new Random();
+    String message =
+        "{\"ip_address\":\"127.0.0.1\",\"http_method\":\"POST\",\"method\":\"callbacks.test\",\"enterprise\":\"E1234ABCD56\",\"team\":\"T98765XYZ12\",\"user\":\"U000111222A\",\"status\":\"ok\",\"ua\":\"Hello-World-Web\\/vef2bd:1234\",\"request_queue_time\":2262,\"microtime_elapsed\":1418,\"mysql_query_count\":0,\"my_queries_count\":11,\"my_queries_time\":6782,\"init_time\":1283,\"api_output_size\":0,\"auth\":true,\"timestamp\":\"2021-02-05 10:41:52.340\",\"php_type\":\"api\",\"cluster_name\":\"cluster\",\"env\":\"env-value\",\"level\":\"info\"};";
+    // the messages of an offset range arrive roughly, but not exactly, in time order
+    long startTimestamp = 1612550512340953000L;
+    messages = new ArrayList<>(offsetCount);
+    for (int offset = 0; offset < offsetCount; offset++) {
+      long timestamp =
+          startTimestamp + TimeUnit.MILLISECONDS.toNanos(offset * 10L + random.nextInt(5000));
+      Murron.MurronMessage murronMessage =
+          Murron.MurronMessage.newBuilder()
+              .setMessage(ByteString.copyFrom(message.getBytes(StandardCharsets.UTF_8)))
+              .setType("hhvm-api_log")
+              .setHost("company-www-php-dev-cluster-abc-x8ab")
+              .setTimestamp(timestamp)
+              .build();
+      ConsumerRecord<String, byte[]> kafkaRecord =
+          new ConsumerRecord<>(
+              "testTopic",
+              1,
+              offset,
+              0L,
+              TimestampType.CREATE_TIME,
+              0L,
+              0,
+              0,
+              "testKey",
+              murronMessage.toByteString().toByteArray());
+      messages.add(LogMessageWriterImpl.apiLogTransformer.toLogMessage(kafkaRecord).get(0));
+    }
+    executorService = Executors.newFixedThreadPool(threadCount);
+  }
+
+  @TearDown(Level.Trial)
+  public void shutdownExecutor() {
+    executorService.shutdownNow();
+  }
+
+  @Setup(Level.Invocation)
+  public void createDirectory() throws IOException {
+    registry = new SimpleMeterRegistry();
+    tempDirectory =
+        Files.createDirectories(
+            Paths.get("jmh-output", String.valueOf(new Random().nextInt(Integer.MAX_VALUE))));
+  }
+
+  @TearDown(Level.Invocation)
+  public void deleteDirectory() throws IOException {
+    try (Stream<Path> walk = Files.walk(tempDirectory)) {
+      walk.sorted(Comparator.reverseOrder()).map(Path::toFile).forEach(File::delete);
+    }
+    registry.close();
+  }
+
+  @Benchmark
+  public long indexOffsetRange() throws Exception {
+    LuceneIndexStoreImpl logStore = makeLogStore();
+    List<LuceneIndexStoreImpl> threadLogStores = new ArrayList<>(threadCount);
+    for (int i = 0; i < threadCount; i++) {
+      threadLogStores.add(writerPerThread ? makeLogStore() : logStore);
+    }
+
+    List<Future<?>> futures = new ArrayList<>(threadCount);
+    for (int i = 0; i < threadCount; i++) {
+      LuceneIndexStoreImpl threadLogStore = threadLogStores.get(i);
+      int firstOffset = i;
+      futures.add(
+          executorService.submit(
+              () -> {
+                for (int offset = firstOffset; offset < offsetCount; offset += threadCount) {
+                  threadLogStore.addMessage(messages.get(offset));
+                }
+              }));
+    }
+    for (Future<?> future : futures) {
+      future.get();
+    }
+
+    if (writerPerThread) {
+      logStore.addIndexes(threadLogStores);
+      for (LuceneIndexStoreImpl threadLogStore : threadLogStores) {
+        threadLogStore.close();
+      }
+    }
+    logStore.commit();
+    long indexedDocs = logStore.getIndexWriter().getDocStats().numDocs;
+    logStore.close();
+    return indexedDocs;
+  }
+
+  private LuceneIndexStoreImpl makeLogStore() throws IOException {
+    return LuceneIndexStoreImpl.makeLogStore(
+        tempDirectory.toFile(), commitInterval, refreshInterval, registry);
+  }
+}
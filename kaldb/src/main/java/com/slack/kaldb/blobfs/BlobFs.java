@@ -1,5 +1,6 @@
 package com.slack.kaldb.blobfs;
 
+import com.google.common.io.ByteStreams;
 import java.io.Closeable;
 import java.io.File;
 import java.io.IOException;
@@ -9,6 +10,7 @@ import java.net.URI;
 import java.net.URISyntaxException;
 import java.nio.file.Path;
 import java.nio.file.Paths;
+import java.util.Map;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
@@ -163,6 +165,34 @@ public abstract class BlobFs implements Closeable, Serializable {
    */
   public abstract void copyToLocalFile(URI srcUri, File dstFile) throws Exception;
 
+  /**
+   * Copies a set of files from a remote filesystem to the local one. By default, the files are
+   * copied one at a time, but implementations for remote filesystems may copy them in parallel. The
+   * call returns after all the files are copied.
+   *
+   * @param srcUrisToDstFiles remote files mapped to their destination on the local filesystem
+   * @throws Exception if any of the files fails to copy
+   */
+  public void copyToLocalFiles(Map<URI, File> srcUrisToDstFiles) throws Exception {
+    copyToLocalFiles(srcUrisToDstFiles, Map.of());
+  }
+
+  /**
+   * Copies a set of files from a remote filesystem to the local one, like {@link
+   * #copyToLocalFiles(Map)}, when the length of some of the files is already known. An
+   * implementation can use the lengths to plan the copy without looking them up.
+   *
+   * @param srcUrisToDstFiles remote files mapped to their destination on the local filesystem
+   * @param srcUriLengths known lengths of the remote files, in bytes
+   * @throws Exception if any of the files fails to copy
+   */
+  public void copyToLocalFiles(Map<URI, File> srcUrisToDstFiles, Map<URI, Long> srcUriLengths)
+      throws Exception {
+    for (Map.Entry<URI, File> entry : srcUrisToDstFiles.entrySet()) {
+      copyToLocalFile(entry.getKey(), entry.getValue());
+    }
+  }
+
   /**
    * The src file is on the local disk. Add it to filesystem at the given dst name and the source is
    * kept intact afterwards.
@@ -174,6 +204,20 @@ public abstract class BlobFs implements Closeable, Serializable {
    */
   public abstract void copyFromLocalFile(File srcFile, URI dstUri) throws Exception;
 
+  /**
+   * Copies a set of local files to the filesystem. By default, the files are copied one at a time,
+   * but implementations for remote filesystems may copy them in parallel. The call returns after
+   * all the files are copied.
+   *
+   * @param srcFilesToDstUris local files mapped to their dst location on the remote filesystem
+   * @throws Exception if any of the files fails to copy
+   */
+  public void copyFromLocalFiles(Map<File, URI> srcFilesToDstUris) throws Exception {
+    for (Map.Entry<File, URI> entry : srcFilesToDstUris.entrySet()) {
+      copyFromLocalFile(entry.getKey(), entry.getValue());
+    }
+  }
+
   /**
    * Allows us the ability to determine whether the uri is a directory.
    *
@@ -215,6 +259,28 @@ public abstract class BlobFs implements Closeable, Serializable {
    */
   public abstract InputStream open(URI uri) throws IOException;
 
+  /**
+   * Opens a range of a file in the underlying filesystem and returns an InputStream to read it. By
+   * default, the file is opened and read up to the start of the range, but implementations for
+   * remote filesystems may only fetch the bytes of the range.
+   *
+   * @param uri location of the file to open
+   * @param offset position of the first byte of the range
+   * @param length number of bytes in the range
+   * @return a new InputStream
+   * @throws IOException on any IO error - missing file, not a file etc
+   */
+  public InputStream open(URI uri, long offset, long length) throws IOException {
+    InputStream inputStream = open(uri);
+    try {
+      inputStream.skipNBytes(offset);
+    } catch (IOException e) {
+      inputStream.close();
+      throw e;
+    }
+    return ByteStreams.limit(inputStream, length);
+  }
+
   /**
    * For certain filesystems, we may need to close the filesystem and do relevant operations to
    * prevent leaks. By default, this method does nothing.
@@ -2,22 +2,38 @@ package com.slack.kaldb.blobfs.s3;
 
 import com.google.common.base.Preconditions;
 import com.google.common.collect.ImmutableList;
+import com.google.common.util.concurrent.ThreadFactoryBuilder;
 import com.slack.kaldb.blobfs.BlobFs;
 import com.slack.kaldb.blobfs.BlobFsConfig;
 import com.slack.kaldb.proto.config.KaldbConfigs;
 import java.io.File;
+import java.io.FileNotFoundException;
 import java.io.IOException;
 import java.io.InputStream;
+import java.io.RandomAccessFile;
 import java.io.UnsupportedEncodingException;
 import java.net.URI;
 import java.net.URISyntaxException;
 import java.net.URLEncoder;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
 import java.nio.charset.StandardCharsets;
 import java.nio.file.Path;
 import java.nio.file.Paths;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
 import java.util.HashMap;
+import java.util.LinkedHashMap;
 import java.util.List;
 import java.util.Map;
+import java.util.concurrent.Callable;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Future;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
 import org.apache.commons.io.FileUtils;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
@@ -25,17 +41,24 @@ import software.amazon.awssdk.auth.credentials.AwsBasicCredentials;
 import software.amazon.awssdk.auth.credentials.AwsCredentialsProvider;
 import software.amazon.awssdk.auth.credentials.DefaultCredentialsProvider;
 import software.amazon.awssdk.auth.credentials.StaticCredentialsProvider;
+import software.amazon.awssdk.core.ResponseInputStream;
 import software.amazon.awssdk.core.SdkSystemSetting;
 import software.amazon.awssdk.core.sync.RequestBody;
 import software.amazon.awssdk.core.sync.ResponseTransformer;
 import software.amazon.awssdk.regions.Region;
 import software.amazon.awssdk.services.s3.S3Client;
 import software.amazon.awssdk.services.s3.S3ClientBuilder;
+import software.amazon.awssdk.services.s3.model.AbortMultipartUploadRequest;
+import software.amazon.awssdk.services.s3.model.CompleteMultipartUploadRequest;
+import software.amazon.awssdk.services.s3.model.CompletedMultipartUpload;
+import software.amazon.awssdk.services.s3.model.CompletedPart;
 import software.amazon.awssdk.services.s3.model.CopyObjectRequest;
 import software.amazon.awssdk.services.s3.model.CopyObjectResponse;
+import software.amazon.awssdk.services.s3.model.CreateMultipartUploadRequest;
 import software.amazon.awssdk.services.s3.model.DeleteObjectRequest;
 import software.amazon.awssdk.services.s3.model.DeleteObjectResponse;
 import software.amazon.awssdk.services.s3.model.GetObjectRequest;
+import software.amazon.awssdk.services.s3.model.GetObjectResponse;
 import software.amazon.awssdk.services.s3.model.HeadObjectRequest;
 import software.amazon.awssdk.services.s3.model.HeadObjectResponse;
 import software.amazon.awssdk.services.s3.model.ListObjectsV2Request;
@@ -46,15 +69,99 @@ import software.amazon.awssdk.services.s3.model.PutObjectRequest;
 import software.amazon.awssdk.services.s3.model.PutObjectResponse;
 import software.amazon.awssdk.services.s3.model.S3Exception;
 import software.amazon.awssdk.services.s3.model.S3Object;
+import software.amazon.awssdk.services.s3.model.UploadPartRequest;
+import software.amazon.awssdk.services.s3.model.UploadPartResponse;
 
 public class S3BlobFs extends BlobFs {
   public static final String S3_SCHEME = "s3://";
   private static final Logger LOG = LoggerFactory.getLogger(S3BlobFs.class);
   private static final String DELIMITER = "/";
+
+  public static final int DEFAULT_UPLOAD_CONCURRENCY = 4;
+  public static final long DEFAULT_MULTIPART_PART_SIZE_BYTES = 64 * 1024 * 1024;
+  // S3 requires all the parts of a multipart upload, except the last one, to be at least 5MB.
+  public static final long MIN_MULTIPART_PART_SIZE_BYTES = 5 * 1024 * 1024;
+  public static final int DEFAULT_DOWNLOAD_CONCURRENCY = 8;
+  public static final long DEFAULT_DOWNLOAD_RANGE_SIZE_BYTES = 32 * 1024 * 1024;
+
   private S3Client s3Client;
+  private final int uploadConcurrency;
+  private final long multipartPartSizeBytes;
+  private final long downloadRangeSizeBytes;
+  private final transient ExecutorService uploadExecutor;
+  private final transient ExecutorService downloadExecutor;
 
   public S3BlobFs(S3Client s3Client) {
+    this(s3Client, DEFAULT_UPLOAD_CONCURRENCY, DEFAULT_MULTIPART_PART_SIZE_BYTES);
+  }
+
+  public S3BlobFs(S3Client s3Client, int uploadConcurrency, long multipartPartSizeBytes) {
+    this(
+        s3Client,
+        uploadConcurrency,
+        multipartPartSizeBytes,
+        DEFAULT_DOWNLOAD_CONCURRENCY,
+        DEFAULT_DOWNLOAD_RANGE_SIZE_BYTES);
+  }
+
+  /**
+   * @param uploadConcurrency max number of files, or parts of a large file, uploaded in parallel.
+   * @param multipartPartSizeBytes files larger than this are uploaded in parts of this size.
+   * @param downloadConcurrency max number of files, or ranges of a large file, downloaded in
+   *     parallel.
+   * @param downloadRangeSizeBytes files larger than this are downloaded with ranged GETs of this
+   *     size.
+   */
+  public S3BlobFs(
+      S3Client s3Client,
+      int uploadConcurrency,
+      long multipartPartSizeBytes,
+      int downloadConcurrency,
+      long downloadRangeSizeBytes) {
+    Preconditions.checkArgument(uploadConcurrency > 0, "Upload concurrency should be positive");
+    Preconditions.checkArgument(
+        multipartPartSizeBytes >= MIN_MULTIPART_PART_SIZE_BYTES,
+        "Multipart part size should be at least %s bytes",
+        MIN_MULTIPART_PART_SIZE_BYTES);
+    Preconditions.checkArgument(downloadConcurrency > 0, "Download concurrency should be positive");
+    Preconditions.checkArgument(downloadRangeSizeBytes > 0, "Range size should be positive");
     this.s3Client = s3Client;
+    this.uploadConcurrency = uploadConcurrency;
+    this.multipartPartSizeBytes = multipartPartSizeBytes;
+    this.downloadRangeSizeBytes = downloadRangeSizeBytes;
+    this.uploadExecutor = makeTransferExecutor(uploadConcurrency, "s3-upload-%d");
+    this.downloadExecutor = makeTransferExecutor(downloadConcurrency, "s3-download-%d");
+  }
+
+  private static ExecutorService makeTransferExecutor(int threads, String nameFormat) {
+    ThreadPoolExecutor executor =
+        new ThreadPoolExecutor(
+            threads,
+            threads,
+            60,
+            TimeUnit.SECONDS,
+            new LinkedBlockingQueue<>(),
+            new ThreadFactoryBuilder().setNameFormat(nameFormat).setDaemon(true).build());
+    // Let the threads exit when there are no transfers, since they come in bursts.
+    executor.allowCoreThreadTimeOut(true);
+    return executor;
+  }
+
+  public static S3BlobFs fromConfig(S3Client s3Client, KaldbConfigs.S3Config config) {
+    return new S3BlobFs(
+        s3Client,
+        config.getS3UploadConcurrency() > 0
+            ? config.getS3UploadConcurrency()
+            : DEFAULT_UPLOAD_CONCURRENCY,
+        config.getS3MultipartPartSizeBytes() > 0
+            ? config.getS3MultipartPartSizeBytes()
+            : DEFAULT_MULTIPART_PART_SIZE_BYTES,
+        config.getS3DownloadConcurrency() > 0
+            ? config.getS3DownloadConcurrency()
+            : DEFAULT_DOWNLOAD_CONCURRENCY,
+        config.getS3DownloadRangeSizeBytes() > 0
+            ? config.getS3DownloadRangeSizeBytes()
+            : DEFAULT_DOWNLOAD_RANGE_SIZE_BYTES);
   }
 
   static boolean isNullOrEmpty(String target) {
@@ -432,17 +539,299 @@ public class S3BlobFs extends BlobFs {
     s3Client.getObject(getObjectRequest, ResponseTransformer.toFile(dstFile));
   }
 
+  /**
+   * Downloads the files in parallel on the download threads. Files larger than the range size are
+   * split into ranged GETs, that are downloaded in parallel into their offset in the local file.
+   *
+   * <p>The length of a file that isn't known up front is taken from the response to the GET of its
+   * first range, instead of a separate HEAD request per file.
+   */
+  @Override
+  public void copyToLocalFiles(Map<URI, File> srcUrisToDstFiles, Map<URI, Long> srcUriLengths)
+      throws Exception {
+    // Download the first range of the files of unknown length first, so the download threads only
+    // run leaf tasks and no download waits on another one queued behind it.
+    Map<URI, Future<Long>> lengths = new LinkedHashMap<>();
+    for (Map.Entry<URI, File> entry : srcUrisToDstFiles.entrySet()) {
+      URI srcUri = entry.getKey();
+      Long knownLength = srcUriLengths.get(srcUri);
+      lengths.put(
+          srcUri,
+          knownLength != null
+              ? CompletableFuture.completedFuture(knownLength)
+              : downloadExecutor.submit(() -> downloadFirstRange(srcUri, entry.getValue())));
+    }
+    awaitAll(new ArrayList<>(lengths.values()));
+
+    List<Future<?>> downloads = new ArrayList<>();
+    for (Map.Entry<URI, File> entry : srcUrisToDstFiles.entrySet()) {
+      URI srcUri = entry.getKey();
+      File dstFile = entry.getValue();
+      long length = lengths.get(srcUri).get();
+      boolean firstRangeDownloaded = !srcUriLengths.containsKey(srcUri);
+      if (length <= downloadRangeSizeBytes) {
+        if (!firstRangeDownloaded) {
+          downloads.add(
+              downloadExecutor.submit(
+                  () -> {
+                    copyToLocalFile(srcUri, dstFile);
+                    return null;
+                  }));
+        }
+        continue;
+      }
+
+      FileUtils.forceMkdir(dstFile.getParentFile());
+      try (RandomAccessFile file = new RandomAccessFile(dstFile, "rw")) {
+        file.setLength(length);
+      }
+      long firstOffset = firstRangeDownloaded ? downloadRangeSizeBytes : 0;
+      for (long offset = firstOffset; offset < length; offset += downloadRangeSizeBytes) {
+        long rangeStart = offset;
+        long rangeEnd = Math.min(offset + downloadRangeSizeBytes, length) - 1;
+        downloads.add(
+            downloadExecutor.submit(
+                () -> {
+                  downloadRange(srcUri, dstFile, rangeStart, rangeEnd);
+                  return null;
+                }));
+      }
+    }
+    awaitAll(downloads);
+  }
+
+  /**
+   * Downloads the first range of a file into the local file, and returns the length of the whole
+   * file from the Content-Range of the response.
+   */
+  private long downloadFirstRange(URI srcUri, File dstFile) throws IOException {
+    FileUtils.forceMkdir(dstFile.getParentFile());
+    GetObjectRequest getObjectRequest =
+        GetObjectRequest.builder()
+            .bucket(srcUri.getHost())
+            .key(sanitizePath(getBase(srcUri).relativize(srcUri).getPath()))
+            .range(String.format("bytes=0-%d", downloadRangeSizeBytes - 1))
+            .build();
+
+    try (ResponseInputStream<GetObjectResponse> inputStream = s3Client.getObject(getObjectRequest);
+        FileChannel fileChannel =
+            FileChannel.open(
+                dstFile.toPath(),
+                StandardOpenOption.CREATE,
+                StandardOpenOption.WRITE,
+                StandardOpenOption.TRUNCATE_EXISTING)) {
+      long read = writeToChannel(inputStream, fileChannel, 0);
+      String contentRange = inputStream.response().contentRange();
+      // A response without a Content-Range holds the whole file.
+      return contentRange == null
+          ? read
+          : Long.parseLong(contentRange.substring(contentRange.lastIndexOf('/') + 1));
+    } catch (S3Exception e) {
+      // S3 can't serve a range of an empty file.
+      if (e.statusCode() == 416) {
+        FileUtils.write(dstFile, "", StandardCharsets.UTF_8);
+        return 0;
+      }
+      throw e;
+    }
+  }
+
+  private void downloadRange(URI srcUri, File dstFile, long rangeStart, long rangeEnd)
+      throws IOException {
+    URI base = getBase(srcUri);
+    String prefix = sanitizePath(base.relativize(srcUri).getPath());
+    GetObjectRequest getObjectRequest =
+        GetObjectRequest.builder()
+            .bucket(srcUri.getHost())
+            .key(prefix)
+            .range(String.format("bytes=%d-%d", rangeStart, rangeEnd))
+            .build();
+
+    try (InputStream inputStream = s3Client.getObject(getObjectRequest);
+        FileChannel fileChannel = FileChannel.open(dstFile.toPath(), StandardOpenOption.WRITE)) {
+      long read = writeToChannel(inputStream, fileChannel, rangeStart);
+      if (read != rangeEnd - rangeStart + 1) {
+        throw new IOException(
+            String.format(
+                "Expected %d bytes for range %d-%d of %s, got %d",
+                rangeEnd - rangeStart + 1, rangeStart, rangeEnd, srcUri, read));
+      }
+    }
+  }
+
+  // Writes the stream into the channel from the given position, and returns the bytes written.
+  private static long writeToChannel(InputStream inputStream, FileChannel fileChannel, long start)
+      throws IOException {
+    byte[] buffer = new byte[64 * 1024];
+    long position = start;
+    int read;
+    while ((read = inputStream.read(buffer)) != -1) {
+      ByteBuffer byteBuffer = ByteBuffer.wrap(buffer, 0, read);
+      while (byteBuffer.hasRemaining()) {
+        position += fileChannel.write(byteBuffer, position);
+      }
+    }
+    return position - start;
+  }
+
   @Override
   public void copyFromLocalFile(File srcFile, URI dstUri) throws Exception {
+    // The calling thread isn't an upload thread, so the parts of a large file can be uploaded in
+    // parallel.
+    uploadFile(srcFile, dstUri, true);
+  }
+
+  /**
+   * Uploads the files in parallel on the upload threads. Large files are uploaded with a multipart
+   * upload, one part at a time on the thread uploading the file.
+   */
+  @Override
+  public void copyFromLocalFiles(Map<File, URI> srcFilesToDstUris) throws Exception {
+    List<Future<?>> uploads = new ArrayList<>(srcFilesToDstUris.size());
+    for (Map.Entry<File, URI> entry : srcFilesToDstUris.entrySet()) {
+      uploads.add(
+          uploadExecutor.submit(
+              () -> {
+                uploadFile(entry.getKey(), entry.getValue(), false);
+                return null;
+              }));
+    }
+    awaitAll(uploads);
+  }
+
+  private void uploadFile(File srcFile, URI dstUri, boolean parallelParts) throws Exception {
     LOG.debug("Copy {} from local to {}", srcFile.getAbsolutePath(), dstUri);
     URI base = getBase(dstUri);
     String prefix = sanitizePath(base.relativize(dstUri).getPath());
+    if (srcFile.length() > multipartPartSizeBytes) {
+      multipartUpload(srcFile, dstUri.getHost(), prefix, parallelParts);
+      return;
+    }
     PutObjectRequest putObjectRequest =
         PutObjectRequest.builder().bucket(dstUri.getHost()).key(prefix).build();
 
     s3Client.putObject(putObjectRequest, srcFile.toPath());
   }
 
+  private void multipartUpload(File srcFile, String bucket, String key, boolean parallelParts)
+      throws Exception {
+    String uploadId =
+        s3Client
+            .createMultipartUpload(
+                CreateMultipartUploadRequest.builder().bucket(bucket).key(key).build())
+            .uploadId();
+    try {
+      long fileLength = srcFile.length();
+      int partCount = (int) ((fileLength + multipartPartSizeBytes - 1) / multipartPartSizeBytes);
+      List<Callable<CompletedPart>> partUploads = new ArrayList<>(partCount);
+      for (int i = 0; i < partCount; i++) {
+        // Part numbers start at 1.
+        int partNumber = i + 1;
+        long offset = i * multipartPartSizeBytes;
+        int partLength = (int) Math.min(multipartPartSizeBytes, fileLength - offset);
+        partUploads.add(
+            () -> uploadPart(srcFile, bucket, key, uploadId, partNumber, offset, partLength));
+      }
+
+      List<CompletedPart> completedParts = new ArrayList<>(partCount);
+      if (parallelParts) {
+        List<Future<CompletedPart>> futures = new ArrayList<>(partCount);
+        for (Callable<CompletedPart> partUpload : partUploads) {
+          futures.add(uploadExecutor.submit(partUpload));
+        }
+        awaitAll(futures);
+        for (Future<CompletedPart> future : futures) {
+          completedParts.add(future.get());
+        }
+      } else {
+        for (Callable<CompletedPart> partUpload : partUploads) {
+          completedParts.add(partUpload.call());
+        }
+      }
+
+      s3Client.completeMultipartUpload(
+          CompleteMultipartUploadRequest.builder()
+              .bucket(bucket)
+              .key(key)
+              .uploadId(uploadId)
+              .multipartUpload(CompletedMultipartUpload.builder().parts(completedParts).build())
+              .build());
+      LOG.debug("Uploaded {} to s3://{}/{} in {} parts", srcFile, bucket, key, partCount);
+    } catch (Exception e) {
+      // Uploaded parts are stored, and billed, until the multipart upload is aborted.
+      try {
+        s3Client.abortMultipartUpload(
+            AbortMultipartUploadRequest.builder()
+                .bucket(bucket)
+                .key(key)
+                .uploadId(uploadId)
+                .build());
+      } catch (Exception abortException) {
+        e.addSuppressed(abortException);
+      }
+      throw e;
+    }
+  }
+
+  private CompletedPart uploadPart(
+      File srcFile,
+      String bucket,
+      String key,
+      String uploadId,
+      int partNumber,
+      long offset,
+      int partLength)
+      throws IOException {
+    // The part is read into memory so the request can be retried by the client.
+    byte[] part = new byte[partLength];
+    try (RandomAccessFile file = new RandomAccessFile(srcFile, "r")) {
+      file.seek(offset);
+      file.readFully(part);
+    }
+    UploadPartResponse uploadPartResponse =
+        s3Client.uploadPart(
+            UploadPartRequest.builder()
+                .bucket(bucket)
+                .key(key)
+                .uploadId(uploadId)
+                .partNumber(partNumber)
+                .contentLength((long) partLength)
+                .build(),
+            RequestBody.fromBytes(part));
+    return CompletedPart.builder().partNumber(partNumber).eTag(uploadPartResponse.eTag()).build();
+  }
+
+  /** Waits for all the futures, and cancels the rest of them on the first failure. */
+  private static void awaitAll(List<? extends Future<?>> futures) throws Exception {
+    try {
+      for (Future<?> future : futures) {
+        future.get();
+      }
+    } catch (ExecutionException e) {
+      futures.forEach(future -> future.cancel(true));
+      if (e.getCause() instanceof Exception) {
+        throw (Exception) e.getCause();
+      }
+      throw e;
+    } catch (InterruptedException e) {
+      futures.forEach(future -> future.cancel(true));
+      Thread.currentThread().interrupt();
+      throw e;
+    }
+  }
+
+  public int getUploadConcurrency() {
+    return uploadConcurrency;
+  }
+
+  public long getMultipartPartSizeBytes() {
+    return multipartPartSizeBytes;
+  }
+
+  public long getDownloadRangeSizeBytes() {
+    return downloadRangeSizeBytes;
+  }
+
   @Override
   public boolean isDirectory(URI uri) throws IOException {
     try {
@@ -512,13 +901,31 @@ public class S3BlobFs extends BlobFs {
           GetObjectRequest.builder().bucket(uri.getHost()).key(path).build();
 
       return s3Client.getObjectAsBytes(getObjectRequest).asInputStream();
-    } catch (S3Exception e) {
-      throw e;
+    } catch (NoSuchKeyException e) {
+      FileNotFoundException fileNotFoundException = new FileNotFoundException(uri.toString());
+      fileNotFoundException.initCause(e);
+      throw fileNotFoundException;
     }
   }
 
+  @Override
+  public InputStream open(URI uri, long offset, long length) throws IOException {
+    if (length == 0) {
+      return InputStream.nullInputStream();
+    }
+    GetObjectRequest getObjectRequest =
+        GetObjectRequest.builder()
+            .bucket(uri.getHost())
+            .key(sanitizePath(uri.getPath()))
+            .range(String.format("bytes=%d-%d", offset, offset + length - 1))
+            .build();
+    return s3Client.getObject(getObjectRequest);
+  }
+
   @Override
   public void close() throws IOException {
+    uploadExecutor.shutdownNow();
+    downloadExecutor.shutdownNow();
     super.close();
   }
 }
@@ -22,16 +22,20 @@ public class ChunkInfo {
   public static final int DEFAULT_MAX_OFFSET = 0;
 
   public static ChunkInfo fromSnapshotMetadata(SnapshotMetadata snapshotMetadata) {
-    return new ChunkInfo(
-        snapshotMetadata.snapshotId,
-        snapshotMetadata.startTimeEpochMs,
-        snapshotMetadata.endTimeEpochMs,
-        snapshotMetadata.startTimeEpochMs,
-        snapshotMetadata.endTimeEpochMs,
-        snapshotMetadata.endTimeEpochMs,
-        snapshotMetadata.maxOffset,
-        snapshotMetadata.partitionId,
-        snapshotMetadata.snapshotPath);
+    ChunkInfo chunkInfo =
+        new ChunkInfo(
+            snapshotMetadata.snapshotId,
+            snapshotMetadata.startTimeEpochMs,
+            snapshotMetadata.endTimeEpochMs,
+            snapshotMetadata.startTimeEpochMs,
+            snapshotMetadata.endTimeEpochMs,
+            snapshotMetadata.endTimeEpochMs,
+            snapshotMetadata.maxOffset,
+            snapshotMetadata.partitionId,
+            snapshotMetadata.snapshotPath);
+    chunkInfo.setSnapshotIndexType(snapshotMetadata.indexType);
+    chunkInfo.setSnapshotSize(snapshotMetadata.sizeInBytes, snapshotMetadata.numDocs);
+    return chunkInfo;
   }
 
   public static SnapshotMetadata toSnapshotMetadata(ChunkInfo chunkInfo, String chunkPrefix) {
@@ -42,7 +46,9 @@ public class ChunkInfo {
         chunkInfo.getDataEndTimeEpochMs(),
         chunkInfo.maxOffset,
         chunkInfo.kafkaPartitionId,
-        Metadata.IndexType.LOGS_LUCENE9);
+        chunkInfo.snapshotIndexType,
+        chunkInfo.snapshotSizeInBytes,
+        chunkInfo.snapshotNumDocs);
   }
 
   /* A unique identifier for a the chunk. */
@@ -78,6 +84,13 @@ public class ChunkInfo {
   // Path to S3 snapshot.
   private String snapshotPath;
 
+  // Format of the S3 snapshot.
+  private Metadata.IndexType snapshotIndexType = Metadata.IndexType.LOGS_LUCENE9;
+
+  // Size and doc count of the S3 snapshot, or 0 when unknown.
+  private long snapshotSizeInBytes;
+  private long snapshotNumDocs;
+
   public ChunkInfo(
       String chunkId, long chunkCreationTimeEpochMs, String kafkaPartitionId, String snapshotPath) {
     // TODO: Should we set the snapshot time to creation time also?
@@ -164,6 +177,27 @@ public class ChunkInfo {
     return snapshotPath;
   }
 
+  public void setSnapshotIndexType(Metadata.IndexType snapshotIndexType) {
+    this.snapshotIndexType = snapshotIndexType;
+  }
+
+  public Metadata.IndexType getSnapshotIndexType() {
+    return snapshotIndexType;
+  }
+
+  public void setSnapshotSize(long snapshotSizeInBytes, long snapshotNumDocs) {
+    this.snapshotSizeInBytes = snapshotSizeInBytes;
+    this.snapshotNumDocs = snapshotNumDocs;
+  }
+
+  public long getSnapshotSizeInBytes() {
+    return snapshotSizeInBytes;
+  }
+
+  public long getSnapshotNumDocs() {
+    return snapshotNumDocs;
+  }
+
   public void updateMaxOffset(long newOffset) {
     maxOffset = Math.max(maxOffset, newOffset);
   }
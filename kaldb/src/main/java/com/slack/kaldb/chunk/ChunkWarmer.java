@@ -0,0 +1,217 @@
+package com.slack.kaldb.chunk;
+
+import static com.slack.kaldb.util.ArgValidationUtils.ensureTrue;
+
+import com.google.common.io.Files;
+import com.slack.kaldb.logstore.search.LogIndexSearcher;
+import com.slack.kaldb.proto.config.KaldbConfigs;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import java.io.File;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * The ChunkWarmer warms up the chunks of a cache node before they are marked LIVE, so the first
+ * queries on a chunk don't pay for reading its index from disk.
+ *
+ * <p>The small files that every query reads, like the terms and points indexes and the doc values
+ * metadata, are read into the page cache. The chunks with the most recent data, which most queries
+ * hit, can have all their files loaded into memory instead. Then, a set of warm up queries is run
+ * on the chunk, which loads the structures Lucene initializes on first use.
+ *
+ * <p>The memory used to preload files is bounded by a budget for the whole node. A chunk that
+ * doesn't fit in the remaining budget is only warmed up by the queries.
+ */
+public class ChunkWarmer {
+  private static final Logger LOG = LoggerFactory.getLogger(ChunkWarmer.class);
+
+  public static final String CHUNK_WARM_TIMER = "chunk_warm_timer";
+  public static final String CHUNK_WARM_PRELOADED_BYTES = "chunk_warm_preloaded_bytes";
+
+  public static final String DEFAULT_WARM_QUERY = "*:*";
+  private static final int WARM_QUERY_HITS = 100;
+  private static final int WARM_QUERY_BUCKETS = 60;
+
+  // The extensions of the index files that are small, and read by most queries: segment and
+  // field infos, the terms and points indexes, and the doc values and norms metadata.
+  private static final Set<String> HOT_FILE_EXTENSIONS =
+      Set.of("si", "fnm", "tip", "tmd", "kdi", "kdm", "dvm", "nvm", "cfe");
+
+  /** The files preloaded for a chunk, which are released when the chunk is evicted. */
+  public static class Warming {
+    public static final Warming NONE = new Warming(0, false);
+
+    public final long preloadedBytes;
+    // All the files of the chunk are loaded into memory.
+    public final boolean pinned;
+
+    private Warming(long preloadedBytes, boolean pinned) {
+      this.preloadedBytes = preloadedBytes;
+      this.pinned = pinned;
+    }
+  }
+
+  private final boolean enabled;
+  private final List<String> warmQueries;
+  private final long maxPreloadBytes;
+  private final long pinRecentMs;
+  private final MeterRegistry meterRegistry;
+
+  private final AtomicLong preloadedBytes;
+
+  public static ChunkWarmer fromConfig(
+      MeterRegistry meterRegistry, KaldbConfigs.CacheConfig cacheConfig) {
+    return new ChunkWarmer(
+        meterRegistry,
+        cacheConfig.getWarmChunks(),
+        cacheConfig.getWarmQueriesCount() > 0
+            ? cacheConfig.getWarmQueriesList()
+            : List.of(DEFAULT_WARM_QUERY),
+        cacheConfig.getWarmMaxPreloadBytes(),
+        TimeUnit.SECONDS.toMillis(cacheConfig.getWarmPinRecentSecs()));
+  }
+
+  /**
+   * @param maxPreloadBytes the memory used to preload the files of the chunks of the node.
+   * @param pinRecentMs the chunks with data newer than this have all their files loaded into
+   *     memory, or 0 to only preload the small files of the chunks.
+   */
+  public ChunkWarmer(
+      MeterRegistry meterRegistry,
+      boolean enabled,
+      List<String> warmQueries,
+      long maxPreloadBytes,
+      long pinRecentMs) {
+    ensureTrue(maxPreloadBytes >= 0, "Max preload bytes can't be negative.");
+    ensureTrue(pinRecentMs >= 0, "Pin recent duration can't be negative.");
+    this.meterRegistry = meterRegistry;
+    this.enabled = enabled;
+    this.warmQueries = warmQueries;
+    this.maxPreloadBytes = maxPreloadBytes;
+    this.pinRecentMs = pinRecentMs;
+    this.preloadedBytes = meterRegistry.gauge(CHUNK_WARM_PRELOADED_BYTES, new AtomicLong(0));
+  }
+
+  /**
+   * Preloads the files of a chunk, as the budget allows. A pinned chunk should be opened with a
+   * directory that loads all its files into memory.
+   */
+  public Warming preload(Path dataDirectory, long dataEndTimeEpochMs) throws IOException {
+    if (!enabled) {
+      return Warming.NONE;
+    }
+
+    File[] files = dataDirectory.toFile().listFiles(File::isFile);
+    if (files == null) {
+      return Warming.NONE;
+    }
+
+    if (pinRecentMs > 0 && dataEndTimeEpochMs >= Instant.now().toEpochMilli() - pinRecentMs) {
+      long totalBytes = 0;
+      for (File file : files) {
+        totalBytes += file.length();
+      }
+      if (reserve(totalBytes)) {
+        LOG.info("Pinning {} bytes of recent chunk {} in memory", totalBytes, dataDirectory);
+        return new Warming(totalBytes, true);
+      }
+    }
+
+    List<File> hotFiles = new ArrayList<>();
+    long hotBytes = 0;
+    for (File file : files) {
+      if (HOT_FILE_EXTENSIONS.contains(Files.getFileExtension(file.getName()))) {
+        hotFiles.add(file);
+        hotBytes += file.length();
+      }
+    }
+    if (!reserve(hotBytes)) {
+      LOG.info(
+          "Not preloading {} bytes of chunk {}, the preload budget is used up",
+          hotBytes,
+          dataDirectory);
+      return Warming.NONE;
+    }
+    // The caller only releases a warming it got back, so a failed preload releases its own bytes.
+    boolean preloaded = false;
+    try {
+      for (File file : hotFiles) {
+        readFile(file);
+      }
+      preloaded = true;
+    } finally {
+      if (!preloaded) {
+        preloadedBytes.addAndGet(-hotBytes);
+      }
+    }
+    return new Warming(hotBytes, false);
+  }
+
+  private boolean reserve(long bytes) {
+    long current;
+    do {
+      current = preloadedBytes.get();
+      if (current + bytes > maxPreloadBytes) {
+        return false;
+      }
+    } while (!preloadedBytes.compareAndSet(current, current + bytes));
+    return true;
+  }
+
+  // Reads the whole file, which leaves it in the page cache.
+  private static void readFile(File file) throws IOException {
+    try (FileChannel fileChannel = FileChannel.open(file.toPath(), StandardOpenOption.READ)) {
+      ByteBuffer buffer = ByteBuffer.allocate(64 * 1024);
+      while (fileChannel.read(buffer) != -1) {
+        buffer.clear();
+      }
+    }
+  }
+
+  /** Releases the memory of the files preloaded for a chunk. */
+  public void release(Warming warming) {
+    if (warming.preloadedBytes > 0) {
+      preloadedBytes.addAndGet(-warming.preloadedBytes);
+    }
+  }
+
+  /** Runs the warm up queries on the data range of a chunk. Failed queries are only logged. */
+  public void warmSearcher(
+      LogIndexSearcher<?> logSearcher, long dataStartTimeEpochMs, long dataEndTimeEpochMs) {
+    if (!enabled) {
+      return;
+    }
+
+    Timer.Sample warmTimer = Timer.start(meterRegistry);
+    for (String warmQuery : warmQueries) {
+      try {
+        logSearcher.search(
+            "_all",
+            warmQuery,
+            dataStartTimeEpochMs,
+            Math.max(dataEndTimeEpochMs, dataStartTimeEpochMs + 1),
+            WARM_QUERY_HITS,
+            WARM_QUERY_BUCKETS);
+      } catch (Exception e) {
+        LOG.warn("Warm up query {} failed", warmQuery, e);
+      }
+    }
+    warmTimer.stop(meterRegistry.timer(CHUNK_WARM_TIMER));
+  }
+
+  public long getPreloadedBytes() {
+    return preloadedBytes.get();
+  }
+}
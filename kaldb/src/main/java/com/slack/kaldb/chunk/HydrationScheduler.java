@@ -0,0 +1,201 @@
+package com.slack.kaldb.chunk;
+
+import static com.slack.kaldb.util.ArgValidationUtils.ensureTrue;
+
+import com.google.common.util.concurrent.RateLimiter;
+import com.slack.kaldb.proto.config.KaldbConfigs;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import java.nio.file.Path;
+import java.util.Comparator;
+import java.util.PriorityQueue;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.locks.Condition;
+import java.util.concurrent.locks.ReentrantLock;
+import org.apache.commons.io.FileUtils;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * The HydrationScheduler orders the chunk downloads of all the slots on a cache node. It caps the
+ * number of concurrent downloads and the download bandwidth of the node, so a mass assignment
+ * doesn't saturate S3 and the network.
+ *
+ * <p>Waiting downloads are started in priority order. On-demand restores go first, since a user is
+ * waiting on them, and then the snapshots with the newest data, since those are the ones most
+ * queries want.
+ *
+ * <p>The bandwidth limit is enforced between downloads. A download pays for the size of its
+ * snapshot before it starts, which delays the downloads that follow it. The size of older snapshots
+ * isn't known up front, so those pay for the bytes they downloaded once they finish.
+ */
+public class HydrationScheduler {
+  private static final Logger LOG = LoggerFactory.getLogger(HydrationScheduler.class);
+
+  public static final String HYDRATION_QUEUE_DEPTH = "hydration_queue_depth";
+  public static final String HYDRATION_ACTIVE_DOWNLOADS = "hydration_active_downloads";
+  public static final String HYDRATION_WAIT_TIMER = "hydration_wait_timer";
+
+  public static final int DEFAULT_MAX_CONCURRENT_DOWNLOADS = 4;
+
+  // The rate limiter counts permits as ints, so the bandwidth is tracked in kilobytes.
+  private static final int BYTES_PER_PERMIT = 1024;
+
+  /** The priority of a download. Downloads that compare lower are started first. */
+  public static class Priority {
+    private static final Comparator<Priority> COMPARATOR =
+        Comparator.comparing((Priority priority) -> !priority.onDemandRestore)
+            .thenComparing(priority -> -priority.dataEndTimeEpochMs);
+
+    public final boolean onDemandRestore;
+    public final long dataEndTimeEpochMs;
+
+    public Priority(boolean onDemandRestore, long dataEndTimeEpochMs) {
+      this.onDemandRestore = onDemandRestore;
+      this.dataEndTimeEpochMs = dataEndTimeEpochMs;
+    }
+
+    @Override
+    public String toString() {
+      return "Priority{"
+          + "onDemandRestore="
+          + onDemandRestore
+          + ", dataEndTimeEpochMs="
+          + dataEndTimeEpochMs
+          + '}';
+    }
+  }
+
+  private static class Waiter {
+    private final Priority priority;
+    // Breaks ties between downloads of the same priority in arrival order.
+    private final long sequence;
+
+    private Waiter(Priority priority, long sequence) {
+      this.priority = priority;
+      this.sequence = sequence;
+    }
+  }
+
+  private final int maxConcurrentDownloads;
+  private final RateLimiter rateLimiter;
+  private final MeterRegistry meterRegistry;
+
+  private final ReentrantLock lock = new ReentrantLock();
+  private final Condition turnAvailable = lock.newCondition();
+  private final PriorityQueue<Waiter> waiters =
+      new PriorityQueue<>(
+          Comparator.comparing((Waiter waiter) -> waiter.priority, Priority.COMPARATOR)
+              .thenComparingLong(waiter -> waiter.sequence));
+  private final AtomicLong sequence = new AtomicLong();
+  private int activeDownloads = 0;
+
+  private final AtomicInteger queueDepthGauge;
+  private final AtomicInteger activeDownloadsGauge;
+
+  public static HydrationScheduler fromConfig(
+      MeterRegistry meterRegistry, KaldbConfigs.CacheConfig cacheConfig) {
+    return new HydrationScheduler(
+        meterRegistry,
+        cacheConfig.getMaxConcurrentDownloads() > 0
+            ? cacheConfig.getMaxConcurrentDownloads()
+            : DEFAULT_MAX_CONCURRENT_DOWNLOADS,
+        cacheConfig.getMaxDownloadBytesPerSec());
+  }
+
+  /** @param maxDownloadBytesPerSec the max download bandwidth of the node, or 0 for no limit. */
+  public HydrationScheduler(
+      MeterRegistry meterRegistry, int maxConcurrentDownloads, long maxDownloadBytesPerSec) {
+    ensureTrue(maxConcurrentDownloads > 0, "Max concurrent downloads should be positive.");
+    ensureTrue(maxDownloadBytesPerSec >= 0, "Max download bandwidth can't be negative.");
+    this.meterRegistry = meterRegistry;
+    this.maxConcurrentDownloads = maxConcurrentDownloads;
+    this.rateLimiter =
+        maxDownloadBytesPerSec > 0
+            ? RateLimiter.create(Math.max(1.0, (double) maxDownloadBytesPerSec / BYTES_PER_PERMIT))
+            : null;
+    this.queueDepthGauge = meterRegistry.gauge(HYDRATION_QUEUE_DEPTH, new AtomicInteger(0));
+    this.activeDownloadsGauge =
+        meterRegistry.gauge(HYDRATION_ACTIVE_DOWNLOADS, new AtomicInteger(0));
+  }
+
+  /**
+   * Waits for the turn of the download, and runs it on the calling thread.
+   *
+   * @param expectedBytes the size of the download, or 0 if it is unknown.
+   * @return the result of the chunk downloader.
+   */
+  public boolean download(
+      ChunkDownloader chunkDownloader, Path dataDirectory, Priority priority, long expectedBytes)
+      throws Exception {
+    waitForTurn(priority);
+    try {
+      if (expectedBytes > 0) {
+        acquireBandwidth(expectedBytes);
+      }
+      boolean result = chunkDownloader.download();
+      if (expectedBytes <= 0) {
+        acquireBandwidth(FileUtils.sizeOfDirectory(dataDirectory.toFile()));
+      }
+      return result;
+    } finally {
+      releaseTurn();
+    }
+  }
+
+  private void acquireBandwidth(long bytes) {
+    if (rateLimiter == null) {
+      return;
+    }
+    int permits = (int) Math.min(Integer.MAX_VALUE, Math.max(1, bytes / BYTES_PER_PERMIT));
+    double waitSecs = rateLimiter.acquire(permits);
+    if (waitSecs > 0) {
+      LOG.debug("Waited {} secs for download bandwidth for {} bytes", waitSecs, bytes);
+    }
+  }
+
+  private void waitForTurn(Priority priority) throws InterruptedException {
+    Waiter waiter = new Waiter(priority, sequence.incrementAndGet());
+    Timer.Sample waitTimer = Timer.start(meterRegistry);
+    lock.lock();
+    try {
+      waiters.add(waiter);
+      queueDepthGauge.set(waiters.size());
+      while (activeDownloads >= maxConcurrentDownloads || waiters.peek() != waiter) {
+        turnAvailable.await();
+      }
+      waiters.poll();
+      activeDownloads++;
+      queueDepthGauge.set(waiters.size());
+      activeDownloadsGauge.set(activeDownloads);
+      // Another download may be able to start if there is more than one free turn.
+      turnAvailable.signalAll();
+    } catch (InterruptedException e) {
+      waiters.remove(waiter);
+      queueDepthGauge.set(waiters.size());
+      turnAvailable.signalAll();
+      throw e;
+    } finally {
+      lock.unlock();
+    }
+    waitTimer.stop(
+        meterRegistry.timer(
+            HYDRATION_WAIT_TIMER, "onDemandRestore", String.valueOf(priority.onDemandRestore)));
+  }
+
+  private void releaseTurn() {
+    lock.lock();
+    try {
+      activeDownloads--;
+      activeDownloadsGauge.set(activeDownloads);
+      turnAvailable.signalAll();
+    } finally {
+      lock.unlock();
+    }
+  }
+
+  public int getMaxConcurrentDownloads() {
+    return maxConcurrentDownloads;
+  }
+}
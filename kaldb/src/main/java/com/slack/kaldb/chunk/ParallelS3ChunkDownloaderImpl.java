@@ -0,0 +1,127 @@
+package com.slack.kaldb.chunk;
+
+import static com.slack.kaldb.logstore.BlobFsUtils.copyFromS3Packed;
+import static com.slack.kaldb.logstore.BlobFsUtils.createURI;
+import static com.slack.kaldb.logstore.BlobFsUtils.getSnapshotManifest;
+import static com.slack.kaldb.logstore.BlobFsUtils.listSnapshotFiles;
+import static com.slack.kaldb.logstore.BlobFsUtils.verifySnapshotFiles;
+
+import com.slack.kaldb.blobfs.BlobFs;
+import com.slack.kaldb.proto.metadata.Metadata;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.DistributionSummary;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import java.io.File;
+import java.net.URI;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * ParallelS3ChunkDownloaderImpl downloads all the chunk related data from S3 to a local store. The
+ * files are handed to the blobfs as one batch, so a blobfs that supports it can download them in
+ * parallel and split large files into ranged requests.
+ *
+ * <p>The files are read from the snapshot manifest, and verified against it once downloaded.
+ * Snapshots without a manifest are listed instead. Packed snapshots are downloaded as a single
+ * object and unpacked locally.
+ *
+ * <p>The download throughput is reported per slot, and the downloaded bytes for the whole node.
+ */
+public class ParallelS3ChunkDownloaderImpl implements ChunkDownloader {
+  private static final Logger LOG = LoggerFactory.getLogger(ParallelS3ChunkDownloaderImpl.class);
+
+  public static final String CHUNK_DOWNLOAD_BYTES = "chunk_download_bytes";
+  public static final String CHUNK_DOWNLOAD_TIMER = "chunk_download_timer";
+  public static final String CHUNK_DOWNLOAD_THROUGHPUT = "chunk_download_throughput_bytes_per_sec";
+
+  private final String s3Bucket;
+  private final String snapshotId;
+  private final Metadata.IndexType indexType;
+  private final BlobFs blobFs;
+  private final Path dataDirectory;
+
+  private final Counter downloadBytes;
+  private final Timer downloadTimer;
+  private final DistributionSummary downloadThroughput;
+
+  public ParallelS3ChunkDownloaderImpl(
+      String s3Bucket,
+      String snapshotId,
+      Metadata.IndexType indexType,
+      BlobFs blobFs,
+      Path localDataDirectory,
+      MeterRegistry meterRegistry,
+      String slotName) {
+    this.s3Bucket = s3Bucket;
+    this.snapshotId = snapshotId;
+    this.indexType = indexType;
+    this.blobFs = blobFs;
+    this.dataDirectory = localDataDirectory;
+
+    this.downloadBytes = meterRegistry.counter(CHUNK_DOWNLOAD_BYTES);
+    this.downloadTimer = meterRegistry.timer(CHUNK_DOWNLOAD_TIMER, "slotName", slotName);
+    this.downloadThroughput =
+        meterRegistry.summary(CHUNK_DOWNLOAD_THROUGHPUT, "slotName", slotName);
+  }
+
+  @Override
+  public boolean download() throws Exception {
+    long startTime = System.nanoTime();
+    Map<URI, File> filesToCopy = new LinkedHashMap<>();
+    if (indexType == Metadata.IndexType.LOGS_LUCENE9_PACKED) {
+      // The whole snapshot is a single object, which is downloaded with large ranged reads.
+      for (String fileName : copyFromS3Packed(s3Bucket, snapshotId, blobFs, dataDirectory)) {
+        filesToCopy.put(
+            createURI(s3Bucket, snapshotId, fileName),
+            new File(dataDirectory.toString(), fileName));
+      }
+    } else {
+      Metadata.SnapshotManifest manifest = getSnapshotManifest(s3Bucket, snapshotId, blobFs);
+      if (manifest != null) {
+        // The manifest has the files and their sizes, so the download can start without listing
+        // the snapshot or looking up the size of each file.
+        Map<URI, Long> lengths = new HashMap<>();
+        for (Metadata.SnapshotManifest.FileEntry fileEntry : manifest.getFilesList()) {
+          URI fileToCopy = createURI(s3Bucket, snapshotId, fileEntry.getName());
+          filesToCopy.put(fileToCopy, new File(dataDirectory.toString(), fileEntry.getName()));
+          lengths.put(fileToCopy, fileEntry.getLength());
+        }
+        blobFs.copyToLocalFiles(filesToCopy, lengths);
+        verifySnapshotFiles(manifest, dataDirectory);
+      } else {
+        for (String fileName : listSnapshotFiles(s3Bucket, snapshotId, blobFs)) {
+          URI fileToCopy = URI.create(fileName);
+          filesToCopy.put(
+              fileToCopy,
+              new File(
+                  dataDirectory.toString(),
+                  Paths.get(fileToCopy.getPath()).getFileName().toString()));
+        }
+        blobFs.copyToLocalFiles(filesToCopy);
+      }
+    }
+
+    long durationNanos = System.nanoTime() - startTime;
+    long bytes = filesToCopy.values().stream().mapToLong(File::length).sum();
+    downloadTimer.record(durationNanos, TimeUnit.NANOSECONDS);
+    downloadBytes.increment(bytes);
+    double bytesPerSec = bytes / (Math.max(durationNanos, 1) / 1e9);
+    downloadThroughput.record(bytesPerSec);
+    LOG.info(
+        "Downloaded {} files of {} bytes from bucket={} prefix={} in {} ms ({} bytes/sec)",
+        filesToCopy.size(),
+        bytes,
+        s3Bucket,
+        snapshotId,
+        TimeUnit.NANOSECONDS.toMillis(durationNanos),
+        (long) bytesPerSec);
+    return filesToCopy.isEmpty();
+  }
+}
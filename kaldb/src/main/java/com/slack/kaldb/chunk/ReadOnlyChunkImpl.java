@@ -1,14 +1,16 @@
 package com.slack.kaldb.chunk;
 
 import com.google.common.annotations.VisibleForTesting;
-import com.google.common.util.concurrent.ThreadFactoryBuilder;
 import com.slack.kaldb.blobfs.BlobFs;
+import com.slack.kaldb.logstore.BlobFsBlockCache;
+import com.slack.kaldb.logstore.BlobFsDirectory;
 import com.slack.kaldb.logstore.search.LogIndexSearcher;
 import com.slack.kaldb.logstore.search.LogIndexSearcherImpl;
 import com.slack.kaldb.logstore.search.SearchQuery;
 import com.slack.kaldb.logstore.search.SearchResult;
 import com.slack.kaldb.metadata.cache.CacheSlotMetadata;
 import com.slack.kaldb.metadata.cache.CacheSlotMetadataStore;
+import com.slack.kaldb.metadata.cache.CacheSlotWatcher;
 import com.slack.kaldb.metadata.core.KaldbMetadataStoreChangeListener;
 import com.slack.kaldb.metadata.replica.ReplicaMetadata;
 import com.slack.kaldb.metadata.replica.ReplicaMetadataStore;
@@ -16,8 +18,8 @@ import com.slack.kaldb.metadata.search.SearchMetadata;
 import com.slack.kaldb.metadata.search.SearchMetadataStore;
 import com.slack.kaldb.metadata.snapshot.SnapshotMetadata;
 import com.slack.kaldb.metadata.snapshot.SnapshotMetadataStore;
-import com.slack.kaldb.metadata.zookeeper.MetadataStore;
 import com.slack.kaldb.proto.metadata.Metadata;
+import com.slack.kaldb.util.KeyedSerialExecutor;
 import io.micrometer.core.instrument.MeterRegistry;
 import io.micrometer.core.instrument.Timer;
 import java.io.IOException;
@@ -27,10 +29,12 @@ import java.time.Instant;
 import java.util.UUID;
 import java.util.concurrent.ExecutionException;
 import java.util.concurrent.ExecutorService;
-import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.RejectedExecutionException;
 import java.util.concurrent.TimeUnit;
 import java.util.concurrent.TimeoutException;
 import org.apache.commons.io.FileUtils;
+import org.apache.lucene.search.SearcherManager;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
@@ -49,7 +53,14 @@ public class ReadOnlyChunkImpl<T> implements Chunk<T> {
   private LogIndexSearcher<T> logSearcher;
   private SearchMetadata searchMetadata;
   private Path dataDirectory;
-  private Metadata.CacheSlotMetadata.CacheSlotState cacheSlotLastKnownState;
+  // The directory of a snapshot that is read on demand, instead of being downloaded.
+  private BlobFsDirectory lazyDirectory;
+  private ChunkWarmer.Warming warming = ChunkWarmer.Warming.NONE;
+  // The last version of the slot that was handled. A new version of the slot is handled even if
+  // its state is the same, as a slot can be freed and assigned again before its changes are
+  // handled.
+  private volatile CacheSlotMetadata lastHandledCacheSlot;
+  private volatile Future<?> assignment;
 
   private final String dataDirectoryPrefix;
   private final String s3Bucket;
@@ -60,8 +71,14 @@ public class ReadOnlyChunkImpl<T> implements Chunk<T> {
   private final SnapshotMetadataStore snapshotMetadataStore;
   private final SearchMetadataStore searchMetadataStore;
   private final MeterRegistry meterRegistry;
-  private final ExecutorService executorService;
+  private final CacheSlotWatcher cacheSlotWatcher;
+  private final KeyedSerialExecutor slotExecutor;
+  private final ExecutorService hydrationExecutor;
   private final BlobFs blobFs;
+  private final HydrationScheduler hydrationScheduler;
+  private final SnapshotDiskCache snapshotDiskCache;
+  private final BlobFsBlockCache blockCache;
+  private final ChunkWarmer chunkWarmer;
 
   public static final String CHUNK_ASSIGNMENT_TIMER = "chunk_assignment_timer";
   public static final String CHUNK_EVICTION_TIMER = "chunk_eviction_timer";
@@ -72,7 +89,9 @@ public class ReadOnlyChunkImpl<T> implements Chunk<T> {
   private final Timer chunkEvictionTimerFailure;
 
   public ReadOnlyChunkImpl(
-      MetadataStore metadataStore,
+      CacheSlotWatcher cacheSlotWatcher,
+      KeyedSerialExecutor slotExecutor,
+      ExecutorService hydrationExecutor,
       MeterRegistry meterRegistry,
       BlobFs blobFs,
       SearchContext searchContext,
@@ -81,19 +100,29 @@ public class ReadOnlyChunkImpl<T> implements Chunk<T> {
       CacheSlotMetadataStore cacheSlotMetadataStore,
       ReplicaMetadataStore replicaMetadataStore,
       SnapshotMetadataStore snapshotMetadataStore,
-      SearchMetadataStore searchMetadataStore)
+      SearchMetadataStore searchMetadataStore,
+      HydrationScheduler hydrationScheduler,
+      SnapshotDiskCache snapshotDiskCache,
+      BlobFsBlockCache blockCache,
+      ChunkWarmer chunkWarmer)
       throws Exception {
     String slotId = UUID.randomUUID().toString();
     this.meterRegistry = meterRegistry;
     this.blobFs = blobFs;
+    this.hydrationScheduler = hydrationScheduler;
+    this.snapshotDiskCache = snapshotDiskCache;
+    this.blockCache = blockCache;
+    this.chunkWarmer = chunkWarmer;
     this.s3Bucket = s3Bucket;
     this.dataDirectoryPrefix = dataDirectoryPrefix;
 
-    // we use a single thread executor to allow operations for this chunk to queue,
-    // guaranteeing that they are executed in the order they were received
-    this.executorService =
-        Executors.newSingleThreadExecutor(
-            new ThreadFactoryBuilder().setNameFormat("readonly-chunk-%d").build());
+    // the state changes of this chunk are queued on an executor shared by all the chunks of the
+    // node, which guarantees that they are executed in the order they were received. Assignments
+    // wait on the hydration scheduler, so they run on their own executor to not hold up the state
+    // changes of the other chunks.
+    this.cacheSlotWatcher = cacheSlotWatcher;
+    this.slotExecutor = slotExecutor;
+    this.hydrationExecutor = hydrationExecutor;
     this.searchContext = searchContext;
     this.slotName = String.format("%s-%s", searchContext.hostname, slotId);
 
@@ -110,10 +139,8 @@ public class ReadOnlyChunkImpl<T> implements Chunk<T> {
             Instant.now().toEpochMilli());
     cacheSlotMetadataStore.createSync(cacheSlotMetadata);
 
-    CacheSlotMetadataStore cacheSlotListenerMetadataStore =
-        new CacheSlotMetadataStore(metadataStore, slotName, true);
-    cacheSlotListenerMetadataStore.addListener(cacheNodeListener());
-    cacheSlotLastKnownState = Metadata.CacheSlotMetadata.CacheSlotState.FREE;
+    lastHandledCacheSlot = cacheSlotMetadata;
+    cacheSlotWatcher.watch(slotName, cacheNodeListener());
 
     chunkAssignmentTimerSuccess =
         meterRegistry.timer(CHUNK_ASSIGNMENT_TIMER, "slotName", slotName, "successful", "true");
@@ -129,29 +156,48 @@ public class ReadOnlyChunkImpl<T> implements Chunk<T> {
 
   private KaldbMetadataStoreChangeListener cacheNodeListener() {
     return () -> {
-      CacheSlotMetadata cacheSlotMetadata = cacheSlotMetadataStore.getNodeSync(slotName);
-      Metadata.CacheSlotMetadata.CacheSlotState newSlotState = cacheSlotMetadata.cacheSlotState;
-
-      if (newSlotState.equals(Metadata.CacheSlotMetadata.CacheSlotState.ASSIGNED)) {
-        LOG.info("Chunk - ASSIGNED received");
-        if (!cacheSlotLastKnownState.equals(Metadata.CacheSlotMetadata.CacheSlotState.FREE)) {
-          LOG.warn(
-              "Unexpected state transition from {} to {}", cacheSlotLastKnownState, newSlotState);
-        }
-        executorService.submit(() -> handleChunkAssignment(cacheSlotMetadata));
-      } else if (newSlotState.equals(Metadata.CacheSlotMetadata.CacheSlotState.EVICT)) {
-        LOG.info("Chunk - EVICT received");
-        if (!cacheSlotLastKnownState.equals(Metadata.CacheSlotMetadata.CacheSlotState.LIVE)) {
-          LOG.warn(
-              "Unexpected state transition from {} to {}", cacheSlotLastKnownState, newSlotState);
-        }
-        executorService.submit(this::handleChunkEviction);
+      try {
+        slotExecutor.execute(slotName, this::handleSlotChange);
+      } catch (RejectedExecutionException e) {
+        LOG.debug("Ignoring change of closed slot {}", slotName);
       }
-
-      cacheSlotLastKnownState = newSlotState;
     };
   }
 
+  // The slot is read when the change is handled instead of when it is received, so a burst of
+  // changes queued for this slot only acts on the latest version, and a version is only acted on
+  // once even if several queued changes read it.
+  private void handleSlotChange() {
+    CacheSlotMetadata cacheSlotMetadata = cacheSlotMetadataStore.getNodeSync(slotName);
+    if (cacheSlotMetadata.equals(lastHandledCacheSlot)) {
+      return;
+    }
+    Metadata.CacheSlotMetadata.CacheSlotState cacheSlotLastKnownState =
+        lastHandledCacheSlot.cacheSlotState;
+    Metadata.CacheSlotMetadata.CacheSlotState newSlotState = cacheSlotMetadata.cacheSlotState;
+    lastHandledCacheSlot = cacheSlotMetadata;
+
+    if (newSlotState.equals(Metadata.CacheSlotMetadata.CacheSlotState.ASSIGNED)) {
+      LOG.info("Chunk - ASSIGNED received");
+      if (!cacheSlotLastKnownState.equals(Metadata.CacheSlotMetadata.CacheSlotState.FREE)) {
+        LOG.warn(
+            "Unexpected state transition from {} to {}", cacheSlotLastKnownState, newSlotState);
+      }
+      try {
+        assignment = hydrationExecutor.submit(() -> handleChunkAssignment(cacheSlotMetadata));
+      } catch (RejectedExecutionException e) {
+        LOG.debug("Ignoring assignment of closed slot {}", slotName);
+      }
+    } else if (newSlotState.equals(Metadata.CacheSlotMetadata.CacheSlotState.EVICT)) {
+      LOG.info("Chunk - EVICT received");
+      if (!cacheSlotLastKnownState.equals(Metadata.CacheSlotMetadata.CacheSlotState.LIVE)) {
+        LOG.warn(
+            "Unexpected state transition from {} to {}", cacheSlotLastKnownState, newSlotState);
+      }
+      handleChunkEviction();
+    }
+  }
+
   @VisibleForTesting
   public static SearchMetadata registerSearchMetadata(
       SearchMetadataStore searchMetadataStore,
@@ -192,18 +238,59 @@ public class ReadOnlyChunkImpl<T> implements Chunk<T> {
         cleanDirectory();
       }
 
-      SnapshotMetadata snapshotMetadata = getSnapshotMetadata(cacheSlotMetadata.replicaId);
-      SerialS3ChunkDownloaderImpl chunkDownloader =
-          new SerialS3ChunkDownloaderImpl(
-              s3Bucket, snapshotMetadata.snapshotId, blobFs, dataDirectory);
-      if (chunkDownloader.download()) {
-        throw new IOException("No files found on blob storage, released slot for re-assignment");
+      ReplicaMetadata replicaMetadata =
+          replicaMetadataStore
+              .getNode(cacheSlotMetadata.replicaId)
+              .get(TIMEOUT_MS, TimeUnit.MILLISECONDS);
+      SnapshotMetadata snapshotMetadata = getSnapshotMetadata(replicaMetadata);
+      SearcherManager searcherManager;
+      if (blockCache.isEnabled() && replicaMetadata.isRestored) {
+        // Restored snapshots are only queried a few times before they expire, so they are read
+        // on demand instead of being downloaded.
+        lazyDirectory =
+            BlobFsDirectory.open(
+                s3Bucket,
+                snapshotMetadata.snapshotId,
+                snapshotMetadata.indexType,
+                blobFs,
+                blockCache);
+        searcherManager = new SearcherManager(lazyDirectory, null);
+        LOG.info("Reading snapshot {} on demand", snapshotMetadata.snapshotId);
+      } else {
+        if (snapshotDiskCache.take(snapshotMetadata.snapshotId, dataDirectory)) {
+          LOG.info("Using snapshot {} from the disk cache", snapshotMetadata.snapshotId);
+        } else {
+          ChunkDownloader chunkDownloader =
+              new ParallelS3ChunkDownloaderImpl(
+                  s3Bucket,
+                  snapshotMetadata.snapshotId,
+                  snapshotMetadata.indexType,
+                  blobFs,
+                  dataDirectory,
+                  meterRegistry,
+                  slotName);
+          HydrationScheduler.Priority priority =
+              new HydrationScheduler.Priority(
+                  replicaMetadata.isRestored, snapshotMetadata.endTimeEpochMs);
+          if (hydrationScheduler.download(
+              chunkDownloader, dataDirectory, priority, snapshotMetadata.sizeInBytes)) {
+            throw new IOException(
+                "No files found on blob storage, released slot for re-assignment");
+          }
+        }
+        warming = chunkWarmer.preload(dataDirectory, snapshotMetadata.endTimeEpochMs);
+        searcherManager =
+            LogIndexSearcherImpl.searcherManagerFromPath(dataDirectory, warming.pinned);
       }
 
       this.chunkInfo = ChunkInfo.fromSnapshotMetadata(snapshotMetadata);
-      this.logSearcher =
-          (LogIndexSearcher<T>)
-              new LogIndexSearcherImpl(LogIndexSearcherImpl.searcherManagerFromPath(dataDirectory));
+      this.logSearcher = (LogIndexSearcher<T>) new LogIndexSearcherImpl(searcherManager);
+      // run the warm up queries before the slot is LIVE, so the first queries are not slowed down.
+      // A snapshot read on demand is not warmed, as the queries would download most of it.
+      if (lazyDirectory == null) {
+        chunkWarmer.warmSearcher(
+            logSearcher, snapshotMetadata.startTimeEpochMs, snapshotMetadata.endTimeEpochMs);
+      }
 
       // we first mark the slot LIVE before registering the search metadata as available
       if (!setChunkMetadataState(Metadata.CacheSlotMetadata.CacheSlotState.LIVE)) {
@@ -216,16 +303,20 @@ public class ReadOnlyChunkImpl<T> implements Chunk<T> {
     } catch (Exception e) {
       // if any error occurs during the chunk assignment, try to release the slot for re-assignment,
       // disregarding any errors
+      chunkWarmer.release(warming);
+      warming = ChunkWarmer.Warming.NONE;
+      if (lazyDirectory != null) {
+        lazyDirectory.close();
+        lazyDirectory = null;
+      }
       setChunkMetadataState(Metadata.CacheSlotMetadata.CacheSlotState.FREE);
       LOG.error("Error handling chunk assignment", e);
       assignmentTimer.stop(chunkAssignmentTimerFailure);
     }
   }
 
-  private SnapshotMetadata getSnapshotMetadata(String replicaId)
+  private SnapshotMetadata getSnapshotMetadata(ReplicaMetadata replicaMetadata)
       throws ExecutionException, InterruptedException, TimeoutException {
-    ReplicaMetadata replicaMetadata =
-        replicaMetadataStore.getNode(replicaId).get(TIMEOUT_MS, TimeUnit.MILLISECONDS);
     return snapshotMetadataStore
         .getNode(replicaMetadata.snapshotId)
         .get(TIMEOUT_MS, TimeUnit.MILLISECONDS);
@@ -246,6 +337,17 @@ public class ReadOnlyChunkImpl<T> implements Chunk<T> {
       if (logSearcher != null) {
         logSearcher.close();
       }
+      if (lazyDirectory != null) {
+        lazyDirectory.close();
+        lazyDirectory = null;
+      }
+      chunkWarmer.release(warming);
+      warming = ChunkWarmer.Warming.NONE;
+
+      // keep the files of the snapshot on disk, in case it is assigned to this node again
+      if (chunkInfo != null && dataDirectory != null) {
+        snapshotDiskCache.put(chunkInfo.chunkId, dataDirectory);
+      }
 
       chunkInfo = null;
       logSearcher = null;
@@ -299,6 +401,10 @@ public class ReadOnlyChunkImpl<T> implements Chunk<T> {
     return cacheSlotMetadataStore.getNodeSync(slotName).cacheSlotState;
   }
 
+  public String getSlotName() {
+    return slotName;
+  }
+
   @VisibleForTesting
   public Path getDataDirectory() {
     return dataDirectory;
@@ -319,15 +425,19 @@ public class ReadOnlyChunkImpl<T> implements Chunk<T> {
 
   @Override
   public void close() throws IOException {
-    // Attempt to forcibly shutdown the executor service. This prevents any further downloading of
-    // data from S3 that would be unused. We cannot wait for the result of this as there may be
-    // many ReadOnlyChunks that all need to be shutdown.
-    executorService.shutdownNow();
+    // Attempt to forcibly stop the queued operations of this slot. This prevents any further
+    // downloading of data from S3 that would be unused. We cannot wait for the result of this as
+    // there may be many ReadOnlyChunks that all need to be shutdown.
+    slotExecutor.shutdownNow(slotName);
+    cacheSlotWatcher.unwatch(slotName);
+    Future<?> assignment = this.assignment;
+    if (assignment != null) {
+      assignment.cancel(true);
+    }
 
     // Attempt to evict the chunk
     handleChunkEviction();
 
-    cacheSlotMetadataStore.close();
     LOG.info("Closed chunk");
   }
 
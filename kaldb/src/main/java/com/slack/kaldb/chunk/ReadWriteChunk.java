@@ -2,6 +2,7 @@ package com.slack.kaldb.chunk;
 
 import static com.slack.kaldb.chunk.ChunkInfo.toSnapshotMetadata;
 import static com.slack.kaldb.logstore.BlobFsUtils.copyToS3;
+import static com.slack.kaldb.logstore.BlobFsUtils.copyToS3Packed;
 import static com.slack.kaldb.logstore.BlobFsUtils.createURI;
 
 import com.google.common.annotations.VisibleForTesting;
@@ -17,14 +18,20 @@ import com.slack.kaldb.metadata.search.SearchMetadata;
 import com.slack.kaldb.metadata.search.SearchMetadataStore;
 import com.slack.kaldb.metadata.snapshot.SnapshotMetadata;
 import com.slack.kaldb.metadata.snapshot.SnapshotMetadataStore;
+import com.slack.kaldb.proto.metadata.Metadata;
 import io.micrometer.core.instrument.Counter;
 import io.micrometer.core.instrument.MeterRegistry;
 import io.micrometer.core.instrument.Timer;
 import java.io.IOException;
+import java.nio.file.Files;
 import java.nio.file.Path;
 import java.time.Instant;
+import java.util.ArrayList;
 import java.util.Collection;
+import java.util.List;
 import org.apache.lucene.index.IndexCommit;
+import org.apache.lucene.index.SegmentCommitInfo;
+import org.apache.lucene.index.SegmentInfos;
 import org.slf4j.Logger;
 
 /**
@@ -93,7 +100,8 @@ public abstract class ReadWriteChunk<T> implements Chunk<T> {
     this.logStore = logStore;
     String logStoreId = ((LuceneIndexStoreImpl) logStore).getId();
     this.logSearcher =
-        (LogIndexSearcher<T>) new LogIndexSearcherImpl(logStore.getSearcherManager());
+        (LogIndexSearcher<T>)
+            new LogIndexSearcherImpl(logStore.getSearcherManager(), logStore::getSchema);
 
     // Create chunk metadata
     Instant chunkCreationTime = Instant.now();
@@ -154,6 +162,39 @@ public abstract class ReadWriteChunk<T> implements Chunk<T> {
     }
   }
 
+  /**
+   * Add the messages of the given chunks to this chunk, and extend the time range and the max
+   * offset of this chunk to cover them. The messages are merged into one segment sorted like the
+   * rest of the index. The given chunks are left unchanged, so the caller still has to close them.
+   */
+  public void addChunks(List<ReadWriteChunk<T>> chunks) throws IOException {
+    if (readOnly) {
+      throw new IllegalStateException(String.format("Chunk %s is read only", chunkInfo));
+    }
+    List<LogStore<T>> logStores = new ArrayList<>(chunks.size());
+    for (ReadWriteChunk<T> chunk : chunks) {
+      if (!kafkaPartitionId.equals(chunk.kafkaPartitionId)) {
+        throw new IllegalArgumentException(
+            "All messages for this chunk should belong to partition: "
+                + kafkaPartitionId
+                + " not "
+                + chunk.kafkaPartitionId);
+      }
+      logStores.add(chunk.logStore);
+    }
+    logStore.addIndexes(logStores);
+
+    for (ReadWriteChunk<T> chunk : chunks) {
+      // a chunk without any messages has no data time range yet
+      if (chunk.chunkInfo.getDataEndTimeEpochMs() != ChunkInfo.MAX_FUTURE_TIME) {
+        chunkInfo.updateDataTimeRange(chunk.chunkInfo.getDataStartTimeEpochMs());
+        chunkInfo.updateDataTimeRange(chunk.chunkInfo.getDataEndTimeEpochMs());
+      }
+      chunkInfo.updateMaxOffset(chunk.chunkInfo.getMaxOffset());
+    }
+    logger.info("Added {} chunks to chunk {}", chunks.size(), chunkInfo);
+  }
+
   @Override
   public ChunkInfo info() {
     return chunkInfo;
@@ -220,10 +261,15 @@ public abstract class ReadWriteChunk<T> implements Chunk<T> {
       }
       this.fileUploadAttempts.increment(activeFiles.size());
       Timer.Sample snapshotTimer = Timer.start(meterRegistry);
-      final int success = copyToS3(dirPath, activeFiles, bucket, prefix, blobFs);
+      final int success =
+          chunkInfo.getSnapshotIndexType() == Metadata.IndexType.LOGS_LUCENE9_PACKED
+              ? copyToS3Packed(dirPath, activeFiles, bucket, prefix, blobFs)
+              : copyToS3(dirPath, activeFiles, bucket, prefix, blobFs);
       snapshotTimer.stop(meterRegistry.timer(SNAPSHOT_TIMER));
       this.fileUploadFailures.increment(activeFiles.size() - success);
       chunkInfo.setSnapshotPath(createURI(bucket, prefix, "").toString());
+      chunkInfo.setSnapshotSize(
+          getSnapshotSizeInBytes(dirPath, activeFiles), getSnapshotNumDocs(indexCommit));
       logger.info("Finished RW chunk snapshot to S3 {}.", chunkInfo);
       return true;
     } catch (Exception e) {
@@ -234,6 +280,26 @@ public abstract class ReadWriteChunk<T> implements Chunk<T> {
     }
   }
 
+  private static long getSnapshotSizeInBytes(Path dirPath, Collection<String> files)
+      throws IOException {
+    long sizeInBytes = 0;
+    for (String fileName : files) {
+      sizeInBytes += Files.size(dirPath.resolve(fileName));
+    }
+    return sizeInBytes;
+  }
+
+  // Reads the doc count from the segment infos of the commit, without opening the segments.
+  private static long getSnapshotNumDocs(IndexCommit indexCommit) throws IOException {
+    SegmentInfos segmentInfos =
+        SegmentInfos.readCommit(indexCommit.getDirectory(), indexCommit.getSegmentsFileName());
+    long numDocs = 0;
+    for (SegmentCommitInfo segmentCommitInfo : segmentInfos) {
+      numDocs += segmentCommitInfo.info.maxDoc() - segmentCommitInfo.getDelCount();
+    }
+    return numDocs;
+  }
+
   @VisibleForTesting
   public void setLogSearcher(LogIndexSearcher<T> logSearcher) {
     this.logSearcher = logSearcher;
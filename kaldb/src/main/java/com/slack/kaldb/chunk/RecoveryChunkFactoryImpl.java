@@ -8,6 +8,7 @@ import com.slack.kaldb.logstore.LuceneIndexStoreImpl;
 import com.slack.kaldb.metadata.search.SearchMetadataStore;
 import com.slack.kaldb.metadata.snapshot.SnapshotMetadataStore;
 import com.slack.kaldb.proto.config.KaldbConfigs;
+import com.slack.kaldb.proto.metadata.Metadata;
 import io.micrometer.core.instrument.MeterRegistry;
 import java.io.File;
 import java.io.IOException;
@@ -49,19 +50,28 @@ public class RecoveryChunkFactoryImpl<T> implements ChunkFactory<T> {
     ensureNonNullString(kafkaPartitionId, "kafkaPartitionId can't be null and should be set.");
     ensureNonNullString(indexerConfig.getDataDirectory(), "The data directory shouldn't be empty");
     final File dataDirectory = new File(indexerConfig.getDataDirectory());
+    // Recovery chunks are only searched once they are uploaded, so index them for throughput.
     LogStore<T> logStore =
         (LogStore<T>)
-            LuceneIndexStoreImpl.makeLogStore(
+            LuceneIndexStoreImpl.makeBulkLogStore(
                 dataDirectory, indexerConfig.getLuceneConfig(), meterRegistry);
 
-    return new RecoveryChunkImpl<>(
-        logStore,
-        chunkDataPrefix,
-        meterRegistry,
-        searchMetadataStore,
-        snapshotMetadataStore,
-        searchContext,
-        kafkaPartitionId);
+    ReadWriteChunk<T> chunk =
+        new RecoveryChunkImpl<>(
+            logStore,
+            chunkDataPrefix,
+            meterRegistry,
+            searchMetadataStore,
+            snapshotMetadataStore,
+            searchContext,
+            kafkaPartitionId);
+    chunk
+        .info()
+        .setSnapshotIndexType(
+            indexerConfig.getPackSnapshots()
+                ? Metadata.IndexType.LOGS_LUCENE9_PACKED
+                : Metadata.IndexType.LOGS_LUCENE9);
+    return chunk;
   }
 
   @Override
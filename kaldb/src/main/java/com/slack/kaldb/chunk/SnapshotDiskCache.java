@@ -0,0 +1,298 @@
+package com.slack.kaldb.chunk;
+
+import static com.slack.kaldb.logstore.BlobFsUtils.SNAPSHOT_MANIFEST_FILE;
+import static com.slack.kaldb.logstore.BlobFsUtils.createSnapshotManifest;
+import static com.slack.kaldb.logstore.BlobFsUtils.verifySnapshotFiles;
+import static com.slack.kaldb.util.ArgValidationUtils.ensureTrue;
+
+import com.google.common.annotations.VisibleForTesting;
+import com.google.protobuf.util.JsonFormat;
+import com.slack.kaldb.proto.config.KaldbConfigs;
+import com.slack.kaldb.proto.metadata.Metadata;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import java.io.File;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.UUID;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
+import org.apache.commons.io.FileUtils;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * The SnapshotDiskCache keeps the files of the snapshots evicted from the slots of a cache node on
+ * local disk, so a snapshot that is assigned to the node again is not downloaded again. The cache
+ * is kept across restarts, since the slots hand their files to the cache when they are closed.
+ *
+ * <p>Each snapshot is stored in its own directory, named after the snapshot id, with a manifest of
+ * the lengths and checksums of its files. The files are moved in and out of the cache, so the cache
+ * directory should be on the same filesystem as the slot directories. Files taken from the cache
+ * are verified against their manifest before they are used.
+ *
+ * <p>The cache is bounded by a byte budget, and the least recently added snapshots are removed
+ * first once it is exceeded.
+ */
+public class SnapshotDiskCache {
+  private static final Logger LOG = LoggerFactory.getLogger(SnapshotDiskCache.class);
+
+  public static final String SNAPSHOT_DISK_CACHE_HITS = "snapshot_disk_cache_hits";
+  public static final String SNAPSHOT_DISK_CACHE_MISSES = "snapshot_disk_cache_misses";
+  public static final String SNAPSHOT_DISK_CACHE_EVICTIONS = "snapshot_disk_cache_evictions";
+  public static final String SNAPSHOT_DISK_CACHE_BYTES = "snapshot_disk_cache_bytes";
+
+  public static final String CACHE_DIRECTORY_NAME = "kaldb-snapshot-cache";
+  private static final String STAGING_SUFFIX = ".staging";
+
+  private final Path cacheDirectory;
+  private final long maxBytes;
+
+  // Snapshot ids mapped to their size in bytes, from the least to the most recently added.
+  private final LinkedHashMap<String, Long> entries = new LinkedHashMap<>();
+  private long totalBytes = 0;
+
+  private final Counter hits;
+  private final Counter misses;
+  private final Counter evictions;
+  private final AtomicLong bytesGauge;
+
+  public static SnapshotDiskCache fromConfig(
+      MeterRegistry meterRegistry, KaldbConfigs.CacheConfig cacheConfig) throws IOException {
+    return new SnapshotDiskCache(
+        meterRegistry,
+        Path.of(cacheConfig.getDataDirectory(), CACHE_DIRECTORY_NAME),
+        cacheConfig.getDiskCacheMaxBytes());
+  }
+
+  /** @param maxBytes the disk space used by the cache, or 0 to disable the cache. */
+  public SnapshotDiskCache(MeterRegistry meterRegistry, Path cacheDirectory, long maxBytes)
+      throws IOException {
+    ensureTrue(maxBytes >= 0, "Disk cache size can't be negative.");
+    this.cacheDirectory = cacheDirectory;
+    this.maxBytes = maxBytes;
+
+    this.hits = meterRegistry.counter(SNAPSHOT_DISK_CACHE_HITS);
+    this.misses = meterRegistry.counter(SNAPSHOT_DISK_CACHE_MISSES);
+    this.evictions = meterRegistry.counter(SNAPSHOT_DISK_CACHE_EVICTIONS);
+    this.bytesGauge = meterRegistry.gauge(SNAPSHOT_DISK_CACHE_BYTES, new AtomicLong(0));
+
+    if (isEnabled()) {
+      Files.createDirectories(cacheDirectory);
+      loadEntries();
+    }
+  }
+
+  public boolean isEnabled() {
+    return maxBytes > 0;
+  }
+
+  /**
+   * Loads the snapshots left in the cache directory by a previous run, in the order they were
+   * added. Incomplete entries are removed.
+   */
+  private void loadEntries() throws IOException {
+    List<Path> entryDirectories;
+    try (Stream<Path> paths = Files.list(cacheDirectory)) {
+      entryDirectories =
+          paths
+              .sorted(Comparator.comparingLong(path -> path.toFile().lastModified()))
+              .collect(Collectors.toList());
+    }
+
+    synchronized (this) {
+      for (Path entryDirectory : entryDirectories) {
+        String snapshotId = entryDirectory.getFileName().toString();
+        Metadata.SnapshotManifest manifest = readManifest(entryDirectory);
+        if (snapshotId.endsWith(STAGING_SUFFIX) || manifest == null) {
+          LOG.info("Removing incomplete snapshot disk cache entry {}", entryDirectory);
+          FileUtils.deleteQuietly(entryDirectory.toFile());
+          continue;
+        }
+        long size = manifest.getFilesList().stream().mapToLong(file -> file.getLength()).sum();
+        entries.put(snapshotId, size);
+        totalBytes += size;
+      }
+      evictToBudget();
+      LOG.info(
+          "Loaded {} snapshots of {} bytes into the snapshot disk cache",
+          entries.size(),
+          totalBytes);
+    }
+  }
+
+  /**
+   * Moves the files of a snapshot from a slot directory into the cache. The files are left in the
+   * slot directory when they don't fit in the cache.
+   *
+   * @return true if the snapshot was added to the cache.
+   */
+  public boolean put(String snapshotId, Path sourceDirectory) {
+    if (!isEnabled()) {
+      return false;
+    }
+
+    Path stagingDirectory = null;
+    try {
+      List<String> files = new ArrayList<>();
+      try (Stream<Path> paths = Files.list(sourceDirectory)) {
+        paths
+            .filter(Files::isRegularFile)
+            .forEach(path -> files.add(path.getFileName().toString()));
+      }
+      long size =
+          files.stream().mapToLong(file -> sourceDirectory.resolve(file).toFile().length()).sum();
+      if (files.isEmpty() || size > maxBytes) {
+        return false;
+      }
+      Metadata.SnapshotManifest manifest = createSnapshotManifest(sourceDirectory, files);
+
+      // The files are staged in a directory of their own, so a crash never leaves a partial
+      // entry under the snapshot id.
+      stagingDirectory =
+          cacheDirectory.resolve(
+              String.format("%s.%s%s", snapshotId, UUID.randomUUID(), STAGING_SUFFIX));
+      Files.createDirectories(stagingDirectory);
+      for (String fileName : files) {
+        Files.move(sourceDirectory.resolve(fileName), stagingDirectory.resolve(fileName));
+      }
+      Files.writeString(
+          stagingDirectory.resolve(SNAPSHOT_MANIFEST_FILE), JsonFormat.printer().print(manifest));
+
+      synchronized (this) {
+        removeEntry(snapshotId);
+        Files.move(stagingDirectory, cacheDirectory.resolve(snapshotId));
+        entries.put(snapshotId, size);
+        totalBytes += size;
+        evictToBudget();
+      }
+      LOG.info("Added snapshot {} of {} bytes to the snapshot disk cache", snapshotId, size);
+      return true;
+    } catch (Exception e) {
+      LOG.warn("Failed to add snapshot {} to the snapshot disk cache", snapshotId, e);
+      if (stagingDirectory != null) {
+        FileUtils.deleteQuietly(stagingDirectory.toFile());
+      }
+      return false;
+    }
+  }
+
+  /**
+   * Moves the files of a snapshot from the cache into a slot directory, and verifies them against
+   * their manifest.
+   *
+   * @return true if the snapshot files are in the slot directory, false if the snapshot has to be
+   *     downloaded.
+   */
+  public boolean take(String snapshotId, Path destDirectory) {
+    if (!isEnabled()) {
+      return false;
+    }
+
+    Metadata.SnapshotManifest manifest;
+    synchronized (this) {
+      Long size = entries.remove(snapshotId);
+      if (size == null) {
+        misses.increment();
+        return false;
+      }
+      totalBytes -= size;
+      bytesGauge.set(totalBytes);
+
+      Path entryDirectory = cacheDirectory.resolve(snapshotId);
+      manifest = readManifest(entryDirectory);
+      try {
+        if (manifest == null) {
+          throw new IOException("Missing manifest in " + entryDirectory);
+        }
+        Files.createDirectories(destDirectory);
+        for (Metadata.SnapshotManifest.FileEntry fileEntry : manifest.getFilesList()) {
+          Files.move(
+              entryDirectory.resolve(fileEntry.getName()),
+              destDirectory.resolve(fileEntry.getName()));
+        }
+      } catch (IOException e) {
+        LOG.warn("Failed to take snapshot {} from the snapshot disk cache", snapshotId, e);
+        cleanDirectory(destDirectory);
+        misses.increment();
+        return false;
+      } finally {
+        FileUtils.deleteQuietly(entryDirectory.toFile());
+      }
+    }
+
+    try {
+      verifySnapshotFiles(manifest, destDirectory);
+    } catch (IOException e) {
+      LOG.warn("Snapshot {} in the snapshot disk cache is corrupt", snapshotId, e);
+      cleanDirectory(destDirectory);
+      misses.increment();
+      return false;
+    }
+    hits.increment();
+    LOG.info("Took snapshot {} from the snapshot disk cache", snapshotId);
+    return true;
+  }
+
+  private void evictToBudget() {
+    Iterator<Map.Entry<String, Long>> iterator = entries.entrySet().iterator();
+    while (totalBytes > maxBytes && iterator.hasNext()) {
+      Map.Entry<String, Long> entry = iterator.next();
+      iterator.remove();
+      totalBytes -= entry.getValue();
+      FileUtils.deleteQuietly(cacheDirectory.resolve(entry.getKey()).toFile());
+      evictions.increment();
+      LOG.info("Evicted snapshot {} from the snapshot disk cache", entry.getKey());
+    }
+    bytesGauge.set(totalBytes);
+  }
+
+  private void removeEntry(String snapshotId) {
+    Long size = entries.remove(snapshotId);
+    if (size != null) {
+      totalBytes -= size;
+      FileUtils.deleteQuietly(cacheDirectory.resolve(snapshotId).toFile());
+    }
+  }
+
+  private static Metadata.SnapshotManifest readManifest(Path entryDirectory) {
+    File manifestFile = entryDirectory.resolve(SNAPSHOT_MANIFEST_FILE).toFile();
+    if (!manifestFile.isFile()) {
+      return null;
+    }
+    try {
+      Metadata.SnapshotManifest.Builder manifest = Metadata.SnapshotManifest.newBuilder();
+      JsonFormat.parser().merge(Files.readString(manifestFile.toPath()), manifest);
+      return manifest.build();
+    } catch (IOException e) {
+      LOG.warn("Failed to read snapshot disk cache manifest {}", manifestFile, e);
+      return null;
+    }
+  }
+
+  private static void cleanDirectory(Path directory) {
+    try {
+      FileUtils.cleanDirectory(directory.toFile());
+    } catch (Exception e) {
+      LOG.info("Error removing files {}", directory, e);
+    }
+  }
+
+  @VisibleForTesting
+  synchronized boolean contains(String snapshotId) {
+    return entries.containsKey(snapshotId);
+  }
+
+  @VisibleForTesting
+  synchronized long getTotalBytes() {
+    return totalBytes;
+  }
+}
@@ -1,17 +1,37 @@
 package com.slack.kaldb.chunkManager;
 
+import com.google.common.util.concurrent.ThreadFactoryBuilder;
 import com.slack.kaldb.blobfs.BlobFs;
+import com.slack.kaldb.chunk.ChunkWarmer;
+import com.slack.kaldb.chunk.HydrationScheduler;
 import com.slack.kaldb.chunk.ReadOnlyChunkImpl;
 import com.slack.kaldb.chunk.SearchContext;
+import com.slack.kaldb.chunk.SnapshotDiskCache;
+import com.slack.kaldb.logstore.BlobFsBlockCache;
 import com.slack.kaldb.logstore.LogMessage;
+import com.slack.kaldb.metadata.cache.CacheNodeMetadata;
+import com.slack.kaldb.metadata.cache.CacheNodeMetadataStore;
 import com.slack.kaldb.metadata.cache.CacheSlotMetadataStore;
+import com.slack.kaldb.metadata.cache.CacheSlotWatcher;
 import com.slack.kaldb.metadata.replica.ReplicaMetadataStore;
 import com.slack.kaldb.metadata.search.SearchMetadataStore;
+import com.slack.kaldb.metadata.search.SearchNodeMetadataPublisher;
+import com.slack.kaldb.metadata.search.SearchNodeMetadataStore;
 import com.slack.kaldb.metadata.snapshot.SnapshotMetadataStore;
 import com.slack.kaldb.metadata.zookeeper.MetadataStore;
 import com.slack.kaldb.proto.config.KaldbConfigs;
+import com.slack.kaldb.util.KeyedSerialExecutor;
+import com.sun.management.OperatingSystemMXBean;
 import io.micrometer.core.instrument.MeterRegistry;
 import java.io.IOException;
+import java.lang.management.ManagementFactory;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.UUID;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
@@ -26,29 +46,56 @@ public class CachingChunkManager<T> extends ChunkManagerBase<T> {
   private final MetadataStore metadataStore;
   private final BlobFs blobFs;
   private final SearchContext searchContext;
+  private final int searchNodeMetadataPublishMs;
   private final String s3Bucket;
   private final String dataDirectoryPrefix;
   private final int slotCountPerInstance;
+  private final long diskCapacityBytes;
+  private final long memoryCapacityBytes;
+  private final HydrationScheduler hydrationScheduler;
+  private final SnapshotDiskCache snapshotDiskCache;
+  private final BlobFsBlockCache blockCache;
+  private final ChunkWarmer chunkWarmer;
   private ReplicaMetadataStore replicaMetadataStore;
   private SnapshotMetadataStore snapshotMetadataStore;
   private SearchMetadataStore searchMetadataStore;
+  private SearchNodeMetadataStore searchNodeMetadataStore;
+  private SearchNodeMetadataPublisher searchNodeMetadataPublisher;
   private CacheSlotMetadataStore cacheSlotMetadataStore;
+  private CacheNodeMetadataStore cacheNodeMetadataStore;
+  private CacheSlotWatcher cacheSlotWatcher;
+  private ExecutorService slotExecutorService;
+  private ExecutorService hydrationExecutorService;
 
   public CachingChunkManager(
       MeterRegistry registry,
       MetadataStore metadataStore,
       BlobFs blobFs,
       SearchContext searchContext,
+      int searchNodeMetadataPublishMs,
       String s3Bucket,
       String dataDirectoryPrefix,
-      int slotCountPerInstance) {
+      int slotCountPerInstance,
+      long diskCapacityBytes,
+      long memoryCapacityBytes,
+      HydrationScheduler hydrationScheduler,
+      SnapshotDiskCache snapshotDiskCache,
+      BlobFsBlockCache blockCache,
+      ChunkWarmer chunkWarmer) {
     this.meterRegistry = registry;
     this.metadataStore = metadataStore;
     this.blobFs = blobFs;
     this.searchContext = searchContext;
+    this.searchNodeMetadataPublishMs = searchNodeMetadataPublishMs;
     this.s3Bucket = s3Bucket;
     this.dataDirectoryPrefix = dataDirectoryPrefix;
     this.slotCountPerInstance = slotCountPerInstance;
+    this.diskCapacityBytes = diskCapacityBytes;
+    this.memoryCapacityBytes = memoryCapacityBytes;
+    this.hydrationScheduler = hydrationScheduler;
+    this.snapshotDiskCache = snapshotDiskCache;
+    this.blockCache = blockCache;
+    this.chunkWarmer = chunkWarmer;
   }
 
   @Override
@@ -57,13 +104,42 @@ public class CachingChunkManager<T> extends ChunkManagerBase<T> {
 
     replicaMetadataStore = new ReplicaMetadataStore(metadataStore, false);
     snapshotMetadataStore = new SnapshotMetadataStore(metadataStore, false);
-    searchMetadataStore = new SearchMetadataStore(metadataStore, false);
+    if (searchNodeMetadataPublishMs > 0) {
+      searchNodeMetadataStore = new SearchNodeMetadataStore(metadataStore, false);
+      searchNodeMetadataPublisher =
+          new SearchNodeMetadataPublisher(
+              searchNodeMetadataStore,
+              String.format("%s:%s", searchContext.hostname, searchContext.port),
+              searchContext.toUrl(),
+              searchNodeMetadataPublishMs,
+              meterRegistry);
+      searchNodeMetadataPublisher.startAsync().awaitRunning();
+    }
+    searchMetadataStore =
+        new SearchMetadataStore(metadataStore, false, searchNodeMetadataPublisher);
     cacheSlotMetadataStore = new CacheSlotMetadataStore(metadataStore, false);
+    cacheNodeMetadataStore = new CacheNodeMetadataStore(metadataStore, false);
+
+    // All the slots of this node share one ZK watcher and a pool of threads, instead of a metadata
+    // cache and a thread per slot. The state changes of a slot run one at a time, so neither pool
+    // uses more threads than there are slots. Assignments have their own pool, so evictions don't
+    // wait behind downloads, and the hydration scheduler bounds the downloads in priority order.
+    cacheSlotWatcher = new CacheSlotWatcher(metadataStore);
+    slotExecutorService =
+        Executors.newCachedThreadPool(
+            new ThreadFactoryBuilder().setNameFormat("readonly-chunk-%d").build());
+    hydrationExecutorService =
+        Executors.newCachedThreadPool(
+            new ThreadFactoryBuilder().setNameFormat("readonly-chunk-hydration-%d").build());
+    KeyedSerialExecutor slotExecutor = new KeyedSerialExecutor(slotExecutorService);
 
+    List<String> cacheSlotNames = new ArrayList<>();
     for (int i = 0; i < slotCountPerInstance; i++) {
-      chunkList.add(
+      ReadOnlyChunkImpl<T> readOnlyChunk =
           new ReadOnlyChunkImpl<>(
-              metadataStore,
+              cacheSlotWatcher,
+              slotExecutor,
+              hydrationExecutorService,
               meterRegistry,
               blobFs,
               searchContext,
@@ -72,8 +148,25 @@ public class CachingChunkManager<T> extends ChunkManagerBase<T> {
               cacheSlotMetadataStore,
               replicaMetadataStore,
               snapshotMetadataStore,
-              searchMetadataStore));
+              searchMetadataStore,
+              hydrationScheduler,
+              snapshotDiskCache,
+              blockCache,
+              chunkWarmer);
+      chunkList.add(readOnlyChunk);
+      cacheSlotNames.add(readOnlyChunk.getSlotName());
     }
+
+    // advertise the capacity of this node, so replicas are assigned to its slots by their size
+    CacheNodeMetadata cacheNodeMetadata =
+        new CacheNodeMetadata(
+            String.format("%s-%s", searchContext.hostname, UUID.randomUUID()),
+            searchContext.hostname,
+            cacheSlotNames,
+            diskCapacityBytes,
+            memoryCapacityBytes);
+    cacheNodeMetadataStore.createSync(cacheNodeMetadata);
+    LOG.info("Registered cache node {}", cacheNodeMetadata);
   }
 
   @Override
@@ -88,7 +181,15 @@ public class CachingChunkManager<T> extends ChunkManagerBase<T> {
             LOG.error("Error closing readonly chunk", e);
           }
         });
+    cacheSlotWatcher.close();
+    slotExecutorService.shutdownNow();
+    hydrationExecutorService.shutdownNow();
+    if (searchNodeMetadataPublisher != null) {
+      searchNodeMetadataPublisher.stopAsync().awaitTerminated();
+      searchNodeMetadataStore.close();
+    }
 
+    cacheNodeMetadataStore.close();
     cacheSlotMetadataStore.close();
     searchMetadataStore.close();
     snapshotMetadataStore.close();
@@ -109,9 +210,47 @@ public class CachingChunkManager<T> extends ChunkManagerBase<T> {
         metadataStore,
         blobFs,
         SearchContext.fromConfig(cacheConfig.getServerConfig()),
+        cacheConfig.getServerConfig().getSearchNodeMetadataPublishMs(),
         s3Config.getS3Bucket(),
         cacheConfig.getDataDirectory(),
-        cacheConfig.getSlotsPerInstance());
+        cacheConfig.getSlotsPerInstance(),
+        getDiskCapacityBytes(cacheConfig),
+        getMemoryCapacityBytes(cacheConfig),
+        HydrationScheduler.fromConfig(meterRegistry, cacheConfig),
+        SnapshotDiskCache.fromConfig(meterRegistry, cacheConfig),
+        BlobFsBlockCache.fromConfig(meterRegistry, blobFs, cacheConfig),
+        ChunkWarmer.fromConfig(meterRegistry, cacheConfig));
+  }
+
+  /**
+   * The disk capacity of the node, which defaults to the size of the filesystem of the data
+   * directory less the space reserved for the snapshot and block caches.
+   */
+  private static long getDiskCapacityBytes(KaldbConfigs.CacheConfig cacheConfig)
+      throws IOException {
+    if (cacheConfig.getDiskCapacityBytes() > 0) {
+      return cacheConfig.getDiskCapacityBytes();
+    }
+    Path dataDirectory = Path.of(cacheConfig.getDataDirectory());
+    Files.createDirectories(dataDirectory);
+    long diskCapacityBytes =
+        Files.getFileStore(dataDirectory).getTotalSpace()
+            - cacheConfig.getDiskCacheMaxBytes()
+            - cacheConfig.getBlockCacheMaxBytes();
+    if (diskCapacityBytes <= 0) {
+      throw new IllegalArgumentException(
+          "The snapshot and block caches don't leave any disk space for the cache slots");
+    }
+    return diskCapacityBytes;
+  }
+
+  /** The memory capacity of the node, which defaults to the physical memory of the host. */
+  private static long getMemoryCapacityBytes(KaldbConfigs.CacheConfig cacheConfig) {
+    if (cacheConfig.getMemoryCapacityBytes() > 0) {
+      return cacheConfig.getMemoryCapacityBytes();
+    }
+    return ((OperatingSystemMXBean) ManagementFactory.getOperatingSystemMXBean())
+        .getTotalMemorySize();
   }
 
   @Override
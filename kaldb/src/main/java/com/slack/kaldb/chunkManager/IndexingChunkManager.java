@@ -11,6 +11,7 @@ import com.google.common.util.concurrent.Futures;
 import com.google.common.util.concurrent.ListenableFuture;
 import com.google.common.util.concurrent.ListeningExecutorService;
 import com.google.common.util.concurrent.MoreExecutors;
+import com.google.common.util.concurrent.ThreadFactoryBuilder;
 import com.slack.kaldb.blobfs.BlobFs;
 import com.slack.kaldb.chunk.Chunk;
 import com.slack.kaldb.chunk.IndexingChunkImpl;
@@ -18,20 +19,28 @@ import com.slack.kaldb.chunk.ReadWriteChunk;
 import com.slack.kaldb.chunk.SearchContext;
 import com.slack.kaldb.chunkrollover.ChunkRollOverStrategy;
 import com.slack.kaldb.chunkrollover.DiskOrMessageCountBasedRolloverStrategy;
+import com.slack.kaldb.chunkrollover.IndexSizeOrTimeBasedRolloverStrategy;
 import com.slack.kaldb.logstore.LogMessage;
 import com.slack.kaldb.logstore.LogStore;
 import com.slack.kaldb.logstore.LuceneIndexStoreImpl;
 import com.slack.kaldb.metadata.search.SearchMetadataStore;
+import com.slack.kaldb.metadata.search.SearchNodeMetadataPublisher;
+import com.slack.kaldb.metadata.search.SearchNodeMetadataStore;
 import com.slack.kaldb.metadata.snapshot.SnapshotMetadataStore;
 import com.slack.kaldb.metadata.zookeeper.MetadataStore;
 import com.slack.kaldb.proto.config.KaldbConfigs;
+import com.slack.kaldb.proto.metadata.Metadata;
 import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
 import java.io.File;
 import java.io.IOException;
+import java.time.Duration;
 import java.time.Instant;
 import java.time.temporal.ChronoUnit;
 import java.util.List;
-import java.util.concurrent.SynchronousQueue;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.Semaphore;
 import java.util.concurrent.ThreadPoolExecutor;
 import java.util.concurrent.TimeUnit;
 import java.util.concurrent.atomic.AtomicLong;
@@ -70,9 +79,24 @@ public class IndexingChunkManager<T> extends ChunkManagerBase<T> {
   public static final String LIVE_MESSAGES_INDEXED = "live_messages_indexed";
   public static final String LIVE_BYTES_INDEXED = "live_bytes_indexed";
 
+  public static final String ROLLOVERS_PENDING = "rollovers_pending";
+  public static final String ROLLOVER_BACKPRESSURE_TIMER = "rollover_backpressure_timer";
+  private final Timer rolloverBackpressureTimer;
+
+  // A roll over that is started when the max pending roll overs are in progress waits this long for
+  // one of them to complete before giving up.
+  public static final Duration ROLLOVER_BACKPRESSURE_TIMEOUT = Duration.ofMinutes(15);
+
   // fields related to roll over
   private final ListeningExecutorService rolloverExecutorService;
 
+  // Permits for the pending roll overs. A permit is acquired when a roll over is submitted and
+  // released when it completes.
+  private final Semaphore rolloverPermits;
+  private final int maxPendingRollovers;
+
+  // The most recently submitted roll over. Roll overs publish their snapshots in order, so when it
+  // completes all the previous roll overs have completed too.
   private ListenableFuture<Boolean> rolloverFuture;
 
   /**
@@ -88,25 +112,43 @@ public class IndexingChunkManager<T> extends ChunkManagerBase<T> {
   private SnapshotMetadataStore snapshotMetadataStore;
 
   private SearchMetadataStore searchMetadataStore;
+  private SearchNodeMetadataStore searchNodeMetadataStore;
+  private SearchNodeMetadataPublisher searchNodeMetadataPublisher;
 
   /**
    * For capacity planning, we want to control how many roll overs are in progress at the same time.
-   * To maintain flexibility on the final policy, we will implement it using a ThreadPoolExecutor.
-   * For now, we only want 1 roll over in process at any time and abort the indexer if a second roll
-   * over is in process, since otherwise we will never be able to keep up. So, we create a custom
-   * roll over executor that can only execute one roll over task at a time and throws a
-   * RejectedExecutionHandler exception when a second one is called (the default policy).
+   * The roll over executor runs up to maxConcurrentRollovers uploads at a time, and queues the
+   * rest. The number of queued roll overs is bounded by the chunk manager, which waits for a roll
+   * over to complete before starting a new one once the max pending roll overs are in progress.
    */
   @SuppressWarnings("UnstableApiUsage")
-  public static ListeningExecutorService makeDefaultRollOverExecutor() {
-    // TODO: Create a named thread pool and pass it in.
+  public static ListeningExecutorService makeRollOverExecutor(int maxConcurrentRollovers) {
     ThreadPoolExecutor rollOverExecutor =
         new ThreadPoolExecutor(
-            1, 1, 0, MILLISECONDS, new SynchronousQueue<>(), new ThreadPoolExecutor.AbortPolicy());
+            maxConcurrentRollovers,
+            maxConcurrentRollovers,
+            0,
+            MILLISECONDS,
+            new LinkedBlockingQueue<>(),
+            new ThreadFactoryBuilder().setNameFormat("chunk-rollover-%d").build());
     return MoreExecutors.listeningDecorator(
         MoreExecutors.getExitingExecutorService(rollOverExecutor));
   }
 
+  public static ListeningExecutorService makeDefaultRollOverExecutor() {
+    return makeRollOverExecutor(1);
+  }
+
+  public static int getMaxConcurrentRollovers(KaldbConfigs.IndexerConfig indexerConfig) {
+    return Math.max(indexerConfig.getMaxConcurrentRollovers(), 1);
+  }
+
+  public static int getMaxPendingRollovers(KaldbConfigs.IndexerConfig indexerConfig) {
+    return indexerConfig.getMaxPendingRollovers() > 0
+        ? indexerConfig.getMaxPendingRollovers()
+        : getMaxConcurrentRollovers(indexerConfig) + 1;
+  }
+
   public IndexingChunkManager(
       String chunkDataPrefix,
       String dataDirectory,
@@ -133,6 +175,13 @@ public class IndexingChunkManager<T> extends ChunkManagerBase<T> {
     this.s3Bucket = s3Bucket;
     this.rolloverExecutorService = rollOverExecutorService;
     this.rolloverFuture = null;
+    this.maxPendingRollovers = getMaxPendingRollovers(indexerConfig);
+    this.rolloverPermits = new Semaphore(maxPendingRollovers);
+    registry.gauge(
+        ROLLOVERS_PENDING,
+        rolloverPermits,
+        permits -> maxPendingRollovers - permits.availablePermits());
+    this.rolloverBackpressureTimer = registry.timer(ROLLOVER_BACKPRESSURE_TIMER);
     this.metadataStore = metadataStore;
     this.searchContext = searchContext;
     this.indexerConfig = indexerConfig;
@@ -192,39 +241,87 @@ public class IndexingChunkManager<T> extends ChunkManagerBase<T> {
     // Set the end time of the chunk and start the roll over.
     currentChunk.info().setChunkLastUpdatedTimeEpochMs(Instant.now().toEpochMilli());
 
+    acquireRolloverPermit(currentChunk);
+
     RollOverChunkTask<T> rollOverChunkTask =
         new RollOverChunkTask<>(
-            currentChunk, meterRegistry, blobFs, s3Bucket, currentChunk.info().chunkId);
-
-    if ((rolloverFuture == null) || rolloverFuture.isDone()) {
+            currentChunk,
+            meterRegistry,
+            blobFs,
+            s3Bucket,
+            currentChunk.info().chunkId,
+            rolloverFuture);
+
+    try {
       rolloverFuture = rolloverExecutorService.submit(rollOverChunkTask);
-      Futures.addCallback(
-          rolloverFuture,
-          new FutureCallback<>() {
-            @Override
-            public void onSuccess(Boolean success) {
-              if (success == null || !success) {
-                LOG.warn("Roll over failed");
-                stopIngestion = true;
-              }
-            }
-
-            @Override
-            public void onFailure(Throwable t) {
-              LOG.warn("Roll over failed with an exception", t);
+    } catch (RejectedExecutionException e) {
+      rolloverPermits.release();
+      throw new ChunkRollOverException(
+          String.format("Failed to start the roll over of chunk %s", currentChunk.info()));
+    }
+    Futures.addCallback(
+        rolloverFuture,
+        new FutureCallback<>() {
+          @Override
+          public void onSuccess(Boolean success) {
+            rolloverPermits.release();
+            if (success == null || !success) {
+              LOG.warn("Roll over failed");
               stopIngestion = true;
             }
-          },
-          MoreExecutors.directExecutor());
-    } else {
+          }
+
+          @Override
+          public void onFailure(Throwable t) {
+            rolloverPermits.release();
+            LOG.warn("Roll over failed with an exception", t);
+            stopIngestion = true;
+          }
+        },
+        MoreExecutors.directExecutor());
+  }
+
+  /**
+   * The indexer pauses consumption when the max pending roll overs are in progress. But, the
+   * messages that are already consumed can still fill up the active chunk. In that case, block
+   * ingestion until a pending roll over completes.
+   */
+  private void acquireRolloverPermit(ReadWriteChunk<T> currentChunk) {
+    if (rolloverPermits.tryAcquire()) {
+      return;
+    }
+
+    LOG.warn(
+        "{} roll overs are already in progress, waiting for one to complete before rolling over chunk {}",
+        maxPendingRollovers,
+        currentChunk.info());
+    Timer.Sample backpressureTimer = Timer.start(meterRegistry);
+    try {
+      if (!rolloverPermits.tryAcquire(
+          ROLLOVER_BACKPRESSURE_TIMEOUT.toMillis(), TimeUnit.MILLISECONDS)) {
+        throw new ChunkRollOverException(
+            String.format(
+                "Timed out waiting for %s roll overs in progress to complete before rolling over chunk %s",
+                maxPendingRollovers, currentChunk.info()));
+      }
+    } catch (InterruptedException e) {
+      Thread.currentThread().interrupt();
       throw new ChunkRollOverException(
-          String.format(
-              "The chunk roll over %s is already in progress."
-                  + "It is not recommended to index faster than we can roll over, since we may not be able to keep up",
-              currentChunk.info()));
+          String.format("Interrupted before rolling over chunk %s", currentChunk.info()));
+    } finally {
+      backpressureTimer.stop(rolloverBackpressureTimer);
     }
   }
 
+  /**
+   * Returns true when the max pending roll overs are in progress, so the next roll over would have
+   * to wait for one of them to complete. The indexer stops consuming new messages while this is
+   * true.
+   */
+  public boolean isRolloverCapacityExhausted() {
+    return rolloverPermits.availablePermits() == 0;
+  }
+
   /*
    * When the ChunkManager is being closed, roll over active chunk so we can be sure that it's data is persisted in
    * a remote store.
@@ -267,9 +364,16 @@ public class IndexingChunkManager<T> extends ChunkManagerBase<T> {
               snapshotMetadataStore,
               searchContext,
               kafkaPartitionId);
+      newChunk
+          .info()
+          .setSnapshotIndexType(
+              indexerConfig.getPackSnapshots()
+                  ? Metadata.IndexType.LOGS_LUCENE9_PACKED
+                  : Metadata.IndexType.LOGS_LUCENE9);
       chunkList.add(newChunk);
       // Register the chunk, so we can search it.
       newChunk.postCreate();
+      chunkRollOverStrategy.setActiveChunk(logStore, newChunk.info());
       activeChunk = newChunk;
     }
     return activeChunk;
@@ -318,7 +422,21 @@ public class IndexingChunkManager<T> extends ChunkManagerBase<T> {
   protected void startUp() throws Exception {
     LOG.info("Starting indexing chunk manager");
 
-    searchMetadataStore = new SearchMetadataStore(metadataStore, false);
+    int searchNodeMetadataPublishMs =
+        indexerConfig.getServerConfig().getSearchNodeMetadataPublishMs();
+    if (searchNodeMetadataPublishMs > 0) {
+      searchNodeMetadataStore = new SearchNodeMetadataStore(metadataStore, false);
+      searchNodeMetadataPublisher =
+          new SearchNodeMetadataPublisher(
+              searchNodeMetadataStore,
+              String.format("%s:%s", searchContext.hostname, searchContext.port),
+              searchContext.toUrl(),
+              searchNodeMetadataPublishMs,
+              meterRegistry);
+      searchNodeMetadataPublisher.startAsync().awaitRunning();
+    }
+    searchMetadataStore =
+        new SearchMetadataStore(metadataStore, false, searchNodeMetadataPublisher);
     snapshotMetadataStore = new SnapshotMetadataStore(metadataStore, false);
 
     stopIngestion = false;
@@ -369,6 +487,10 @@ public class IndexingChunkManager<T> extends ChunkManagerBase<T> {
       }
     }
 
+    if (searchNodeMetadataPublisher != null) {
+      searchNodeMetadataPublisher.stopAsync().awaitTerminated();
+      searchNodeMetadataStore.close();
+    }
     searchMetadataStore.close();
     snapshotMetadataStore.close();
     LOG.info("Closed indexing chunk manager.");
@@ -382,7 +504,9 @@ public class IndexingChunkManager<T> extends ChunkManagerBase<T> {
       KaldbConfigs.S3Config s3Config) {
 
     ChunkRollOverStrategy chunkRollOverStrategy =
-        DiskOrMessageCountBasedRolloverStrategy.fromConfig(meterRegistry, indexerConfig);
+        indexerConfig.getMaxChunkDataSpanSecs() > 0
+            ? IndexSizeOrTimeBasedRolloverStrategy.fromConfig(meterRegistry, indexerConfig)
+            : DiskOrMessageCountBasedRolloverStrategy.fromConfig(meterRegistry, indexerConfig);
 
     return new IndexingChunkManager<>(
         CHUNK_DATA_PREFIX,
@@ -391,7 +515,7 @@ public class IndexingChunkManager<T> extends ChunkManagerBase<T> {
         meterRegistry,
         blobFs,
         s3Config.getS3Bucket(),
-        makeDefaultRollOverExecutor(),
+        makeRollOverExecutor(getMaxConcurrentRollovers(indexerConfig)),
         metadataStore,
         SearchContext.fromConfig(indexerConfig.getServerConfig()),
         indexerConfig);
@@ -22,6 +22,11 @@ import com.slack.kaldb.proto.config.KaldbConfigs;
 import io.micrometer.core.instrument.MeterRegistry;
 import java.io.IOException;
 import java.time.Instant;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
 import java.util.concurrent.Executors;
 import java.util.concurrent.TimeUnit;
 import java.util.concurrent.atomic.AtomicLong;
@@ -36,6 +41,11 @@ import org.slf4j.LoggerFactory;
  * <p>Currently, the recovery chunk manager doesn't support multiple chunks since it is very hard to
  * handle the case when some chunks succeed uploads to S3 and some chunks fail. So, we expect each
  * recovery tasks to be sized such that all chunks are roughly the same size.
+ *
+ * <p>When the messages are added from many threads, a single index writer becomes the bottleneck.
+ * So, the chunk manager can optionally give each thread its own chunk, with its own index writer in
+ * a temporary directory. Before the roll over, the thread chunks are merged into the one chunk that
+ * is uploaded, and closed.
  */
 public class RecoveryChunkManager<T> extends ChunkManagerBase<T> {
   private static final Logger LOG = LoggerFactory.getLogger(RecoveryChunkManager.class);
@@ -47,6 +57,10 @@ public class RecoveryChunkManager<T> extends ChunkManagerBase<T> {
   private boolean readOnly;
   private ReadWriteChunk<T> activeChunk;
 
+  // The chunk each thread adds its messages to, when indexing with a writer per thread.
+  private final boolean writerPerThread;
+  private final Map<Long, ReadWriteChunk<T>> threadChunks = new ConcurrentHashMap<>();
+
   private final AtomicLong liveMessagesIndexedGauge;
   private final AtomicLong liveBytesIndexedGauge;
 
@@ -61,12 +75,21 @@ public class RecoveryChunkManager<T> extends ChunkManagerBase<T> {
       ChunkFactory<T> recoveryChunkFactory,
       ChunkRolloverFactory chunkRolloverFactory,
       MeterRegistry registry) {
+    this(recoveryChunkFactory, chunkRolloverFactory, false, registry);
+  }
+
+  public RecoveryChunkManager(
+      ChunkFactory<T> recoveryChunkFactory,
+      ChunkRolloverFactory chunkRolloverFactory,
+      boolean writerPerThread,
+      MeterRegistry registry) {
 
     // TODO: Pass in id of index in LuceneIndexStore to track this info.
     liveMessagesIndexedGauge = registry.gauge(LIVE_MESSAGES_INDEXED, new AtomicLong(0));
     liveBytesIndexedGauge = registry.gauge(LIVE_BYTES_INDEXED, new AtomicLong(0));
     this.recoveryChunkFactory = recoveryChunkFactory;
     this.chunkRolloverFactory = chunkRolloverFactory;
+    this.writerPerThread = writerPerThread;
 
     this.rolloverExecutorService =
         MoreExecutors.listeningDecorator(Executors.newSingleThreadExecutor());
@@ -85,7 +108,10 @@ public class RecoveryChunkManager<T> extends ChunkManagerBase<T> {
     }
 
     // find the active chunk and add a message to it
-    ReadWriteChunk<T> currentChunk = getOrCreateActiveChunk(kafkaPartitionId);
+    ReadWriteChunk<T> currentChunk =
+        writerPerThread
+            ? getOrCreateThreadChunk(kafkaPartitionId)
+            : getOrCreateActiveChunk(kafkaPartitionId);
     currentChunk.addMessage(message, kafkaPartitionId, offset);
     liveMessagesIndexedGauge.incrementAndGet();
     liveBytesIndexedGauge.addAndGet(msgSize);
@@ -140,6 +166,54 @@ public class RecoveryChunkManager<T> extends ChunkManagerBase<T> {
     return activeChunk;
   }
 
+  /** Returns the chunk of the calling thread, which is created on its first message. */
+  private ReadWriteChunk<T> getOrCreateThreadChunk(String kafkaPartitionId) throws IOException {
+    long threadId = Thread.currentThread().getId();
+    ReadWriteChunk<T> threadChunk = threadChunks.get(threadId);
+    if (threadChunk == null) {
+      // the chunk factory isn't thread safe
+      synchronized (recoveryChunkFactory) {
+        recoveryChunkFactory.setKafkaPartitionId(kafkaPartitionId);
+        threadChunk = recoveryChunkFactory.makeChunk();
+      }
+      threadChunk.postCreate();
+      threadChunks.put(threadId, threadChunk);
+    }
+    return threadChunk;
+  }
+
+  /**
+   * Merges the thread chunks into the active chunk, and closes them. Must only be called once all
+   * the messages are added.
+   */
+  private void mergeThreadChunks() throws IOException {
+    List<ReadWriteChunk<T>> chunks = new ArrayList<>(threadChunks.values());
+    threadChunks.clear();
+    try {
+      long mergeStartTime = System.nanoTime();
+      ReadWriteChunk<T> mergedChunk =
+          getOrCreateActiveChunk(chunks.get(0).info().getKafkaPartitionId());
+      mergedChunk.addChunks(chunks);
+      LOG.info(
+          "Merged {} thread chunks into chunk {} in {} ms",
+          chunks.size(),
+          mergedChunk.id(),
+          TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - mergeStartTime));
+    } finally {
+      closeChunks(chunks);
+    }
+  }
+
+  private void closeChunks(Collection<? extends Chunk<T>> chunks) {
+    for (Chunk<T> chunk : chunks) {
+      try {
+        chunk.close();
+      } catch (IOException e) {
+        LOG.error("Failed to close chunk.", e);
+      }
+    }
+  }
+
   // The callers need to wait for rollovers to complete and the status of the rollovers. So, we
   // expose this function to wait for rollovers and report their status.
   // We don't call this function during shutdown, so callers should call this function before close.
@@ -148,6 +222,16 @@ public class RecoveryChunkManager<T> extends ChunkManagerBase<T> {
     // Stop accepting new writes to the chunks.
     readOnly = true;
 
+    if (!threadChunks.isEmpty()) {
+      try {
+        mergeThreadChunks();
+      } catch (Exception e) {
+        LOG.error("Failed to merge the thread chunks.", e);
+        rolloverExecutorService.shutdownNow();
+        return false;
+      }
+    }
+
     // Roll over active chunk.
     if (activeChunk != null) {
       doRollover(activeChunk);
@@ -187,15 +271,12 @@ public class RecoveryChunkManager<T> extends ChunkManagerBase<T> {
     LOG.info("Closing recovery chunk manager.");
 
     readOnly = true;
+    rolloverExecutorService.shutdownNow();
 
-    // Close all chunks.
-    for (Chunk<T> chunk : chunkList) {
-      try {
-        chunk.close();
-      } catch (IOException e) {
-        LOG.error("Failed to close chunk.", e);
-      }
-    }
+    // Close all chunks, including the thread chunks that weren't merged.
+    closeChunks(chunkList);
+    closeChunks(threadChunks.values());
+    threadChunks.clear();
 
     LOG.info("Closed recovery chunk manager.");
   }
@@ -213,6 +294,25 @@ public class RecoveryChunkManager<T> extends ChunkManagerBase<T> {
       BlobFs blobFs,
       KaldbConfigs.S3Config s3Config)
       throws Exception {
+    return fromConfig(
+        meterRegistry,
+        searchMetadataStore,
+        snapshotMetadataStore,
+        indexerConfig,
+        blobFs,
+        s3Config,
+        false);
+  }
+
+  public static RecoveryChunkManager<LogMessage> fromConfig(
+      MeterRegistry meterRegistry,
+      SearchMetadataStore searchMetadataStore,
+      SnapshotMetadataStore snapshotMetadataStore,
+      KaldbConfigs.IndexerConfig indexerConfig,
+      BlobFs blobFs,
+      KaldbConfigs.S3Config s3Config,
+      boolean writerPerThread)
+      throws Exception {
 
     SearchContext searchContext = SearchContext.fromConfig(indexerConfig.getServerConfig());
 
@@ -229,6 +329,7 @@ public class RecoveryChunkManager<T> extends ChunkManagerBase<T> {
         new ChunkRolloverFactory(
             new NeverRolloverChunkStrategy(), blobFs, s3Config.getS3Bucket(), meterRegistry);
 
-    return new RecoveryChunkManager<>(recoveryChunkFactory, chunkRolloverFactory, meterRegistry);
+    return new RecoveryChunkManager<>(
+        recoveryChunkFactory, chunkRolloverFactory, writerPerThread, meterRegistry);
   }
 }
@@ -1,5 +1,6 @@
 package com.slack.kaldb.chunkManager;
 
+import com.google.common.util.concurrent.ListenableFuture;
 import com.slack.kaldb.blobfs.BlobFs;
 import com.slack.kaldb.chunk.ReadWriteChunk;
 import io.micrometer.core.instrument.Counter;
@@ -7,6 +8,7 @@ import io.micrometer.core.instrument.MeterRegistry;
 import io.micrometer.core.instrument.Timer;
 import java.time.Instant;
 import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
@@ -15,6 +17,11 @@ import org.slf4j.LoggerFactory;
  * and postOperations operations in that order on the chunk.
  *
  * <p>In case of failures, an error is logged and a failure counter is incremented.
+ *
+ * <p>Several roll overs can upload their chunks at the same time, but they publish their snapshots
+ * in the order the chunks were rolled over. Otherwise, if the indexer restarts while an earlier
+ * chunk is still uploading, the highest durable offset for the partition would skip over the data
+ * in that chunk.
  */
 public class RollOverChunkTask<T> implements Callable<Boolean> {
   private static final Logger LOG = LoggerFactory.getLogger(RollOverChunkTask.class);
@@ -23,17 +30,21 @@ public class RollOverChunkTask<T> implements Callable<Boolean> {
   public static final String ROLLOVERS_FAILED = "rollovers_failed";
   public static final String ROLLOVERS_INITIATED = "rollovers_initiated";
   public static final String ROLLOVER_TIMER = "rollover_timer";
+  public static final String ROLLOVER_QUEUE_TIMER = "rollover_queue_timer";
 
   private final Counter rolloversInitiatedCounter;
   private final Counter rolloversCompletedCounter;
   private final Counter rolloversFailedCounter;
   private final Timer rollOverTimer;
+  private final Timer rollOverQueueTimer;
+  private final Timer.Sample queueTimerSample;
 
   private final ReadWriteChunk<T> chunk;
   private final String s3Bucket;
   private final String s3BucketPrefix;
   private final BlobFs blobFs;
   private final MeterRegistry meterRegistry;
+  private final ListenableFuture<Boolean> previousRollover;
 
   public RollOverChunkTask(
       ReadWriteChunk<T> chunk,
@@ -41,19 +52,37 @@ public class RollOverChunkTask<T> implements Callable<Boolean> {
       BlobFs blobFs,
       String s3Bucket,
       String s3BucketPrefix) {
+    this(chunk, meterRegistry, blobFs, s3Bucket, s3BucketPrefix, null);
+  }
+
+  /**
+   * @param previousRollover the roll over of the previous chunk, or null if there is none. This
+   *     roll over only publishes its snapshot after the previous one completes successfully.
+   */
+  public RollOverChunkTask(
+      ReadWriteChunk<T> chunk,
+      MeterRegistry meterRegistry,
+      BlobFs blobFs,
+      String s3Bucket,
+      String s3BucketPrefix,
+      ListenableFuture<Boolean> previousRollover) {
     this.chunk = chunk;
     this.blobFs = blobFs;
     this.s3Bucket = s3Bucket;
     this.s3BucketPrefix = s3BucketPrefix;
     this.meterRegistry = meterRegistry;
+    this.previousRollover = previousRollover;
     rolloversInitiatedCounter = meterRegistry.counter(ROLLOVERS_INITIATED);
     rolloversCompletedCounter = meterRegistry.counter(ROLLOVERS_COMPLETED);
     rolloversFailedCounter = meterRegistry.counter(ROLLOVERS_FAILED);
     rollOverTimer = meterRegistry.timer(ROLLOVER_TIMER);
+    rollOverQueueTimer = meterRegistry.timer(ROLLOVER_QUEUE_TIMER);
+    queueTimerSample = Timer.start(meterRegistry);
   }
 
   @Override
   public Boolean call() throws Exception {
+    queueTimerSample.stop(rollOverQueueTimer);
     return rollOverTimer.recordCallable(this::doRollover);
   }
 
@@ -63,11 +92,20 @@ public class RollOverChunkTask<T> implements Callable<Boolean> {
       rolloversInitiatedCounter.increment();
       // Run pre-snapshot and upload chunk to blob store.
       chunk.preSnapshot();
-      if (!chunk.snapshotToS3(s3Bucket, s3BucketPrefix, blobFs)) {
+      boolean uploaded = chunk.snapshotToS3(s3Bucket, s3BucketPrefix, blobFs);
+      boolean previousRolloverSucceeded = awaitPreviousRollover();
+      if (!uploaded) {
         LOG.warn("Failed to snapshot the chunk to S3");
         rolloversFailedCounter.increment();
         return false;
       }
+      if (!previousRolloverSucceeded) {
+        LOG.warn(
+            "Not publishing the snapshot for chunk {}, the previous roll over failed",
+            chunk.info());
+        rolloversFailedCounter.increment();
+        return false;
+      }
       // Post snapshot management.
       chunk.postSnapshot();
       rolloversCompletedCounter.increment();
@@ -80,4 +118,18 @@ public class RollOverChunkTask<T> implements Callable<Boolean> {
     }
     return false;
   }
+
+  private boolean awaitPreviousRollover() {
+    if (previousRollover == null) {
+      return true;
+    }
+    try {
+      return Boolean.TRUE.equals(previousRollover.get());
+    } catch (InterruptedException e) {
+      Thread.currentThread().interrupt();
+      return false;
+    } catch (ExecutionException e) {
+      return false;
+    }
+  }
 }
@@ -1,5 +1,7 @@
 package com.slack.kaldb.chunkrollover;
 
+import com.slack.kaldb.chunk.ChunkInfo;
+import com.slack.kaldb.logstore.LogStore;
 import java.io.File;
 
 // TODO: ChunkRollOverStrategy should take a chunk as an input and get statistics
@@ -9,5 +11,11 @@ public interface ChunkRollOverStrategy {
 
   public void setActiveChunkDirectory(File activeChunkDirectory);
 
+  /**
+   * Called when a new active chunk is created, so the strategy can track the size of its index and
+   * the time range of its data.
+   */
+  public void setActiveChunk(LogStore<?> logStore, ChunkInfo chunkInfo);
+
   public void close();
 }
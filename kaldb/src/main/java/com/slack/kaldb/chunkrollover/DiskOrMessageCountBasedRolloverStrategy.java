@@ -4,6 +4,8 @@ import static com.slack.kaldb.util.ArgValidationUtils.ensureTrue;
 
 import com.google.common.annotations.VisibleForTesting;
 import com.google.common.util.concurrent.ThreadFactoryBuilder;
+import com.slack.kaldb.chunk.ChunkInfo;
+import com.slack.kaldb.logstore.LogStore;
 import com.slack.kaldb.proto.config.KaldbConfigs;
 import io.micrometer.core.instrument.MeterRegistry;
 import java.io.File;
@@ -91,6 +93,9 @@ public class DiskOrMessageCountBasedRolloverStrategy implements ChunkRollOverStr
     approximateDirectoryBytes = 0;
   }
 
+  @Override
+  public void setActiveChunk(LogStore<?> logStore, ChunkInfo chunkInfo) {}
+
   public void calculateDirectorySize() {
     if (activeChunkDirectory != null && activeChunkDirectory.exists()) {
       approximateDirectoryBytes = FileUtils.sizeOf(activeChunkDirectory);
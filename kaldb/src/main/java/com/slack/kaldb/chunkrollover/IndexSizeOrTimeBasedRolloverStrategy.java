@@ -0,0 +1,142 @@
+package com.slack.kaldb.chunkrollover;
+
+import static com.slack.kaldb.util.ArgValidationUtils.ensureTrue;
+
+import com.slack.kaldb.chunk.ChunkInfo;
+import com.slack.kaldb.logstore.LogStore;
+import com.slack.kaldb.proto.config.KaldbConfigs;
+import io.micrometer.core.instrument.MeterRegistry;
+import java.io.File;
+import java.time.Duration;
+import java.time.Instant;
+import java.util.concurrent.atomic.AtomicLong;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * This rollover strategy rolls over a chunk when its lucene index reaches a max size, when the
+ * chunk hits a max message limit, or when the data in the chunk spans more than a max duration.
+ *
+ * <p>The index size is the RAM used by the index writer for buffered documents plus the size of the
+ * segments it has flushed to disk. Unlike the DiskOrMessageCountBasedRolloverStrategy, this doesn't
+ * walk the chunk directory on a timer, so the size is up-to-date for every message.
+ *
+ * <p>Capping the time range of the data in a chunk keeps chunks from covering many hours of data on
+ * low volume partitions, which lets queries skip chunks outside their time range. The messages are
+ * indexed as they are produced, so the time range is only counted from a little before the chunk
+ * was created until a little after the current time. Otherwise, a single message with a bogus
+ * timestamp, like epoch 0 or one from a skewed clock, would roll over every chunk it lands in.
+ */
+public class IndexSizeOrTimeBasedRolloverStrategy implements ChunkRollOverStrategy {
+
+  private static final Logger LOG =
+      LoggerFactory.getLogger(IndexSizeOrTimeBasedRolloverStrategy.class);
+
+  public static final String LIVE_INDEX_BYTES = "live_index_bytes";
+  public static final String LIVE_DATA_SPAN_MS = "live_data_span_ms";
+
+  // The timestamps counted in the data span can be this fraction of the max data span before the
+  // chunk was created or after the current time.
+  private static final int DATA_SPAN_TOLERANCE_DIVISOR = 10;
+
+  private final AtomicLong liveIndexBytesGauge;
+  private final AtomicLong liveDataSpanMsGauge;
+
+  private final long maxBytesPerChunk;
+  private final long maxMessagesPerChunk;
+  private final long maxDataSpanMs;
+
+  // The active chunk fields are only accessed from the ingestion thread.
+  private LogStore<?> activeLogStore;
+  private ChunkInfo activeChunkInfo;
+
+  public static IndexSizeOrTimeBasedRolloverStrategy fromConfig(
+      MeterRegistry meterRegistry, KaldbConfigs.IndexerConfig indexerConfig) {
+    return new IndexSizeOrTimeBasedRolloverStrategy(
+        meterRegistry,
+        indexerConfig.getMaxBytesPerChunk(),
+        indexerConfig.getMaxMessagesPerChunk(),
+        Duration.ofSeconds(indexerConfig.getMaxChunkDataSpanSecs()));
+  }
+
+  public IndexSizeOrTimeBasedRolloverStrategy(
+      MeterRegistry registry,
+      long maxBytesPerChunk,
+      long maxMessagesPerChunk,
+      Duration maxDataSpan) {
+    ensureTrue(maxBytesPerChunk > 0, "Max bytes per chunk should be a positive number.");
+    ensureTrue(maxMessagesPerChunk > 0, "Max messages per chunk should be a positive number.");
+    ensureTrue(
+        maxDataSpan.toMillis() > 0, "Max data span per chunk should be a positive duration.");
+    this.maxBytesPerChunk = maxBytesPerChunk;
+    this.maxMessagesPerChunk = maxMessagesPerChunk;
+    this.maxDataSpanMs = maxDataSpan.toMillis();
+    this.liveIndexBytesGauge = registry.gauge(LIVE_INDEX_BYTES, new AtomicLong(0));
+    this.liveDataSpanMsGauge = registry.gauge(LIVE_DATA_SPAN_MS, new AtomicLong(0));
+  }
+
+  @Override
+  public boolean shouldRollOver(long currentBytesIndexed, long currentMessagesIndexed) {
+    long indexBytes = activeLogStore == null ? 0 : activeLogStore.getIndexSizeBytes();
+    long dataSpanMs = getDataSpanMs();
+    liveIndexBytesGauge.set(indexBytes);
+    liveDataSpanMsGauge.set(dataSpanMs);
+    boolean shouldRollover =
+        (indexBytes >= maxBytesPerChunk)
+            || (currentMessagesIndexed >= maxMessagesPerChunk)
+            || (dataSpanMs >= maxDataSpanMs);
+    if (shouldRollover) {
+      LOG.info(
+          "After {} messages and {} ingested bytes rolling over chunk of {} index bytes spanning {} ms",
+          currentMessagesIndexed,
+          currentBytesIndexed,
+          indexBytes,
+          dataSpanMs);
+    }
+    return shouldRollover;
+  }
+
+  private long getDataSpanMs() {
+    if (activeChunkInfo == null
+        || activeChunkInfo.getDataEndTimeEpochMs() == ChunkInfo.MAX_FUTURE_TIME) {
+      return 0;
+    }
+    long dataStartTimeEpochMs = activeChunkInfo.getDataStartTimeEpochMs();
+    long dataEndTimeEpochMs = activeChunkInfo.getDataEndTimeEpochMs();
+    if (dataEndTimeEpochMs - dataStartTimeEpochMs < maxDataSpanMs) {
+      return dataEndTimeEpochMs - dataStartTimeEpochMs;
+    }
+
+    // Only read the clock once the span is large enough to roll over, as this runs per message.
+    long toleranceMs = maxDataSpanMs / DATA_SPAN_TOLERANCE_DIVISOR;
+    long boundedStartTimeEpochMs =
+        Math.max(dataStartTimeEpochMs, activeChunkInfo.getChunkCreationTimeEpochMs() - toleranceMs);
+    long boundedEndTimeEpochMs =
+        Math.min(dataEndTimeEpochMs, Instant.now().toEpochMilli() + toleranceMs);
+    return Math.max(boundedEndTimeEpochMs - boundedStartTimeEpochMs, 0);
+  }
+
+  @Override
+  public void setActiveChunkDirectory(File activeChunkDirectory) {}
+
+  @Override
+  public void setActiveChunk(LogStore<?> logStore, ChunkInfo chunkInfo) {
+    this.activeLogStore = logStore;
+    this.activeChunkInfo = chunkInfo;
+  }
+
+  @Override
+  public void close() {}
+
+  public long getMaxBytesPerChunk() {
+    return maxBytesPerChunk;
+  }
+
+  public long getMaxMessagesPerChunk() {
+    return maxMessagesPerChunk;
+  }
+
+  public long getMaxDataSpanMs() {
+    return maxDataSpanMs;
+  }
+}
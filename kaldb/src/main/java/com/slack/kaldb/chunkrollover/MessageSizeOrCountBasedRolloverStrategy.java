@@ -2,6 +2,8 @@ package com.slack.kaldb.chunkrollover;
 
 import static com.slack.kaldb.util.ArgValidationUtils.ensureTrue;
 
+import com.slack.kaldb.chunk.ChunkInfo;
+import com.slack.kaldb.logstore.LogStore;
 import com.slack.kaldb.proto.config.KaldbConfigs;
 import io.micrometer.core.instrument.MeterRegistry;
 import java.io.File;
@@ -54,6 +56,9 @@ public class MessageSizeOrCountBasedRolloverStrategy implements ChunkRollOverStr
   @Override
   public void setActiveChunkDirectory(File activeChunkDirectory) {}
 
+  @Override
+  public void setActiveChunk(LogStore<?> logStore, ChunkInfo chunkInfo) {}
+
   @Override
   public void close() {}
 
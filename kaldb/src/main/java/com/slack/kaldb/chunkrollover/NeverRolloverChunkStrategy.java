@@ -1,5 +1,7 @@
 package com.slack.kaldb.chunkrollover;
 
+import com.slack.kaldb.chunk.ChunkInfo;
+import com.slack.kaldb.logstore.LogStore;
 import java.io.File;
 
 /**
@@ -15,6 +17,9 @@ public class NeverRolloverChunkStrategy implements ChunkRollOverStrategy {
   @Override
   public void setActiveChunkDirectory(File activeChunkDirectory) {}
 
+  @Override
+  public void setActiveChunk(LogStore<?> logStore, ChunkInfo chunkInfo) {}
+
   @Override
   public void close() {}
 }
@@ -4,6 +4,7 @@ import com.google.common.util.concurrent.AbstractIdleService;
 import com.slack.kaldb.metadata.cache.CacheSlotMetadataStore;
 import com.slack.kaldb.metadata.dataset.DatasetMetadataStore;
 import com.slack.kaldb.metadata.recovery.RecoveryNodeMetadataStore;
+import com.slack.kaldb.metadata.recovery.RecoveryTaskMetadata;
 import com.slack.kaldb.metadata.recovery.RecoveryTaskMetadataStore;
 import com.slack.kaldb.metadata.replica.ReplicaMetadataStore;
 import com.slack.kaldb.metadata.snapshot.SnapshotMetadataStore;
@@ -29,6 +30,10 @@ public class ClusterMonitorService extends AbstractIdleService {
         "cached_snapshots_size", snapshotMetadataStore, store -> store.getCached().size());
     meterRegistry.gauge(
         "cached_recovery_tasks_size", recoveryTaskMetadataStore, store -> store.getCached().size());
+    meterRegistry.gauge(
+        "cached_recovery_tasks_messages",
+        recoveryTaskMetadataStore,
+        store -> store.getCached().stream().mapToLong(RecoveryTaskMetadata::getOffsetCount).sum());
     meterRegistry.gauge(
         "cached_recovery_nodes_size", recoveryNodeMetadataStore, store -> store.getCached().size());
     meterRegistry.gauge(
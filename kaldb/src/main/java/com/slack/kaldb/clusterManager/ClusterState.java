@@ -0,0 +1,405 @@
+package com.slack.kaldb.clusterManager;
+
+import com.slack.kaldb.metadata.cache.CacheNodeMetadata;
+import com.slack.kaldb.metadata.cache.CacheNodeMetadataStore;
+import com.slack.kaldb.metadata.cache.CacheSlotMetadata;
+import com.slack.kaldb.metadata.cache.CacheSlotMetadataStore;
+import com.slack.kaldb.metadata.core.CacheableMetadataStore;
+import com.slack.kaldb.metadata.core.KaldbMetadata;
+import com.slack.kaldb.metadata.core.KaldbMetadataStoreChangeListener;
+import com.slack.kaldb.metadata.replica.ReplicaMetadata;
+import com.slack.kaldb.metadata.replica.ReplicaMetadataStore;
+import com.slack.kaldb.metadata.snapshot.SnapshotMetadata;
+import com.slack.kaldb.metadata.snapshot.SnapshotMetadataStore;
+import com.slack.kaldb.proto.metadata.Metadata;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.NavigableMap;
+import java.util.NavigableSet;
+import java.util.Optional;
+import java.util.Set;
+import java.util.TreeMap;
+import java.util.TreeSet;
+import java.util.function.BiConsumer;
+import javax.annotation.Nullable;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * An in-memory model of the replicas, snapshots, cache slots and cache nodes, which the cluster
+ * manager services share. The model applies the nodes changed in the metadata stores as deltas, and
+ * keeps indexes of the free cache slots, the unassigned replicas, the replicas by expiration and
+ * the snapshots by replica count. So a service run only looks at the items it may act on, instead
+ * of rescanning and regrouping every cached node.
+ *
+ * <p>The names of the changed nodes are recorded as soon as a cache applies them, and the changed
+ * nodes are only applied when the model is read. So reads are as fresh as the caches, even while
+ * the notifications of a burst of changes are coalesced. If a store notifies a change without
+ * naming the changed nodes, like after a reconnect, the part of the model built from that store is
+ * rebuilt from its cache instead.
+ *
+ * <p>A store that isn't given is treated as empty.
+ */
+public class ClusterState {
+  private static final Logger LOG = LoggerFactory.getLogger(ClusterState.class);
+
+  private final StoreTracker<ReplicaMetadata> replicaTracker;
+  private final StoreTracker<SnapshotMetadata> snapshotTracker;
+  private final StoreTracker<CacheSlotMetadata> cacheSlotTracker;
+  private final StoreTracker<CacheNodeMetadata> cacheNodeTracker;
+
+  private final Map<String, ReplicaMetadata> replicasByName = new HashMap<>();
+  private final Map<String, Set<String>> replicaNamesBySnapshotId = new HashMap<>();
+  private final NavigableSet<ReplicaMetadata> replicasByExpiration =
+      new TreeSet<>(
+          Comparator.comparingLong((ReplicaMetadata replica) -> replica.expireAfterEpochMs)
+              .thenComparing((ReplicaMetadata replica) -> replica.name));
+  private final Set<String> unassignedReplicaNames = new HashSet<>();
+
+  // Snapshot nodes are named by their snapshot id.
+  private final Map<String, SnapshotMetadata> snapshotsById = new HashMap<>();
+  private final NavigableMap<Integer, Set<String>> snapshotIdsByReplicaCount = new TreeMap<>();
+
+  private final Map<String, CacheSlotMetadata> cacheSlotsByName = new HashMap<>();
+  private final Set<String> freeCacheSlotNames = new HashSet<>();
+  private final Map<String, Set<String>> cacheSlotNamesByReplicaId = new HashMap<>();
+
+  private final Map<String, CacheNodeMetadata> cacheNodesByName = new HashMap<>();
+  private final Map<String, CacheNodeMetadata> cacheNodesBySlotName = new HashMap<>();
+
+  public ClusterState(
+      @Nullable ReplicaMetadataStore replicaMetadataStore,
+      @Nullable SnapshotMetadataStore snapshotMetadataStore,
+      @Nullable CacheSlotMetadataStore cacheSlotMetadataStore,
+      @Nullable CacheNodeMetadataStore cacheNodeMetadataStore) {
+    this.replicaTracker = new StoreTracker<>(replicaMetadataStore, this::applyReplica);
+    this.snapshotTracker = new StoreTracker<>(snapshotMetadataStore, this::applySnapshot);
+    this.cacheSlotTracker = new StoreTracker<>(cacheSlotMetadataStore, this::applyCacheSlot);
+    this.cacheNodeTracker = new StoreTracker<>(cacheNodeMetadataStore, this::applyCacheNode);
+  }
+
+  /** Stops tracking the changes of the stores. */
+  public void close() {
+    replicaTracker.close();
+    snapshotTracker.close();
+    cacheSlotTracker.close();
+    cacheNodeTracker.close();
+  }
+
+  public synchronized Optional<ReplicaMetadata> getReplica(String replicaId) {
+    refresh();
+    return Optional.ofNullable(replicasByName.get(replicaId));
+  }
+
+  public synchronized Optional<SnapshotMetadata> getSnapshot(String snapshotId) {
+    refresh();
+    return Optional.ofNullable(snapshotsById.get(snapshotId));
+  }
+
+  public synchronized Optional<CacheSlotMetadata> getCacheSlot(String cacheSlotName) {
+    refresh();
+    return Optional.ofNullable(cacheSlotsByName.get(cacheSlotName));
+  }
+
+  /** Returns the cache node that advertises the given cache slot, if any. */
+  public synchronized Optional<CacheNodeMetadata> getCacheNodeOf(String cacheSlotName) {
+    refresh();
+    return Optional.ofNullable(cacheNodesBySlotName.get(cacheSlotName));
+  }
+
+  /** Returns the cache slots that no cache node advertises. */
+  public synchronized List<CacheSlotMetadata> getUnadvertisedCacheSlots() {
+    refresh();
+    List<CacheSlotMetadata> unadvertisedCacheSlots = new ArrayList<>();
+    cacheSlotsByName.forEach(
+        (name, cacheSlot) -> {
+          if (!cacheNodesBySlotName.containsKey(name)) {
+            unadvertisedCacheSlots.add(cacheSlot);
+          }
+        });
+    return unadvertisedCacheSlots;
+  }
+
+  public synchronized List<CacheSlotMetadata> getFreeCacheSlots() {
+    refresh();
+    List<CacheSlotMetadata> freeCacheSlots = new ArrayList<>(freeCacheSlotNames.size());
+    freeCacheSlotNames.forEach((name) -> freeCacheSlots.add(cacheSlotsByName.get(name)));
+    return freeCacheSlots;
+  }
+
+  /** Returns the replicas that no cache slot refers to, including the expired ones. */
+  public synchronized List<ReplicaMetadata> getUnassignedReplicas() {
+    refresh();
+    List<ReplicaMetadata> unassignedReplicas = new ArrayList<>(unassignedReplicaNames.size());
+    unassignedReplicaNames.forEach((name) -> unassignedReplicas.add(replicasByName.get(name)));
+    return unassignedReplicas;
+  }
+
+  /** Returns the cache slots that refer to a replica which expires before the given time. */
+  public synchronized List<CacheSlotMetadata> getCacheSlotsOfReplicasExpiringBefore(
+      long expireOlderThanEpochMs) {
+    refresh();
+    List<CacheSlotMetadata> cacheSlots = new ArrayList<>();
+    for (ReplicaMetadata replicaMetadata : replicasByExpiration) {
+      if (replicaMetadata.expireAfterEpochMs >= expireOlderThanEpochMs) {
+        break;
+      }
+      cacheSlotNamesByReplicaId
+          .getOrDefault(replicaMetadata.name, Set.of())
+          .forEach((name) -> cacheSlots.add(cacheSlotsByName.get(name)));
+    }
+    return cacheSlots;
+  }
+
+  public synchronized List<ReplicaMetadata> getReplicasOf(String snapshotId) {
+    refresh();
+    List<ReplicaMetadata> replicas = new ArrayList<>();
+    replicaNamesBySnapshotId
+        .getOrDefault(snapshotId, Set.of())
+        .forEach((name) -> replicas.add(replicasByName.get(name)));
+    return replicas;
+  }
+
+  /** Returns the count of replicas of the given snapshot, including the expired ones. */
+  public synchronized int getReplicaCount(String snapshotId) {
+    refresh();
+    return replicaNamesBySnapshotId.getOrDefault(snapshotId, Set.of()).size();
+  }
+
+  /** Returns the snapshots with fewer replicas than the given count. */
+  public synchronized List<SnapshotMetadata> getSnapshotsWithFewerReplicasThan(int replicaCount) {
+    refresh();
+    return getSnapshots(snapshotIdsByReplicaCount.headMap(replicaCount, false));
+  }
+
+  /** Returns the snapshots with more replicas than the given count. */
+  public synchronized List<SnapshotMetadata> getSnapshotsWithMoreReplicasThan(int replicaCount) {
+    refresh();
+    return getSnapshots(snapshotIdsByReplicaCount.tailMap(replicaCount, false));
+  }
+
+  private List<SnapshotMetadata> getSnapshots(Map<Integer, Set<String>> snapshotIdsByCount) {
+    List<SnapshotMetadata> snapshots = new ArrayList<>();
+    snapshotIdsByCount
+        .values()
+        .forEach(
+            (snapshotIds) -> snapshotIds.forEach((id) -> snapshots.add(snapshotsById.get(id))));
+    return snapshots;
+  }
+
+  private void refresh() {
+    replicaTracker.refresh();
+    snapshotTracker.refresh();
+    cacheSlotTracker.refresh();
+    cacheNodeTracker.refresh();
+  }
+
+  private void applyReplica(String name, @Nullable ReplicaMetadata replicaMetadata) {
+    ReplicaMetadata previous = replicasByName.remove(name);
+    if (previous != null) {
+      replicasByExpiration.remove(previous);
+      unassignedReplicaNames.remove(name);
+      updateReplicaCount(
+          previous.snapshotId,
+          () -> {
+            Set<String> replicaNames = replicaNamesBySnapshotId.get(previous.snapshotId);
+            replicaNames.remove(name);
+            if (replicaNames.isEmpty()) {
+              replicaNamesBySnapshotId.remove(previous.snapshotId);
+            }
+          });
+    }
+
+    if (replicaMetadata != null) {
+      replicasByName.put(name, replicaMetadata);
+      replicasByExpiration.add(replicaMetadata);
+      if (!cacheSlotNamesByReplicaId.containsKey(name)) {
+        unassignedReplicaNames.add(name);
+      }
+      updateReplicaCount(
+          replicaMetadata.snapshotId,
+          () ->
+              replicaNamesBySnapshotId
+                  .computeIfAbsent(replicaMetadata.snapshotId, (id) -> new HashSet<>())
+                  .add(name));
+    }
+  }
+
+  private void applySnapshot(String name, @Nullable SnapshotMetadata snapshotMetadata) {
+    if (snapshotsById.containsKey(name)) {
+      updateReplicaCount(name, () -> snapshotsById.remove(name));
+    }
+    if (snapshotMetadata != null) {
+      updateReplicaCount(name, () -> snapshotsById.put(name, snapshotMetadata));
+    }
+  }
+
+  private void applyCacheSlot(String name, @Nullable CacheSlotMetadata cacheSlotMetadata) {
+    CacheSlotMetadata previous = cacheSlotsByName.remove(name);
+    if (previous != null) {
+      freeCacheSlotNames.remove(name);
+      if (!previous.replicaId.isEmpty()) {
+        Set<String> cacheSlotNames = cacheSlotNamesByReplicaId.get(previous.replicaId);
+        cacheSlotNames.remove(name);
+        if (cacheSlotNames.isEmpty()) {
+          cacheSlotNamesByReplicaId.remove(previous.replicaId);
+          if (replicasByName.containsKey(previous.replicaId)) {
+            unassignedReplicaNames.add(previous.replicaId);
+          }
+        }
+      }
+    }
+
+    if (cacheSlotMetadata != null) {
+      cacheSlotsByName.put(name, cacheSlotMetadata);
+      if (cacheSlotMetadata.cacheSlotState.equals(Metadata.CacheSlotMetadata.CacheSlotState.FREE)) {
+        freeCacheSlotNames.add(name);
+      }
+      if (!cacheSlotMetadata.replicaId.isEmpty()) {
+        cacheSlotNamesByReplicaId
+            .computeIfAbsent(cacheSlotMetadata.replicaId, (id) -> new HashSet<>())
+            .add(name);
+        unassignedReplicaNames.remove(cacheSlotMetadata.replicaId);
+      }
+    }
+  }
+
+  private void applyCacheNode(String name, @Nullable CacheNodeMetadata cacheNodeMetadata) {
+    CacheNodeMetadata previous = cacheNodesByName.remove(name);
+    if (previous != null) {
+      previous.cacheSlotNames.forEach(
+          (cacheSlotName) -> cacheNodesBySlotName.remove(cacheSlotName, previous));
+    }
+
+    if (cacheNodeMetadata != null) {
+      cacheNodesByName.put(name, cacheNodeMetadata);
+      cacheNodeMetadata.cacheSlotNames.forEach(
+          (cacheSlotName) -> cacheNodesBySlotName.put(cacheSlotName, cacheNodeMetadata));
+    }
+  }
+
+  /** Moves a snapshot to the bucket of its replica count after the given update. */
+  private void updateReplicaCount(String snapshotId, Runnable update) {
+    if (snapshotsById.containsKey(snapshotId)) {
+      int replicaCount = replicaNamesBySnapshotId.getOrDefault(snapshotId, Set.of()).size();
+      Set<String> snapshotIds = snapshotIdsByReplicaCount.get(replicaCount);
+      snapshotIds.remove(snapshotId);
+      if (snapshotIds.isEmpty()) {
+        snapshotIdsByReplicaCount.remove(replicaCount);
+      }
+    }
+    update.run();
+    if (snapshotsById.containsKey(snapshotId)) {
+      int replicaCount = replicaNamesBySnapshotId.getOrDefault(snapshotId, Set.of()).size();
+      snapshotIdsByReplicaCount
+          .computeIfAbsent(replicaCount, (count) -> new HashSet<>())
+          .add(snapshotId);
+    }
+  }
+
+  /**
+   * Tracks the nodes changed in a store since they were last applied to the model. The changes are
+   * recorded by name as soon as the cache applies them, as their notifications can be coalesced
+   * over a burst of changes, along with the version of the cache after the latest recorded change.
+   * A notification that doesn't name its changes, or a cache ahead of the recorded version because
+   * a change is being recorded, rebuilds the model from the cache.
+   *
+   * <p>The changes are recorded on the thread that updates the cache, so they are guarded by the
+   * tracker instead of the model, which a read can hold for a while.
+   */
+  private class StoreTracker<T extends KaldbMetadata> implements KaldbMetadataStoreChangeListener {
+    private final CacheableMetadataStore<T> store;
+    private final BiConsumer<String, T> applyChange;
+
+    private Set<String> changedNames = new HashSet<>();
+    private boolean rebuild = true;
+    private long recordedVersion = -1;
+    private final Set<String> appliedNames = new HashSet<>();
+
+    private StoreTracker(
+        @Nullable CacheableMetadataStore<T> store, BiConsumer<String, T> applyChange) {
+      this.store = store;
+      this.applyChange = applyChange;
+      if (store != null) {
+        store.addListener(this);
+      }
+    }
+
+    private void close() {
+      if (store != null) {
+        store.removeListener(this);
+      }
+    }
+
+    @Override
+    public void onMetadataStoreChanged() {
+      onMetadataStoreChanged(Set.of());
+    }
+
+    // The named changes were already recorded when the cache applied them.
+    @Override
+    public void onMetadataStoreChanged(Set<String> changedNames) {
+      if (changedNames.isEmpty()) {
+        synchronized (this) {
+          rebuild = true;
+        }
+      }
+    }
+
+    @Override
+    public void onMetadataStoreChangeApplied(String changedName, long version) {
+      synchronized (this) {
+        changedNames.add(changedName);
+        recordedVersion = Math.max(recordedVersion, version);
+      }
+    }
+
+    private void refresh() {
+      if (store == null) {
+        return;
+      }
+
+      long version = store.getCachedVersion();
+      Set<String> names;
+      boolean rebuildAll;
+      synchronized (this) {
+        if (!rebuild && changedNames.isEmpty() && version <= recordedVersion) {
+          return;
+        }
+        names = changedNames;
+        rebuildAll = rebuild || version > recordedVersion;
+        changedNames = new HashSet<>();
+        rebuild = false;
+        recordedVersion = Math.max(recordedVersion, version);
+      }
+
+      if (rebuildAll) {
+        // Some changes aren't known by name, so every node is re-applied and the missing ones
+        // removed.
+        LOG.debug("Rebuilding the cluster state of {} at version {}", store, version);
+        Set<String> removedNames = new HashSet<>(appliedNames);
+        appliedNames.clear();
+        for (T node : store.getCached()) {
+          removedNames.remove(node.name);
+          appliedNames.add(node.name);
+          applyChange.accept(node.name, node);
+        }
+        removedNames.forEach((name) -> applyChange.accept(name, null));
+      } else {
+        for (String name : names) {
+          Optional<T> node = store.getCached(name);
+          if (node.isPresent()) {
+            appliedNames.add(name);
+          } else {
+            appliedNames.remove(name);
+          }
+          applyChange.accept(name, node.orElse(null));
+        }
+      }
+    }
+  }
+}
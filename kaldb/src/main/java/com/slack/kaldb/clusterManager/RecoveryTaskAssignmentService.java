@@ -21,9 +21,14 @@ import io.micrometer.core.instrument.Counter;
 import io.micrometer.core.instrument.MeterRegistry;
 import io.micrometer.core.instrument.Timer;
 import java.time.Instant;
+import java.util.ArrayList;
 import java.util.Comparator;
+import java.util.HashMap;
 import java.util.List;
+import java.util.Map;
+import java.util.PriorityQueue;
 import java.util.Set;
+import java.util.concurrent.ExecutionException;
 import java.util.concurrent.Executors;
 import java.util.concurrent.ScheduledExecutorService;
 import java.util.concurrent.ScheduledFuture;
@@ -54,11 +59,13 @@ public class RecoveryTaskAssignmentService extends AbstractScheduledService {
       "recovery_tasks_assignment_failures";
   public static final String RECOVERY_TASKS_INSUFFICIENT_CAPACITY =
       "recovery_tasks_insufficient_capacity";
+  public static final String RECOVERY_TASKS_SPLIT = "recovery_tasks_split";
   public static final String RECOVERY_TASK_ASSIGNMENT_TIMER = "recovery_task_assignment_timer";
 
   protected final Counter recoveryTasksAssigned;
   protected final Counter recoveryTaskAssignmentFailures;
   protected final Counter recoveryTasksInsufficientCapacity;
+  protected final Counter recoveryTasksSplit;
   private final Timer recoveryAssignmentTimer;
 
   private final ScheduledExecutorService executorService =
@@ -76,11 +83,15 @@ public class RecoveryTaskAssignmentService extends AbstractScheduledService {
     this.meterRegistry = meterRegistry;
 
     checkArgument(managerConfig.getEventAggregationSecs() > 0, "eventAggregationSecs must be > 0");
+    checkArgument(
+        managerConfig.getRecoveryTaskAssignmentServiceConfig().getMinMessagesPerSplitTask() >= 0,
+        "minMessagesPerSplitTask must be >= 0");
     // schedule configs checked as part of the AbstractScheduledService
 
     recoveryTasksAssigned = meterRegistry.counter(RECOVERY_TASKS_ASSIGNED);
     recoveryTaskAssignmentFailures = meterRegistry.counter(RECOVERY_TASKS_ASSIGNMENT_FAILURES);
     recoveryTasksInsufficientCapacity = meterRegistry.counter(RECOVERY_TASKS_INSUFFICIENT_CAPACITY);
+    recoveryTasksSplit = meterRegistry.counter(RECOVERY_TASKS_SPLIT);
     recoveryAssignmentTimer = meterRegistry.timer(RECOVERY_TASK_ASSIGNMENT_TIMER);
   }
 
@@ -121,9 +132,15 @@ public class RecoveryTaskAssignmentService extends AbstractScheduledService {
   }
 
   /**
-   * Assigns recovery tasks needing assignment to the first available recovery node, starting with
-   * the oldest created recovery task. No preference is given specific executor nodes, which may
-   * result in over/under utilization of specific recovery nodes.
+   * Assigns recovery tasks needing assignment to the first available recovery node. By default the
+   * oldest created tasks are assigned first, to reduce the possibility of losing data that ages out
+   * of Kafka. When assignNewestTasksFirst is set, the tasks with the newest data are assigned first
+   * instead, so the most recent logs become searchable soonest. Between tasks of the same age, the
+   * smaller ones are assigned first, as they complete soonest. No preference is given specific
+   * executor nodes, which may result in over/under utilization of specific recovery nodes.
+   *
+   * <p>When there are more free recovery nodes than tasks, the largest tasks are first split in
+   * halves down to minMessagesPerSplitTask, so they are recovered in parallel by the free nodes.
    *
    * <p>If this method fails to successfully assign all the required tasks, the following iteration
    * of this method would attempt to re-assign these until there are no more available tasks.
@@ -142,17 +159,11 @@ public class RecoveryTaskAssignmentService extends AbstractScheduledService {
             .filter((recoveryTaskName) -> !recoveryTaskName.isEmpty())
             .collect(Collectors.toUnmodifiableSet());
 
-    List<RecoveryTaskMetadata> recoveryTasksThatNeedAssignment =
+    List<RecoveryTaskMetadata> unassignedRecoveryTasks =
         recoveryTaskMetadataStore
             .getCached()
             .stream()
             .filter(recoveryTask -> !recoveryTasksAlreadyAssigned.contains(recoveryTask.name))
-            // We are currently starting with the oldest tasks first in an effort to reduce the
-            // possibility of data loss, but this is likely opposite of what most users will
-            // want when running KalDb as a logging solution. If newest recovery tasks were
-            // preferred, under heavy lag you would have higher-value logs available sooner,
-            // at the increased chance of losing old logs.
-            .sorted(Comparator.comparingLong(RecoveryTaskMetadata::getCreatedTimeEpochMs))
             .collect(Collectors.toUnmodifiableList());
 
     List<RecoveryNodeMetadata> availableRecoveryNodes =
@@ -165,6 +176,12 @@ public class RecoveryTaskAssignmentService extends AbstractScheduledService {
                         Metadata.RecoveryNodeMetadata.RecoveryNodeState.FREE)))
             .collect(Collectors.toUnmodifiableList());
 
+    List<RecoveryTaskMetadata> recoveryTasksThatNeedAssignment =
+        splitRecoveryTasks(unassignedRecoveryTasks, availableRecoveryNodes.size())
+            .stream()
+            .sorted(getAssignmentOrder())
+            .collect(Collectors.toUnmodifiableList());
+
     if (recoveryTasksThatNeedAssignment.size() > availableRecoveryNodes.size()) {
       LOG.warn(
           "Insufficient recovery nodes to assign task, wanted {} nodes but had {} nodes",
@@ -223,4 +240,124 @@ public class RecoveryTaskAssignmentService extends AbstractScheduledService {
 
     return successfulAssignments;
   }
+
+  private Comparator<RecoveryTaskMetadata> getAssignmentOrder() {
+    // Among the tasks created at the same time, the smaller tasks go first, so more tasks finish
+    // sooner. The offsets of a partition grow with time, so the offsets are only compared between
+    // the tasks of the same partition.
+    Comparator<RecoveryTaskMetadata> creationTime =
+        Comparator.comparingLong(RecoveryTaskMetadata::getCreatedTimeEpochMs);
+    Comparator<RecoveryTaskMetadata> startOffset =
+        Comparator.comparingLong((recoveryTask) -> recoveryTask.startOffset);
+    if (managerConfig.getRecoveryTaskAssignmentServiceConfig().getAssignNewestTasksFirst()) {
+      creationTime = creationTime.reversed();
+      startOffset = startOffset.reversed();
+    }
+    return creationTime
+        .thenComparingLong(RecoveryTaskMetadata::getOffsetCount)
+        .thenComparing((recoveryTask) -> recoveryTask.partitionId)
+        .thenComparing(startOffset);
+  }
+
+  /**
+   * Splits the largest tasks in halves until there are as many tasks as free recovery nodes, or the
+   * tasks are too small to split. A split task is atomically replaced by its halves, which keep its
+   * creation time. Returns the tasks to assign, with the tasks that failed to be replaced left
+   * whole.
+   */
+  @VisibleForTesting
+  List<RecoveryTaskMetadata> splitRecoveryTasks(
+      List<RecoveryTaskMetadata> recoveryTasks, int availableRecoveryNodes) {
+    long minMessagesPerSplitTask =
+        managerConfig.getRecoveryTaskAssignmentServiceConfig().getMinMessagesPerSplitTask();
+    if (minMessagesPerSplitTask == 0
+        || recoveryTasks.isEmpty()
+        || recoveryTasks.size() >= availableRecoveryNodes) {
+      return recoveryTasks;
+    }
+
+    // The halves of each task, which are split further while they are the largest task.
+    PriorityQueue<RecoveryTaskMetadata> largestFirst =
+        new PriorityQueue<>(
+            Comparator.comparingLong(RecoveryTaskMetadata::getOffsetCount).reversed());
+    Map<String, RecoveryTaskMetadata> splitTasksByHalfName = new HashMap<>();
+    largestFirst.addAll(recoveryTasks);
+    while (largestFirst.size() < availableRecoveryNodes
+        && largestFirst.peek().getOffsetCount() >= 2 * minMessagesPerSplitTask) {
+      RecoveryTaskMetadata recoveryTask = largestFirst.poll();
+      RecoveryTaskMetadata splitTask =
+          splitTasksByHalfName.getOrDefault(recoveryTask.name, recoveryTask);
+      long midOffset = recoveryTask.startOffset + recoveryTask.getOffsetCount() / 2;
+      for (RecoveryTaskMetadata half :
+          List.of(
+              newRecoveryTask(recoveryTask, recoveryTask.startOffset, midOffset - 1),
+              newRecoveryTask(recoveryTask, midOffset, recoveryTask.endOffset))) {
+        largestFirst.add(half);
+        splitTasksByHalfName.put(half.name, splitTask);
+      }
+    }
+    if (splitTasksByHalfName.isEmpty()) {
+      return recoveryTasks;
+    }
+
+    Map<RecoveryTaskMetadata, List<RecoveryTaskMetadata>> halvesBySplitTask = new HashMap<>();
+    List<RecoveryTaskMetadata> tasks = new ArrayList<>();
+    for (RecoveryTaskMetadata recoveryTask : largestFirst) {
+      RecoveryTaskMetadata splitTask = splitTasksByHalfName.get(recoveryTask.name);
+      if (splitTask == null) {
+        tasks.add(recoveryTask);
+      } else {
+        halvesBySplitTask.computeIfAbsent(splitTask, (task) -> new ArrayList<>()).add(recoveryTask);
+      }
+    }
+
+    Map<RecoveryTaskMetadata, ListenableFuture<?>> replacements = new HashMap<>();
+    halvesBySplitTask.forEach(
+        (splitTask, halves) ->
+            replacements.put(splitTask, recoveryTaskMetadataStore.replace(splitTask, halves)));
+    ListenableFuture<?> futureList = Futures.successfulAsList(replacements.values());
+    try {
+      futureList.get(futuresListTimeoutSecs, TimeUnit.SECONDS);
+    } catch (Exception e) {
+      futureList.cancel(true);
+    }
+
+    replacements.forEach(
+        (splitTask, future) -> {
+          if (isSuccessful(future)) {
+            tasks.addAll(halvesBySplitTask.get(splitTask));
+            recoveryTasksSplit.increment();
+            LOG.info(
+                "Split recovery task {} into {} tasks",
+                splitTask.name,
+                halvesBySplitTask.get(splitTask).size());
+          } else {
+            tasks.add(splitTask);
+            LOG.warn("Failed to split recovery task {}", splitTask.name);
+          }
+        });
+    return tasks;
+  }
+
+  private static boolean isSuccessful(ListenableFuture<?> future) {
+    if (!future.isDone() || future.isCancelled()) {
+      return false;
+    }
+    try {
+      Futures.getDone(future);
+      return true;
+    } catch (ExecutionException e) {
+      return false;
+    }
+  }
+
+  private static RecoveryTaskMetadata newRecoveryTask(
+      RecoveryTaskMetadata recoveryTask, long startOffset, long endOffset) {
+    return new RecoveryTaskMetadata(
+        String.format("recoveryTask_%s_%s_%s", recoveryTask.partitionId, startOffset, endOffset),
+        recoveryTask.partitionId,
+        startOffset,
+        endOffset,
+        recoveryTask.createdTimeEpochMs);
+  }
 }
@@ -6,25 +6,34 @@ import static com.slack.kaldb.server.KaldbConfig.DEFAULT_ZK_TIMEOUT_SECS;
 import static com.slack.kaldb.util.FutureUtils.successCountingCallback;
 
 import com.google.common.annotations.VisibleForTesting;
-import com.google.common.collect.Streams;
 import com.google.common.util.concurrent.AbstractScheduledService;
 import com.google.common.util.concurrent.Futures;
 import com.google.common.util.concurrent.ListenableFuture;
 import com.google.common.util.concurrent.MoreExecutors;
+import com.slack.kaldb.metadata.cache.CacheNodeMetadata;
+import com.slack.kaldb.metadata.cache.CacheNodeMetadataStore;
 import com.slack.kaldb.metadata.cache.CacheSlotMetadata;
 import com.slack.kaldb.metadata.cache.CacheSlotMetadataStore;
 import com.slack.kaldb.metadata.replica.ReplicaMetadata;
 import com.slack.kaldb.metadata.replica.ReplicaMetadataStore;
+import com.slack.kaldb.metadata.snapshot.SnapshotMetadata;
+import com.slack.kaldb.metadata.snapshot.SnapshotMetadataStore;
 import com.slack.kaldb.proto.config.KaldbConfigs;
 import com.slack.kaldb.proto.metadata.Metadata;
 import io.micrometer.core.instrument.Counter;
 import io.micrometer.core.instrument.MeterRegistry;
 import io.micrometer.core.instrument.Timer;
 import java.time.Instant;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
 import java.util.Collections;
 import java.util.Comparator;
+import java.util.Deque;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
 import java.util.List;
-import java.util.Set;
+import java.util.Map;
+import java.util.Optional;
 import java.util.concurrent.Executors;
 import java.util.concurrent.ScheduledExecutorService;
 import java.util.concurrent.ScheduledFuture;
@@ -44,7 +53,9 @@ public class ReplicaAssignmentService extends AbstractScheduledService {
   private static final Logger LOG = LoggerFactory.getLogger(ReplicaAssignmentService.class);
 
   private final CacheSlotMetadataStore cacheSlotMetadataStore;
+  private final CacheNodeMetadataStore cacheNodeMetadataStore;
   private final ReplicaMetadataStore replicaMetadataStore;
+  private final ClusterState clusterState;
   private final KaldbConfigs.ManagerConfig managerConfig;
   private final MeterRegistry meterRegistry;
 
@@ -67,11 +78,35 @@ public class ReplicaAssignmentService extends AbstractScheduledService {
 
   public ReplicaAssignmentService(
       CacheSlotMetadataStore cacheSlotMetadataStore,
+      CacheNodeMetadataStore cacheNodeMetadataStore,
       ReplicaMetadataStore replicaMetadataStore,
+      SnapshotMetadataStore snapshotMetadataStore,
+      KaldbConfigs.ManagerConfig managerConfig,
+      MeterRegistry meterRegistry) {
+    this(
+        cacheSlotMetadataStore,
+        cacheNodeMetadataStore,
+        replicaMetadataStore,
+        new ClusterState(
+            replicaMetadataStore,
+            snapshotMetadataStore,
+            cacheSlotMetadataStore,
+            cacheNodeMetadataStore),
+        managerConfig,
+        meterRegistry);
+  }
+
+  public ReplicaAssignmentService(
+      CacheSlotMetadataStore cacheSlotMetadataStore,
+      CacheNodeMetadataStore cacheNodeMetadataStore,
+      ReplicaMetadataStore replicaMetadataStore,
+      ClusterState clusterState,
       KaldbConfigs.ManagerConfig managerConfig,
       MeterRegistry meterRegistry) {
     this.cacheSlotMetadataStore = cacheSlotMetadataStore;
+    this.cacheNodeMetadataStore = cacheNodeMetadataStore;
     this.replicaMetadataStore = replicaMetadataStore;
+    this.clusterState = clusterState;
     this.managerConfig = managerConfig;
     this.meterRegistry = meterRegistry;
 
@@ -112,6 +147,7 @@ public class ReplicaAssignmentService extends AbstractScheduledService {
   protected void startUp() throws Exception {
     LOG.info("Starting replica assignment service");
     cacheSlotMetadataStore.addListener(this::runOneIteration);
+    cacheNodeMetadataStore.addListener(this::runOneIteration);
     replicaMetadataStore.addListener(this::runOneIteration);
   }
 
@@ -125,8 +161,18 @@ public class ReplicaAssignmentService extends AbstractScheduledService {
    * Assigns replicas to available cache slots, up to the configured replica lifespan min
    * configuration. Replicas will be assigned with the most recently created first in descending
    * order. In the event that more replicas than slots exist this ensures the most recent replicas
-   * are preferred. No preference is given to specific cache slots, which may result in over/under
-   * utilization of specific cache slots.
+   * are preferred.
+   *
+   * <p>Cache nodes advertise their disk capacity, and replicas are packed into the slots of the
+   * nodes by the size of their snapshots, so a node is not assigned more bytes than it can hold.
+   * The slots of nodes that don't advertise a capacity, and the replicas of snapshots without a
+   * known size, are only bounded by the count of slots.
+   *
+   * <p>Among the nodes with a free slot and room for a replica, the replica is placed so a query
+   * fans out evenly across the nodes. The nodes are preferred, in order, by: the fewest replicas of
+   * the same snapshot, the fewest snapshots of the same partition or with an overlapping time
+   * range, and the lowest disk utilization. Otherwise, adjacent chunks that are queried together by
+   * the same dashboards end up on one node, which then becomes the straggler of those queries.
    *
    * <p>If this method fails to successfully assign all the replicas needing slot assignment, the
    * following iteration of this method would attempt to re-assign these until there are no more
@@ -134,83 +180,109 @@ public class ReplicaAssignmentService extends AbstractScheduledService {
    *
    * @return The count of successfully assigned cache slots
    */
-  @SuppressWarnings("UnstableApiUsage")
   protected int assignReplicasToCacheSlots() {
     Timer.Sample assignmentTimer = Timer.start(meterRegistry);
 
-    List<CacheSlotMetadata> availableCacheSlots =
-        cacheSlotMetadataStore
-            .getCached()
-            .stream()
-            .filter(
-                cacheSlotMetadata ->
-                    cacheSlotMetadata.cacheSlotState.equals(
-                        Metadata.CacheSlotMetadata.CacheSlotState.FREE))
-            .collect(Collectors.toList());
-
-    // Force a shuffle of the available slots, to reduce the chance of a single cache node getting
-    // assigned chunks that matches all recent queries. This should help balance out the load
-    // across all available hosts.
-    Collections.shuffle(availableCacheSlots);
-
-    Set<String> assignedReplicaIds =
-        cacheSlotMetadataStore
-            .getCached()
-            .stream()
-            .filter(cacheSlotMetadata -> !cacheSlotMetadata.replicaId.isEmpty())
-            .map(cacheSlotMetadata -> cacheSlotMetadata.replicaId)
-            .collect(Collectors.toUnmodifiableSet());
-
     long nowMilli = Instant.now().toEpochMilli();
-    List<String> replicaIdsToAssign =
-        replicaMetadataStore
-            .getCached()
+    List<ReplicaMetadata> replicasToAssign =
+        clusterState
+            .getUnassignedReplicas()
             .stream()
-            // only assign replicas that are not expired, and not already assigned
-            .filter(
-                replicaMetadata ->
-                    replicaMetadata.expireAfterEpochMs > nowMilli
-                        && !assignedReplicaIds.contains(replicaMetadata.name))
+            // only assign replicas that are not expired
+            .filter(replicaMetadata -> replicaMetadata.expireAfterEpochMs > nowMilli)
             // sort the list by the newest replicas first, in case we run out of available slots
             .sorted(Comparator.comparingLong(ReplicaMetadata::getCreatedTimeEpochMs).reversed())
-            .map(replicaMetadata -> replicaMetadata.name)
             .collect(Collectors.toUnmodifiableList());
 
+    // Force a shuffle of the slots, to reduce the chance of a single cache node getting assigned
+    // chunks that matches all recent queries. This should help balance out the load across all
+    // available hosts.
+    List<CacheSlotMetadata> freeCacheSlots = clusterState.getFreeCacheSlots();
+    Collections.shuffle(freeCacheSlots);
+    int availableCacheSlots = freeCacheSlots.size();
+
     // Report either a positive value (excess capacity) or a negative value (insufficient capacity)
-    replicaAssignAvailableCapacity.set(availableCacheSlots.size() - replicaIdsToAssign.size());
+    replicaAssignAvailableCapacity.set(availableCacheSlots - replicasToAssign.size());
 
-    if (replicaIdsToAssign.size() > availableCacheSlots.size()) {
+    if (replicasToAssign.size() > availableCacheSlots) {
       LOG.warn(
           "Insufficient cache slots to assign replicas, wanted {} slots but had {} replicas",
-          replicaIdsToAssign.size(),
-          availableCacheSlots.size());
-    } else if (replicaIdsToAssign.size() == 0) {
+          replicasToAssign.size(),
+          availableCacheSlots);
+    } else if (replicasToAssign.size() == 0) {
       LOG.info("No replicas found requiring assignment");
       assignmentTimer.stop(replicaAssignTimer);
       return 0;
     }
 
+    // Only the nodes with a free slot can take a replica, so the placements of the other nodes are
+    // never built. The slots of the nodes that don't advertise themselves are grouped in a node
+    // without a limit, which only takes the replicas that don't fit on an advertised node.
+    Map<String, CacheNodePlacement> cacheNodePlacements = new LinkedHashMap<>();
+    for (CacheSlotMetadata cacheSlotMetadata : freeCacheSlots) {
+      Optional<CacheNodeMetadata> cacheNodeMetadata =
+          clusterState.getCacheNodeOf(cacheSlotMetadata.name);
+      cacheNodePlacements
+          .computeIfAbsent(
+              cacheNodeMetadata.map(cacheNode -> cacheNode.name).orElse(""),
+              (name) -> newCacheNodePlacement(cacheNodeMetadata.orElse(null)))
+          .freeCacheSlots
+          .add(cacheSlotMetadata.name);
+    }
+
+    Map<String, String> cacheSlotAssignments = new LinkedHashMap<>();
+    int replicasWithoutCapacity = 0;
+    for (ReplicaMetadata replicaMetadata : replicasToAssign) {
+      SnapshotMetadata snapshotMetadata =
+          clusterState.getSnapshot(replicaMetadata.snapshotId).orElse(null);
+      long replicaSize = snapshotMetadata != null ? snapshotMetadata.sizeInBytes : 0;
+      Optional<CacheNodePlacement> cacheNodePlacement =
+          cacheNodePlacements
+              .values()
+              .stream()
+              .filter(placement -> placement.canFit(replicaSize))
+              .min(
+                  Comparator.<CacheNodePlacement, Boolean>comparing(
+                          placement -> placement.capacityBytes == 0)
+                      .thenComparingInt(
+                          placement -> placement.countReplicasOf(replicaMetadata.snapshotId))
+                      .thenComparingInt(placement -> placement.countOverlapping(snapshotMetadata))
+                      .thenComparingDouble(placement -> placement.getUtilization(replicaSize)));
+      if (cacheNodePlacement.isEmpty()) {
+        replicasWithoutCapacity++;
+        continue;
+      }
+      cacheSlotAssignments.put(
+          cacheNodePlacement.get().freeCacheSlots.remove(), replicaMetadata.name);
+      cacheNodePlacement.get().add(replicaMetadata, snapshotMetadata);
+    }
+    if (replicasWithoutCapacity > 0) {
+      LOG.warn(
+          "Insufficient cache capacity to assign replicas, {} of {} replicas didn't fit",
+          replicasWithoutCapacity,
+          replicasToAssign.size());
+    }
+
+    List<CacheSlotMetadata> assignedCacheSlots =
+        cacheSlotAssignments
+            .entrySet()
+            .stream()
+            .map(
+                (cacheSlotAssignment) ->
+                    new CacheSlotMetadata(
+                        cacheSlotAssignment.getKey(),
+                        Metadata.CacheSlotMetadata.CacheSlotState.ASSIGNED,
+                        cacheSlotAssignment.getValue(),
+                        Instant.now().toEpochMilli()))
+            .collect(Collectors.toList());
+
     AtomicInteger successCounter = new AtomicInteger(0);
     List<ListenableFuture<?>> replicaAssignments =
-        Streams.zip(
-                replicaIdsToAssign.stream(),
-                availableCacheSlots.stream(),
-                (replicaId, availableCacheSlot) -> {
-                  CacheSlotMetadata assignedCacheSlot =
-                      new CacheSlotMetadata(
-                          availableCacheSlot.name,
-                          Metadata.CacheSlotMetadata.CacheSlotState.ASSIGNED,
-                          replicaId,
-                          Instant.now().toEpochMilli());
-
-                  ListenableFuture<?> future = cacheSlotMetadataStore.update(assignedCacheSlot);
-                  addCallback(
-                      future,
-                      successCountingCallback(successCounter),
-                      MoreExecutors.directExecutor());
-                  return future;
-                })
-            .collect(Collectors.toList());
+        cacheSlotMetadataStore.updateAll(assignedCacheSlots);
+    replicaAssignments.forEach(
+        (future) ->
+            addCallback(
+                future, successCountingCallback(successCounter), MoreExecutors.directExecutor()));
 
     ListenableFuture<?> futureList = Futures.successfulAsList(replicaAssignments);
     try {
@@ -234,4 +306,92 @@ public class ReplicaAssignmentService extends AbstractScheduledService {
 
     return successfulAssignments;
   }
+
+  /**
+   * Builds the placement of a cache node from the replicas in its assigned slots. Without a cache
+   * node, builds the placement of the slots that no cache node advertises.
+   */
+  private CacheNodePlacement newCacheNodePlacement(CacheNodeMetadata cacheNodeMetadata) {
+    if (cacheNodeMetadata == null) {
+      CacheNodePlacement cacheNodePlacement = new CacheNodePlacement(0);
+      clusterState
+          .getUnadvertisedCacheSlots()
+          .forEach(cacheSlotMetadata -> addAssignedReplica(cacheNodePlacement, cacheSlotMetadata));
+      return cacheNodePlacement;
+    }
+    CacheNodePlacement cacheNodePlacement =
+        new CacheNodePlacement(cacheNodeMetadata.diskCapacityBytes);
+    for (String cacheSlotName : cacheNodeMetadata.cacheSlotNames) {
+      clusterState
+          .getCacheSlot(cacheSlotName)
+          .ifPresent(
+              cacheSlotMetadata -> addAssignedReplica(cacheNodePlacement, cacheSlotMetadata));
+    }
+    return cacheNodePlacement;
+  }
+
+  private void addAssignedReplica(
+      CacheNodePlacement cacheNodePlacement, CacheSlotMetadata cacheSlotMetadata) {
+    if (cacheSlotMetadata.cacheSlotState.equals(Metadata.CacheSlotMetadata.CacheSlotState.FREE)) {
+      return;
+    }
+    clusterState
+        .getReplica(cacheSlotMetadata.replicaId)
+        .ifPresent(
+            replicaMetadata ->
+                cacheNodePlacement.add(
+                    replicaMetadata,
+                    clusterState.getSnapshot(replicaMetadata.snapshotId).orElse(null)));
+  }
+
+  /** The capacity of a cache node, and the replicas and free slots on it. */
+  private static class CacheNodePlacement {
+    // The capacity of the node, or 0 when the node doesn't advertise one, in which case it is only
+    // bounded by its slots.
+    private final long capacityBytes;
+    private final Deque<String> freeCacheSlots = new ArrayDeque<>();
+    private final Map<String, Integer> replicaCountsBySnapshotId = new HashMap<>();
+    private final List<SnapshotMetadata> snapshots = new ArrayList<>();
+    private long usedBytes;
+
+    private CacheNodePlacement(long capacityBytes) {
+      this.capacityBytes = capacityBytes;
+    }
+
+    private void add(ReplicaMetadata replicaMetadata, SnapshotMetadata snapshotMetadata) {
+      replicaCountsBySnapshotId.merge(replicaMetadata.snapshotId, 1, Integer::sum);
+      if (snapshotMetadata != null) {
+        snapshots.add(snapshotMetadata);
+        usedBytes += snapshotMetadata.sizeInBytes;
+      }
+    }
+
+    private boolean canFit(long replicaSize) {
+      return !freeCacheSlots.isEmpty()
+          && (capacityBytes == 0 || usedBytes + replicaSize <= capacityBytes);
+    }
+
+    private double getUtilization(long replicaSize) {
+      return capacityBytes == 0 ? 0 : (double) (usedBytes + replicaSize) / capacityBytes;
+    }
+
+    private int countReplicasOf(String snapshotId) {
+      return replicaCountsBySnapshotId.getOrDefault(snapshotId, 0);
+    }
+
+    private int countOverlapping(SnapshotMetadata snapshotMetadata) {
+      if (snapshotMetadata == null) {
+        return 0;
+      }
+      int overlapping = 0;
+      for (SnapshotMetadata snapshot : snapshots) {
+        if (snapshot.partitionId.equals(snapshotMetadata.partitionId)
+            || (snapshot.startTimeEpochMs <= snapshotMetadata.endTimeEpochMs
+                && snapshotMetadata.startTimeEpochMs <= snapshot.endTimeEpochMs)) {
+          overlapping++;
+        }
+      }
+      return overlapping;
+    }
+  }
 }
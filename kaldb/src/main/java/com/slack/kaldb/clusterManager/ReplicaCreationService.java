@@ -12,6 +12,7 @@ import com.google.common.util.concurrent.ListenableFuture;
 import com.google.common.util.concurrent.MoreExecutors;
 import com.slack.kaldb.metadata.replica.ReplicaMetadata;
 import com.slack.kaldb.metadata.replica.ReplicaMetadataStore;
+import com.slack.kaldb.metadata.snapshot.SnapshotHeatMetadataStore;
 import com.slack.kaldb.metadata.snapshot.SnapshotMetadata;
 import com.slack.kaldb.metadata.snapshot.SnapshotMetadataStore;
 import com.slack.kaldb.proto.config.KaldbConfigs;
@@ -21,6 +22,10 @@ import io.micrometer.core.instrument.MeterRegistry;
 import io.micrometer.core.instrument.Timer;
 import java.time.Instant;
 import java.time.temporal.ChronoUnit;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
 import java.util.List;
 import java.util.Map;
 import java.util.UUID;
@@ -31,6 +36,7 @@ import java.util.concurrent.TimeUnit;
 import java.util.concurrent.atomic.AtomicInteger;
 import java.util.stream.Collectors;
 import java.util.stream.LongStream;
+import java.util.stream.Stream;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
@@ -40,6 +46,11 @@ import org.slf4j.LoggerFactory;
  *
  * <p>Each Replica is then expected to be assigned to a Cache node, depending on availability, by
  * the cache assignment service in the cluster manager
+ *
+ * <p>Snapshots that are frequently queried, per the snapshot heat published by the query nodes,
+ * receive extra replicas up to the configured maximum and byte budget. The extra replicas are
+ * expired again once the snapshot cools down, which lets the eviction and deletion services remove
+ * them.
  */
 public class ReplicaCreationService extends AbstractScheduledService {
   private static final Logger LOG = LoggerFactory.getLogger(ReplicaCreationService.class);
@@ -47,16 +58,20 @@ public class ReplicaCreationService extends AbstractScheduledService {
 
   private final ReplicaMetadataStore replicaMetadataStore;
   private final SnapshotMetadataStore snapshotMetadataStore;
+  private final SnapshotHeatMetadataStore snapshotHeatMetadataStore;
+  private final ClusterState clusterState;
   private final MeterRegistry meterRegistry;
 
   @VisibleForTesting protected int futuresListTimeoutSecs = DEFAULT_ZK_TIMEOUT_SECS;
 
   public static final String REPLICAS_CREATED = "replicas_created";
   public static final String REPLICAS_FAILED = "replicas_failed";
+  public static final String REPLICAS_DROPPED = "replicas_dropped";
   public static final String REPLICA_ASSIGNMENT_TIMER = "replica_assignment_timer";
 
   private final Counter replicasCreated;
   private final Counter replicasFailed;
+  private final Counter replicasDropped;
   private final Timer replicaAssignmentTimer;
 
   private final ScheduledExecutorService executorService =
@@ -66,6 +81,23 @@ public class ReplicaCreationService extends AbstractScheduledService {
   public ReplicaCreationService(
       ReplicaMetadataStore replicaMetadataStore,
       SnapshotMetadataStore snapshotMetadataStore,
+      SnapshotHeatMetadataStore snapshotHeatMetadataStore,
+      KaldbConfigs.ManagerConfig managerConfig,
+      MeterRegistry meterRegistry) {
+    this(
+        replicaMetadataStore,
+        snapshotMetadataStore,
+        snapshotHeatMetadataStore,
+        new ClusterState(replicaMetadataStore, snapshotMetadataStore, null, null),
+        managerConfig,
+        meterRegistry);
+  }
+
+  public ReplicaCreationService(
+      ReplicaMetadataStore replicaMetadataStore,
+      SnapshotMetadataStore snapshotMetadataStore,
+      SnapshotHeatMetadataStore snapshotHeatMetadataStore,
+      ClusterState clusterState,
       KaldbConfigs.ManagerConfig managerConfig,
       MeterRegistry meterRegistry) {
 
@@ -75,16 +107,30 @@ public class ReplicaCreationService extends AbstractScheduledService {
     checkArgument(
         managerConfig.getReplicaCreationServiceConfig().getReplicaLifespanMins() > 0,
         "replicaLifespanMins must be > 0");
+    checkArgument(
+        managerConfig.getReplicaCreationServiceConfig().getMaxReplicasPerSnapshot()
+                <= managerConfig.getReplicaCreationServiceConfig().getReplicasPerSnapshot()
+            || managerConfig.getReplicaCreationServiceConfig().getQueriesPerExtraReplica() > 0,
+        "queriesPerExtraReplica must be > 0 when maxReplicasPerSnapshot is set");
+    checkArgument(
+        managerConfig.getReplicaCreationServiceConfig().getExtraReplicasMaxBytes() >= 0,
+        "extraReplicasMaxBytes must be >= 0");
+    checkArgument(
+        managerConfig.getReplicaCreationServiceConfig().getExtraReplicaMinLifespanMins() >= 0,
+        "extraReplicaMinLifespanMins must be >= 0");
     checkArgument(managerConfig.getEventAggregationSecs() > 0, "eventAggregationSecs must be > 0");
     // schedule configs checked as part of the AbstractScheduledService
 
     this.replicaMetadataStore = replicaMetadataStore;
     this.snapshotMetadataStore = snapshotMetadataStore;
+    this.snapshotHeatMetadataStore = snapshotHeatMetadataStore;
+    this.clusterState = clusterState;
     this.managerConfig = managerConfig;
 
     this.meterRegistry = meterRegistry;
     this.replicasCreated = meterRegistry.counter(REPLICAS_CREATED);
     this.replicasFailed = meterRegistry.counter(REPLICAS_FAILED);
+    this.replicasDropped = meterRegistry.counter(REPLICAS_DROPPED);
     this.replicaAssignmentTimer = meterRegistry.timer(REPLICA_ASSIGNMENT_TIMER);
   }
 
@@ -92,6 +138,7 @@ public class ReplicaCreationService extends AbstractScheduledService {
   protected void startUp() throws Exception {
     LOG.info("Starting replica creator service");
     snapshotMetadataStore.addListener(this::runOneIteration);
+    snapshotHeatMetadataStore.addListener(this::runOneIteration);
   }
 
   @Override
@@ -133,10 +180,12 @@ public class ReplicaCreationService extends AbstractScheduledService {
   }
 
   /**
-   * Creates N replicas per the KalDb configuration for each snapshot. If a snapshot does not
-   * contain at least the amount of replicas configured, this will attempt to create the missing
-   * replicas to bring it into compliance. No attempt is made to reduce the replica count if for
-   * some reason it exceeds the configured value.
+   * Creates N replicas per the KalDb configuration for each snapshot, plus any extra replicas for
+   * frequently queried snapshots. If a snapshot does not contain at least the amount of replicas
+   * targeted, this will attempt to create the missing replicas to bring it into compliance. Extra
+   * replicas of snapshots that are no longer frequently queried are expired once they are older
+   * than the extra replica min lifespan, but no attempt is made to reduce the replica count below
+   * the configured replicas per snapshot. Both only count the unexpired, non-restored replicas.
    *
    * <p>If this method fails to successfully complete all the required replicas, the following
    * iteration of this method would attempt to re-create these until they are either brought into
@@ -148,15 +197,7 @@ public class ReplicaCreationService extends AbstractScheduledService {
     LOG.info("Starting replica creation for unassigned snapshots");
     Timer.Sample assignmentTimer = Timer.start(meterRegistry);
 
-    // build a map of snapshot ID to how many replicas currently exist for that snapshot ID
-    Map<String, Long> snapshotToReplicas =
-        replicaMetadataStore
-            .getCached()
-            .stream()
-            .collect(
-                Collectors.groupingBy(
-                    (replicaMetadata) -> replicaMetadata.snapshotId, Collectors.counting()));
-
+    long nowMilli = Instant.now().toEpochMilli();
     long snapshotExpiration =
         Instant.now()
             .minus(
@@ -164,23 +205,55 @@ public class ReplicaCreationService extends AbstractScheduledService {
                 ChronoUnit.MINUTES)
             .toEpochMilli();
 
-    AtomicInteger successCounter = new AtomicInteger(0);
-    List<ListenableFuture<?>> createdReplicaMetadataList =
-        snapshotMetadataStore
-            .getCached()
+    // Only the snapshots whose replica count may be off their target are looked at: the ones with
+    // fewer or more replicas than the replicas per snapshot, and the hot ones. The rest already
+    // have exactly the replicas per snapshot, which is their target.
+    int replicasPerSnapshot =
+        managerConfig.getReplicaCreationServiceConfig().getReplicasPerSnapshot();
+    Map<String, SnapshotMetadata> candidateSnapshots = new LinkedHashMap<>();
+    clusterState
+        .getSnapshotsWithFewerReplicasThan(replicasPerSnapshot)
+        .forEach((snapshot) -> candidateSnapshots.put(snapshot.snapshotId, snapshot));
+    if (hasExtraReplicas()) {
+      getQueryCountsBySnapshotId()
+          .keySet()
+          .forEach(
+              (snapshotId) ->
+                  clusterState
+                      .getSnapshot(snapshotId)
+                      .ifPresent((snapshot) -> candidateSnapshots.put(snapshotId, snapshot)));
+      clusterState
+          .getSnapshotsWithMoreReplicasThan(replicasPerSnapshot)
+          .forEach((snapshot) -> candidateSnapshots.put(snapshot.snapshotId, snapshot));
+    }
+
+    // only attempt to create replicas for snapshots that have not expired, and are not live
+    List<SnapshotMetadata> eligibleSnapshots =
+        candidateSnapshots
+            .values()
             .stream()
-            // only attempt to create replicas for snapshots that have not expired, and are not live
             .filter(
                 snapshotMetadata ->
                     snapshotMetadata.endTimeEpochMs > snapshotExpiration
                         && !SnapshotMetadata.isLive(snapshotMetadata))
+            .collect(Collectors.toUnmodifiableList());
+    Map<String, Integer> replicaTargets = getReplicaTargets(eligibleSnapshots);
+    Map<String, List<ReplicaMetadata>> activeReplicasBySnapshotId = new HashMap<>();
+    eligibleSnapshots.forEach(
+        (snapshotMetadata) ->
+            activeReplicasBySnapshotId.put(
+                snapshotMetadata.snapshotId,
+                getActiveReplicas(snapshotMetadata.snapshotId, nowMilli)));
+
+    AtomicInteger successCounter = new AtomicInteger(0);
+    List<ListenableFuture<?>> createdReplicaMetadataList =
+        eligibleSnapshots
+            .stream()
             .map(
                 (snapshotMetadata) ->
                     LongStream.range(
-                            snapshotToReplicas.getOrDefault(snapshotMetadata.snapshotId, 0L),
-                            managerConfig
-                                .getReplicaCreationServiceConfig()
-                                .getReplicasPerSnapshot())
+                            activeReplicasBySnapshotId.get(snapshotMetadata.snapshotId).size(),
+                            replicaTargets.get(snapshotMetadata.snapshotId))
                         .mapToObj(
                             (i) -> {
                               ListenableFuture<?> future =
@@ -204,7 +277,14 @@ public class ReplicaCreationService extends AbstractScheduledService {
             .flatMap(List::stream)
             .collect(Collectors.toUnmodifiableList());
 
-    ListenableFuture<?> futureList = Futures.successfulAsList(createdReplicaMetadataList);
+    AtomicInteger droppedCounter = new AtomicInteger(0);
+    List<ListenableFuture<?>> droppedReplicaMetadataList =
+        dropExtraReplicas(replicaTargets, activeReplicasBySnapshotId, nowMilli, droppedCounter);
+
+    ListenableFuture<?> futureList =
+        Futures.successfulAsList(
+            Stream.concat(createdReplicaMetadataList.stream(), droppedReplicaMetadataList.stream())
+                .collect(Collectors.toUnmodifiableList()));
     try {
       futureList.get(futuresListTimeoutSecs, TimeUnit.SECONDS);
     } catch (Exception e) {
@@ -216,17 +296,158 @@ public class ReplicaCreationService extends AbstractScheduledService {
 
     replicasCreated.increment(createdReplicas);
     replicasFailed.increment(failedReplicas);
+    replicasDropped.increment(droppedCounter.get());
 
     long assignmentDuration = assignmentTimer.stop(replicaAssignmentTimer);
     LOG.info(
-        "Completed replica creation for unassigned snapshots - successfully created {} replicas, failed {} replicas in {} ms",
+        "Completed replica creation for unassigned snapshots - successfully created {} replicas, failed {} replicas, dropped {} replicas in {} ms",
         createdReplicas,
         failedReplicas,
+        droppedCounter.get(),
         TimeUnit.MILLISECONDS.convert(assignmentDuration, TimeUnit.NANOSECONDS));
 
     return createdReplicas;
   }
 
+  /**
+   * Returns the number of replicas each eligible snapshot should have. Every snapshot gets the
+   * configured replicas per snapshot, and the hottest snapshots get one extra replica for every
+   * queriesPerExtraReplica recent queries, up to maxReplicasPerSnapshot. Extra replicas are handed
+   * out hottest snapshot first until they would exceed the extraReplicasMaxBytes budget.
+   */
+  @VisibleForTesting
+  protected Map<String, Integer> getReplicaTargets(List<SnapshotMetadata> eligibleSnapshots) {
+    KaldbConfigs.ManagerConfig.ReplicaCreationServiceConfig replicaCreationServiceConfig =
+        managerConfig.getReplicaCreationServiceConfig();
+    int replicasPerSnapshot = replicaCreationServiceConfig.getReplicasPerSnapshot();
+    int maxExtraReplicas =
+        replicaCreationServiceConfig.getMaxReplicasPerSnapshot() - replicasPerSnapshot;
+
+    Map<String, Integer> replicaTargets = new HashMap<>();
+    eligibleSnapshots.forEach(
+        (snapshotMetadata) -> replicaTargets.put(snapshotMetadata.snapshotId, replicasPerSnapshot));
+    if (maxExtraReplicas <= 0) {
+      return replicaTargets;
+    }
+
+    Map<String, Long> queryCountsBySnapshotId = getQueryCountsBySnapshotId();
+
+    long extraReplicasMaxBytes = replicaCreationServiceConfig.getExtraReplicasMaxBytes();
+    long extraReplicasBytes = 0;
+    List<SnapshotMetadata> hotSnapshots =
+        eligibleSnapshots
+            .stream()
+            .filter(
+                (snapshotMetadata) ->
+                    queryCountsBySnapshotId.getOrDefault(snapshotMetadata.snapshotId, 0L)
+                        >= replicaCreationServiceConfig.getQueriesPerExtraReplica())
+            .sorted(
+                Comparator.comparingLong(
+                        (SnapshotMetadata snapshotMetadata) ->
+                            queryCountsBySnapshotId.get(snapshotMetadata.snapshotId))
+                    .reversed())
+            .collect(Collectors.toList());
+    for (SnapshotMetadata snapshotMetadata : hotSnapshots) {
+      long extraReplicas =
+          Math.min(
+              maxExtraReplicas,
+              queryCountsBySnapshotId.get(snapshotMetadata.snapshotId)
+                  / replicaCreationServiceConfig.getQueriesPerExtraReplica());
+      if (extraReplicasMaxBytes > 0) {
+        if (snapshotMetadata.sizeInBytes > 0) {
+          extraReplicas =
+              Math.min(
+                  extraReplicas,
+                  (extraReplicasMaxBytes - extraReplicasBytes) / snapshotMetadata.sizeInBytes);
+        }
+        extraReplicasBytes += extraReplicas * snapshotMetadata.sizeInBytes;
+      }
+      replicaTargets.put(snapshotMetadata.snapshotId, replicasPerSnapshot + (int) extraReplicas);
+    }
+    return replicaTargets;
+  }
+
+  /** Returns the recent query counts of the snapshots, summed over all the query nodes. */
+  private Map<String, Long> getQueryCountsBySnapshotId() {
+    Map<String, Long> queryCountsBySnapshotId = new HashMap<>();
+    snapshotHeatMetadataStore
+        .getCached()
+        .forEach(
+            (snapshotHeatMetadata) ->
+                snapshotHeatMetadata.queryCountsBySnapshotId.forEach(
+                    (snapshotId, queryCount) ->
+                        queryCountsBySnapshotId.merge(snapshotId, queryCount, Long::sum)));
+    return queryCountsBySnapshotId;
+  }
+
+  private boolean hasExtraReplicas() {
+    return managerConfig.getReplicaCreationServiceConfig().getMaxReplicasPerSnapshot()
+        > managerConfig.getReplicaCreationServiceConfig().getReplicasPerSnapshot();
+  }
+
+  /** Returns the replicas of a snapshot that count towards its target. */
+  private List<ReplicaMetadata> getActiveReplicas(String snapshotId, long nowMilli) {
+    return clusterState
+        .getReplicasOf(snapshotId)
+        .stream()
+        .filter(
+            (replicaMetadata) ->
+                !replicaMetadata.isRestored && replicaMetadata.expireAfterEpochMs > nowMilli)
+        .collect(Collectors.toList());
+  }
+
+  /**
+   * Expires the newest replicas of snapshots that have more active replicas than their target.
+   * Replicas younger than the extra replica min lifespan are kept, even if that leaves the snapshot
+   * above its target. Expired replicas are evicted from the cache and then deleted by the other
+   * cluster manager services.
+   */
+  private List<ListenableFuture<?>> dropExtraReplicas(
+      Map<String, Integer> replicaTargets,
+      Map<String, List<ReplicaMetadata>> activeReplicasBySnapshotId,
+      long nowMilli,
+      AtomicInteger droppedCounter) {
+    if (!hasExtraReplicas()) {
+      return List.of();
+    }
+
+    long droppableCreatedBefore =
+        nowMilli
+            - TimeUnit.MINUTES.toMillis(
+                managerConfig.getReplicaCreationServiceConfig().getExtraReplicaMinLifespanMins());
+    List<ListenableFuture<?>> droppedReplicaMetadataList = new ArrayList<>();
+    activeReplicasBySnapshotId.forEach(
+        (snapshotId, replicas) ->
+            replicas
+                .stream()
+                .filter(
+                    (replicaMetadata) ->
+                        replicaMetadata.createdTimeEpochMs <= droppableCreatedBefore)
+                .sorted(
+                    Comparator.comparingLong(
+                            (ReplicaMetadata replicaMetadata) -> replicaMetadata.createdTimeEpochMs)
+                        .reversed())
+                .limit(Math.max(replicas.size() - replicaTargets.get(snapshotId), 0))
+                .forEach(
+                    (replicaMetadata) -> {
+                      ListenableFuture<?> future =
+                          replicaMetadataStore.update(
+                              new ReplicaMetadata(
+                                  replicaMetadata.name,
+                                  replicaMetadata.snapshotId,
+                                  replicaMetadata.createdTimeEpochMs,
+                                  nowMilli,
+                                  replicaMetadata.isRestored,
+                                  replicaMetadata.indexType));
+                      addCallback(
+                          future,
+                          successCountingCallback(droppedCounter),
+                          MoreExecutors.directExecutor());
+                      droppedReplicaMetadataList.add(future);
+                    }));
+    return droppedReplicaMetadataList;
+  }
+
   public static ReplicaMetadata replicaMetadataFromSnapshotId(
       String snapshotId, Instant expireAfter, boolean isRestored) {
     return new ReplicaMetadata(
@@ -9,6 +9,7 @@ import com.google.common.util.concurrent.Futures;
 import com.google.common.util.concurrent.ListenableFuture;
 import com.google.common.util.concurrent.MoreExecutors;
 import com.slack.kaldb.metadata.cache.CacheSlotMetadataStore;
+import com.slack.kaldb.metadata.replica.ReplicaMetadata;
 import com.slack.kaldb.metadata.replica.ReplicaMetadataStore;
 import com.slack.kaldb.proto.config.KaldbConfigs;
 import com.slack.kaldb.util.FutureUtils;
@@ -103,8 +104,7 @@ public class ReplicaDeletionService extends AbstractScheduledService {
             .map(cacheSlotMetadata -> cacheSlotMetadata.replicaId)
             .collect(Collectors.toUnmodifiableSet());
 
-    AtomicInteger successCounter = new AtomicInteger(0);
-    List<ListenableFuture<?>> replicaDeletions =
+    List<ReplicaMetadata> expiredReplicas =
         replicaMetadataStore
             .getCached()
             .stream()
@@ -112,17 +112,17 @@ public class ReplicaDeletionService extends AbstractScheduledService {
                 replicaMetadata ->
                     replicaMetadata.expireAfterEpochMs < deleteOlderThan.toEpochMilli()
                         && !replicaIdsWithAssignments.contains(replicaMetadata.name))
-            .map(
-                (replicaMetadata) -> {
-                  ListenableFuture<?> future = replicaMetadataStore.delete(replicaMetadata);
-                  addCallback(
-                      future,
-                      FutureUtils.successCountingCallback(successCounter),
-                      MoreExecutors.directExecutor());
-                  return future;
-                })
             .collect(Collectors.toUnmodifiableList());
 
+    AtomicInteger successCounter = new AtomicInteger(0);
+    List<ListenableFuture<?>> replicaDeletions = replicaMetadataStore.deleteAll(expiredReplicas);
+    replicaDeletions.forEach(
+        (future) ->
+            addCallback(
+                future,
+                FutureUtils.successCountingCallback(successCounter),
+                MoreExecutors.directExecutor()));
+
     ListenableFuture<?> futureList = Futures.successfulAsList(replicaDeletions);
     try {
       futureList.get(futuresListTimeoutSecs, TimeUnit.SECONDS);
@@ -11,7 +11,6 @@ import com.google.common.util.concurrent.ListenableFuture;
 import com.google.common.util.concurrent.MoreExecutors;
 import com.slack.kaldb.metadata.cache.CacheSlotMetadata;
 import com.slack.kaldb.metadata.cache.CacheSlotMetadataStore;
-import com.slack.kaldb.metadata.replica.ReplicaMetadata;
 import com.slack.kaldb.metadata.replica.ReplicaMetadataStore;
 import com.slack.kaldb.proto.config.KaldbConfigs;
 import com.slack.kaldb.proto.metadata.Metadata;
@@ -20,10 +19,8 @@ import io.micrometer.core.instrument.MeterRegistry;
 import io.micrometer.core.instrument.Timer;
 import java.time.Instant;
 import java.util.List;
-import java.util.Map;
 import java.util.concurrent.TimeUnit;
 import java.util.concurrent.atomic.AtomicInteger;
-import java.util.function.Function;
 import java.util.stream.Collectors;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
@@ -38,7 +35,7 @@ public class ReplicaEvictionService extends AbstractScheduledService {
   private static final Logger LOG = LoggerFactory.getLogger(ReplicaEvictionService.class);
 
   private final CacheSlotMetadataStore cacheSlotMetadataStore;
-  private final ReplicaMetadataStore replicaMetadataStore;
+  private final ClusterState clusterState;
   private final KaldbConfigs.ManagerConfig managerConfig;
   private final MeterRegistry meterRegistry;
 
@@ -57,8 +54,20 @@ public class ReplicaEvictionService extends AbstractScheduledService {
       ReplicaMetadataStore replicaMetadataStore,
       KaldbConfigs.ManagerConfig managerConfig,
       MeterRegistry meterRegistry) {
+    this(
+        cacheSlotMetadataStore,
+        new ClusterState(replicaMetadataStore, null, cacheSlotMetadataStore, null),
+        managerConfig,
+        meterRegistry);
+  }
+
+  public ReplicaEvictionService(
+      CacheSlotMetadataStore cacheSlotMetadataStore,
+      ClusterState clusterState,
+      KaldbConfigs.ManagerConfig managerConfig,
+      MeterRegistry meterRegistry) {
     this.cacheSlotMetadataStore = cacheSlotMetadataStore;
-    this.replicaMetadataStore = replicaMetadataStore;
+    this.clusterState = clusterState;
     this.managerConfig = managerConfig;
     this.meterRegistry = meterRegistry;
 
@@ -102,39 +111,33 @@ public class ReplicaEvictionService extends AbstractScheduledService {
   protected int markReplicasForEviction(Instant expireOlderThan) {
     Timer.Sample evictionTimer = Timer.start(meterRegistry);
 
-    Map<String, ReplicaMetadata> replicaMetadataByReplicaId =
-        replicaMetadataStore
-            .getCached()
-            .stream()
-            .collect(Collectors.toUnmodifiableMap(ReplicaMetadata::getName, Function.identity()));
-
-    AtomicInteger successCounter = new AtomicInteger(0);
-    List<ListenableFuture<?>> replicaEvictions =
-        cacheSlotMetadataStore
-            .getCached()
+    // Only the slots of the expired replicas are looked at, which the cluster state keeps ordered
+    // by their expiration.
+    List<CacheSlotMetadata> evictedCacheSlots =
+        clusterState
+            .getCacheSlotsOfReplicasExpiringBefore(expireOlderThan.toEpochMilli())
             .stream()
             .filter(
                 cacheSlotMetadata ->
-                    shouldEvictReplica(
-                        expireOlderThan, replicaMetadataByReplicaId, cacheSlotMetadata))
+                    cacheSlotMetadata.cacheSlotState.equals(
+                        Metadata.CacheSlotMetadata.CacheSlotState.LIVE))
             .map(
-                (cacheSlotMetadata) -> {
-                  ListenableFuture<?> future =
-                      cacheSlotMetadataStore.update(
-                          new CacheSlotMetadata(
-                              cacheSlotMetadata.name,
-                              Metadata.CacheSlotMetadata.CacheSlotState.EVICT,
-                              cacheSlotMetadata.replicaId,
-                              Instant.now().toEpochMilli()));
-
-                  addCallback(
-                      future,
-                      successCountingCallback(successCounter),
-                      MoreExecutors.directExecutor());
-                  return future;
-                })
+                (cacheSlotMetadata) ->
+                    new CacheSlotMetadata(
+                        cacheSlotMetadata.name,
+                        Metadata.CacheSlotMetadata.CacheSlotState.EVICT,
+                        cacheSlotMetadata.replicaId,
+                        Instant.now().toEpochMilli()))
             .collect(Collectors.toUnmodifiableList());
 
+    AtomicInteger successCounter = new AtomicInteger(0);
+    List<ListenableFuture<?>> replicaEvictions =
+        cacheSlotMetadataStore.updateAll(evictedCacheSlots);
+    replicaEvictions.forEach(
+        (future) ->
+            addCallback(
+                future, successCountingCallback(successCounter), MoreExecutors.directExecutor()));
+
     ListenableFuture<?> futureList = Futures.successfulAsList(replicaEvictions);
     try {
       futureList.get(futuresListTimeoutSecs, TimeUnit.SECONDS);
@@ -157,17 +160,4 @@ public class ReplicaEvictionService extends AbstractScheduledService {
 
     return successfulEvictions;
   }
-
-  /**
-   * Checks if the cache slot should be evicted (currently live, and has an expiration in the past)
-   */
-  private boolean shouldEvictReplica(
-      Instant expireOlderThan,
-      Map<String, ReplicaMetadata> replicaMetadataByReplicaId,
-      CacheSlotMetadata cacheSlotMetadata) {
-    return cacheSlotMetadata.cacheSlotState.equals(Metadata.CacheSlotMetadata.CacheSlotState.LIVE)
-        && replicaMetadataByReplicaId.containsKey(cacheSlotMetadata.replicaId)
-        && replicaMetadataByReplicaId.get(cacheSlotMetadata.replicaId).expireAfterEpochMs
-            < expireOlderThan.toEpochMilli();
-  }
 }
@@ -13,6 +13,7 @@ import com.google.common.util.concurrent.RateLimiter;
 import com.google.common.util.concurrent.ThreadFactoryBuilder;
 import com.slack.kaldb.blobfs.BlobFs;
 import com.slack.kaldb.metadata.replica.ReplicaMetadataStore;
+import com.slack.kaldb.metadata.snapshot.SnapshotMetadata;
 import com.slack.kaldb.metadata.snapshot.SnapshotMetadataStore;
 import com.slack.kaldb.proto.config.KaldbConfigs;
 import io.micrometer.core.instrument.Counter;
@@ -22,8 +23,10 @@ import java.io.IOException;
 import java.net.URI;
 import java.time.Instant;
 import java.time.temporal.ChronoUnit;
+import java.util.ArrayList;
 import java.util.List;
 import java.util.Set;
+import java.util.concurrent.ExecutionException;
 import java.util.concurrent.ExecutorService;
 import java.util.concurrent.Executors;
 import java.util.concurrent.TimeUnit;
@@ -47,6 +50,10 @@ public class SnapshotDeletionService extends AbstractScheduledService {
   // Additional buffer to wait past expiration before deleting, as a safety buffer
   private static final int DELETE_BUFFER_MINS = 360;
 
+  // The share of the timeout reserved for the batched metadata deletes, so the rate limited object
+  // deletes can't use up the whole timeout.
+  private static final int METADATA_DELETE_TIMEOUT_DIVISOR = 10;
+
   private final KaldbConfigs.ManagerConfig managerConfig;
 
   private final ReplicaMetadataStore replicaMetadataStore;
@@ -158,8 +165,7 @@ public class SnapshotDeletionService extends AbstractScheduledService {
                 ChronoUnit.MINUTES)
             .minus(DELETE_BUFFER_MINS, ChronoUnit.MINUTES)
             .toEpochMilli();
-    AtomicInteger successCounter = new AtomicInteger(0);
-    List<ListenableFuture<?>> deletedSnapshotList =
+    List<SnapshotMetadata> expiredSnapshots =
         snapshotMetadataStore
             .getCached()
             .stream()
@@ -168,68 +174,89 @@ public class SnapshotDeletionService extends AbstractScheduledService {
                 snapshotMetadata ->
                     snapshotMetadata.endTimeEpochMs < expirationCutoff
                         && !snapshotIdsWithReplicas.contains(snapshotMetadata.name))
+            .collect(Collectors.toUnmodifiableList());
+
+    long timeoutNanos = TimeUnit.SECONDS.toNanos(futuresListTimeoutSecs);
+    long metadataDeleteTimeoutNanos = timeoutNanos / METADATA_DELETE_TIMEOUT_DIVISOR;
+    List<ListenableFuture<SnapshotMetadata>> objectDeletes =
+        expiredSnapshots
+            .stream()
             .map(
-                snapshotMetadata -> {
-                  ListenableFuture<?> future =
-                      Futures.submit(
-                          () -> {
-                            try {
-                              // These futures are rate-limited so that we can more evenly
-                              // distribute
-                              // the load to the downstream services (metadata, s3). There is no
-                              // urgency to complete the deletes, so limiting the maximum rate
-                              // allows
-                              // us to avoid unnecessary spikes.
-                              rateLimiter.acquire();
-
-                              // First try to delete the object from S3, then delete from metadata
-                              // store. If for some reason the object delete fails, it will leave
-                              // the
-                              // metadata and try again on the next run.
-                              URI snapshotUri = URI.create(snapshotMetadata.snapshotPath);
-                              LOG.info("Starting delete of snapshot {}", snapshotMetadata);
-                              if (s3BlobFs.exists(snapshotUri)) {
-                                // Ensure that the file exists before attempting to delete, in case
-                                // the previous run successfully deleted the object but failed the
-                                // metadata delete. Otherwise, this would be expected to perpetually
-                                // fail deleting a non-existing file.
-                                if (s3BlobFs.delete(snapshotUri, true)) {
-                                  snapshotMetadataStore.deleteSync(snapshotMetadata);
-                                } else {
-                                  throw new IOException(
-                                      String.format(
-                                          "Failed to delete '%s' from object store",
-                                          snapshotMetadata.snapshotPath));
-                                }
-                              } else {
-                                snapshotMetadataStore.deleteSync(snapshotMetadata);
-                              }
-                            } catch (Exception e) {
-                              LOG.error("Exception deleting snapshot", e);
-                              throw e;
+                snapshotMetadata ->
+                    Futures.submit(
+                        () -> {
+                          try {
+                            // These futures are rate-limited so that we can more evenly distribute
+                            // the load to the downstream services (metadata, s3). There is no
+                            // urgency to complete the deletes, so limiting the maximum rate allows
+                            // us to avoid unnecessary spikes.
+                            rateLimiter.acquire();
+
+                            // First try to delete the object from S3, the metadata is deleted
+                            // after. If for some reason the object delete fails, it will leave the
+                            // metadata and try again on the next run.
+                            URI snapshotUri = URI.create(snapshotMetadata.snapshotPath);
+                            LOG.info("Starting delete of snapshot {}", snapshotMetadata);
+                            // Ensure that the file exists before attempting to delete, in case the
+                            // previous run successfully deleted the object but failed the metadata
+                            // delete. Otherwise, this would be expected to perpetually fail
+                            // deleting a non-existing file.
+                            if (s3BlobFs.exists(snapshotUri)
+                                && !s3BlobFs.delete(snapshotUri, true)) {
+                              throw new IOException(
+                                  String.format(
+                                      "Failed to delete '%s' from object store",
+                                      snapshotMetadata.snapshotPath));
                             }
-                            return null;
-                          },
-                          executorService);
-
-                  addCallback(
-                      future,
-                      successCountingCallback(successCounter),
-                      MoreExecutors.directExecutor());
-                  return future;
-                })
+                          } catch (Exception e) {
+                            LOG.error("Exception deleting snapshot", e);
+                            throw e;
+                          }
+                          return snapshotMetadata;
+                        },
+                        executorService))
             .collect(Collectors.toUnmodifiableList());
 
-    ListenableFuture<?> futureList = Futures.successfulAsList(deletedSnapshotList);
+    // Object deletes still waiting on the rate limiter when their share of the timeout is up are
+    // cancelled, and retried on the next run.
+    ListenableFuture<?> objectDeleteList = Futures.successfulAsList(objectDeletes);
+    try {
+      objectDeleteList.get(timeoutNanos - metadataDeleteTimeoutNanos, TimeUnit.NANOSECONDS);
+    } catch (Exception e) {
+      objectDeleteList.cancel(true);
+    }
+
+    // The metadata of the snapshots whose objects are gone is deleted in batches, within its own
+    // share of the timeout.
+    List<SnapshotMetadata> snapshotsWithoutObjects = new ArrayList<>();
+    for (ListenableFuture<SnapshotMetadata> objectDelete : objectDeletes) {
+      if (objectDelete.isDone() && !objectDelete.isCancelled()) {
+        try {
+          snapshotsWithoutObjects.add(Futures.getDone(objectDelete));
+        } catch (ExecutionException ignored) {
+          // already logged by the delete
+        }
+      }
+    }
+
+    AtomicInteger successCounter = new AtomicInteger(0);
+    List<ListenableFuture<?>> metadataDeletes =
+        snapshotMetadataStore.deleteAll(snapshotsWithoutObjects);
+    metadataDeletes.forEach(
+        (future) ->
+            addCallback(
+                future, successCountingCallback(successCounter), MoreExecutors.directExecutor()));
+
+    ListenableFuture<?> futureList = Futures.successfulAsList(metadataDeletes);
     try {
-      futureList.get(futuresListTimeoutSecs, TimeUnit.SECONDS);
+      futureList.get(metadataDeleteTimeoutNanos, TimeUnit.NANOSECONDS);
     } catch (Exception e) {
       futureList.cancel(true);
     }
     int successfulDeletions = successCounter.get();
 
     // failedDeletes = timed out futures
-    int failedDeletions = deletedSnapshotList.size() - successfulDeletions;
+    int failedDeletions = expiredSnapshots.size() - successfulDeletions;
 
     snapshotDeleteSuccess.increment(successfulDeletions);
     snapshotDeleteFailed.increment(failedDeletions);
@@ -0,0 +1,207 @@
+package com.slack.kaldb.logstore;
+
+import static com.slack.kaldb.util.ArgValidationUtils.ensureTrue;
+
+import com.google.common.annotations.VisibleForTesting;
+import com.google.common.cache.Cache;
+import com.google.common.cache.CacheBuilder;
+import com.google.common.util.concurrent.UncheckedExecutionException;
+import com.slack.kaldb.blobfs.BlobFs;
+import com.slack.kaldb.proto.config.KaldbConfigs;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import java.io.IOException;
+import java.io.InputStream;
+import java.net.URI;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.NoSuchFileException;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.UUID;
+import java.util.concurrent.ExecutionException;
+import org.apache.commons.io.FileUtils;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * The BlobFsBlockCache reads files from a blobfs in fixed size blocks, and keeps the blocks it read
+ * on local disk, so the parts of a snapshot that are read again are not fetched again. The cache is
+ * shared by all the slots of a cache node, and is bounded by a byte budget with the least recently
+ * used blocks removed first.
+ *
+ * <p>The cache is cleared when the node starts, since the snapshots that were read lazily don't
+ * outlive their assignment.
+ */
+public class BlobFsBlockCache {
+  private static final Logger LOG = LoggerFactory.getLogger(BlobFsBlockCache.class);
+
+  public static final String BLOCK_CACHE_HITS = "block_cache_hits";
+  public static final String BLOCK_CACHE_MISSES = "block_cache_misses";
+  public static final String BLOCK_CACHE_FETCHED_BYTES = "block_cache_fetched_bytes";
+
+  public static final String CACHE_DIRECTORY_NAME = "kaldb-block-cache";
+  public static final int DEFAULT_BLOCK_SIZE_BYTES = 1024 * 1024;
+  private static final int MAX_CONCURRENCY_LEVEL = 16;
+
+  private final BlobFs blobFs;
+  private final Path cacheDirectory;
+  private final long maxBytes;
+  private final int blockSizeBytes;
+  // Blocks keyed by the uri of their file and their index in it, mapped to their file on disk.
+  private final Cache<String, Path> blocks;
+
+  private final Counter hits;
+  private final Counter misses;
+  private final Counter fetchedBytes;
+
+  public static BlobFsBlockCache fromConfig(
+      MeterRegistry meterRegistry, BlobFs blobFs, KaldbConfigs.CacheConfig cacheConfig)
+      throws IOException {
+    return new BlobFsBlockCache(
+        meterRegistry,
+        blobFs,
+        Path.of(cacheConfig.getDataDirectory(), CACHE_DIRECTORY_NAME),
+        cacheConfig.getBlockCacheMaxBytes(),
+        cacheConfig.getBlockCacheBlockSizeBytes() > 0
+            ? cacheConfig.getBlockCacheBlockSizeBytes()
+            : DEFAULT_BLOCK_SIZE_BYTES);
+  }
+
+  /** @param maxBytes the disk space used by the cache, or 0 to disable the cache. */
+  public BlobFsBlockCache(
+      MeterRegistry meterRegistry,
+      BlobFs blobFs,
+      Path cacheDirectory,
+      long maxBytes,
+      int blockSizeBytes)
+      throws IOException {
+    ensureTrue(maxBytes >= 0, "Block cache size can't be negative.");
+    ensureTrue(blockSizeBytes > 0, "Block size should be positive.");
+    ensureTrue(
+        maxBytes == 0 || maxBytes >= blockSizeBytes, "Block cache should fit at least one block.");
+    this.blobFs = blobFs;
+    this.cacheDirectory = cacheDirectory;
+    this.maxBytes = maxBytes;
+    this.blockSizeBytes = blockSizeBytes;
+    this.blocks =
+        CacheBuilder.newBuilder()
+            // The cache splits its budget between its segments, so small caches use fewer
+            // segments to keep room for a few blocks in each of them.
+            .concurrencyLevel(
+                (int) Math.max(1, Math.min(MAX_CONCURRENCY_LEVEL, maxBytes / blockSizeBytes / 4)))
+            .maximumWeight(maxBytes)
+            .<String, Path>weigher((key, block) -> (int) block.toFile().length())
+            .<String, Path>removalListener(
+                notification -> FileUtils.deleteQuietly(notification.getValue().toFile()))
+            .build();
+
+    this.hits = meterRegistry.counter(BLOCK_CACHE_HITS);
+    this.misses = meterRegistry.counter(BLOCK_CACHE_MISSES);
+    this.fetchedBytes = meterRegistry.counter(BLOCK_CACHE_FETCHED_BYTES);
+
+    if (isEnabled()) {
+      FileUtils.deleteDirectory(cacheDirectory.toFile());
+      Files.createDirectories(cacheDirectory);
+    }
+  }
+
+  public boolean isEnabled() {
+    return maxBytes > 0;
+  }
+
+  /**
+   * Reads the bytes of a file starting at a position until the buffer is full.
+   *
+   * @param uri location of the file
+   * @param fileLength length of the file, which bounds its last block
+   * @param position position in the file of the first byte to read
+   * @param dst buffer to read into
+   */
+  public void read(URI uri, long fileLength, long position, ByteBuffer dst) throws IOException {
+    while (dst.hasRemaining()) {
+      long blockIndex = position / blockSizeBytes;
+      long positionInBlock = position - blockIndex * blockSizeBytes;
+      int read = readBlock(uri, fileLength, blockIndex, positionInBlock, dst);
+      position += read;
+    }
+  }
+
+  private int readBlock(
+      URI uri, long fileLength, long blockIndex, long positionInBlock, ByteBuffer dst)
+      throws IOException {
+    String key = uri + "#" + blockIndex;
+    // A block can be removed from the cache between the lookup and the read, so it is fetched
+    // again when its file is gone.
+    for (int attempt = 0; ; attempt++) {
+      Path block = getBlock(key, uri, fileLength, blockIndex);
+      try (FileChannel blockChannel = FileChannel.open(block, StandardOpenOption.READ)) {
+        long blockLength = blockChannel.size();
+        if (positionInBlock >= blockLength) {
+          throw new IOException(
+              String.format("Read past the end of %s at block %d", uri, blockIndex));
+        }
+        ByteBuffer blockDst = dst.slice();
+        blockDst.limit((int) Math.min(blockDst.remaining(), blockLength - positionInBlock));
+        int read = 0;
+        while (blockDst.hasRemaining()) {
+          read += blockChannel.read(blockDst, positionInBlock + read);
+        }
+        dst.position(dst.position() + read);
+        return read;
+      } catch (NoSuchFileException e) {
+        blocks.invalidate(key);
+        if (attempt > 0) {
+          throw e;
+        }
+      }
+    }
+  }
+
+  private Path getBlock(String key, URI uri, long fileLength, long blockIndex) throws IOException {
+    Path block = blocks.getIfPresent(key);
+    if (block != null) {
+      hits.increment();
+      return block;
+    }
+    try {
+      return blocks.get(key, () -> fetchBlock(uri, fileLength, blockIndex));
+    } catch (ExecutionException | UncheckedExecutionException e) {
+      if (e.getCause() instanceof IOException) {
+        throw (IOException) e.getCause();
+      }
+      throw new IOException("Failed to fetch block " + key, e.getCause());
+    }
+  }
+
+  private Path fetchBlock(URI uri, long fileLength, long blockIndex) throws IOException {
+    misses.increment();
+    long offset = blockIndex * blockSizeBytes;
+    long length = Math.min(blockSizeBytes, fileLength - offset);
+    if (length <= 0) {
+      throw new IOException(String.format("Block %d is past the end of %s", blockIndex, uri));
+    }
+    Path block = cacheDirectory.resolve(UUID.randomUUID().toString());
+    try (InputStream inputStream = blobFs.open(uri, offset, length)) {
+      long copied = Files.copy(inputStream, block);
+      if (copied != length) {
+        throw new IOException(
+            String.format(
+                "Expected %d bytes for block %d of %s, got %d", length, blockIndex, uri, copied));
+      }
+    } catch (IOException e) {
+      Files.deleteIfExists(block);
+      throw e;
+    }
+    fetchedBytes.increment(length);
+    LOG.debug("Fetched block {} of {} with {} bytes", blockIndex, uri, length);
+    return block;
+  }
+
+  @VisibleForTesting
+  long getBlockCount() {
+    blocks.cleanUp();
+    return blocks.size();
+  }
+}
@@ -0,0 +1,258 @@
+package com.slack.kaldb.logstore;
+
+import static com.slack.kaldb.logstore.BlobFsUtils.createURI;
+import static com.slack.kaldb.logstore.BlobFsUtils.getSnapshotManifest;
+import static com.slack.kaldb.logstore.BlobFsUtils.listSnapshotFiles;
+
+import com.slack.kaldb.blobfs.BlobFs;
+import com.slack.kaldb.proto.metadata.Metadata;
+import java.io.EOFException;
+import java.io.IOException;
+import java.net.URI;
+import java.nio.ByteBuffer;
+import java.nio.file.NoSuchFileException;
+import java.nio.file.Paths;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.Set;
+import org.apache.lucene.store.BaseDirectory;
+import org.apache.lucene.store.BufferedIndexInput;
+import org.apache.lucene.store.IOContext;
+import org.apache.lucene.store.IndexInput;
+import org.apache.lucene.store.IndexOutput;
+import org.apache.lucene.store.NoLockFactory;
+
+/**
+ * A read-only Lucene directory over a snapshot in a blobfs. The files are not downloaded, instead
+ * the blocks of the files that are read are fetched through a {@link BlobFsBlockCache}. So, a
+ * search only fetches the parts of the index it needs, like the term dictionary and the postings of
+ * its terms.
+ *
+ * <p>Both regular and packed snapshots are supported. The files of a regular snapshot are read from
+ * its manifest, or listed for the snapshots without one, and the files of a packed snapshot are
+ * read from its footer.
+ */
+public class BlobFsDirectory extends BaseDirectory {
+  private static final int BUFFER_SIZE = 16 * 1024;
+
+  /** The location of a file of the snapshot, which may be a range of a larger object. */
+  private static class FileRange {
+    private final URI uri;
+    private final long objectLength;
+    private final long offset;
+    private final long length;
+
+    private FileRange(URI uri, long objectLength, long offset, long length) {
+      this.uri = uri;
+      this.objectLength = objectLength;
+      this.offset = offset;
+      this.length = length;
+    }
+  }
+
+  private final Map<String, FileRange> files;
+  private final BlobFsBlockCache blockCache;
+
+  public static BlobFsDirectory open(
+      String bucket,
+      String prefix,
+      Metadata.IndexType indexType,
+      BlobFs blobFs,
+      BlobFsBlockCache blockCache)
+      throws IOException {
+    Map<String, FileRange> files = new HashMap<>();
+    if (indexType == Metadata.IndexType.LOGS_LUCENE9_PACKED) {
+      URI packedUri = createURI(bucket, prefix, PackedSnapshot.PACKED_SNAPSHOT_FILE);
+      long packedLength = blobFs.length(packedUri);
+      if (packedLength < PackedSnapshot.TRAILER_BYTES) {
+        throw new IOException("Packed snapshot is too short: " + packedUri);
+      }
+      ByteBuffer trailer = ByteBuffer.allocate(PackedSnapshot.TRAILER_BYTES);
+      blockCache.read(packedUri, packedLength, packedLength - trailer.capacity(), trailer);
+      trailer.flip();
+      long footerLength =
+          PackedSnapshot.getFooterLength(trailer, packedLength, packedUri.toString());
+      ByteBuffer footer = ByteBuffer.allocate((int) footerLength);
+      blockCache.read(
+          packedUri,
+          packedLength,
+          packedLength - PackedSnapshot.TRAILER_BYTES - footerLength,
+          footer);
+      footer.flip();
+      for (Metadata.SnapshotManifest.FileEntry fileEntry :
+          Metadata.SnapshotManifest.parseFrom(footer).getFilesList()) {
+        files.put(
+            fileEntry.getName(),
+            new FileRange(packedUri, packedLength, fileEntry.getOffset(), fileEntry.getLength()));
+      }
+    } else {
+      Metadata.SnapshotManifest manifest = getSnapshotManifest(bucket, prefix, blobFs);
+      if (manifest != null) {
+        for (Metadata.SnapshotManifest.FileEntry fileEntry : manifest.getFilesList()) {
+          URI uri = createURI(bucket, prefix, fileEntry.getName());
+          files.put(
+              fileEntry.getName(),
+              new FileRange(uri, fileEntry.getLength(), 0, fileEntry.getLength()));
+        }
+      } else {
+        for (String fileName : listSnapshotFiles(bucket, prefix, blobFs)) {
+          URI uri = URI.create(fileName);
+          long length = blobFs.length(uri);
+          files.put(
+              Paths.get(uri.getPath()).getFileName().toString(),
+              new FileRange(uri, length, 0, length));
+        }
+      }
+    }
+    if (files.isEmpty()) {
+      throw new IOException(
+          String.format("No files found for snapshot in bucket=%s prefix=%s", bucket, prefix));
+    }
+    return new BlobFsDirectory(files, blockCache);
+  }
+
+  private BlobFsDirectory(Map<String, FileRange> files, BlobFsBlockCache blockCache) {
+    super(NoLockFactory.INSTANCE);
+    this.files = files;
+    this.blockCache = blockCache;
+  }
+
+  @Override
+  public String[] listAll() {
+    ensureOpen();
+    return files.keySet().stream().sorted().toArray(String[]::new);
+  }
+
+  @Override
+  public long fileLength(String name) throws IOException {
+    ensureOpen();
+    return getFileRange(name).length;
+  }
+
+  @Override
+  public IndexInput openInput(String name, IOContext context) throws IOException {
+    ensureOpen();
+    FileRange fileRange = getFileRange(name);
+    return new BlobFsIndexInput(
+        "BlobFsIndexInput(" + name + ")",
+        blockCache,
+        fileRange.uri,
+        fileRange.objectLength,
+        fileRange.offset,
+        fileRange.length);
+  }
+
+  private FileRange getFileRange(String name) throws NoSuchFileException {
+    FileRange fileRange = files.get(name);
+    if (fileRange == null) {
+      throw new NoSuchFileException(name);
+    }
+    return fileRange;
+  }
+
+  @Override
+  public void deleteFile(String name) {
+    throw new UnsupportedOperationException("BlobFsDirectory is read-only");
+  }
+
+  @Override
+  public IndexOutput createOutput(String name, IOContext context) {
+    throw new UnsupportedOperationException("BlobFsDirectory is read-only");
+  }
+
+  @Override
+  public IndexOutput createTempOutput(String prefix, String suffix, IOContext context) {
+    throw new UnsupportedOperationException("BlobFsDirectory is read-only");
+  }
+
+  @Override
+  public void sync(Collection<String> names) {
+    throw new UnsupportedOperationException("BlobFsDirectory is read-only");
+  }
+
+  @Override
+  public void syncMetaData() {
+    throw new UnsupportedOperationException("BlobFsDirectory is read-only");
+  }
+
+  @Override
+  public void rename(String source, String dest) {
+    throw new UnsupportedOperationException("BlobFsDirectory is read-only");
+  }
+
+  @Override
+  public Set<String> getPendingDeletions() {
+    return Set.of();
+  }
+
+  @Override
+  public void close() {
+    isOpen = false;
+  }
+
+  /** Reads a range of an object through the block cache. */
+  private static class BlobFsIndexInput extends BufferedIndexInput {
+    private final BlobFsBlockCache blockCache;
+    private final URI uri;
+    private final long objectLength;
+    private final long offset;
+    private final long length;
+
+    private BlobFsIndexInput(
+        String resourceDescription,
+        BlobFsBlockCache blockCache,
+        URI uri,
+        long objectLength,
+        long offset,
+        long length) {
+      super(resourceDescription, BUFFER_SIZE);
+      this.blockCache = blockCache;
+      this.uri = uri;
+      this.objectLength = objectLength;
+      this.offset = offset;
+      this.length = length;
+    }
+
+    @Override
+    protected void readInternal(ByteBuffer b) throws IOException {
+      long position = getFilePointer();
+      if (position + b.remaining() > length) {
+        throw new EOFException("read past EOF: " + this);
+      }
+      blockCache.read(uri, objectLength, offset + position, b);
+    }
+
+    @Override
+    protected void seekInternal(long pos) throws IOException {
+      if (pos > length) {
+        throw new EOFException("seek past EOF: " + this);
+      }
+    }
+
+    @Override
+    public IndexInput slice(String sliceDescription, long offset, long length) throws IOException {
+      if (offset < 0 || length < 0 || offset + length > this.length) {
+        throw new IllegalArgumentException(
+            String.format(
+                "slice() %s out of bounds: offset=%d,length=%d,fileLength=%d: %s",
+                sliceDescription, offset, length, this.length, this));
+      }
+      return new BlobFsIndexInput(
+          getFullSliceDescription(sliceDescription),
+          blockCache,
+          uri,
+          objectLength,
+          this.offset + offset,
+          length);
+    }
+
+    @Override
+    public long length() {
+      return length;
+    }
+
+    @Override
+    public void close() {}
+  }
+}
@@ -1,12 +1,25 @@
 package com.slack.kaldb.logstore;
 
+import com.google.protobuf.util.JsonFormat;
 import com.slack.kaldb.blobfs.BlobFs;
+import com.slack.kaldb.proto.metadata.Metadata;
 import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileNotFoundException;
 import java.io.IOException;
+import java.io.InputStream;
 import java.net.URI;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.NoSuchFileException;
 import java.nio.file.Path;
 import java.nio.file.Paths;
+import java.util.Arrays;
 import java.util.Collection;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.zip.CRC32;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
@@ -18,20 +31,153 @@ public class BlobFsUtils {
   public static final String SCHEME = "s3";
   public static final String DELIMITER = "/";
   public static final String FILE_FORMAT = "%s://%s/%s";
+  // Lucene never creates a file with this name, so it can't collide with an index file.
+  public static final String SNAPSHOT_MANIFEST_FILE = "kaldb_snapshot_manifest.json";
 
   public static int copyToS3(
       Path sourceDirPath, Collection<String> files, String bucket, String prefix, BlobFs blobFs)
       throws Exception {
-    int success = 0;
+    Map<File, URI> filesToCopy = new LinkedHashMap<>();
     for (String fileName : files) {
       File fileToCopy = new File(sourceDirPath.toString(), fileName);
       if (!fileToCopy.exists()) {
         throw new IOException("File doesn't exist at path: " + fileToCopy.getAbsolutePath());
       }
-      blobFs.copyFromLocalFile(fileToCopy, createURI(bucket, prefix, fileName));
-      success++;
+      filesToCopy.put(fileToCopy, createURI(bucket, prefix, fileName));
     }
-    return success;
+    blobFs.copyFromLocalFiles(filesToCopy);
+
+    // The manifest is uploaded last, so a snapshot with a manifest is always complete.
+    Metadata.SnapshotManifest manifest = createSnapshotManifest(sourceDirPath, files);
+    File manifestFile = Files.createTempFile("snapshot-manifest", ".json").toFile();
+    try {
+      Files.writeString(manifestFile.toPath(), JsonFormat.printer().print(manifest));
+      blobFs.copyFromLocalFile(manifestFile, createURI(bucket, prefix, SNAPSHOT_MANIFEST_FILE));
+    } finally {
+      Files.deleteIfExists(manifestFile.toPath());
+    }
+    return filesToCopy.size();
+  }
+
+  /**
+   * Uploads the files of a snapshot as a single packed object. The files are packed into a
+   * temporary file next to the source directory, which is removed once the upload completes.
+   *
+   * @see PackedSnapshot
+   */
+  public static int copyToS3Packed(
+      Path sourceDirPath, Collection<String> files, String bucket, String prefix, BlobFs blobFs)
+      throws Exception {
+    for (String fileName : files) {
+      File fileToCopy = new File(sourceDirPath.toString(), fileName);
+      if (!fileToCopy.exists()) {
+        throw new IOException("File doesn't exist at path: " + fileToCopy.getAbsolutePath());
+      }
+    }
+    Path packedDirPath =
+        sourceDirPath.toAbsolutePath().getParent() != null
+            ? sourceDirPath.toAbsolutePath().getParent()
+            : sourceDirPath.toAbsolutePath();
+    File packedFile = Files.createTempFile(packedDirPath, "snapshot", ".packed").toFile();
+    try {
+      PackedSnapshot.pack(sourceDirPath, files, packedFile);
+      blobFs.copyFromLocalFile(
+          packedFile, createURI(bucket, prefix, PackedSnapshot.PACKED_SNAPSHOT_FILE));
+    } finally {
+      Files.deleteIfExists(packedFile.toPath());
+    }
+    return files.size();
+  }
+
+  /**
+   * Downloads a snapshot uploaded as a single packed object, and unpacks its files into the local
+   * directory.
+   *
+   * @return the names of the files of the snapshot.
+   */
+  public static List<String> copyFromS3Packed(
+      String bucket, String prefix, BlobFs blobFs, Path localDirPath) throws Exception {
+    File packedFile = new File(localDirPath.toString(), PackedSnapshot.PACKED_SNAPSHOT_FILE);
+    blobFs.copyToLocalFiles(
+        Map.of(createURI(bucket, prefix, PackedSnapshot.PACKED_SNAPSHOT_FILE), packedFile));
+    List<String> files = PackedSnapshot.unpack(packedFile, localDirPath);
+    LOG.info(
+        "Copied packed snapshot from bucket={} prefix={} with {} files",
+        bucket,
+        prefix,
+        files.size());
+    return files;
+  }
+
+  /**
+   * Returns the manifest of a snapshot, or null when the snapshot has no manifest, like the
+   * snapshots uploaded before manifests were added.
+   */
+  public static Metadata.SnapshotManifest getSnapshotManifest(
+      String bucket, String prefix, BlobFs blobFs) throws IOException {
+    URI manifestUri = createURI(bucket, prefix, SNAPSHOT_MANIFEST_FILE);
+    try (InputStream inputStream = blobFs.open(manifestUri)) {
+      Metadata.SnapshotManifest.Builder manifest = Metadata.SnapshotManifest.newBuilder();
+      JsonFormat.parser()
+          .ignoringUnknownFields()
+          .merge(new String(inputStream.readAllBytes(), StandardCharsets.UTF_8), manifest);
+      return manifest.build();
+    } catch (FileNotFoundException | NoSuchFileException e) {
+      // Snapshots uploaded before manifests were added don't have one, and are listed instead.
+      // Any other error, like throttling, is not a reason to list the snapshot, and is thrown.
+      LOG.info(
+          "No snapshot manifest found at {}, falling back to listing the snapshot", manifestUri);
+      return null;
+    }
+  }
+
+  /** Creates the manifest of the files of a snapshot in a local directory. */
+  public static Metadata.SnapshotManifest createSnapshotManifest(
+      Path localDirPath, Collection<String> files) throws IOException {
+    Metadata.SnapshotManifest.Builder manifest = Metadata.SnapshotManifest.newBuilder();
+    for (String fileName : files) {
+      File file = new File(localDirPath.toString(), fileName);
+      manifest.addFiles(
+          Metadata.SnapshotManifest.FileEntry.newBuilder()
+              .setName(fileName)
+              .setLength(file.length())
+              .setCrc32(checksum(file))
+              .build());
+    }
+    return manifest.build();
+  }
+
+  /** Verifies the length and checksum of the files of a snapshot that were downloaded. */
+  public static void verifySnapshotFiles(Metadata.SnapshotManifest manifest, Path localDirPath)
+      throws IOException {
+    for (Metadata.SnapshotManifest.FileEntry fileEntry : manifest.getFilesList()) {
+      File file = new File(localDirPath.toString(), fileEntry.getName());
+      if (file.length() != fileEntry.getLength()) {
+        throw new IOException(
+            String.format(
+                "Downloaded file %s has length %d, expected %d",
+                file, file.length(), fileEntry.getLength()));
+      }
+      long checksum = checksum(file);
+      if (checksum != fileEntry.getCrc32()) {
+        throw new IOException(
+            String.format(
+                "Downloaded file %s has checksum %d, expected %d",
+                file, checksum, fileEntry.getCrc32()));
+      }
+    }
+  }
+
+  private static long checksum(File file) throws IOException {
+    CRC32 crc32 = new CRC32();
+    try (InputStream inputStream = new FileInputStream(file)) {
+      byte[] buffer = new byte[64 * 1024];
+      int read;
+      while ((read = inputStream.read(buffer)) != -1) {
+        crc32.update(buffer, 0, read);
+      }
+    }
+    return crc32.getValue();
   }
 
   public static URI createURI(String bucket, String prefix, String fileName) {
@@ -40,11 +186,29 @@ public class BlobFsUtils {
         : URI.create(String.format(FILE_FORMAT, SCHEME, bucket, fileName));
   }
 
-  // TODO: Can we copy files without list files and a prefix only?
   // TODO: Take a complete URI as this is the format stored in snapshot data
   public static String[] copyFromS3(
       String bucket, String prefix, BlobFs s3BlobFs, Path localDirPath) throws Exception {
-    String[] s3Files = s3BlobFs.listFiles(createURI(bucket, prefix, ""), true);
+    Metadata.SnapshotManifest manifest = getSnapshotManifest(bucket, prefix, s3BlobFs);
+    if (manifest != null) {
+      LOG.info(
+          "Copying files from bucket={} prefix={} filesToCopy={} using snapshot manifest",
+          bucket,
+          prefix,
+          manifest.getFilesCount());
+      String[] s3Files = new String[manifest.getFilesCount()];
+      for (int i = 0; i < manifest.getFilesCount(); i++) {
+        String fileName = manifest.getFiles(i).getName();
+        URI fileToCopy = createURI(bucket, prefix, fileName);
+        s3BlobFs.copyToLocalFile(fileToCopy, new File(localDirPath.toString(), fileName));
+        s3Files[i] = fileToCopy.toString();
+      }
+      verifySnapshotFiles(manifest, localDirPath);
+      LOG.info("Copying S3 files complete");
+      return s3Files;
+    }
+
+    String[] s3Files = listSnapshotFiles(bucket, prefix, s3BlobFs);
     LOG.info(
         "Copying files from bucket={} prefix={} filesToCopy={}", bucket, prefix, s3Files.length);
     for (String fileName : s3Files) {
@@ -58,6 +222,19 @@ public class BlobFsUtils {
     return s3Files;
   }
 
+  /** Lists the files of a snapshot, for snapshots without a manifest. */
+  public static String[] listSnapshotFiles(String bucket, String prefix, BlobFs blobFs)
+      throws IOException {
+    return Arrays.stream(blobFs.listFiles(createURI(bucket, prefix, ""), true))
+        .filter(
+            fileName ->
+                !Paths.get(URI.create(fileName).getPath())
+                    .getFileName()
+                    .toString()
+                    .equals(SNAPSHOT_MANIFEST_FILE))
+        .toArray(String[]::new);
+  }
+
   public static void copyToLocalPath(
       Path sourceDirPath, Collection<String> files, Path destDirPath, BlobFs blobFs)
       throws IOException {
@@ -1,8 +1,16 @@
 package com.slack.kaldb.logstore;
 
+import com.slack.kaldb.logstore.schema.SchemaAwareLogDocumentBuilderImpl.FieldType;
 import java.io.IOException;
+import java.util.Map;
 import org.apache.lucene.document.Document;
 
 public interface DocumentBuilder<T> {
   Document fromMessage(T message) throws IOException;
+
+  /**
+   * The type each field is indexed with. Fields whose type depends on the value of the field in a
+   * message aren't part of the schema.
+   */
+  Map<String, FieldType> getSchema();
 }
@@ -0,0 +1,132 @@
+package com.slack.kaldb.logstore;
+
+import com.slack.kaldb.proto.config.KaldbConfigs;
+import java.math.BigInteger;
+import org.apache.lucene.index.IndexOptions;
+
+/**
+ * Translates the per field index options configured for a dataset into the settings of a lucene
+ * field, and coerces the json values of a configured field to its type. The document builders use
+ * it to describe a configured field in their own field model.
+ */
+public class FieldConfigs {
+  private FieldConfigs() {}
+
+  /**
+   * The name of the type a configured field is indexed as, which is also the name of the matching
+   * type in the document builders. Keyword fields are un-analyzed text. Returns null for an
+   * unsupported type.
+   */
+  public static String getIndexedTypeName(KaldbConfigs.FieldConfig fieldConfig) {
+    switch (fieldConfig.getType()) {
+      case TEXT:
+      case KEYWORD:
+        return "TEXT";
+      case INTEGER:
+      case LONG:
+      case FLOAT:
+      case DOUBLE:
+        return fieldConfig.getType().name();
+      default:
+        return null;
+    }
+  }
+
+  public static boolean isIndexed(KaldbConfigs.FieldConfig fieldConfig) {
+    return fieldConfig.getIndexOptions() != KaldbConfigs.FieldConfig.IndexOptions.NONE;
+  }
+
+  public static boolean isAnalyzed(KaldbConfigs.FieldConfig fieldConfig) {
+    return fieldConfig.getType() == KaldbConfigs.FieldConfig.FieldType.TEXT
+        && isIndexed(fieldConfig);
+  }
+
+  // Norms are only indexed for analyzed text fields that ask for them.
+  public static boolean isOmitNorms(KaldbConfigs.FieldConfig fieldConfig) {
+    return fieldConfig.getType() != KaldbConfigs.FieldConfig.FieldType.TEXT
+        || !fieldConfig.getNorms();
+  }
+
+  public static boolean isStoreNumericDocValue(KaldbConfigs.FieldConfig fieldConfig) {
+    return !isTextType(fieldConfig) && fieldConfig.getDocValues();
+  }
+
+  public static boolean isStoreTextDocValue(KaldbConfigs.FieldConfig fieldConfig) {
+    return isTextType(fieldConfig) && fieldConfig.getDocValues();
+  }
+
+  /**
+   * The lucene index options of a configured field, or null when the lucene defaults for the field
+   * apply. Default and none are handled by isIndexed and the lucene field defaults.
+   */
+  public static IndexOptions toLuceneIndexOptions(KaldbConfigs.FieldConfig fieldConfig) {
+    switch (fieldConfig.getIndexOptions()) {
+      case DOCS:
+        return IndexOptions.DOCS;
+      case DOCS_AND_FREQS:
+        return IndexOptions.DOCS_AND_FREQS;
+      case DOCS_AND_FREQS_AND_POSITIONS:
+        return IndexOptions.DOCS_AND_FREQS_AND_POSITIONS;
+      default:
+        return null;
+    }
+  }
+
+  /**
+   * Json parsers pick the narrowest java type that holds a number, so the values of one field may
+   * be parsed as an Integer, Long, BigInteger or Double from one message to the next. Coerce a
+   * number to the java type of a configured field type: fractions are truncated for integer and
+   * long fields, and text and keyword fields index the number as a string.
+   *
+   * @return the coerced value, or null if the number is out of the range of the field type.
+   */
+  public static Object coerceNumber(KaldbConfigs.FieldConfig.FieldType fieldType, Number value) {
+    switch (fieldType) {
+      case TEXT:
+      case KEYWORD:
+        return value.toString();
+      case INTEGER:
+        Long longValue = toLong(value);
+        if (longValue == null || longValue < Integer.MIN_VALUE || longValue > Integer.MAX_VALUE) {
+          return null;
+        }
+        return longValue.intValue();
+      case LONG:
+        return toLong(value);
+      case FLOAT:
+        float floatValue = value.floatValue();
+        if (Float.isInfinite(floatValue) && !Double.isInfinite(value.doubleValue())) {
+          return null;
+        }
+        return floatValue;
+      case DOUBLE:
+        double doubleValue = value.doubleValue();
+        if (Double.isInfinite(doubleValue) && !(value instanceof Double)) {
+          return null;
+        }
+        return doubleValue;
+      default:
+        return null;
+    }
+  }
+
+  private static Long toLong(Number value) {
+    if (value instanceof Integer || value instanceof Long) {
+      return value.longValue();
+    }
+    if (value instanceof BigInteger) {
+      return ((BigInteger) value).bitLength() < Long.SIZE ? value.longValue() : null;
+    }
+    // Long.MIN_VALUE and 2^63 are exact doubles, so the range check is exact.
+    double doubleValue = value.doubleValue();
+    if (Double.isNaN(doubleValue) || doubleValue < Long.MIN_VALUE || doubleValue >= 0x1p63) {
+      return null;
+    }
+    return (long) doubleValue;
+  }
+
+  private static boolean isTextType(KaldbConfigs.FieldConfig fieldConfig) {
+    return fieldConfig.getType() == KaldbConfigs.FieldConfig.FieldType.TEXT
+        || fieldConfig.getType() == KaldbConfigs.FieldConfig.FieldType.KEYWORD;
+  }
+}
@@ -2,7 +2,10 @@ package com.slack.kaldb.logstore;
 
 import com.fasterxml.jackson.core.JsonProcessingException;
 import com.google.common.collect.ImmutableMap;
+import com.slack.kaldb.logstore.schema.SchemaAwareLogDocumentBuilderImpl.FieldType;
+import com.slack.kaldb.proto.config.KaldbConfigs;
 import com.slack.kaldb.util.JsonUtil;
+import java.util.HashMap;
 import java.util.Map;
 import org.apache.lucene.document.Document;
 import org.apache.lucene.document.DoubleDocValuesField;
@@ -13,9 +16,12 @@ import org.apache.lucene.document.FloatPoint;
 import org.apache.lucene.document.IntPoint;
 import org.apache.lucene.document.LongPoint;
 import org.apache.lucene.document.NumericDocValuesField;
+import org.apache.lucene.document.SortedSetDocValuesField;
 import org.apache.lucene.document.StoredField;
 import org.apache.lucene.document.StringField;
 import org.apache.lucene.document.TextField;
+import org.apache.lucene.index.IndexOptions;
+import org.apache.lucene.util.BytesRef;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
@@ -49,6 +55,13 @@ public class LogDocumentBuilderImpl implements DocumentBuilder<LogMessage> {
     final boolean isIndexed;
     final boolean isAnalyzed;
     final boolean storeNumericDocValue;
+    // Doc values for un-analyzed string fields.
+    final boolean storeStringDocValue;
+    // Lucene field type used for string values, pre-computed so it isn't built per document.
+    final org.apache.lucene.document.FieldType stringFieldType;
+    // The type of a field configured for the dataset, whose numeric values are coerced to it.
+    // Null for the default properties.
+    final KaldbConfigs.FieldConfig.FieldType configuredType;
 
     PropertyDescription(
         PropertyType propertyType, boolean isStored, boolean isIndexed, boolean isAnalyzed) {
@@ -61,6 +74,45 @@ public class LogDocumentBuilderImpl implements DocumentBuilder<LogMessage> {
         boolean isIndexed,
         boolean isAnalyzed,
         boolean storeNumericDocValue) {
+      this(propertyType, isStored, isIndexed, isAnalyzed, storeNumericDocValue, null, false, false);
+    }
+
+    /**
+     * @param indexOptions overrides the lucene index options of a string field, null uses the
+     *     lucene defaults: positions for analyzed fields and docs only for un-analyzed fields.
+     * @param omitNorms omit norms on an analyzed field. Un-analyzed fields never index norms.
+     */
+    PropertyDescription(
+        PropertyType propertyType,
+        boolean isStored,
+        boolean isIndexed,
+        boolean isAnalyzed,
+        boolean storeNumericDocValue,
+        IndexOptions indexOptions,
+        boolean omitNorms,
+        boolean storeStringDocValue) {
+      this(
+          propertyType,
+          isStored,
+          isIndexed,
+          isAnalyzed,
+          storeNumericDocValue,
+          indexOptions,
+          omitNorms,
+          storeStringDocValue,
+          null);
+    }
+
+    PropertyDescription(
+        PropertyType propertyType,
+        boolean isStored,
+        boolean isIndexed,
+        boolean isAnalyzed,
+        boolean storeNumericDocValue,
+        IndexOptions indexOptions,
+        boolean omitNorms,
+        boolean storeStringDocValue,
+        KaldbConfigs.FieldConfig.FieldType configuredType) {
       if (isAnalyzed && !isIndexed) {
         throw new InvalidPropertyDescriptionException(
             "Cannot set isAnalyzed without setting isIndexed");
@@ -72,15 +124,96 @@ public class LogDocumentBuilderImpl implements DocumentBuilder<LogMessage> {
             "Only text and any types can have isAnalyzed set");
       }
 
+      if (indexOptions != null
+          && !(propertyType.equals(PropertyType.TEXT) || propertyType.equals(PropertyType.ANY))) {
+        throw new InvalidPropertyDescriptionException(
+            "Only text and any types can have indexOptions set");
+      }
+
+      if (indexOptions == IndexOptions.NONE) {
+        throw new InvalidPropertyDescriptionException(
+            "Set isIndexed to false instead of using IndexOptions.NONE");
+      }
+
+      if (storeStringDocValue && !(propertyType.equals(PropertyType.TEXT) && !isAnalyzed)) {
+        throw new InvalidPropertyDescriptionException(
+            "Only un-analyzed text types can have storeStringDocValue set");
+      }
+
       this.propertyType = propertyType;
       this.isStored = isStored;
       this.isIndexed = isIndexed;
       this.isAnalyzed = isAnalyzed;
       this.storeNumericDocValue = storeNumericDocValue;
+      this.storeStringDocValue = storeStringDocValue;
+      this.stringFieldType = makeStringFieldType(isStored, isAnalyzed, indexOptions, omitNorms);
+      this.configuredType = configuredType;
+    }
+
+    private static org.apache.lucene.document.FieldType makeStringFieldType(
+        boolean isStored, boolean isAnalyzed, IndexOptions indexOptions, boolean omitNorms) {
+      org.apache.lucene.document.FieldType fieldType =
+          new org.apache.lucene.document.FieldType(
+              isAnalyzed ? TextField.TYPE_NOT_STORED : StringField.TYPE_NOT_STORED);
+      fieldType.setStored(isStored);
+      if (indexOptions != null) {
+        fieldType.setIndexOptions(indexOptions);
+      }
+      if (isAnalyzed) {
+        fieldType.setOmitNorms(omitNorms);
+      }
+      fieldType.freeze();
+      return fieldType;
+    }
+
+    /** Translate the index options of a field in the dataset config into a PropertyDescription. */
+    static PropertyDescription fromFieldConfig(KaldbConfigs.FieldConfig fieldConfig) {
+      String typeName = FieldConfigs.getIndexedTypeName(fieldConfig);
+      if (typeName == null) {
+        throw new InvalidPropertyDescriptionException(
+            "Unsupported field type " + fieldConfig.getType());
+      }
+      return new PropertyDescription(
+          PropertyType.valueOf(typeName),
+          fieldConfig.getStored(),
+          FieldConfigs.isIndexed(fieldConfig),
+          FieldConfigs.isAnalyzed(fieldConfig),
+          FieldConfigs.isStoreNumericDocValue(fieldConfig),
+          FieldConfigs.toLuceneIndexOptions(fieldConfig),
+          FieldConfigs.isOmitNorms(fieldConfig),
+          FieldConfigs.isStoreTextDocValue(fieldConfig),
+          fieldConfig.getType());
     }
   }
 
   public static DocumentBuilder<LogMessage> build(boolean ignoreExceptions) {
+    return build(ignoreExceptions, Map.of());
+  }
+
+  /**
+   * Build a document builder whose field defaults are overridden by the per field index options
+   * configured for a dataset. System fields can't be overridden since the index relies on them.
+   */
+  public static DocumentBuilder<LogMessage> build(
+      boolean ignoreExceptions, Map<String, KaldbConfigs.FieldConfig> fieldConfigs) {
+    Map<String, PropertyDescription> propertyDescriptions =
+        new HashMap<>(getDefaultPropertyDescriptions());
+    fieldConfigs.forEach(
+        (fieldName, fieldConfig) -> {
+          if (LogMessage.SystemField.isSystemField(fieldName)) {
+            throw new InvalidPropertyDescriptionException(
+                String.format("Cannot override index options of system field %s", fieldName));
+          }
+          propertyDescriptions.put(fieldName, PropertyDescription.fromFieldConfig(fieldConfig));
+        });
+
+    PropertyDescription defaultDescription =
+        new PropertyDescription(PropertyType.ANY, false, true, true);
+    return new LogDocumentBuilderImpl(
+        ignoreExceptions, ImmutableMap.copyOf(propertyDescriptions), defaultDescription);
+  }
+
+  private static ImmutableMap<String, PropertyDescription> getDefaultPropertyDescriptions() {
     ImmutableMap.Builder<String, PropertyDescription> propertyDescriptionBuilder =
         ImmutableMap.builder();
     propertyDescriptionBuilder.put(
@@ -135,16 +268,13 @@ public class LogDocumentBuilderImpl implements DocumentBuilder<LogMessage> {
     propertyDescriptionBuilder.put(
         LogMessage.ReservedField.PARENT_ID.fieldName,
         new PropertyDescription(PropertyType.TEXT, false, true, false));
-
-    PropertyDescription defaultDescription =
-        new PropertyDescription(PropertyType.ANY, false, true, true);
-    return new LogDocumentBuilderImpl(
-        ignoreExceptions, propertyDescriptionBuilder.build(), defaultDescription);
+    return propertyDescriptionBuilder.build();
   }
 
   private final boolean ignorePropertyTypeExceptions;
   private final PropertyDescription defaultDescription;
   private final Map<String, PropertyDescription> propertyDescriptions;
+  private final Map<String, FieldType> schema;
 
   public LogDocumentBuilderImpl(
       boolean ignorePropertyTypeExceptions,
@@ -153,35 +283,56 @@ public class LogDocumentBuilderImpl implements DocumentBuilder<LogMessage> {
     this.ignorePropertyTypeExceptions = ignorePropertyTypeExceptions;
     this.propertyDescriptions = propertyDescriptions;
     this.defaultDescription = defaultDescription;
+
+    ImmutableMap.Builder<String, FieldType> schemaBuilder = ImmutableMap.builder();
+    propertyDescriptions.forEach(
+        (name, description) -> {
+          if (!description.propertyType.equals(PropertyType.ANY)) {
+            schemaBuilder.put(name, FieldType.valueOf(description.propertyType.name()));
+          }
+        });
+    this.schema = schemaBuilder.build();
   }
 
-  private PropertyDescription getDescription(String propertyName) {
-    return propertyDescriptions.getOrDefault(propertyName, defaultDescription);
+  @Override
+  public Map<String, FieldType> getSchema() {
+    return schema;
   }
 
-  private Field.Store getStoreEnum(boolean isStored) {
-    return isStored ? Field.Store.YES : Field.Store.NO;
+  private PropertyDescription getDescription(String propertyName) {
+    return propertyDescriptions.getOrDefault(propertyName, defaultDescription);
   }
 
   private void addStringProperty(
       Document doc, String name, String value, PropertyDescription description) {
     if (description.isIndexed) {
-      if (description.isAnalyzed) {
-        doc.add(new TextField(name, value, getStoreEnum(description.isStored)));
-      } else {
-        doc.add(new StringField(name, value, getStoreEnum(description.isStored)));
-      }
+      doc.add(new Field(name, value, description.stringFieldType));
     } else {
       if (description.isStored) {
         doc.add(new StoredField(name, value));
       }
     }
+    if (description.storeStringDocValue) {
+      doc.add(new SortedSetDocValuesField(name, new BytesRef(value)));
+    }
   }
 
   @SuppressWarnings("unchecked")
   public void addProperty(Document doc, String name, Object value) {
     PropertyDescription desc = getDescription(name);
 
+    // A configured field accepts any json number, whatever java type the parser picked for it.
+    if (value instanceof Number && desc.configuredType != null) {
+      Object coercedValue = FieldConfigs.coerceNumber(desc.configuredType, (Number) value);
+      if (coercedValue == null) {
+        throw new PropertyTypeMismatchException(
+            String.format(
+                "Found number %s out of the range of %s property %s",
+                value, desc.configuredType, name));
+      }
+      value = coercedValue;
+    }
+
     // Match string
     if (value instanceof String) {
       if (!(desc.propertyType.equals(PropertyType.ANY)
@@ -1,8 +1,11 @@
 package com.slack.kaldb.logstore;
 
+import com.slack.kaldb.logstore.schema.SchemaAwareLogDocumentBuilderImpl.FieldType;
 import java.io.Closeable;
 import java.io.IOException;
 import java.nio.file.Path;
+import java.util.List;
+import java.util.Map;
 import org.apache.lucene.index.IndexCommit;
 import org.apache.lucene.index.IndexWriter;
 import org.apache.lucene.search.SearcherManager;
@@ -11,6 +14,9 @@ import org.apache.lucene.search.SearcherManager;
 public interface LogStore<T> extends Closeable {
   void addMessage(T message);
 
+  /** The type each field in the store is indexed with. */
+  Map<String, FieldType> getSchema();
+
   // TODO: Instead of exposing the searcherManager, consider returning an instance of the searcher.
   SearcherManager getSearcherManager();
 
@@ -40,6 +46,20 @@ public interface LogStore<T> extends Closeable {
   // needed by JMH tests. Cannot add @VisibleForTesting on an abstract class
   public IndexWriter getIndexWriter();
 
+  /**
+   * The approximate size of the index in bytes: the size of the segments flushed to disk plus the
+   * memory used by the documents buffered in the index writer. Unlike the size of the index
+   * directory, this is cheap enough to check for every message.
+   */
+  public long getIndexSizeBytes();
+
+  /**
+   * Adds the documents of the given stores to this store. The documents, including the ones not yet
+   * committed, are merged into a single new segment sorted like the rest of this index. The given
+   * stores are left unchanged and stay open.
+   */
+  public void addIndexes(List<? extends LogStore<T>> logStores) throws IOException;
+
   public void releaseIndexCommit(IndexCommit indexCommit);
 
   // TODO: Add an isReadOnly and setReadOnly API here.
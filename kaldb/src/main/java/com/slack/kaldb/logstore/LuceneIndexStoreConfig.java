@@ -29,6 +29,10 @@ public class LuceneIndexStoreConfig {
   // A flag that turns on internal logging.
   public final boolean enableTracing;
 
+  // Index for throughput instead of latency: the documents are only flushed to disk and made
+  // visible for search when asked to, instead of every commit and refresh duration.
+  public final boolean bulkIndexing;
+
   // TODO: Tweak the default values once in prod.
   static final Duration defaultCommitDuration = Duration.ofSeconds(15);
   static final Duration defaultRefreshDuration = Duration.ofSeconds(15);
@@ -54,6 +58,16 @@ public class LuceneIndexStoreConfig {
       String indexRoot,
       String logFileName,
       boolean enableTracing) {
+    this(commitDuration, refreshDuration, indexRoot, logFileName, enableTracing, false);
+  }
+
+  public LuceneIndexStoreConfig(
+      Duration commitDuration,
+      Duration refreshDuration,
+      String indexRoot,
+      String logFileName,
+      boolean enableTracing,
+      boolean bulkIndexing) {
     ensureTrue(
         !(commitDuration.isZero() || commitDuration.isNegative()),
         "Commit duration should be greater than zero");
@@ -65,6 +79,7 @@ public class LuceneIndexStoreConfig {
     this.indexRoot = indexRoot;
     this.logFileName = logFileName;
     this.enableTracing = enableTracing;
+    this.bulkIndexing = bulkIndexing;
   }
 
   public File indexFolder(String id) {
@@ -1,5 +1,6 @@
 package com.slack.kaldb.logstore;
 
+import com.slack.kaldb.logstore.schema.SchemaAwareLogDocumentBuilderImpl.FieldType;
 import com.slack.kaldb.proto.config.KaldbConfigs;
 import io.micrometer.core.instrument.Counter;
 import io.micrometer.core.instrument.MeterRegistry;
@@ -7,6 +8,10 @@ import java.io.File;
 import java.io.IOException;
 import java.nio.file.Path;
 import java.time.Duration;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
 import java.util.NoSuchElementException;
 import java.util.Optional;
 import java.util.Timer;
@@ -15,16 +20,23 @@ import java.util.UUID;
 import org.apache.commons.io.FileUtils;
 import org.apache.lucene.analysis.Analyzer;
 import org.apache.lucene.analysis.standard.StandardAnalyzer;
+import org.apache.lucene.index.CodecReader;
+import org.apache.lucene.index.DirectoryReader;
 import org.apache.lucene.index.IndexCommit;
 import org.apache.lucene.index.IndexWriter;
 import org.apache.lucene.index.IndexWriterConfig;
 import org.apache.lucene.index.KeepOnlyLastCommitDeletionPolicy;
+import org.apache.lucene.index.LeafReaderContext;
+import org.apache.lucene.index.MergePolicy;
+import org.apache.lucene.index.SlowCodecReaderWrapper;
 import org.apache.lucene.index.SnapshotDeletionPolicy;
+import org.apache.lucene.index.TieredMergePolicy;
 import org.apache.lucene.search.SearcherManager;
 import org.apache.lucene.search.Sort;
 import org.apache.lucene.search.SortField;
 import org.apache.lucene.store.FSDirectory;
 import org.apache.lucene.store.MMapDirectory;
+import org.apache.lucene.util.IOUtils;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
@@ -45,12 +57,18 @@ public class LuceneIndexStoreImpl implements LogStore<LogMessage> {
   public static final String COMMITS_TIMER = "kaldb_index_commits";
   public static final String REFRESHES_TIMER = "kaldb_index_refreshes";
 
+  // The type of every numeric field is persisted in the commit user data with this key prefix, so
+  // a searcher opened on a snapshot of this index can compile typed numeric queries.
+  public static final String FIELD_TYPE_COMMIT_DATA_PREFIX = "kaldb.field_type.";
+
   private final SearcherManager searcherManager;
   private final DocumentBuilder<LogMessage> documentBuilder;
   private final FSDirectory indexDirectory;
   private final Timer timer;
   private final SnapshotDeletionPolicy snapshotDeletionPolicy;
+  private final SegmentSizeTrackingMergePolicy mergePolicy;
   private Optional<IndexWriter> indexWriter;
+  private Map<String, String> schemaCommitData = Map.of();
 
   // Stats counters.
   private final Counter messagesReceivedCounter;
@@ -65,6 +83,7 @@ public class LuceneIndexStoreImpl implements LogStore<LogMessage> {
         dataDirectory,
         LuceneIndexStoreConfig.getCommitDuration(luceneConfig.getCommitDurationSecs()),
         LuceneIndexStoreConfig.getRefreshDuration(luceneConfig.getRefreshDurationSecs()),
+        luceneConfig.getFieldConfigsMap(),
         metricsRegistry);
   }
 
@@ -74,6 +93,16 @@ public class LuceneIndexStoreImpl implements LogStore<LogMessage> {
       Duration refreshInterval,
       MeterRegistry metricsRegistry)
       throws IOException {
+    return makeLogStore(dataDirectory, commitInterval, refreshInterval, Map.of(), metricsRegistry);
+  }
+
+  public static LuceneIndexStoreImpl makeLogStore(
+      File dataDirectory,
+      Duration commitInterval,
+      Duration refreshInterval,
+      Map<String, KaldbConfigs.FieldConfig> fieldConfigs,
+      MeterRegistry metricsRegistry)
+      throws IOException {
     // TODO: Move all these config values into chunk?
     // TODO: Chunk should create log store?
     LuceneIndexStoreConfig indexStoreCfg =
@@ -82,7 +111,29 @@ public class LuceneIndexStoreImpl implements LogStore<LogMessage> {
 
     // TODO: set ignore property exceptions via CLI flag.
     return new LuceneIndexStoreImpl(
-        indexStoreCfg, LogDocumentBuilderImpl.build(false), metricsRegistry);
+        indexStoreCfg, LogDocumentBuilderImpl.build(false, fieldConfigs), metricsRegistry);
+  }
+
+  /**
+   * Make a log store for a chunk that isn't searched until all of its messages are indexed, like a
+   * recovery chunk. The index is only committed and refreshed when asked to, so the index writer
+   * flushes fewer, larger segments which need less merging.
+   */
+  public static LuceneIndexStoreImpl makeBulkLogStore(
+      File dataDirectory, KaldbConfigs.LuceneConfig luceneConfig, MeterRegistry metricsRegistry)
+      throws IOException {
+    LuceneIndexStoreConfig indexStoreCfg =
+        new LuceneIndexStoreConfig(
+            LuceneIndexStoreConfig.getCommitDuration(luceneConfig.getCommitDurationSecs()),
+            LuceneIndexStoreConfig.getRefreshDuration(luceneConfig.getRefreshDurationSecs()),
+            dataDirectory.getAbsolutePath(),
+            LuceneIndexStoreConfig.DEFAULT_LOG_FILE_NAME,
+            false,
+            true);
+    return new LuceneIndexStoreImpl(
+        indexStoreCfg,
+        LogDocumentBuilderImpl.build(false, luceneConfig.getFieldConfigsMap()),
+        metricsRegistry);
   }
 
   public LuceneIndexStoreImpl(
@@ -96,13 +147,30 @@ public class LuceneIndexStoreImpl implements LogStore<LogMessage> {
     Analyzer analyzer = new StandardAnalyzer();
     this.snapshotDeletionPolicy =
         new SnapshotDeletionPolicy(new KeepOnlyLastCommitDeletionPolicy());
+    this.mergePolicy = new SegmentSizeTrackingMergePolicy(new TieredMergePolicy());
     IndexWriterConfig indexWriterConfig =
-        buildIndexWriterConfig(analyzer, this.snapshotDeletionPolicy, config, registry);
+        buildIndexWriterConfig(
+            analyzer, this.snapshotDeletionPolicy, this.mergePolicy, config, registry);
     indexDirectory = new MMapDirectory(config.indexFolder(id).toPath());
     indexWriter = Optional.of(new IndexWriter(indexDirectory, indexWriterConfig));
     this.searcherManager = new SearcherManager(indexWriter.get(), false, false, null);
 
     timer = new Timer(true);
+    if (!config.bulkIndexing) {
+      scheduleCommitsAndRefreshes(config);
+    }
+
+    // Initialize stats counters
+    messagesReceivedCounter = registry.counter(MESSAGES_RECEIVED_COUNTER);
+    messagesFailedCounter = registry.counter(MESSAGES_FAILED_COUNTER);
+    commitsTimer = registry.timer(COMMITS_TIMER);
+    refreshesTimer = registry.timer(REFRESHES_TIMER);
+
+    LOG.info(
+        "Created a lucene index {} at: {}", id, indexDirectory.getDirectory().toAbsolutePath());
+  }
+
+  private void scheduleCommitsAndRefreshes(LuceneIndexStoreConfig config) {
     timer.schedule(
         new TimerTask() {
           @Override
@@ -121,26 +189,19 @@ public class LuceneIndexStoreImpl implements LogStore<LogMessage> {
         },
         config.refreshDuration.toMillis(),
         config.refreshDuration.toMillis());
-
-    // Initialize stats counters
-    messagesReceivedCounter = registry.counter(MESSAGES_RECEIVED_COUNTER);
-    messagesFailedCounter = registry.counter(MESSAGES_FAILED_COUNTER);
-    commitsTimer = registry.timer(COMMITS_TIMER);
-    refreshesTimer = registry.timer(REFRESHES_TIMER);
-
-    LOG.info(
-        "Created a lucene index {} at: {}", id, indexDirectory.getDirectory().toAbsolutePath());
   }
 
   private IndexWriterConfig buildIndexWriterConfig(
       Analyzer analyzer,
       SnapshotDeletionPolicy snapshotDeletionPolicy,
+      MergePolicy mergePolicy,
       LuceneIndexStoreConfig config,
       MeterRegistry metricsRegistry) {
     final IndexWriterConfig indexWriterCfg =
         new IndexWriterConfig(analyzer)
             .setOpenMode(IndexWriterConfig.OpenMode.CREATE)
             .setMergeScheduler(new KalDBMergeScheduler(metricsRegistry))
+            .setMergePolicy(mergePolicy)
             // we sort by timestamp descending, as that is the order we expect to return results the
             // majority of the time
             .setIndexSort(
@@ -162,11 +223,30 @@ public class LuceneIndexStoreImpl implements LogStore<LogMessage> {
   private void syncCommit() throws IOException {
     synchronized (this) {
       if (indexWriter.isPresent()) {
+        updateSchemaCommitData(indexWriter.get());
         indexWriter.get().commit();
       }
     }
   }
 
+  // Only set the commit data when the schema changes, since it forces a new commit even if no
+  // documents were added.
+  private void updateSchemaCommitData(IndexWriter writer) {
+    Map<String, String> commitData = new HashMap<>();
+    documentBuilder
+        .getSchema()
+        .forEach(
+            (fieldName, fieldType) -> {
+              if (fieldType.isNumeric()) {
+                commitData.put(FIELD_TYPE_COMMIT_DATA_PREFIX + fieldName, fieldType.name());
+              }
+            });
+    if (!commitData.equals(schemaCommitData)) {
+      writer.setLiveCommitData(commitData.entrySet());
+      schemaCommitData = commitData;
+    }
+  }
+
   private void syncRefresh() throws IOException {
     synchronized (this) {
       if (indexWriter.isPresent()) {
@@ -185,6 +265,11 @@ public class LuceneIndexStoreImpl implements LogStore<LogMessage> {
     LOG.error(String.format("Exception %s processing", ex));
   }
 
+  @Override
+  public Map<String, FieldType> getSchema() {
+    return documentBuilder.getSchema();
+  }
+
   @Override
   public void addMessage(LogMessage message) {
     try {
@@ -266,6 +351,39 @@ public class LuceneIndexStoreImpl implements LogStore<LogMessage> {
     return indexWriter.get();
   }
 
+  @Override
+  public long getIndexSizeBytes() {
+    return mergePolicy.getSegmentBytes() + indexWriter.map(IndexWriter::ramBytesUsed).orElse(0L);
+  }
+
+  @Override
+  public void addIndexes(List<? extends LogStore<LogMessage>> logStores) throws IOException {
+    List<DirectoryReader> readers = new ArrayList<>(logStores.size());
+    try {
+      List<CodecReader> segmentReaders = new ArrayList<>();
+      for (LogStore<LogMessage> logStore : logStores) {
+        DirectoryReader reader = DirectoryReader.open(logStore.getIndexWriter());
+        readers.add(reader);
+        for (LeafReaderContext leaf : reader.leaves()) {
+          segmentReaders.add(SlowCodecReaderWrapper.wrap(leaf.reader()));
+        }
+      }
+      synchronized (this) {
+        if (indexWriter.isEmpty()) {
+          throw new IllegalStateException("Can't add indexes to a closed index " + id);
+        }
+        indexWriter.get().addIndexes(segmentReaders.toArray(new CodecReader[0]));
+      }
+      LOG.info(
+          "Added {} segments of {} indexes to index {}",
+          segmentReaders.size(),
+          logStores.size(),
+          id);
+    } finally {
+      IOUtils.close(readers);
+    }
+  }
+
   public void releaseIndexCommit(IndexCommit indexCommit) {
     if (indexCommit != null) {
       try {
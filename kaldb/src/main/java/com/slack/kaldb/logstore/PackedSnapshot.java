@@ -0,0 +1,195 @@
+package com.slack.kaldb.logstore;
+
+import com.slack.kaldb.proto.metadata.Metadata;
+import java.io.File;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Comparator;
+import java.util.List;
+import java.util.zip.CRC32;
+
+/**
+ * A packed snapshot stores all the files of a snapshot in a single file, so the snapshot is a
+ * single object in the blob store. The files are stored back to back, followed by a footer that
+ * indexes them:
+ *
+ * <pre>
+ *   [file 1][file 2]...[file n][footer][footer length: int64][magic: int32]
+ * </pre>
+ *
+ * The footer is a binary SnapshotManifest with the name, offset, length and CRC32 of every file.
+ */
+public class PackedSnapshot {
+  public static final String PACKED_SNAPSHOT_FILE = "kaldb_snapshot.packed";
+
+  private static final int MAGIC = 0x4b504b31;
+  public static final int TRAILER_BYTES = Long.BYTES + Integer.BYTES;
+
+  private PackedSnapshot() {}
+
+  /** Packs the files from the source directory into the packed file. */
+  public static Metadata.SnapshotManifest pack(
+      Path sourceDirPath, Collection<String> files, File packedFile) throws IOException {
+    Metadata.SnapshotManifest.Builder footer = Metadata.SnapshotManifest.newBuilder();
+    try (FileChannel packedChannel =
+        FileChannel.open(
+            packedFile.toPath(),
+            StandardOpenOption.CREATE,
+            StandardOpenOption.TRUNCATE_EXISTING,
+            StandardOpenOption.WRITE)) {
+      long offset = 0;
+      for (String fileName : files) {
+        Path filePath = sourceDirPath.resolve(fileName);
+        CRC32 crc32 = new CRC32();
+        long length = 0;
+        try (FileChannel fileChannel = FileChannel.open(filePath, StandardOpenOption.READ)) {
+          ByteBuffer buffer = ByteBuffer.allocate(64 * 1024);
+          while (fileChannel.read(buffer) != -1) {
+            buffer.flip();
+            crc32.update(buffer.duplicate());
+            length += buffer.remaining();
+            while (buffer.hasRemaining()) {
+              packedChannel.write(buffer);
+            }
+            buffer.clear();
+          }
+        }
+        footer.addFiles(
+            Metadata.SnapshotManifest.FileEntry.newBuilder()
+                .setName(fileName)
+                .setOffset(offset)
+                .setLength(length)
+                .setCrc32(crc32.getValue())
+                .build());
+        offset += length;
+      }
+
+      byte[] footerBytes = footer.build().toByteArray();
+      ByteBuffer trailer = ByteBuffer.allocate(footerBytes.length + TRAILER_BYTES);
+      trailer.put(footerBytes).putLong(footerBytes.length).putInt(MAGIC).flip();
+      while (trailer.hasRemaining()) {
+        packedChannel.write(trailer);
+      }
+    }
+    return footer.build();
+  }
+
+  /**
+   * Unpacks the files of the packed file into the destination directory, and verifies their
+   * checksums. The files are unpacked from the last one to the first, and the packed file is
+   * truncated as it goes, so unpacking takes little more disk space than the packed file. The
+   * packed file is deleted once all the files are unpacked.
+   *
+   * @return the names of the unpacked files.
+   */
+  public static List<String> unpack(File packedFile, Path destDirPath) throws IOException {
+    Metadata.SnapshotManifest footer;
+    try (FileChannel packedChannel =
+        FileChannel.open(packedFile.toPath(), StandardOpenOption.READ, StandardOpenOption.WRITE)) {
+      footer = readFooter(packedChannel, packedFile);
+
+      // An empty file has the same offset as the file after it, so the files are ordered by where
+      // they end to truncate the packed file only past the files that are already unpacked.
+      List<Metadata.SnapshotManifest.FileEntry> fileEntries =
+          new ArrayList<>(footer.getFilesList());
+      fileEntries.sort(
+          Comparator.comparingLong(
+                  (Metadata.SnapshotManifest.FileEntry fileEntry) ->
+                      fileEntry.getOffset() + fileEntry.getLength())
+              .thenComparingLong(Metadata.SnapshotManifest.FileEntry::getOffset)
+              .reversed());
+      for (Metadata.SnapshotManifest.FileEntry fileEntry : fileEntries) {
+        Path filePath = destDirPath.resolve(fileEntry.getName());
+        try (FileChannel fileChannel =
+            FileChannel.open(
+                filePath,
+                StandardOpenOption.CREATE_NEW,
+                StandardOpenOption.READ,
+                StandardOpenOption.WRITE)) {
+          long position = 0;
+          while (position < fileEntry.getLength()) {
+            position +=
+                packedChannel.transferTo(
+                    fileEntry.getOffset() + position,
+                    fileEntry.getLength() - position,
+                    fileChannel);
+          }
+          long checksum = checksum(fileChannel);
+          if (checksum != fileEntry.getCrc32()) {
+            throw new IOException(
+                String.format(
+                    "Unpacked file %s has checksum %d, expected %d",
+                    filePath, checksum, fileEntry.getCrc32()));
+          }
+        }
+        packedChannel.truncate(fileEntry.getOffset());
+      }
+    }
+
+    if (!packedFile.delete()) {
+      throw new IOException("Failed to delete packed file " + packedFile);
+    }
+    List<String> fileNames = new ArrayList<>(footer.getFilesCount());
+    footer.getFilesList().forEach(fileEntry -> fileNames.add(fileEntry.getName()));
+    return fileNames;
+  }
+
+  private static Metadata.SnapshotManifest readFooter(FileChannel packedChannel, File packedFile)
+      throws IOException {
+    long packedLength = packedChannel.size();
+    if (packedLength < TRAILER_BYTES) {
+      throw new IOException("Packed file is too short: " + packedFile);
+    }
+    ByteBuffer trailer = ByteBuffer.allocate(TRAILER_BYTES);
+    readFully(packedChannel, trailer, packedLength - TRAILER_BYTES);
+    long footerLength = getFooterLength(trailer, packedLength, packedFile.toString());
+    ByteBuffer footerBytes = ByteBuffer.allocate((int) footerLength);
+    readFully(packedChannel, footerBytes, packedLength - TRAILER_BYTES - footerLength);
+    return Metadata.SnapshotManifest.parseFrom(footerBytes);
+  }
+
+  /**
+   * Returns the length of the footer of a packed file, from the last {@link #TRAILER_BYTES} bytes
+   * of the file. The footer is stored right before them.
+   */
+  public static long getFooterLength(ByteBuffer trailer, long packedLength, String packedName)
+      throws IOException {
+    long footerLength = trailer.getLong();
+    if (trailer.getInt() != MAGIC
+        || footerLength < 0
+        || footerLength > packedLength - TRAILER_BYTES) {
+      throw new IOException("Not a packed snapshot: " + packedName);
+    }
+    return footerLength;
+  }
+
+  private static void readFully(FileChannel channel, ByteBuffer buffer, long position)
+      throws IOException {
+    while (buffer.hasRemaining()) {
+      int read = channel.read(buffer, position + buffer.position());
+      if (read == -1) {
+        throw new IOException("Unexpected end of packed file");
+      }
+    }
+    buffer.flip();
+  }
+
+  private static long checksum(FileChannel fileChannel) throws IOException {
+    CRC32 crc32 = new CRC32();
+    ByteBuffer buffer = ByteBuffer.allocate(64 * 1024);
+    long position = 0;
+    int read;
+    while ((read = fileChannel.read(buffer, position)) != -1) {
+      buffer.flip();
+      crc32.update(buffer);
+      buffer.clear();
+      position += read;
+    }
+    return crc32.getValue();
+  }
+}
@@ -0,0 +1,52 @@
+package com.slack.kaldb.logstore;
+
+import java.io.IOException;
+import org.apache.lucene.index.FilterMergePolicy;
+import org.apache.lucene.index.MergePolicy;
+import org.apache.lucene.index.MergeTrigger;
+import org.apache.lucene.index.SegmentCommitInfo;
+import org.apache.lucene.index.SegmentInfos;
+
+/**
+ * The index writer doesn't expose its segments, but it asks the merge policy for merges every time
+ * a segment is flushed or a merge finishes. This merge policy records the size of the segments on
+ * disk at those points, so we can know the size of an index without listing its directory.
+ */
+public class SegmentSizeTrackingMergePolicy extends FilterMergePolicy {
+
+  private volatile long segmentBytes = 0;
+
+  public SegmentSizeTrackingMergePolicy(MergePolicy in) {
+    super(in);
+  }
+
+  @Override
+  public MergeSpecification findMerges(
+      MergeTrigger mergeTrigger, SegmentInfos segmentInfos, MergeContext mergeContext)
+      throws IOException {
+    updateSegmentBytes(segmentInfos);
+    return super.findMerges(mergeTrigger, segmentInfos, mergeContext);
+  }
+
+  @Override
+  public MergeSpecification findFullFlushMerges(
+      MergeTrigger mergeTrigger, SegmentInfos segmentInfos, MergeContext mergeContext)
+      throws IOException {
+    updateSegmentBytes(segmentInfos);
+    return super.findFullFlushMerges(mergeTrigger, segmentInfos, mergeContext);
+  }
+
+  private void updateSegmentBytes(SegmentInfos segmentInfos) throws IOException {
+    long bytes = 0;
+    for (SegmentCommitInfo segmentCommitInfo : segmentInfos) {
+      // The size is computed once per segment and cached.
+      bytes += segmentCommitInfo.sizeInBytes();
+    }
+    segmentBytes = bytes;
+  }
+
+  /** Size of the segments as of the last flush or merge. */
+  public long getSegmentBytes() {
+    return segmentBytes;
+  }
+}
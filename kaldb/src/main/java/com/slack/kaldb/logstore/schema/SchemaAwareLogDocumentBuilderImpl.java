@@ -3,13 +3,19 @@ package com.slack.kaldb.logstore.schema;
 import com.fasterxml.jackson.core.JsonProcessingException;
 import com.google.common.annotations.VisibleForTesting;
 import com.google.common.collect.ImmutableMap;
+import com.google.common.collect.Maps;
 import com.slack.kaldb.logstore.DocumentBuilder;
+import com.slack.kaldb.logstore.FieldConfigs;
 import com.slack.kaldb.logstore.FieldDefMismatchException;
 import com.slack.kaldb.logstore.InvalidFieldDefException;
 import com.slack.kaldb.logstore.LogMessage;
+import com.slack.kaldb.proto.config.KaldbConfigs;
 import com.slack.kaldb.util.JsonUtil;
 import io.micrometer.core.instrument.Counter;
 import io.micrometer.core.instrument.MeterRegistry;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
 import java.util.concurrent.ConcurrentHashMap;
@@ -23,9 +29,12 @@ import org.apache.lucene.document.FloatPoint;
 import org.apache.lucene.document.IntPoint;
 import org.apache.lucene.document.LongPoint;
 import org.apache.lucene.document.NumericDocValuesField;
+import org.apache.lucene.document.SortedSetDocValuesField;
 import org.apache.lucene.document.StoredField;
 import org.apache.lucene.document.StringField;
 import org.apache.lucene.document.TextField;
+import org.apache.lucene.index.IndexOptions;
+import org.apache.lucene.util.BytesRef;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
@@ -139,6 +148,10 @@ public class SchemaAwareLogDocumentBuilderImpl implements DocumentBuilder<LogMes
       return name;
     }
 
+    public boolean isNumeric() {
+      return this == INTEGER || this == LONG || this == FLOAT || this == DOUBLE;
+    }
+
     @VisibleForTesting
     static Object convertFieldValue(Object value, FieldType fromType, FieldType toType) {
       // String type
@@ -250,6 +263,13 @@ public class SchemaAwareLogDocumentBuilderImpl implements DocumentBuilder<LogMes
     public final boolean isIndexed;
     public final boolean isAnalyzed;
     public final boolean storeNumericDocValue;
+    // Doc values for un-analyzed text fields.
+    public final boolean storeTextDocValue;
+    // Lucene field type for text values, pre-computed so it isn't built per document.
+    final org.apache.lucene.document.FieldType luceneTextFieldType;
+    // The type of a field configured for the dataset, whose numeric values are coerced to it.
+    // Null for the fields registered from their json type.
+    final KaldbConfigs.FieldConfig.FieldType configuredType;
 
     FieldDef(FieldType fieldType, boolean isStored, boolean isIndexed, boolean isAnalyzed) {
       this(fieldType, isStored, isIndexed, isAnalyzed, false);
@@ -261,6 +281,40 @@ public class SchemaAwareLogDocumentBuilderImpl implements DocumentBuilder<LogMes
         boolean isIndexed,
         boolean isAnalyzed,
         boolean storeNumericDocValue) {
+      this(fieldType, isStored, isIndexed, isAnalyzed, storeNumericDocValue, null, false, false);
+    }
+
+    FieldDef(
+        FieldType fieldType,
+        boolean isStored,
+        boolean isIndexed,
+        boolean isAnalyzed,
+        boolean storeNumericDocValue,
+        IndexOptions indexOptions,
+        boolean omitNorms,
+        boolean storeTextDocValue) {
+      this(
+          fieldType,
+          isStored,
+          isIndexed,
+          isAnalyzed,
+          storeNumericDocValue,
+          indexOptions,
+          omitNorms,
+          storeTextDocValue,
+          null);
+    }
+
+    FieldDef(
+        FieldType fieldType,
+        boolean isStored,
+        boolean isIndexed,
+        boolean isAnalyzed,
+        boolean storeNumericDocValue,
+        IndexOptions indexOptions,
+        boolean omitNorms,
+        boolean storeTextDocValue,
+        KaldbConfigs.FieldConfig.FieldType configuredType) {
       if (isAnalyzed && !isIndexed) {
         throw new InvalidFieldDefException("Cannot set isAnalyzed without setting isIndexed");
       }
@@ -269,11 +323,58 @@ public class SchemaAwareLogDocumentBuilderImpl implements DocumentBuilder<LogMes
         throw new InvalidFieldDefException("Only text and any types can have isAnalyzed set");
       }
 
+      if (indexOptions != null && !fieldType.equals(FieldType.TEXT)) {
+        throw new InvalidFieldDefException("Only text types can have indexOptions set");
+      }
+
+      if (indexOptions == IndexOptions.NONE) {
+        throw new InvalidFieldDefException(
+            "Set isIndexed to false instead of using IndexOptions.NONE");
+      }
+
+      if (storeTextDocValue && !(fieldType.equals(FieldType.TEXT) && !isAnalyzed)) {
+        throw new InvalidFieldDefException(
+            "Only un-analyzed text types can have storeTextDocValue set");
+      }
+
       this.fieldType = fieldType;
       this.isStored = isStored;
       this.isIndexed = isIndexed;
       this.isAnalyzed = isAnalyzed;
       this.storeNumericDocValue = storeNumericDocValue;
+      this.storeTextDocValue = storeTextDocValue;
+
+      org.apache.lucene.document.FieldType luceneFieldType =
+          new org.apache.lucene.document.FieldType(
+              isAnalyzed ? TextField.TYPE_NOT_STORED : StringField.TYPE_NOT_STORED);
+      luceneFieldType.setStored(isStored);
+      if (indexOptions != null) {
+        luceneFieldType.setIndexOptions(indexOptions);
+      }
+      if (isAnalyzed) {
+        luceneFieldType.setOmitNorms(omitNorms);
+      }
+      luceneFieldType.freeze();
+      this.luceneTextFieldType = luceneFieldType;
+      this.configuredType = configuredType;
+    }
+
+    /** Translate the index options of a field in the dataset config into a FieldDef. */
+    static FieldDef fromFieldConfig(KaldbConfigs.FieldConfig fieldConfig) {
+      String typeName = FieldConfigs.getIndexedTypeName(fieldConfig);
+      if (typeName == null) {
+        throw new InvalidFieldDefException("Unsupported field type " + fieldConfig.getType());
+      }
+      return new FieldDef(
+          FieldType.valueOf(typeName),
+          fieldConfig.getStored(),
+          FieldConfigs.isIndexed(fieldConfig),
+          FieldConfigs.isAnalyzed(fieldConfig),
+          FieldConfigs.isStoreNumericDocValue(fieldConfig),
+          FieldConfigs.toLuceneIndexOptions(fieldConfig),
+          FieldConfigs.isOmitNorms(fieldConfig),
+          FieldConfigs.isStoreTextDocValue(fieldConfig),
+          fieldConfig.getType());
     }
   }
 
@@ -372,6 +473,11 @@ public class SchemaAwareLogDocumentBuilderImpl implements DocumentBuilder<LogMes
     return fieldDefMap;
   }
 
+  @Override
+  public Map<String, FieldType> getSchema() {
+    return Collections.unmodifiableMap(Maps.transformValues(fieldDefMap, def -> def.fieldType));
+  }
+
   private void addField(
       final Document doc,
       final String key,
@@ -405,14 +511,27 @@ public class SchemaAwareLogDocumentBuilderImpl implements DocumentBuilder<LogMes
       return;
     }
 
-    FieldType valueType = getJsonType(value);
-    if (!fieldDefMap.containsKey(fieldName)) {
-      indexNewField(doc, fieldName, value, valueType);
+    FieldDef registeredField = fieldDefMap.get(fieldName);
+    // A configured field accepts any json number, whatever java type the parser picked for it. A
+    // number out of the range of the field type is handled by the field conflict policy.
+    Object fieldValue = value;
+    if (value instanceof Number
+        && registeredField != null
+        && registeredField.configuredType != null) {
+      Object coercedValue =
+          FieldConfigs.coerceNumber(registeredField.configuredType, (Number) value);
+      if (coercedValue != null) {
+        fieldValue = coercedValue;
+      }
+    }
+
+    FieldType valueType = getJsonType(fieldValue);
+    if (registeredField == null) {
+      indexNewField(doc, fieldName, fieldValue, valueType);
     } else {
-      FieldDef registeredField = fieldDefMap.get(fieldName);
       if (registeredField.fieldType == valueType) {
         // No field conflicts index it using previous description.
-        indexTypedField(doc, fieldName, value, registeredField);
+        indexTypedField(doc, fieldName, fieldValue, registeredField);
       } else {
         // There is a field type conflict, index it using the field conflict policy.
         switch (indexFieldConflictPolicy) {
@@ -421,7 +540,7 @@ public class SchemaAwareLogDocumentBuilderImpl implements DocumentBuilder<LogMes
             droppedFieldsCounter.increment();
             break;
           case CONVERT_FIELD_VALUE:
-            convertValueAndIndexField(value, valueType, registeredField, doc, fieldName);
+            convertValueAndIndexField(fieldValue, valueType, registeredField, doc, fieldName);
             LOG.debug(
                 "Converting field {} value from type {} to {} due to type conflict",
                 fieldName,
@@ -430,7 +549,7 @@ public class SchemaAwareLogDocumentBuilderImpl implements DocumentBuilder<LogMes
             convertFieldValueCounter.increment();
             break;
           case CONVERT_AND_DUPLICATE_FIELD:
-            convertValueAndIndexField(value, valueType, registeredField, doc, fieldName);
+            convertValueAndIndexField(fieldValue, valueType, registeredField, doc, fieldName);
             LOG.debug(
                 "Converting field {} value from type {} to {} due to type conflict",
                 fieldName,
@@ -438,7 +557,7 @@ public class SchemaAwareLogDocumentBuilderImpl implements DocumentBuilder<LogMes
                 registeredField.fieldType);
             // Add new field with new type
             String newFieldName = makeNewFieldOfType(fieldName, valueType);
-            indexNewField(doc, newFieldName, value, valueType);
+            indexNewField(doc, newFieldName, fieldValue, valueType);
             LOG.debug(
                 "Added new field {} of type {} due to type conflict", newFieldName, valueType);
             convertAndDuplicateFieldCounter.increment();
@@ -486,20 +605,15 @@ public class SchemaAwareLogDocumentBuilderImpl implements DocumentBuilder<LogMes
 
   private static void addTextField(Document doc, String name, String value, FieldDef description) {
     if (description.isIndexed) {
-      if (description.isAnalyzed) {
-        doc.add(new TextField(name, value, getStoreEnum(description.isStored)));
-      } else {
-        doc.add(new StringField(name, value, getStoreEnum(description.isStored)));
-      }
+      doc.add(new Field(name, value, description.luceneTextFieldType));
     } else {
       if (description.isStored) {
         doc.add(new StoredField(name, value));
       }
     }
-  }
-
-  private static Field.Store getStoreEnum(boolean isStored) {
-    return isStored ? Field.Store.YES : Field.Store.NO;
+    if (description.storeTextDocValue) {
+      doc.add(new SortedSetDocValuesField(name, new BytesRef(value)));
+    }
   }
 
   private static FieldType getJsonType(Object value) {
@@ -532,6 +646,28 @@ public class SchemaAwareLogDocumentBuilderImpl implements DocumentBuilder<LogMes
         fieldConflictPolicy, getDefaultFieldDefinitions(), meterRegistry);
   }
 
+  /**
+   * Build a document builder with the per field index options configured for a dataset registered
+   * up front, so those fields never fall back to the defaults for their json type. System fields
+   * can't be overridden since the index relies on them.
+   */
+  public static SchemaAwareLogDocumentBuilderImpl build(
+      FieldConflictPolicy fieldConflictPolicy,
+      Map<String, KaldbConfigs.FieldConfig> fieldConfigs,
+      MeterRegistry meterRegistry) {
+    Map<String, FieldDef> initialFields = new HashMap<>(getDefaultFieldDefinitions());
+    fieldConfigs.forEach(
+        (fieldName, fieldConfig) -> {
+          if (Arrays.stream(LogMessage.SystemField.values())
+              .anyMatch(systemField -> systemField.fieldName.equals(fieldName))) {
+            throw new InvalidFieldDefException(
+                String.format("Cannot override index options of system field %s", fieldName));
+          }
+          initialFields.put(fieldName, FieldDef.fromFieldConfig(fieldConfig));
+        });
+    return new SchemaAwareLogDocumentBuilderImpl(fieldConflictPolicy, initialFields, meterRegistry);
+  }
+
   static final String DROP_FIELDS_COUNTER = "dropped_fields";
   static final String CONVERT_FIELD_VALUE_COUNTER = "convert_field_value";
   static final String CONVERT_AND_DUPLICATE_FIELD_COUNTER = "convert_and_duplicate_field";
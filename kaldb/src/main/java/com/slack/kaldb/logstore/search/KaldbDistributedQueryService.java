@@ -6,6 +6,7 @@ import brave.ScopedSpan;
 import brave.Tracing;
 import brave.grpc.GrpcTracing;
 import com.google.common.annotations.VisibleForTesting;
+import com.google.common.collect.Iterables;
 import com.google.common.util.concurrent.Futures;
 import com.google.common.util.concurrent.ListenableFuture;
 import com.google.common.util.concurrent.MoreExecutors;
@@ -15,6 +16,8 @@ import com.slack.kaldb.metadata.dataset.DatasetMetadataStore;
 import com.slack.kaldb.metadata.dataset.DatasetPartitionMetadata;
 import com.slack.kaldb.metadata.search.SearchMetadata;
 import com.slack.kaldb.metadata.search.SearchMetadataStore;
+import com.slack.kaldb.metadata.search.SearchNodeMetadata;
+import com.slack.kaldb.metadata.search.SearchNodeMetadataStore;
 import com.slack.kaldb.metadata.snapshot.SnapshotMetadata;
 import com.slack.kaldb.metadata.snapshot.SnapshotMetadataStore;
 import com.slack.kaldb.proto.service.KaldbSearch;
@@ -52,8 +55,10 @@ public class KaldbDistributedQueryService extends KaldbQueryServiceBase {
   private static final Logger LOG = LoggerFactory.getLogger(KaldbDistributedQueryService.class);
 
   private final SearchMetadataStore searchMetadataStore;
+  private final SearchNodeMetadataStore searchNodeMetadataStore;
   private final SnapshotMetadataStore snapshotMetadataStore;
   private final DatasetMetadataStore datasetMetadataStore;
+  private final SnapshotHeatRecorder snapshotHeatRecorder;
 
   // Number of times the listener is fired
   public static final String SEARCH_METADATA_TOTAL_CHANGE_COUNTER =
@@ -63,6 +68,10 @@ public class KaldbDistributedQueryService extends KaldbQueryServiceBase {
   private final Map<String, KaldbServiceGrpc.KaldbServiceFutureStub> stubs =
       new ConcurrentHashMap<>();
 
+  // The search metadata of the snapshots listed by the search node metadata, rebuilt when it
+  // changes instead of on every query.
+  private volatile List<SearchMetadata> searchNodeSearchMetadata = List.of();
+
   public static final String DISTRIBUTED_QUERY_APDEX_SATISFIED =
       "distributed_query_apdex_satisfied";
   public static final String DISTRIBUTED_QUERY_APDEX_TOLERATING =
@@ -94,18 +103,23 @@ public class KaldbDistributedQueryService extends KaldbQueryServiceBase {
   // protocol that the node can be contacted by there since we hardcode it today
   public KaldbDistributedQueryService(
       SearchMetadataStore searchMetadataStore,
+      SearchNodeMetadataStore searchNodeMetadataStore,
       SnapshotMetadataStore snapshotMetadataStore,
       DatasetMetadataStore datasetMetadataStore,
+      SnapshotHeatRecorder snapshotHeatRecorder,
       MeterRegistry meterRegistry,
       Duration requestTimeout,
       Duration defaultQueryTimeout) {
     this.searchMetadataStore = searchMetadataStore;
+    this.searchNodeMetadataStore = searchNodeMetadataStore;
     this.snapshotMetadataStore = snapshotMetadataStore;
     this.datasetMetadataStore = datasetMetadataStore;
+    this.snapshotHeatRecorder = snapshotHeatRecorder;
     this.requestTimeout = requestTimeout;
     this.defaultQueryTimeout = defaultQueryTimeout;
     searchMetadataTotalChangeCounter = meterRegistry.counter(SEARCH_METADATA_TOTAL_CHANGE_COUNTER);
     this.searchMetadataStore.addListener(this::updateStubs);
+    this.searchNodeMetadataStore.addListener(this::updateSearchNodes);
 
     this.distributedQueryApdexSatisfied = meterRegistry.counter(DISTRIBUTED_QUERY_APDEX_SATISFIED);
     this.distributedQueryApdexTolerating =
@@ -118,16 +132,28 @@ public class KaldbDistributedQueryService extends KaldbQueryServiceBase {
         meterRegistry.counter(DISTRIBUTED_QUERY_SNAPSHOTS_WITH_REPLICAS);
 
     // first time call this function manually so that we initialize stubs
+    updateSearchNodes();
+  }
+
+  private void updateSearchNodes() {
+    List<SearchMetadata> latestSearchNodeSearchMetadata = new ArrayList<>();
+    for (SearchNodeMetadata searchNodeMetadata : searchNodeMetadataStore.getCached()) {
+      latestSearchNodeSearchMetadata.addAll(searchNodeMetadata.toSearchMetadata());
+    }
+    searchNodeSearchMetadata = latestSearchNodeSearchMetadata;
     updateStubs();
   }
 
+  // Nodes publish either a search metadata node per chunk, or a single search node metadata node.
+  private Iterable<SearchMetadata> getSearchMetadata() {
+    return Iterables.concat(searchMetadataStore.getCached(), searchNodeSearchMetadata);
+  }
+
   private void updateStubs() {
     try {
       searchMetadataTotalChangeCounter.increment();
       Set<String> latestSearchServers = new HashSet<>();
-      searchMetadataStore
-          .getCached()
-          .forEach(searchMetadata -> latestSearchServers.add(searchMetadata.url));
+      getSearchMetadata().forEach(searchMetadata -> latestSearchServers.add(searchMetadata.url));
 
       int currentSearchMetadataCount = stubs.size();
       AtomicInteger addedStubs = new AtomicInteger();
@@ -200,7 +226,8 @@ public class KaldbDistributedQueryService extends KaldbQueryServiceBase {
 
   @VisibleForTesting
   protected static Map<String, List<SearchMetadata>> getMatchingSearchMetadata(
-      SearchMetadataStore searchMetadataStore, Map<String, SnapshotMetadata> snapshotsToSearch) {
+      Iterable<SearchMetadata> searchMetadataNodes,
+      Map<String, SnapshotMetadata> snapshotsToSearch) {
     // iterate every search metadata whose snapshot needs to be searched.
     // if there are multiple search metadata nodes then pick the most on based on
     // pickSearchNodeToQuery
@@ -209,7 +236,7 @@ public class KaldbDistributedQueryService extends KaldbQueryServiceBase {
             .startScopedSpan("KaldbDistributedQueryService.getMatchingSearchMetadata");
 
     Map<String, List<SearchMetadata>> searchMetadataGroupedByName = new HashMap<>();
-    for (SearchMetadata searchMetadata : searchMetadataStore.getCached()) {
+    for (SearchMetadata searchMetadata : searchMetadataNodes) {
       if (!snapshotsToSearch.containsKey(searchMetadata.snapshotName)) {
         continue;
       }
@@ -331,10 +358,11 @@ public class KaldbDistributedQueryService extends KaldbQueryServiceBase {
             distribSearchReq.getStartTimeEpochMs(),
             distribSearchReq.getEndTimeEpochMs(),
             distribSearchReq.getDataset());
+    snapshotHeatRecorder.record(snapshotsMatchingQuery.values());
 
     // for each matching snapshot, we find the search metadata nodes that we can potentially query
     Map<String, List<SearchMetadata>> searchMetadataNodesMatchingQuery =
-        getMatchingSearchMetadata(searchMetadataStore, snapshotsMatchingQuery);
+        getMatchingSearchMetadata(getSearchMetadata(), snapshotsMatchingQuery);
 
     // from the list of search metadata nodes per snapshot, pick one. Additionally map it to the
     // underlying URL to query
@@ -15,14 +15,20 @@ import com.slack.kaldb.logstore.LogMessage;
 import com.slack.kaldb.logstore.LogMessage.ReservedField;
 import com.slack.kaldb.logstore.LogMessage.SystemField;
 import com.slack.kaldb.logstore.LogWireMessage;
+import com.slack.kaldb.logstore.LuceneIndexStoreImpl;
+import com.slack.kaldb.logstore.schema.SchemaAwareLogDocumentBuilderImpl.FieldType;
 import com.slack.kaldb.util.JsonUtil;
 import java.io.IOException;
 import java.nio.file.Path;
 import java.util.ArrayList;
 import java.util.Collection;
 import java.util.Collections;
+import java.util.HashMap;
 import java.util.List;
+import java.util.Map;
+import java.util.Optional;
 import java.util.concurrent.TimeUnit;
+import java.util.function.Supplier;
 import org.apache.lucene.analysis.standard.StandardAnalyzer;
 import org.apache.lucene.document.LongPoint;
 import org.apache.lucene.index.DirectoryReader;
@@ -55,10 +61,19 @@ public class LogIndexSearcherImpl implements LogIndexSearcher<LogMessage> {
 
   private final SearcherManager searcherManager;
   private final StandardAnalyzer analyzer;
+  // Supplies the schema of a live index. When absent, the schema is read from the index commit.
+  private final Optional<Supplier<Map<String, FieldType>>> schemaSupplier;
 
   @VisibleForTesting
   public static SearcherManager searcherManagerFromPath(Path path) throws IOException {
+    return searcherManagerFromPath(path, false);
+  }
+
+  /** @param preload load all the files of the index into memory when they are opened. */
+  public static SearcherManager searcherManagerFromPath(Path path, boolean preload)
+      throws IOException {
     MMapDirectory directory = new MMapDirectory(path);
+    directory.setPreload(preload);
     return new SearcherManager(directory, null);
   }
 
@@ -72,13 +87,47 @@ public class LogIndexSearcherImpl implements LogIndexSearcher<LogMessage> {
   }
 
   public LogIndexSearcherImpl(SearcherManager searcherManager) {
+    this(searcherManager, Optional.empty());
+  }
+
+  public LogIndexSearcherImpl(
+      SearcherManager searcherManager, Supplier<Map<String, FieldType>> schemaSupplier) {
+    this(searcherManager, Optional.of(schemaSupplier));
+  }
+
+  private LogIndexSearcherImpl(
+      SearcherManager searcherManager, Optional<Supplier<Map<String, FieldType>>> schemaSupplier) {
     this.searcherManager = searcherManager;
     this.analyzer = new StandardAnalyzer();
+    this.schemaSupplier = schemaSupplier;
   }
 
   // Lucene's query parsers are not thread safe. So, create a new one for every request.
-  private QueryParser buildQueryParser() {
-    return new QueryParser(ReservedField.MESSAGE.fieldName, analyzer);
+  private QueryParser buildQueryParser(IndexSearcher searcher) throws IOException {
+    return new SchemaAwareQueryParser(
+        ReservedField.MESSAGE.fieldName, analyzer, getSchema(searcher), searcher.getIndexReader());
+  }
+
+  private Map<String, FieldType> getSchema(IndexSearcher searcher) throws IOException {
+    if (schemaSupplier.isPresent()) {
+      return schemaSupplier.get().get();
+    }
+    if (!(searcher.getIndexReader() instanceof DirectoryReader)) {
+      return Map.of();
+    }
+    Map<String, FieldType> schema = new HashMap<>();
+    ((DirectoryReader) searcher.getIndexReader())
+        .getIndexCommit()
+        .getUserData()
+        .forEach(
+            (key, value) -> {
+              if (key.startsWith(LuceneIndexStoreImpl.FIELD_TYPE_COMMIT_DATA_PREFIX)) {
+                schema.put(
+                    key.substring(LuceneIndexStoreImpl.FIELD_TYPE_COMMIT_DATA_PREFIX.length()),
+                    FieldType.valueOf(value));
+              }
+            });
+    return schema;
   }
 
   public SearchResult<LogMessage> search(
@@ -107,12 +156,12 @@ public class LogIndexSearcherImpl implements LogIndexSearcher<LogMessage> {
 
     Stopwatch elapsedTime = Stopwatch.createStarted();
     try {
-      Query query = buildQuery(span, dataset, queryStr, startTimeMsEpoch, endTimeMsEpoch);
-
       // Acquire an index searcher from searcher manager.
       // This is a useful optimization for indexes that are static.
       IndexSearcher searcher = searcherManager.acquire();
       try {
+        Query query =
+            buildQuery(span, searcher, dataset, queryStr, startTimeMsEpoch, endTimeMsEpoch);
         List<LogMessage> results;
         Histogram histogram = new NoOpHistogramImpl();
 
@@ -227,8 +276,13 @@ public class LogIndexSearcherImpl implements LogIndexSearcher<LogMessage> {
   }
 
   private Query buildQuery(
-      ScopedSpan span, String dataset, String queryStr, long startTimeMsEpoch, long endTimeMsEpoch)
-      throws ParseException {
+      ScopedSpan span,
+      IndexSearcher searcher,
+      String dataset,
+      String queryStr,
+      long startTimeMsEpoch,
+      long endTimeMsEpoch)
+      throws ParseException, IOException {
     Builder queryBuilder = new Builder();
 
     // todo - we currently do not enforce searching against an dataset name, as we do not support
@@ -241,7 +295,7 @@ public class LogIndexSearcherImpl implements LogIndexSearcher<LogMessage> {
             SystemField.TIME_SINCE_EPOCH.fieldName, startTimeMsEpoch, endTimeMsEpoch),
         Occur.MUST);
     if (queryStr.length() > 0) {
-      queryBuilder.add(buildQueryParser().parse(queryStr), Occur.MUST);
+      queryBuilder.add(buildQueryParser(searcher).parse(queryStr), Occur.MUST);
     }
     BooleanQuery query = queryBuilder.build();
     span.tag("lucene_query", query.toString());
@@ -0,0 +1,175 @@
+package com.slack.kaldb.logstore.search;
+
+import com.slack.kaldb.logstore.schema.SchemaAwareLogDocumentBuilderImpl.FieldType;
+import java.util.Map;
+import org.apache.lucene.analysis.Analyzer;
+import org.apache.lucene.document.DoublePoint;
+import org.apache.lucene.document.FloatPoint;
+import org.apache.lucene.document.IntPoint;
+import org.apache.lucene.document.LongPoint;
+import org.apache.lucene.document.NumericDocValuesField;
+import org.apache.lucene.index.DocValuesType;
+import org.apache.lucene.index.FieldInfo;
+import org.apache.lucene.index.IndexReader;
+import org.apache.lucene.index.LeafReaderContext;
+import org.apache.lucene.queryparser.classic.ParseException;
+import org.apache.lucene.queryparser.classic.QueryParser;
+import org.apache.lucene.search.IndexOrDocValuesQuery;
+import org.apache.lucene.search.MatchNoDocsQuery;
+import org.apache.lucene.search.Query;
+
+/**
+ * SchemaAwareQueryParser compiles clauses on numeric fields into point range queries, using the
+ * type each field was indexed with. The classic query parser treats every field as text, so a query
+ * like duration_ms:>500 would otherwise be analyzed into a term query for 500, and a range like
+ * duration_ms:[500 TO *] would be a lexicographic term range over every term of the field.
+ *
+ * <p>Numeric fields support exact values (duration_ms:500), comparisons (duration_ms:>500,
+ * duration_ms:<=1.5) and ranges (duration_ms:[500 TO 1000}). Fields that aren't in the schema are
+ * parsed like the classic query parser does.
+ *
+ * <p>Like the classic query parser, this class is not thread safe.
+ */
+public class SchemaAwareQueryParser extends QueryParser {
+
+  private final Map<String, FieldType> schema;
+  private final IndexReader indexReader;
+
+  public SchemaAwareQueryParser(
+      String defaultField, Analyzer analyzer, Map<String, FieldType> schema, IndexReader reader) {
+    super(defaultField, analyzer);
+    this.schema = schema;
+    this.indexReader = reader;
+  }
+
+  @Override
+  protected Query getFieldQuery(String field, String queryText, boolean quoted)
+      throws ParseException {
+    FieldType fieldType = schema.get(field);
+    if (quoted || fieldType == null || !fieldType.isNumeric()) {
+      return super.getFieldQuery(field, queryText, quoted);
+    }
+
+    if (queryText.startsWith(">=")) {
+      return numericRangeQuery(field, fieldType, queryText.substring(2), null, true, true);
+    } else if (queryText.startsWith(">")) {
+      return numericRangeQuery(field, fieldType, queryText.substring(1), null, false, true);
+    } else if (queryText.startsWith("<=")) {
+      return numericRangeQuery(field, fieldType, null, queryText.substring(2), true, true);
+    } else if (queryText.startsWith("<")) {
+      return numericRangeQuery(field, fieldType, null, queryText.substring(1), true, false);
+    }
+    return numericRangeQuery(field, fieldType, queryText, queryText, true, true);
+  }
+
+  @Override
+  protected Query getRangeQuery(
+      String field, String part1, String part2, boolean startInclusive, boolean endInclusive)
+      throws ParseException {
+    FieldType fieldType = schema.get(field);
+    if (fieldType == null || !fieldType.isNumeric()) {
+      return super.getRangeQuery(field, part1, part2, startInclusive, endInclusive);
+    }
+    return numericRangeQuery(field, fieldType, part1, part2, startInclusive, endInclusive);
+  }
+
+  private Query numericRangeQuery(
+      String field,
+      FieldType fieldType,
+      String lower,
+      String upper,
+      boolean lowerInclusive,
+      boolean upperInclusive)
+      throws ParseException {
+    boolean hasPoints = false;
+    boolean hasDocValues = false;
+    for (LeafReaderContext leaf : indexReader.leaves()) {
+      FieldInfo fieldInfo = leaf.reader().getFieldInfos().fieldInfo(field);
+      if (fieldInfo != null) {
+        hasPoints |= fieldInfo.getPointDimensionCount() > 0;
+        hasDocValues |= fieldInfo.getDocValuesType() == DocValuesType.NUMERIC;
+      }
+    }
+    if (!hasPoints && !hasDocValues) {
+      return new MatchNoDocsQuery("No numeric values for field " + field);
+    }
+
+    try {
+      switch (fieldType) {
+        case INTEGER:
+        case LONG:
+          long longLower = lower == null ? Long.MIN_VALUE : Long.parseLong(lower.trim());
+          long longUpper = upper == null ? Long.MAX_VALUE : Long.parseLong(upper.trim());
+          if (!lowerInclusive) {
+            if (longLower == Long.MAX_VALUE) {
+              return new MatchNoDocsQuery("Empty range on field " + field);
+            }
+            longLower++;
+          }
+          if (!upperInclusive) {
+            if (longUpper == Long.MIN_VALUE) {
+              return new MatchNoDocsQuery("Empty range on field " + field);
+            }
+            longUpper--;
+          }
+          if (fieldType == FieldType.INTEGER) {
+            if (longLower > Integer.MAX_VALUE || longUpper < Integer.MIN_VALUE) {
+              return new MatchNoDocsQuery("Empty range on field " + field);
+            }
+            // The range overlaps the int domain, so only an end past it can be narrowed.
+            longLower = Math.max(longLower, Integer.MIN_VALUE);
+            longUpper = Math.min(longUpper, Integer.MAX_VALUE);
+          }
+          Query pointQuery = null;
+          if (hasPoints) {
+            pointQuery =
+                fieldType == FieldType.LONG
+                    ? LongPoint.newRangeQuery(field, longLower, longUpper)
+                    : IntPoint.newRangeQuery(field, (int) longLower, (int) longUpper);
+          }
+          Query docValuesQuery =
+              hasDocValues
+                  ? NumericDocValuesField.newSlowRangeQuery(field, longLower, longUpper)
+                  : null;
+          return combine(pointQuery, docValuesQuery);
+        case FLOAT:
+        case DOUBLE:
+          if (!hasPoints) {
+            // Float and double doc values are encoded as raw bits, which don't sort like the
+            // values they encode, so a range can only be answered by a points index.
+            throw new ParseException(
+                String.format("Field %s must be indexed to support numeric queries", field));
+          }
+          double doubleLower =
+              lower == null ? Double.NEGATIVE_INFINITY : Double.parseDouble(lower.trim());
+          double doubleUpper =
+              upper == null ? Double.POSITIVE_INFINITY : Double.parseDouble(upper.trim());
+          if (fieldType == FieldType.DOUBLE) {
+            return DoublePoint.newRangeQuery(
+                field,
+                lowerInclusive ? doubleLower : DoublePoint.nextUp(doubleLower),
+                upperInclusive ? doubleUpper : DoublePoint.nextDown(doubleUpper));
+          }
+          float floatLower = (float) doubleLower;
+          float floatUpper = (float) doubleUpper;
+          return FloatPoint.newRangeQuery(
+              field,
+              lowerInclusive ? floatLower : FloatPoint.nextUp(floatLower),
+              upperInclusive ? floatUpper : FloatPoint.nextDown(floatUpper));
+        default:
+          throw new ParseException(String.format("Field %s is not numeric", field));
+      }
+    } catch (NumberFormatException e) {
+      throw new ParseException(
+          String.format("Invalid value for %s field %s: %s", fieldType.getName(), field, e));
+    }
+  }
+
+  private static Query combine(Query pointQuery, Query docValuesQuery) {
+    if (pointQuery != null && docValuesQuery != null) {
+      // Lets lucene pick the doc values query when the other clauses are far more selective.
+      return new IndexOrDocValuesQuery(pointQuery, docValuesQuery);
+    }
+    return pointQuery != null ? pointQuery : docValuesQuery;
+  }
+}
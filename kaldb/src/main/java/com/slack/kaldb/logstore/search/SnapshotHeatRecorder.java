@@ -0,0 +1,151 @@
+package com.slack.kaldb.logstore.search;
+
+import com.google.common.annotations.VisibleForTesting;
+import com.google.common.util.concurrent.AbstractScheduledService;
+import com.slack.kaldb.metadata.snapshot.SnapshotHeatMetadata;
+import com.slack.kaldb.metadata.snapshot.SnapshotHeatMetadataStore;
+import com.slack.kaldb.metadata.snapshot.SnapshotMetadata;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import java.time.Instant;
+import java.util.Collection;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicReference;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.stream.Collectors;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * The snapshot heat recorder counts the queries that touch each snapshot on a query node, and
+ * periodically publishes them to the snapshot heat metadata store. A published count is the number
+ * of queries per publish period, averaged with an exponential decay that favours the recent
+ * periods. The counts are only kept in memory between two publishes, so the metadata store sees at
+ * most one write per publish period from each query node.
+ */
+public class SnapshotHeatRecorder extends AbstractScheduledService {
+  private static final Logger LOG = LoggerFactory.getLogger(SnapshotHeatRecorder.class);
+
+  // The heat of a snapshot halves every publish period in which it isn't queried.
+  private static final double HEAT_DECAY = 0.5;
+  // Bounds the size of the published metadata node.
+  @VisibleForTesting static final int MAX_PUBLISHED_SNAPSHOTS = 1000;
+
+  public static final String SNAPSHOT_HEAT_PUBLISHED = "snapshot_heat_published";
+  public static final String SNAPSHOT_HEAT_PUBLISH_FAILED = "snapshot_heat_publish_failed";
+
+  private final SnapshotHeatMetadataStore snapshotHeatMetadataStore;
+  private final String name;
+  private final int publishPeriodSecs;
+
+  private final Counter snapshotHeatPublished;
+  private final Counter snapshotHeatPublishFailed;
+
+  private final AtomicReference<Map<String, LongAdder>> pendingQueryCounts =
+      new AtomicReference<>(new ConcurrentHashMap<>());
+  private final Map<String, Double> heatBySnapshotId = new HashMap<>();
+  private Map<String, Long> publishedQueryCounts = null;
+  private boolean created = false;
+
+  public SnapshotHeatRecorder(
+      SnapshotHeatMetadataStore snapshotHeatMetadataStore,
+      String name,
+      int publishPeriodSecs,
+      MeterRegistry meterRegistry) {
+    this.snapshotHeatMetadataStore = snapshotHeatMetadataStore;
+    this.name = name;
+    this.publishPeriodSecs = publishPeriodSecs;
+
+    this.snapshotHeatPublished = meterRegistry.counter(SNAPSHOT_HEAT_PUBLISHED);
+    this.snapshotHeatPublishFailed = meterRegistry.counter(SNAPSHOT_HEAT_PUBLISH_FAILED);
+  }
+
+  public boolean isEnabled() {
+    return publishPeriodSecs > 0;
+  }
+
+  /** Records a query against the given snapshots. Live snapshots aren't served by replicas. */
+  public void record(Collection<SnapshotMetadata> snapshots) {
+    if (!isEnabled()) {
+      return;
+    }
+
+    Map<String, LongAdder> queryCounts = pendingQueryCounts.get();
+    for (SnapshotMetadata snapshotMetadata : snapshots) {
+      if (!SnapshotMetadata.isLive(snapshotMetadata)) {
+        queryCounts
+            .computeIfAbsent(snapshotMetadata.snapshotId, (snapshotId) -> new LongAdder())
+            .increment();
+      }
+    }
+  }
+
+  @VisibleForTesting
+  synchronized Map<String, Long> publish() {
+    Map<String, LongAdder> queryCounts = pendingQueryCounts.getAndSet(new ConcurrentHashMap<>());
+
+    heatBySnapshotId.replaceAll((snapshotId, heat) -> heat * HEAT_DECAY);
+    queryCounts.forEach(
+        (snapshotId, count) ->
+            heatBySnapshotId.merge(snapshotId, count.doubleValue(), Double::sum));
+    heatBySnapshotId.values().removeIf(heat -> toQueryCount(heat) == 0);
+
+    Map<String, Long> hottestQueryCounts =
+        heatBySnapshotId
+            .entrySet()
+            .stream()
+            .sorted(Map.Entry.<String, Double>comparingByValue(Comparator.reverseOrder()))
+            .limit(MAX_PUBLISHED_SNAPSHOTS)
+            .collect(
+                Collectors.toMap(Map.Entry::getKey, (entry) -> toQueryCount(entry.getValue())));
+
+    // Unchanged counts are not re-published, which keeps idle query nodes from writing at all.
+    if (created && hottestQueryCounts.equals(publishedQueryCounts)) {
+      return hottestQueryCounts;
+    }
+
+    SnapshotHeatMetadata snapshotHeatMetadata =
+        new SnapshotHeatMetadata(name, hottestQueryCounts, Instant.now().toEpochMilli());
+    try {
+      if (created) {
+        snapshotHeatMetadataStore.updateSync(snapshotHeatMetadata);
+      } else {
+        snapshotHeatMetadataStore.createSync(snapshotHeatMetadata);
+      }
+      created = true;
+      publishedQueryCounts = hottestQueryCounts;
+      snapshotHeatPublished.increment();
+    } catch (Exception e) {
+      // A failed update is usually a lost ephemeral node, and a failed create an existing one.
+      created = !created;
+      snapshotHeatPublishFailed.increment();
+      LOG.warn("Failed to publish the snapshot heat of {}", name, e);
+    }
+    return hottestQueryCounts;
+  }
+
+  // The heat of a snapshot queried at a steady rate settles at rate / (1 - HEAT_DECAY), so scaling
+  // it back gives the queries per publish period.
+  private static long toQueryCount(double heat) {
+    return Math.round(heat * (1 - HEAT_DECAY));
+  }
+
+  @Override
+  protected void runOneIteration() {
+    try {
+      publish();
+    } catch (Exception e) {
+      LOG.error("Snapshot heat publishing failed with error", e);
+    }
+  }
+
+  @Override
+  protected Scheduler scheduler() {
+    return Scheduler.newFixedDelaySchedule(
+        publishPeriodSecs, Math.max(publishPeriodSecs, 1), TimeUnit.SECONDS);
+  }
+}
@@ -0,0 +1,73 @@
+package com.slack.kaldb.metadata.cache;
+
+import static com.google.common.base.Preconditions.checkArgument;
+
+import com.slack.kaldb.metadata.core.KaldbMetadata;
+import java.util.List;
+import java.util.Objects;
+
+/**
+ * The cache node metadata advertises the capacity of a cache node, and the cache slots it hosts. It
+ * is used to assign replicas to the cache slots of a node by the size of the replicas, instead of
+ * only by their count.
+ */
+public class CacheNodeMetadata extends KaldbMetadata {
+  public final String hostname;
+  public final List<String> cacheSlotNames;
+  public final long diskCapacityBytes;
+  public final long memoryCapacityBytes;
+
+  public CacheNodeMetadata(
+      String name,
+      String hostname,
+      List<String> cacheSlotNames,
+      long diskCapacityBytes,
+      long memoryCapacityBytes) {
+    super(name);
+    checkArgument(hostname != null && !hostname.isEmpty(), "Hostname can't be null or empty");
+    checkArgument(cacheSlotNames != null, "Cache slot names can't be null");
+    checkArgument(diskCapacityBytes > 0, "Disk capacity must be greater than 0");
+    checkArgument(memoryCapacityBytes >= 0, "Memory capacity can't be negative");
+
+    this.hostname = hostname;
+    this.cacheSlotNames = List.copyOf(cacheSlotNames);
+    this.diskCapacityBytes = diskCapacityBytes;
+    this.memoryCapacityBytes = memoryCapacityBytes;
+  }
+
+  @Override
+  public boolean equals(Object o) {
+    if (this == o) return true;
+    if (o == null || getClass() != o.getClass()) return false;
+    if (!super.equals(o)) return false;
+    CacheNodeMetadata that = (CacheNodeMetadata) o;
+    return diskCapacityBytes == that.diskCapacityBytes
+        && memoryCapacityBytes == that.memoryCapacityBytes
+        && hostname.equals(that.hostname)
+        && cacheSlotNames.equals(that.cacheSlotNames);
+  }
+
+  @Override
+  public int hashCode() {
+    return Objects.hash(
+        super.hashCode(), hostname, cacheSlotNames, diskCapacityBytes, memoryCapacityBytes);
+  }
+
+  @Override
+  public String toString() {
+    return "CacheNodeMetadata{"
+        + "name='"
+        + name
+        + '\''
+        + ", hostname='"
+        + hostname
+        + '\''
+        + ", cacheSlotNames="
+        + cacheSlotNames
+        + ", diskCapacityBytes="
+        + diskCapacityBytes
+        + ", memoryCapacityBytes="
+        + memoryCapacityBytes
+        + '}';
+  }
+}
@@ -0,0 +1,56 @@
+package com.slack.kaldb.metadata.cache;
+
+import com.google.protobuf.CodedInputStream;
+import com.google.protobuf.InvalidProtocolBufferException;
+import com.google.protobuf.Message;
+import com.google.protobuf.util.JsonFormat;
+import com.slack.kaldb.metadata.core.MetadataSerializer;
+import com.slack.kaldb.proto.metadata.Metadata;
+import java.io.IOException;
+
+public class CacheNodeMetadataSerializer implements MetadataSerializer<CacheNodeMetadata> {
+  private static CacheNodeMetadata fromCacheNodeMetadataProto(
+      Metadata.CacheNodeMetadata cacheNodeMetadataProto) {
+    return new CacheNodeMetadata(
+        cacheNodeMetadataProto.getName(),
+        cacheNodeMetadataProto.getHostname(),
+        cacheNodeMetadataProto.getCacheSlotNamesList(),
+        cacheNodeMetadataProto.getDiskCapacityBytes(),
+        cacheNodeMetadataProto.getMemoryCapacityBytes());
+  }
+
+  private static Metadata.CacheNodeMetadata toCacheNodeMetadataProto(CacheNodeMetadata metadata) {
+    return Metadata.CacheNodeMetadata.newBuilder()
+        .setName(metadata.name)
+        .setHostname(metadata.hostname)
+        .addAllCacheSlotNames(metadata.cacheSlotNames)
+        .setDiskCapacityBytes(metadata.diskCapacityBytes)
+        .setMemoryCapacityBytes(metadata.memoryCapacityBytes)
+        .build();
+  }
+
+  @Override
+  public String toJsonStr(CacheNodeMetadata metadata) throws InvalidProtocolBufferException {
+    if (metadata == null) throw new IllegalArgumentException("metadata object can't be null");
+
+    return printer.print(toCacheNodeMetadataProto(metadata));
+  }
+
+  @Override
+  public CacheNodeMetadata fromJsonStr(String data) throws InvalidProtocolBufferException {
+    Metadata.CacheNodeMetadata.Builder cacheNodeMetadataBuilder =
+        Metadata.CacheNodeMetadata.newBuilder();
+    JsonFormat.parser().ignoringUnknownFields().merge(data, cacheNodeMetadataBuilder);
+    return fromCacheNodeMetadataProto(cacheNodeMetadataBuilder.build());
+  }
+
+  @Override
+  public Message toProto(CacheNodeMetadata metadata) {
+    return toCacheNodeMetadataProto(metadata);
+  }
+
+  @Override
+  public CacheNodeMetadata fromProto(CodedInputStream input) throws IOException {
+    return fromCacheNodeMetadataProto(Metadata.CacheNodeMetadata.parseFrom(input));
+  }
+}
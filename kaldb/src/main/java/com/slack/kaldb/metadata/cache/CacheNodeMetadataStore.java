@@ -0,0 +1,25 @@
+package com.slack.kaldb.metadata.cache;
+
+import com.slack.kaldb.metadata.core.EphemeralMutableMetadataStore;
+import com.slack.kaldb.metadata.zookeeper.MetadataStore;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+public class CacheNodeMetadataStore extends EphemeralMutableMetadataStore<CacheNodeMetadata> {
+  private static final Logger LOG = LoggerFactory.getLogger(CacheNodeMetadataStore.class);
+  public static final String CACHE_NODE_ZK_PATH = "/cacheNode";
+
+  /**
+   * Initializes a cache node metadata store at the CACHE_NODE_ZK_PATH. This should be used to
+   * create the cache nodes, and for listening to all cache node events.
+   */
+  public CacheNodeMetadataStore(MetadataStore metadataStore, boolean shouldCache) throws Exception {
+    super(
+        shouldCache,
+        true,
+        CACHE_NODE_ZK_PATH,
+        metadataStore,
+        new CacheNodeMetadataSerializer(),
+        LOG);
+  }
+}
@@ -1,9 +1,12 @@
 package com.slack.kaldb.metadata.cache;
 
+import com.google.protobuf.CodedInputStream;
 import com.google.protobuf.InvalidProtocolBufferException;
+import com.google.protobuf.Message;
 import com.google.protobuf.util.JsonFormat;
 import com.slack.kaldb.metadata.core.MetadataSerializer;
 import com.slack.kaldb.proto.metadata.Metadata;
+import java.io.IOException;
 
 public class CacheSlotMetadataSerializer implements MetadataSerializer<CacheSlotMetadata> {
   private static CacheSlotMetadata fromCacheSlotMetadataProto(
@@ -39,4 +42,14 @@ public class CacheSlotMetadataSerializer implements MetadataSerializer<CacheSlot
     JsonFormat.parser().ignoringUnknownFields().merge(data, cacheNodeMetadataBuilder);
     return fromCacheSlotMetadataProto(cacheNodeMetadataBuilder.build());
   }
+
+  @Override
+  public Message toProto(CacheSlotMetadata metadata) {
+    return toCacheSlotMetadataProto(metadata);
+  }
+
+  @Override
+  public CacheSlotMetadata fromProto(CodedInputStream input) throws IOException {
+    return fromCacheSlotMetadataProto(Metadata.CacheSlotMetadata.parseFrom(input));
+  }
 }
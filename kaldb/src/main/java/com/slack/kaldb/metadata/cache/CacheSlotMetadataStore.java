@@ -22,20 +22,4 @@ public class CacheSlotMetadataStore extends EphemeralMutableMetadataStore<CacheS
         new CacheSlotMetadataSerializer(),
         LOG);
   }
-
-  /**
-   * Initializes a cache slot metadata store at CACHE_SLOT_ZK_PATH/{cacheSlotName}. This should be
-   * used to add listeners to specific cache slots, and is not expected to be used for mutating any
-   * nodes.
-   */
-  public CacheSlotMetadataStore(
-      MetadataStore metadataStore, String cacheSlotName, boolean shouldCache) throws Exception {
-    super(
-        shouldCache,
-        false,
-        String.format("%s/%s", CACHE_SLOT_ZK_PATH, cacheSlotName),
-        metadataStore,
-        new CacheSlotMetadataSerializer(),
-        LOG);
-  }
 }
@@ -0,0 +1,91 @@
+package com.slack.kaldb.metadata.cache;
+
+import static com.slack.kaldb.metadata.cache.CacheSlotMetadataStore.CACHE_SLOT_ZK_PATH;
+
+import com.slack.kaldb.metadata.core.KaldbMetadataStoreChangeListener;
+import com.slack.kaldb.metadata.zookeeper.MetadataStore;
+import java.io.Closeable;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+import org.apache.curator.utils.ZKPaths;
+import org.apache.zookeeper.WatchedEvent;
+import org.apache.zookeeper.Watcher;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * Watches the cache slots of a cache node, and notifies the listener of a slot when its node
+ * changes. All the slots of a node share one watcher, and every slot is a persistent watch on its
+ * own node, so a node neither keeps a metadata cache per slot nor receives the events of the slots
+ * of other nodes.
+ *
+ * <p>The listeners are invoked on the ZK event thread, so they should only queue the work caused by
+ * the change.
+ */
+public class CacheSlotWatcher implements Closeable {
+  private static final Logger LOG = LoggerFactory.getLogger(CacheSlotWatcher.class);
+  private static final int TIMEOUT_MS = 5000;
+
+  private final MetadataStore metadataStore;
+  private final Map<String, KaldbMetadataStoreChangeListener> listenersBySlotName =
+      new ConcurrentHashMap<>();
+  private final Watcher watcher = this::process;
+
+  public CacheSlotWatcher(MetadataStore metadataStore) {
+    this.metadataStore = metadataStore;
+  }
+
+  public void watch(String slotName, KaldbMetadataStoreChangeListener listener) throws Exception {
+    listenersBySlotName.put(slotName, listener);
+    try {
+      metadataStore
+          .addPersistentWatch(getSlotPath(slotName), watcher)
+          .get(TIMEOUT_MS, TimeUnit.MILLISECONDS);
+    } catch (Exception e) {
+      listenersBySlotName.remove(slotName);
+      throw e;
+    }
+  }
+
+  public void unwatch(String slotName) {
+    if (listenersBySlotName.remove(slotName) == null) {
+      return;
+    }
+    try {
+      metadataStore
+          .removeWatch(getSlotPath(slotName), watcher)
+          .get(TIMEOUT_MS, TimeUnit.MILLISECONDS);
+    } catch (Exception e) {
+      LOG.warn("Failed to remove the watch on cache slot {}", slotName, e);
+    }
+  }
+
+  private void process(WatchedEvent event) {
+    if (event.getType() != Watcher.Event.EventType.NodeDataChanged || event.getPath() == null) {
+      return;
+    }
+    String slotName = ZKPaths.getNodeFromPath(event.getPath());
+    KaldbMetadataStoreChangeListener listener = listenersBySlotName.get(slotName);
+    if (listener == null) {
+      return;
+    }
+    try {
+      listener.onMetadataStoreChanged(Set.of(slotName));
+    } catch (Exception e) {
+      LOG.error("Cache slot listener of {} failed", slotName, e);
+    }
+  }
+
+  private static String getSlotPath(String slotName) {
+    return ZKPaths.makePath(CACHE_SLOT_ZK_PATH, slotName);
+  }
+
+  @Override
+  public void close() {
+    List.copyOf(listenersBySlotName.keySet()).forEach(this::unwatch);
+    LOG.info("Closed cache slot watcher");
+  }
+}
@@ -6,6 +6,8 @@ import com.slack.kaldb.metadata.zookeeper.ZookeeperCachedMetadataStoreListener;
 import java.util.ArrayList;
 import java.util.List;
 import java.util.Optional;
+import java.util.Set;
+import java.util.function.Consumer;
 import org.apache.curator.framework.CuratorFramework;
 import org.apache.curator.framework.state.ConnectionState;
 import org.slf4j.Logger;
@@ -44,18 +46,35 @@ public abstract class CacheableMetadataStore<T extends KaldbMetadata>
           new ZookeeperCachedMetadataStoreListener() {
             @Override
             public void cacheChanged() {
-              notifyListeners();
+              notifyListeners((watcher) -> watcher.onMetadataStoreChanged(Set.of()));
+            }
+
+            @Override
+            public void cacheChanged(Set<String> changedInstanceIds) {
+              notifyListeners((watcher) -> watcher.onMetadataStoreChanged(changedInstanceIds));
+            }
+
+            @Override
+            public void cacheChanged(Set<String> changedInstanceIds, long version) {
+              notifyListeners(
+                  (watcher) -> watcher.onMetadataStoreChanged(changedInstanceIds, version));
+            }
+
+            @Override
+            public void cacheChangeApplied(String changedInstanceId, long version) {
+              notifyListeners(
+                  (watcher) -> watcher.onMetadataStoreChangeApplied(changedInstanceId, version));
             }
 
             @Override
             public void stateChanged(CuratorFramework client, ConnectionState newState) {
-              notifyListeners();
+              notifyListeners((watcher) -> watcher.onMetadataStoreChanged(Set.of()));
             }
 
-            private void notifyListeners() {
+            private void notifyListeners(Consumer<KaldbMetadataStoreChangeListener> notification) {
               for (KaldbMetadataStoreChangeListener watcher : watchers)
                 try {
-                  watcher.onMetadataStoreChanged();
+                  notification.accept(watcher);
                 } catch (Exception e) {
                   logger.error("Encountered exception when invoking a watcher:", e);
                 }
@@ -81,11 +100,27 @@ public abstract class CacheableMetadataStore<T extends KaldbMetadata>
     watchers.clear();
   }
 
+  /** Returns an immutable list of the cached nodes. */
   public List<T> getCached() {
     if (cache.isEmpty()) throw new UnsupportedOperationException("Caching is disabled");
     else return cache.get().getInstances();
   }
 
+  /** Returns the cached node with the given name, if it exists. */
+  public Optional<T> getCached(String name) {
+    if (cache.isEmpty()) throw new UnsupportedOperationException("Caching is disabled");
+    else return cache.get().get(name);
+  }
+
+  /**
+   * Returns the version of the cached nodes, which changes whenever the list returned by getCached
+   * does. Callers can use it to skip recomputing results derived from the cache.
+   */
+  public long getCachedVersion() {
+    if (cache.isEmpty()) throw new UnsupportedOperationException("Caching is disabled");
+    else return cache.get().getVersion();
+  }
+
   public void addListener(KaldbMetadataStoreChangeListener watcher) {
     if (cache.isEmpty()) throw new UnsupportedOperationException("Caching is disabled");
     else watchers.add(watcher);
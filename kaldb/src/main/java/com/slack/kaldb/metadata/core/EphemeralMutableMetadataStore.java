@@ -7,6 +7,7 @@ import com.google.common.util.concurrent.ListenableFuture;
 import com.google.protobuf.InvalidProtocolBufferException;
 import com.slack.kaldb.metadata.zookeeper.InternalMetadataStoreException;
 import com.slack.kaldb.metadata.zookeeper.MetadataStore;
+import java.util.List;
 import java.util.concurrent.ExecutionException;
 import java.util.concurrent.TimeUnit;
 import java.util.concurrent.TimeoutException;
@@ -33,7 +34,7 @@ public abstract class EphemeralMutableMetadataStore<T extends KaldbMetadata>
   public ListenableFuture<?> create(T metadataNode) {
     String path = getPath(metadataNode.name);
     try {
-      return metadataStore.createEphemeralNode(path, metadataSerializer.toJsonStr(metadataNode));
+      return metadataStore.createEphemeralNode(path, serialize(metadataNode));
     } catch (InvalidProtocolBufferException e) {
       String msg = String.format("Error serializing node %s at path %s", metadataNode, path);
       logger.error(msg, e);
@@ -58,6 +59,14 @@ public abstract class EphemeralMutableMetadataStore<T extends KaldbMetadata>
     return super.update(metadataNode);
   }
 
+  public List<ListenableFuture<?>> updateAll(List<T> metadataNodes) {
+    if (!updatable) {
+      throw new UnsupportedOperationException("Can't update store at path " + storeFolder);
+    }
+
+    return super.updateAll(metadataNodes);
+  }
+
   public void updateSync(T metadataNode) {
     try {
       update(metadataNode).get(DEFAULT_ZK_TIMEOUT_SECS, TimeUnit.SECONDS);
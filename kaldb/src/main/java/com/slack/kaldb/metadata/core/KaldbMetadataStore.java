@@ -10,6 +10,7 @@ import com.google.common.util.concurrent.ListenableFuture;
 import com.google.common.util.concurrent.MoreExecutors;
 import com.google.protobuf.InvalidProtocolBufferException;
 import com.slack.kaldb.metadata.zookeeper.InternalMetadataStoreException;
+import com.slack.kaldb.metadata.zookeeper.MetadataOp;
 import com.slack.kaldb.metadata.zookeeper.MetadataStore;
 import com.slack.kaldb.metadata.zookeeper.NodeExistsException;
 import java.util.ArrayList;
@@ -18,6 +19,7 @@ import java.util.List;
 import java.util.concurrent.ExecutionException;
 import java.util.concurrent.TimeUnit;
 import java.util.concurrent.TimeoutException;
+import java.util.stream.Collectors;
 import javax.annotation.Nullable;
 import org.apache.curator.utils.ZKPaths;
 import org.slf4j.Logger;
@@ -74,22 +76,25 @@ abstract class KaldbMetadataStore<T extends KaldbMetadata> {
     return ZKPaths.makePath(storeFolder, snapshotName);
   }
 
-  // TODO: byte arrays every where.
+  protected byte[] serialize(T metadataNode) throws InvalidProtocolBufferException {
+    return metadataSerializer.toBytes(metadataNode, metadataStore.useBinaryEncoding());
+  }
+
   @SuppressWarnings("UnstableApiUsage")
   public ListenableFuture<T> getNode(String path) {
     String nodePath = getPath(path);
-    Function<String, T> deserialize =
+    Function<byte[], T> deserialize =
         new Function<>() {
           @Override
-          public @Nullable T apply(@Nullable String data) {
+          public @Nullable T apply(@Nullable byte[] data) {
             T result;
             try {
-              result = metadataSerializer.fromJsonStr(data);
+              result = metadataSerializer.fromBytes(data);
             } catch (InvalidProtocolBufferException e) {
               final String msg =
                   String.format(
-                      "Unable to de-serialize data %s at path %s into a protobuf message.",
-                      data, path);
+                      "Unable to de-serialize %s bytes at path %s into a protobuf message.",
+                      data.length, path);
               logger.error(msg, e);
               throw new IllegalStateException(msg, e);
             }
@@ -99,7 +104,7 @@ abstract class KaldbMetadataStore<T extends KaldbMetadata> {
 
     // TODO: Pass in the correct thread pool for this.
     return Futures.transform(
-        metadataStore.get(nodePath), deserialize, MoreExecutors.directExecutor());
+        metadataStore.getData(nodePath), deserialize, MoreExecutors.directExecutor());
   }
 
   public T getNodeSync(String path) {
@@ -166,6 +171,18 @@ abstract class KaldbMetadataStore<T extends KaldbMetadata> {
     return metadataStore.delete(getPath(path));
   }
 
+  /**
+   * Deletes the nodes in batches. Returns a future for the delete of every node, in the order of
+   * the nodes.
+   */
+  public List<ListenableFuture<?>> deleteAll(List<T> metadataNodes) {
+    return metadataStore.batch(
+        metadataNodes
+            .stream()
+            .map((metadataNode) -> MetadataOp.delete(getPath(metadataNode.name)))
+            .collect(Collectors.toList()));
+  }
+
   public void deleteSync(String path) {
     try {
       delete(path).get(DEFAULT_ZK_TIMEOUT_SECS, TimeUnit.SECONDS);
@@ -1,5 +1,30 @@
 package com.slack.kaldb.metadata.core;
 
+import java.util.Set;
+
 public interface KaldbMetadataStoreChangeListener {
   void onMetadataStoreChanged();
+
+  /**
+   * Called with the names of the changed nodes. An empty set means the changed nodes are unknown,
+   * for example after a connection state change.
+   */
+  default void onMetadataStoreChanged(Set<String> changedNames) {
+    onMetadataStoreChanged();
+  }
+
+  /**
+   * Called with the names of the changed nodes, and the version of the cache after the latest of
+   * those changes.
+   */
+  default void onMetadataStoreChanged(Set<String> changedNames, long version) {
+    onMetadataStoreChanged(changedNames);
+  }
+
+  /**
+   * Called as soon as a changed node is cached, with the version of the cache after the change,
+   * before the change is notified. This runs on the thread that updates the cache, so it must
+   * return quickly.
+   */
+  default void onMetadataStoreChangeApplied(String changedName, long version) {}
 }
@@ -1,20 +1,67 @@
 package com.slack.kaldb.metadata.core;
 
+import com.google.protobuf.CodedInputStream;
+import com.google.protobuf.CodedOutputStream;
 import com.google.protobuf.InvalidProtocolBufferException;
+import com.google.protobuf.Message;
 import com.google.protobuf.util.JsonFormat;
+import java.io.IOException;
 
 /**
  * An interface that helps us covert protobuf objects to and from json.
  *
  * <p>This class also includes a base printer and parser for serializing and de-serializing the
  * protobuf objects to and from Json.
+ *
+ * <p>Metadata nodes are either stored as JSON, or as a binary protobuf message prefixed by a format
+ * version byte. JSON nodes always start with a '{' or whitespace, so both can be read back, which
+ * lets a cluster move to the binary encoding one node at a time.
  */
 public interface MetadataSerializer<T extends KaldbMetadata> {
   // TODO: Print enum as ints instead of Strings also?
   JsonFormat.Printer printer = JsonFormat.printer().includingDefaultValueFields();
   JsonFormat.Parser parser = JsonFormat.parser().ignoringUnknownFields();
 
+  // The first byte of a node holding a binary protobuf message.
+  byte PROTOBUF_V1 = 1;
+
   String toJsonStr(T metadata) throws InvalidProtocolBufferException;
 
   T fromJsonStr(String data) throws InvalidProtocolBufferException;
+
+  Message toProto(T metadata);
+
+  T fromProto(CodedInputStream input) throws IOException;
+
+  default byte[] toBytes(T metadata, boolean binary) throws InvalidProtocolBufferException {
+    if (!binary) {
+      return toJsonStr(metadata).getBytes();
+    }
+
+    if (metadata == null) throw new IllegalArgumentException("metadata object can't be null");
+    Message message = toProto(metadata);
+    byte[] data = new byte[1 + message.getSerializedSize()];
+    data[0] = PROTOBUF_V1;
+    try {
+      CodedOutputStream output = CodedOutputStream.newInstance(data, 1, data.length - 1);
+      message.writeTo(output);
+      output.checkNoSpaceLeft();
+    } catch (IOException e) {
+      throw new InvalidProtocolBufferException(e);
+    }
+    return data;
+  }
+
+  default T fromBytes(byte[] data) throws InvalidProtocolBufferException {
+    if (data.length > 0 && data[0] == PROTOBUF_V1) {
+      try {
+        return fromProto(CodedInputStream.newInstance(data, 1, data.length - 1));
+      } catch (InvalidProtocolBufferException e) {
+        throw e;
+      } catch (IOException e) {
+        throw new InvalidProtocolBufferException(e);
+      }
+    }
+    return fromJsonStr(new String(data));
+  }
 }
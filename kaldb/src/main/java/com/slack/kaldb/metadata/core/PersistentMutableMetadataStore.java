@@ -6,7 +6,10 @@ import com.google.common.util.concurrent.Futures;
 import com.google.common.util.concurrent.ListenableFuture;
 import com.google.protobuf.InvalidProtocolBufferException;
 import com.slack.kaldb.metadata.zookeeper.InternalMetadataStoreException;
+import com.slack.kaldb.metadata.zookeeper.MetadataOp;
 import com.slack.kaldb.metadata.zookeeper.MetadataStore;
+import java.util.ArrayList;
+import java.util.List;
 import java.util.concurrent.ExecutionException;
 import java.util.concurrent.TimeUnit;
 import java.util.concurrent.TimeoutException;
@@ -33,7 +36,7 @@ public abstract class PersistentMutableMetadataStore<T extends KaldbMetadata>
   public ListenableFuture<?> create(T metadataNode) {
     String path = getPath(metadataNode.name);
     try {
-      return metadataStore.create(path, metadataSerializer.toJsonStr(metadataNode), true);
+      return metadataStore.create(path, serialize(metadataNode), true);
     } catch (InvalidProtocolBufferException e) {
       String msg = String.format("Error serializing node %s at path %s", metadataNode, path);
       logger.error(msg, e);
@@ -57,6 +60,14 @@ public abstract class PersistentMutableMetadataStore<T extends KaldbMetadata>
     return super.update(metadataNode);
   }
 
+  public List<ListenableFuture<?>> updateAll(List<T> metadataNodes) {
+    if (!updatable) {
+      throw new UnsupportedOperationException("Can't update store at path " + storeFolder);
+    }
+
+    return super.updateAll(metadataNodes);
+  }
+
   public void updateSync(T metadataNode) {
     try {
       update(metadataNode).get(DEFAULT_ZK_TIMEOUT_SECS, TimeUnit.SECONDS);
@@ -71,6 +82,25 @@ public abstract class PersistentMutableMetadataStore<T extends KaldbMetadata>
     return metadataStore.delete(path);
   }
 
+  /**
+   * Atomically deletes a node and creates the nodes replacing it, so readers either see the node or
+   * all of its replacements.
+   */
+  public ListenableFuture<?> replace(T metadataNode, List<T> replacementNodes) {
+    List<MetadataOp> ops = new ArrayList<>(replacementNodes.size() + 1);
+    ops.add(MetadataOp.delete(getPath(metadataNode.name)));
+    try {
+      for (T replacementNode : replacementNodes) {
+        ops.add(MetadataOp.create(getPath(replacementNode.name), serialize(replacementNode)));
+      }
+    } catch (InvalidProtocolBufferException e) {
+      String msg = String.format("Error serializing the replacements of node %s", metadataNode);
+      logger.error(msg, e);
+      return Futures.immediateFailedFuture(e);
+    }
+    return metadataStore.transaction(ops);
+  }
+
   public void deleteSync(T metadataNode) {
     try {
       delete(metadataNode).get(DEFAULT_ZK_TIMEOUT_SECS, TimeUnit.SECONDS);
@@ -4,8 +4,11 @@ import com.google.common.util.concurrent.Futures;
 import com.google.common.util.concurrent.ListenableFuture;
 import com.google.protobuf.InvalidProtocolBufferException;
 import com.slack.kaldb.metadata.zookeeper.InternalMetadataStoreException;
+import com.slack.kaldb.metadata.zookeeper.MetadataOp;
 import com.slack.kaldb.metadata.zookeeper.MetadataStore;
 import com.slack.kaldb.server.KaldbConfig;
+import java.util.ArrayList;
+import java.util.List;
 import java.util.concurrent.ExecutionException;
 import java.util.concurrent.TimeUnit;
 import java.util.concurrent.TimeoutException;
@@ -28,7 +31,7 @@ public abstract class UpdatableCacheableMetadataStore<T extends KaldbMetadata>
   public ListenableFuture<?> update(T metadataNode) {
     String path = getPath(metadataNode.name);
     try {
-      return metadataStore.put(path, metadataSerializer.toJsonStr(metadataNode));
+      return metadataStore.put(path, serialize(metadataNode));
     } catch (InvalidProtocolBufferException e) {
       String msg = String.format("Error serializing node %s at path %s", metadataNode, path);
       logger.error(msg, e);
@@ -36,6 +39,34 @@ public abstract class UpdatableCacheableMetadataStore<T extends KaldbMetadata>
     }
   }
 
+  /**
+   * Updates the nodes in batches. Returns a future for the update of every node, in the order of
+   * the nodes.
+   */
+  public List<ListenableFuture<?>> updateAll(List<T> metadataNodes) {
+    List<ListenableFuture<?>> results = new ArrayList<>(metadataNodes.size());
+    List<MetadataOp> ops = new ArrayList<>(metadataNodes.size());
+    List<Integer> opIndexes = new ArrayList<>(metadataNodes.size());
+    for (T metadataNode : metadataNodes) {
+      String path = getPath(metadataNode.name);
+      try {
+        ops.add(MetadataOp.put(path, serialize(metadataNode)));
+        opIndexes.add(results.size());
+        results.add(null);
+      } catch (InvalidProtocolBufferException e) {
+        String msg = String.format("Error serializing node %s at path %s", metadataNode, path);
+        logger.error(msg, e);
+        results.add(Futures.immediateFailedFuture(e));
+      }
+    }
+
+    List<ListenableFuture<?>> opResults = metadataStore.batch(ops);
+    for (int i = 0; i < opResults.size(); i++) {
+      results.set(opIndexes.get(i), opResults.get(i));
+    }
+    return results;
+  }
+
   public void updateSync(T metadataNode) {
     try {
       update(metadataNode).get(KaldbConfig.DEFAULT_ZK_TIMEOUT_SECS, TimeUnit.SECONDS);
@@ -1,9 +1,12 @@
 package com.slack.kaldb.metadata.dataset;
 
+import com.google.protobuf.CodedInputStream;
 import com.google.protobuf.InvalidProtocolBufferException;
+import com.google.protobuf.Message;
 import com.google.protobuf.util.JsonFormat;
 import com.slack.kaldb.metadata.core.MetadataSerializer;
 import com.slack.kaldb.proto.metadata.Metadata;
+import java.io.IOException;
 import java.util.List;
 import java.util.stream.Collectors;
 
@@ -53,4 +56,14 @@ public class DatasetMetadataSerializer implements MetadataSerializer<DatasetMeta
     JsonFormat.parser().ignoringUnknownFields().merge(data, datasetMetadataBuilder);
     return fromDatasetMetadataProto(datasetMetadataBuilder.build());
   }
+
+  @Override
+  public Message toProto(DatasetMetadata metadata) {
+    return toDatasetMetadataProto(metadata);
+  }
+
+  @Override
+  public DatasetMetadata fromProto(CodedInputStream input) throws IOException {
+    return fromDatasetMetadataProto(Metadata.DatasetMetadata.parseFrom(input));
+  }
 }
@@ -1,9 +1,12 @@
 package com.slack.kaldb.metadata.recovery;
 
+import com.google.protobuf.CodedInputStream;
 import com.google.protobuf.InvalidProtocolBufferException;
+import com.google.protobuf.Message;
 import com.google.protobuf.util.JsonFormat;
 import com.slack.kaldb.metadata.core.MetadataSerializer;
 import com.slack.kaldb.proto.metadata.Metadata;
+import java.io.IOException;
 
 public class RecoveryNodeMetadataSerializer implements MetadataSerializer<RecoveryNodeMetadata> {
 
@@ -40,4 +43,14 @@ public class RecoveryNodeMetadataSerializer implements MetadataSerializer<Recove
     JsonFormat.parser().ignoringUnknownFields().merge(data, recoveryNodeMetadataBuilder);
     return fromRecoveryNodeMetadataProto(recoveryNodeMetadataBuilder.build());
   }
+
+  @Override
+  public Message toProto(RecoveryNodeMetadata metadata) {
+    return toRecoveryNodeMetadataProto(metadata);
+  }
+
+  @Override
+  public RecoveryNodeMetadata fromProto(CodedInputStream input) throws IOException {
+    return fromRecoveryNodeMetadataProto(Metadata.RecoveryNodeMetadata.parseFrom(input));
+  }
 }
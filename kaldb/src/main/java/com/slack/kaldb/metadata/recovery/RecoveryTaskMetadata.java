@@ -37,6 +37,11 @@ public class RecoveryTaskMetadata extends KaldbMetadata {
     return createdTimeEpochMs;
   }
 
+  /** The count of offsets in the task, both ends included. */
+  public long getOffsetCount() {
+    return endOffset - startOffset + 1;
+  }
+
   @Override
   public boolean equals(Object o) {
     if (this == o) return true;
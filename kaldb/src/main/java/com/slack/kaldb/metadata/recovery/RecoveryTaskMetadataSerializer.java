@@ -1,9 +1,12 @@
 package com.slack.kaldb.metadata.recovery;
 
+import com.google.protobuf.CodedInputStream;
 import com.google.protobuf.InvalidProtocolBufferException;
+import com.google.protobuf.Message;
 import com.google.protobuf.util.JsonFormat;
 import com.slack.kaldb.metadata.core.MetadataSerializer;
 import com.slack.kaldb.proto.metadata.Metadata;
+import java.io.IOException;
 
 public class RecoveryTaskMetadataSerializer implements MetadataSerializer<RecoveryTaskMetadata> {
 
@@ -42,4 +45,14 @@ public class RecoveryTaskMetadataSerializer implements MetadataSerializer<Recove
     JsonFormat.parser().ignoringUnknownFields().merge(data, recoveryTaskMetadataBuilder);
     return fromRecoveryTaskMetadataProto(recoveryTaskMetadataBuilder.build());
   }
+
+  @Override
+  public Message toProto(RecoveryTaskMetadata metadata) {
+    return toRecoveryTaskMetadataProto(metadata);
+  }
+
+  @Override
+  public RecoveryTaskMetadata fromProto(CodedInputStream input) throws IOException {
+    return fromRecoveryTaskMetadataProto(Metadata.RecoveryTaskMetadata.parseFrom(input));
+  }
 }
@@ -1,9 +1,12 @@
 package com.slack.kaldb.metadata.replica;
 
+import com.google.protobuf.CodedInputStream;
 import com.google.protobuf.InvalidProtocolBufferException;
+import com.google.protobuf.Message;
 import com.google.protobuf.util.JsonFormat;
 import com.slack.kaldb.metadata.core.MetadataSerializer;
 import com.slack.kaldb.proto.metadata.Metadata;
+import java.io.IOException;
 
 public class ReplicaMetadataSerializer implements MetadataSerializer<ReplicaMetadata> {
   private static ReplicaMetadata fromReplicaMetadataProto(
@@ -14,7 +17,7 @@ public class ReplicaMetadataSerializer implements MetadataSerializer<ReplicaMeta
         replicaMetadataProto.getCreatedTimeEpochMs(),
         replicaMetadataProto.getExpireAfterEpochMs(),
         replicaMetadataProto.getIsRestored(),
-        Metadata.IndexType.LOGS_LUCENE9);
+        replicaMetadataProto.getIndexType());
   }
 
   private static Metadata.ReplicaMetadata toReplicaMetadataProto(ReplicaMetadata metadata) {
@@ -41,4 +44,14 @@ public class ReplicaMetadataSerializer implements MetadataSerializer<ReplicaMeta
     JsonFormat.parser().ignoringUnknownFields().merge(data, replicaMetadataBuilder);
     return fromReplicaMetadataProto(replicaMetadataBuilder.build());
   }
+
+  @Override
+  public Message toProto(ReplicaMetadata metadata) {
+    return toReplicaMetadataProto(metadata);
+  }
+
+  @Override
+  public ReplicaMetadata fromProto(CodedInputStream input) throws IOException {
+    return fromReplicaMetadataProto(Metadata.ReplicaMetadata.parseFrom(input));
+  }
 }
@@ -12,7 +12,7 @@ public class ReplicaMetadataStore extends PersistentMutableMetadataStore<Replica
   public ReplicaMetadataStore(MetadataStore metadataStore, boolean shouldCache) throws Exception {
     super(
         shouldCache,
-        false,
+        true,
         REPLICA_STORE_ZK_PATH,
         metadataStore,
         new ReplicaMetadataSerializer(),
@@ -1,9 +1,12 @@
 package com.slack.kaldb.metadata.search;
 
+import com.google.protobuf.CodedInputStream;
 import com.google.protobuf.InvalidProtocolBufferException;
+import com.google.protobuf.Message;
 import com.google.protobuf.util.JsonFormat;
 import com.slack.kaldb.metadata.core.MetadataSerializer;
 import com.slack.kaldb.proto.metadata.Metadata;
+import java.io.IOException;
 
 public class SearchMetadataSerializer implements MetadataSerializer<SearchMetadata> {
   private static SearchMetadata fromSearchMetadataProto(
@@ -35,4 +38,14 @@ public class SearchMetadataSerializer implements MetadataSerializer<SearchMetada
     JsonFormat.parser().ignoringUnknownFields().merge(data, searchMetadataBuilder);
     return fromSearchMetadataProto(searchMetadataBuilder.build());
   }
+
+  @Override
+  public Message toProto(SearchMetadata metadata) {
+    return toSearchMetadataProto(metadata);
+  }
+
+  @Override
+  public SearchMetadata fromProto(CodedInputStream input) throws IOException {
+    return fromSearchMetadataProto(Metadata.SearchMetadata.parseFrom(input));
+  }
 }
@@ -1,5 +1,7 @@
 package com.slack.kaldb.metadata.search;
 
+import com.google.common.util.concurrent.Futures;
+import com.google.common.util.concurrent.ListenableFuture;
 import com.slack.kaldb.metadata.core.EphemeralMutableMetadataStore;
 import com.slack.kaldb.metadata.zookeeper.MetadataStore;
 import org.slf4j.Logger;
@@ -10,7 +12,21 @@ public class SearchMetadataStore extends EphemeralMutableMetadataStore<SearchMet
 
   private static final Logger LOG = LoggerFactory.getLogger(SearchMetadataStore.class);
 
+  private final SearchNodeMetadataPublisher searchNodeMetadataPublisher;
+
   public SearchMetadataStore(MetadataStore metadataStore, boolean shouldCache) throws Exception {
+    this(metadataStore, shouldCache, null);
+  }
+
+  /**
+   * When a search node metadata publisher is given, the search metadata of the chunks is added to
+   * the single node it publishes, instead of being written as a node per chunk.
+   */
+  public SearchMetadataStore(
+      MetadataStore metadataStore,
+      boolean shouldCache,
+      SearchNodeMetadataPublisher searchNodeMetadataPublisher)
+      throws Exception {
     super(
         shouldCache,
         false,
@@ -18,5 +34,24 @@ public class SearchMetadataStore extends EphemeralMutableMetadataStore<SearchMet
         metadataStore,
         new SearchMetadataSerializer(),
         LOG);
+    this.searchNodeMetadataPublisher = searchNodeMetadataPublisher;
+  }
+
+  @Override
+  public ListenableFuture<?> create(SearchMetadata metadataNode) {
+    if (searchNodeMetadataPublisher == null) {
+      return super.create(metadataNode);
+    }
+    searchNodeMetadataPublisher.add(metadataNode.snapshotName);
+    return Futures.immediateFuture(null);
+  }
+
+  @Override
+  public ListenableFuture<?> delete(SearchMetadata metadataNode) {
+    if (searchNodeMetadataPublisher == null) {
+      return super.delete(metadataNode);
+    }
+    searchNodeMetadataPublisher.remove(metadataNode.snapshotName);
+    return Futures.immediateFuture(null);
   }
 }
@@ -0,0 +1,75 @@
+package com.slack.kaldb.metadata.search;
+
+import static com.google.common.base.Preconditions.checkArgument;
+
+import com.slack.kaldb.metadata.core.KaldbMetadata;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Objects;
+
+/**
+ * The search node metadata lists all the snapshots a node serves. It replaces the search metadata
+ * node of every chunk on the node with a single node, which is updated in batches.
+ */
+public class SearchNodeMetadata extends KaldbMetadata {
+  public final String url;
+  public final List<String> snapshotNames;
+  public final long updatedTimeEpochMs;
+
+  public SearchNodeMetadata(
+      String name, String url, List<String> snapshotNames, long updatedTimeEpochMs) {
+    super(name);
+    checkArgument(url != null && !url.isEmpty(), "Url shouldn't be empty");
+    checkArgument(snapshotNames != null, "Snapshot names can't be null");
+    checkArgument(updatedTimeEpochMs > 0, "Updated time must be greater than 0");
+
+    this.url = url;
+    this.snapshotNames = List.copyOf(snapshotNames);
+    this.updatedTimeEpochMs = updatedTimeEpochMs;
+  }
+
+  /** Returns the search metadata of every snapshot served by this node. */
+  public List<SearchMetadata> toSearchMetadata() {
+    List<SearchMetadata> searchMetadata = new ArrayList<>(snapshotNames.size());
+    for (String snapshotName : snapshotNames) {
+      searchMetadata.add(
+          new SearchMetadata(
+              SearchMetadata.generateSearchContextSnapshotId(snapshotName, name),
+              snapshotName,
+              url));
+    }
+    return searchMetadata;
+  }
+
+  @Override
+  public boolean equals(Object o) {
+    if (this == o) return true;
+    if (o == null || getClass() != o.getClass()) return false;
+    if (!super.equals(o)) return false;
+    SearchNodeMetadata that = (SearchNodeMetadata) o;
+    return updatedTimeEpochMs == that.updatedTimeEpochMs
+        && url.equals(that.url)
+        && snapshotNames.equals(that.snapshotNames);
+  }
+
+  @Override
+  public int hashCode() {
+    return Objects.hash(super.hashCode(), url, snapshotNames, updatedTimeEpochMs);
+  }
+
+  @Override
+  public String toString() {
+    return "SearchNodeMetadata{"
+        + "name='"
+        + name
+        + '\''
+        + ", url='"
+        + url
+        + '\''
+        + ", snapshotNames="
+        + snapshotNames
+        + ", updatedTimeEpochMs="
+        + updatedTimeEpochMs
+        + '}';
+  }
+}
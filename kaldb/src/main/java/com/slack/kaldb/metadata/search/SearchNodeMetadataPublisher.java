@@ -0,0 +1,129 @@
+package com.slack.kaldb.metadata.search;
+
+import static com.slack.kaldb.util.ArgValidationUtils.ensureTrue;
+
+import com.google.common.annotations.VisibleForTesting;
+import com.google.common.util.concurrent.AbstractScheduledService;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * The search node metadata publisher collects the snapshots served by the chunks of a node, and
+ * publishes them as a single search node metadata node. New snapshots are published in batches once
+ * every publish period. Removed snapshots are published right away, so queries aren't routed to a
+ * chunk after it starts closing.
+ */
+public class SearchNodeMetadataPublisher extends AbstractScheduledService {
+  private static final Logger LOG = LoggerFactory.getLogger(SearchNodeMetadataPublisher.class);
+
+  public static final String SEARCH_NODE_METADATA_PUBLISHED = "search_node_metadata_published";
+  public static final String SEARCH_NODE_METADATA_PUBLISH_FAILED =
+      "search_node_metadata_publish_failed";
+
+  private final SearchNodeMetadataStore searchNodeMetadataStore;
+  private final String name;
+  private final String url;
+  private final int publishPeriodMs;
+
+  private final Counter searchNodeMetadataPublished;
+  private final Counter searchNodeMetadataPublishFailed;
+
+  private final Set<String> snapshotNames = ConcurrentHashMap.newKeySet();
+  private final AtomicBoolean changed = new AtomicBoolean(false);
+  private boolean created = false;
+
+  public SearchNodeMetadataPublisher(
+      SearchNodeMetadataStore searchNodeMetadataStore,
+      String name,
+      String url,
+      int publishPeriodMs,
+      MeterRegistry meterRegistry) {
+    ensureTrue(publishPeriodMs > 0, "publishPeriodMs should be a positive number");
+    this.searchNodeMetadataStore = searchNodeMetadataStore;
+    this.name = name;
+    this.url = url;
+    this.publishPeriodMs = publishPeriodMs;
+
+    this.searchNodeMetadataPublished = meterRegistry.counter(SEARCH_NODE_METADATA_PUBLISHED);
+    this.searchNodeMetadataPublishFailed =
+        meterRegistry.counter(SEARCH_NODE_METADATA_PUBLISH_FAILED);
+  }
+
+  public void add(String snapshotName) {
+    if (snapshotNames.add(snapshotName)) {
+      changed.set(true);
+    }
+  }
+
+  public void remove(String snapshotName) {
+    if (snapshotNames.remove(snapshotName)) {
+      changed.set(true);
+      publish();
+    }
+  }
+
+  @VisibleForTesting
+  synchronized boolean publish() {
+    if (!changed.getAndSet(false)) {
+      return true;
+    }
+
+    List<String> publishedSnapshotNames = new ArrayList<>(snapshotNames);
+    Collections.sort(publishedSnapshotNames);
+    SearchNodeMetadata searchNodeMetadata =
+        new SearchNodeMetadata(name, url, publishedSnapshotNames, Instant.now().toEpochMilli());
+    try {
+      if (created) {
+        searchNodeMetadataStore.updateSync(searchNodeMetadata);
+      } else {
+        searchNodeMetadataStore.createSync(searchNodeMetadata);
+      }
+      created = true;
+      searchNodeMetadataPublished.increment();
+      return true;
+    } catch (Exception e) {
+      // A failed update is usually a lost ephemeral node, and a failed create an existing one.
+      created = !created;
+      changed.set(true);
+      searchNodeMetadataPublishFailed.increment();
+      LOG.warn("Failed to publish the search node metadata of {}", name, e);
+      return false;
+    }
+  }
+
+  @Override
+  protected void runOneIteration() {
+    try {
+      publish();
+    } catch (Exception e) {
+      LOG.error("Search node metadata publishing failed with error", e);
+    }
+  }
+
+  @Override
+  protected synchronized void shutDown() {
+    if (created) {
+      try {
+        searchNodeMetadataStore.deleteSync(name);
+        created = false;
+      } catch (Exception e) {
+        LOG.warn("Failed to delete the search node metadata of {}", name, e);
+      }
+    }
+  }
+
+  @Override
+  protected Scheduler scheduler() {
+    return Scheduler.newFixedDelaySchedule(publishPeriodMs, publishPeriodMs, TimeUnit.MILLISECONDS);
+  }
+}
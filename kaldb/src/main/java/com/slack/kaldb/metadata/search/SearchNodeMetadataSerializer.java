@@ -0,0 +1,55 @@
+package com.slack.kaldb.metadata.search;
+
+import com.google.protobuf.CodedInputStream;
+import com.google.protobuf.InvalidProtocolBufferException;
+import com.google.protobuf.Message;
+import com.google.protobuf.util.JsonFormat;
+import com.slack.kaldb.metadata.core.MetadataSerializer;
+import com.slack.kaldb.proto.metadata.Metadata;
+import java.io.IOException;
+
+public class SearchNodeMetadataSerializer implements MetadataSerializer<SearchNodeMetadata> {
+  private static SearchNodeMetadata fromSearchNodeMetadataProto(
+      Metadata.SearchNodeMetadata searchNodeMetadataProto) {
+    return new SearchNodeMetadata(
+        searchNodeMetadataProto.getName(),
+        searchNodeMetadataProto.getUrl(),
+        searchNodeMetadataProto.getSnapshotNamesList(),
+        searchNodeMetadataProto.getUpdatedTimeEpochMs());
+  }
+
+  private static Metadata.SearchNodeMetadata toSearchNodeMetadataProto(
+      SearchNodeMetadata metadata) {
+    return Metadata.SearchNodeMetadata.newBuilder()
+        .setName(metadata.name)
+        .setUrl(metadata.url)
+        .addAllSnapshotNames(metadata.snapshotNames)
+        .setUpdatedTimeEpochMs(metadata.updatedTimeEpochMs)
+        .build();
+  }
+
+  @Override
+  public String toJsonStr(SearchNodeMetadata metadata) throws InvalidProtocolBufferException {
+    if (metadata == null) throw new IllegalArgumentException("metadata object can't be null");
+
+    return printer.print(toSearchNodeMetadataProto(metadata));
+  }
+
+  @Override
+  public SearchNodeMetadata fromJsonStr(String data) throws InvalidProtocolBufferException {
+    Metadata.SearchNodeMetadata.Builder searchNodeMetadataBuilder =
+        Metadata.SearchNodeMetadata.newBuilder();
+    JsonFormat.parser().ignoringUnknownFields().merge(data, searchNodeMetadataBuilder);
+    return fromSearchNodeMetadataProto(searchNodeMetadataBuilder.build());
+  }
+
+  @Override
+  public Message toProto(SearchNodeMetadata metadata) {
+    return toSearchNodeMetadataProto(metadata);
+  }
+
+  @Override
+  public SearchNodeMetadata fromProto(CodedInputStream input) throws IOException {
+    return fromSearchNodeMetadataProto(Metadata.SearchNodeMetadata.parseFrom(input));
+  }
+}
@@ -0,0 +1,27 @@
+package com.slack.kaldb.metadata.search;
+
+import com.slack.kaldb.metadata.core.EphemeralMutableMetadataStore;
+import com.slack.kaldb.metadata.zookeeper.MetadataStore;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+public class SearchNodeMetadataStore extends EphemeralMutableMetadataStore<SearchNodeMetadata> {
+  private static final Logger LOG = LoggerFactory.getLogger(SearchNodeMetadataStore.class);
+  public static final String SEARCH_NODE_ZK_PATH = "/searchNode";
+
+  /**
+   * Initializes a search node metadata store at the SEARCH_NODE_ZK_PATH. This should be used by the
+   * indexer and cache nodes to publish the snapshots they serve, and by the query nodes to route
+   * queries to them.
+   */
+  public SearchNodeMetadataStore(MetadataStore metadataStore, boolean shouldCache)
+      throws Exception {
+    super(
+        shouldCache,
+        true,
+        SEARCH_NODE_ZK_PATH,
+        metadataStore,
+        new SearchNodeMetadataSerializer(),
+        LOG);
+  }
+}
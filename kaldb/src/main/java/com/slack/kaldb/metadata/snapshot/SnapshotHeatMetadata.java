@@ -0,0 +1,55 @@
+package com.slack.kaldb.metadata.snapshot;
+
+import static com.google.common.base.Preconditions.checkArgument;
+
+import com.slack.kaldb.metadata.core.KaldbMetadata;
+import java.util.Map;
+import java.util.Objects;
+
+/**
+ * The snapshot heat metadata is published by every query node, and contains a decayed count of the
+ * recent queries that touched each snapshot. The cluster manager sums the counts across the query
+ * nodes to add replicas for frequently queried snapshots.
+ */
+public class SnapshotHeatMetadata extends KaldbMetadata {
+  public final Map<String, Long> queryCountsBySnapshotId;
+  public final long updatedTimeEpochMs;
+
+  public SnapshotHeatMetadata(
+      String name, Map<String, Long> queryCountsBySnapshotId, long updatedTimeEpochMs) {
+    super(name);
+    checkArgument(queryCountsBySnapshotId != null, "Query counts can't be null");
+    checkArgument(updatedTimeEpochMs > 0, "Updated time must be greater than 0");
+
+    this.queryCountsBySnapshotId = Map.copyOf(queryCountsBySnapshotId);
+    this.updatedTimeEpochMs = updatedTimeEpochMs;
+  }
+
+  @Override
+  public boolean equals(Object o) {
+    if (this == o) return true;
+    if (o == null || getClass() != o.getClass()) return false;
+    if (!super.equals(o)) return false;
+    SnapshotHeatMetadata that = (SnapshotHeatMetadata) o;
+    return updatedTimeEpochMs == that.updatedTimeEpochMs
+        && queryCountsBySnapshotId.equals(that.queryCountsBySnapshotId);
+  }
+
+  @Override
+  public int hashCode() {
+    return Objects.hash(super.hashCode(), queryCountsBySnapshotId, updatedTimeEpochMs);
+  }
+
+  @Override
+  public String toString() {
+    return "SnapshotHeatMetadata{"
+        + "name='"
+        + name
+        + '\''
+        + ", queryCountsBySnapshotId="
+        + queryCountsBySnapshotId
+        + ", updatedTimeEpochMs="
+        + updatedTimeEpochMs
+        + '}';
+  }
+}
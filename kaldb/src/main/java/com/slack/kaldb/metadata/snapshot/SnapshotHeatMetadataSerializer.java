@@ -0,0 +1,53 @@
+package com.slack.kaldb.metadata.snapshot;
+
+import com.google.protobuf.CodedInputStream;
+import com.google.protobuf.InvalidProtocolBufferException;
+import com.google.protobuf.Message;
+import com.google.protobuf.util.JsonFormat;
+import com.slack.kaldb.metadata.core.MetadataSerializer;
+import com.slack.kaldb.proto.metadata.Metadata;
+import java.io.IOException;
+
+public class SnapshotHeatMetadataSerializer implements MetadataSerializer<SnapshotHeatMetadata> {
+  private static SnapshotHeatMetadata fromSnapshotHeatMetadataProto(
+      Metadata.SnapshotHeatMetadata snapshotHeatMetadataProto) {
+    return new SnapshotHeatMetadata(
+        snapshotHeatMetadataProto.getName(),
+        snapshotHeatMetadataProto.getQueryCountsMap(),
+        snapshotHeatMetadataProto.getUpdatedTimeEpochMs());
+  }
+
+  private static Metadata.SnapshotHeatMetadata toSnapshotHeatMetadataProto(
+      SnapshotHeatMetadata metadata) {
+    return Metadata.SnapshotHeatMetadata.newBuilder()
+        .setName(metadata.name)
+        .putAllQueryCounts(metadata.queryCountsBySnapshotId)
+        .setUpdatedTimeEpochMs(metadata.updatedTimeEpochMs)
+        .build();
+  }
+
+  @Override
+  public String toJsonStr(SnapshotHeatMetadata metadata) throws InvalidProtocolBufferException {
+    if (metadata == null) throw new IllegalArgumentException("metadata object can't be null");
+
+    return printer.print(toSnapshotHeatMetadataProto(metadata));
+  }
+
+  @Override
+  public SnapshotHeatMetadata fromJsonStr(String data) throws InvalidProtocolBufferException {
+    Metadata.SnapshotHeatMetadata.Builder snapshotHeatMetadataBuilder =
+        Metadata.SnapshotHeatMetadata.newBuilder();
+    JsonFormat.parser().ignoringUnknownFields().merge(data, snapshotHeatMetadataBuilder);
+    return fromSnapshotHeatMetadataProto(snapshotHeatMetadataBuilder.build());
+  }
+
+  @Override
+  public Message toProto(SnapshotHeatMetadata metadata) {
+    return toSnapshotHeatMetadataProto(metadata);
+  }
+
+  @Override
+  public SnapshotHeatMetadata fromProto(CodedInputStream input) throws IOException {
+    return fromSnapshotHeatMetadataProto(Metadata.SnapshotHeatMetadata.parseFrom(input));
+  }
+}
@@ -0,0 +1,26 @@
+package com.slack.kaldb.metadata.snapshot;
+
+import com.slack.kaldb.metadata.core.EphemeralMutableMetadataStore;
+import com.slack.kaldb.metadata.zookeeper.MetadataStore;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+public class SnapshotHeatMetadataStore extends EphemeralMutableMetadataStore<SnapshotHeatMetadata> {
+  private static final Logger LOG = LoggerFactory.getLogger(SnapshotHeatMetadataStore.class);
+  public static final String SNAPSHOT_HEAT_ZK_PATH = "/snapshotHeat";
+
+  /**
+   * Initializes a snapshot heat metadata store at the SNAPSHOT_HEAT_ZK_PATH. This should be used by
+   * the query nodes to publish their query counts, and by the manager to read them.
+   */
+  public SnapshotHeatMetadataStore(MetadataStore metadataStore, boolean shouldCache)
+      throws Exception {
+    super(
+        shouldCache,
+        true,
+        SNAPSHOT_HEAT_ZK_PATH,
+        metadataStore,
+        new SnapshotHeatMetadataSerializer(),
+        LOG);
+  }
+}
@@ -32,6 +32,10 @@ public class SnapshotMetadata extends KaldbMetadata {
   public final long maxOffset;
   public final String partitionId;
   public final Metadata.IndexType indexType;
+  // The size and doc count of the snapshot are 0 when they are unknown, like for the snapshots
+  // published before they were tracked.
+  public final long sizeInBytes;
+  public final long numDocs;
 
   public SnapshotMetadata(
       String snapshotId,
@@ -41,6 +45,28 @@ public class SnapshotMetadata extends KaldbMetadata {
       long maxOffset,
       String partitionId,
       Metadata.IndexType indexType) {
+    this(
+        snapshotId,
+        snapshotPath,
+        startTimeEpochMs,
+        endTimeEpochMs,
+        maxOffset,
+        partitionId,
+        indexType,
+        0,
+        0);
+  }
+
+  public SnapshotMetadata(
+      String snapshotId,
+      String snapshotPath,
+      long startTimeEpochMs,
+      long endTimeEpochMs,
+      long maxOffset,
+      String partitionId,
+      Metadata.IndexType indexType,
+      long sizeInBytes,
+      long numDocs) {
     this(
         snapshotId,
         snapshotPath,
@@ -49,7 +75,9 @@ public class SnapshotMetadata extends KaldbMetadata {
         endTimeEpochMs,
         maxOffset,
         partitionId,
-        indexType);
+        indexType,
+        sizeInBytes,
+        numDocs);
   }
 
   private SnapshotMetadata(
@@ -60,7 +88,9 @@ public class SnapshotMetadata extends KaldbMetadata {
       long endTimeEpochMs,
       long maxOffset,
       String partitionId,
-      Metadata.IndexType indexType) {
+      Metadata.IndexType indexType,
+      long sizeInBytes,
+      long numDocs) {
     super(name);
     checkArgument(snapshotId != null && !snapshotId.isEmpty(), "snapshotId can't be null or empty");
     checkArgument(startTimeEpochMs > 0, "start time should be greater than zero.");
@@ -73,6 +103,8 @@ public class SnapshotMetadata extends KaldbMetadata {
         partitionId != null && !partitionId.isEmpty(), "partitionId can't be null or empty");
     checkArgument(
         snapshotPath != null && !snapshotPath.isEmpty(), "snapshotPath can't be null or empty");
+    checkArgument(sizeInBytes >= 0, "size in bytes should be greater than or equal to zero.");
+    checkArgument(numDocs >= 0, "num docs should be greater than or equal to zero.");
 
     this.snapshotPath = snapshotPath;
     this.snapshotId = snapshotId;
@@ -81,6 +113,8 @@ public class SnapshotMetadata extends KaldbMetadata {
     this.maxOffset = maxOffset;
     this.partitionId = partitionId;
     this.indexType = indexType;
+    this.sizeInBytes = sizeInBytes;
+    this.numDocs = numDocs;
   }
 
   @Override
@@ -94,6 +128,8 @@ public class SnapshotMetadata extends KaldbMetadata {
     if (startTimeEpochMs != that.startTimeEpochMs) return false;
     if (endTimeEpochMs != that.endTimeEpochMs) return false;
     if (maxOffset != that.maxOffset) return false;
+    if (sizeInBytes != that.sizeInBytes) return false;
+    if (numDocs != that.numDocs) return false;
     if (snapshotPath != null ? !snapshotPath.equals(that.snapshotPath) : that.snapshotPath != null)
       return false;
     if (snapshotId != null ? !snapshotId.equals(that.snapshotId) : that.snapshotId != null)
@@ -113,6 +149,8 @@ public class SnapshotMetadata extends KaldbMetadata {
     result = 31 * result + (int) (maxOffset ^ (maxOffset >>> 32));
     result = 31 * result + (partitionId != null ? partitionId.hashCode() : 0);
     result = 31 * result + (indexType != null ? indexType.hashCode() : 0);
+    result = 31 * result + (int) (sizeInBytes ^ (sizeInBytes >>> 32));
+    result = 31 * result + (int) (numDocs ^ (numDocs >>> 32));
     return result;
   }
 
@@ -140,6 +178,10 @@ public class SnapshotMetadata extends KaldbMetadata {
         + '\''
         + ", indexType="
         + indexType
+        + ", sizeInBytes="
+        + sizeInBytes
+        + ", numDocs="
+        + numDocs
         + '}';
   }
 }
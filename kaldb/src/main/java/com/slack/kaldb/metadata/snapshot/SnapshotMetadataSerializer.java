@@ -1,9 +1,12 @@
 package com.slack.kaldb.metadata.snapshot;
 
+import com.google.protobuf.CodedInputStream;
 import com.google.protobuf.InvalidProtocolBufferException;
+import com.google.protobuf.Message;
 import com.google.protobuf.util.JsonFormat;
 import com.slack.kaldb.metadata.core.MetadataSerializer;
 import com.slack.kaldb.proto.metadata.Metadata;
+import java.io.IOException;
 
 public class SnapshotMetadataSerializer implements MetadataSerializer<SnapshotMetadata> {
   private static Metadata.SnapshotMetadata toSnapshotMetadataProto(
@@ -17,6 +20,8 @@ public class SnapshotMetadataSerializer implements MetadataSerializer<SnapshotMe
         .setPartitionId(snapshotMetadata.partitionId)
         .setMaxOffset(snapshotMetadata.maxOffset)
         .setIndexType(snapshotMetadata.indexType)
+        .setSizeInBytes(snapshotMetadata.sizeInBytes)
+        .setNumDocs(snapshotMetadata.numDocs)
         .build();
   }
 
@@ -29,7 +34,9 @@ public class SnapshotMetadataSerializer implements MetadataSerializer<SnapshotMe
         protoSnapshotMetadata.getEndTimeEpochMs(),
         protoSnapshotMetadata.getMaxOffset(),
         protoSnapshotMetadata.getPartitionId(),
-        Metadata.IndexType.LOGS_LUCENE9);
+        protoSnapshotMetadata.getIndexType(),
+        protoSnapshotMetadata.getSizeInBytes(),
+        protoSnapshotMetadata.getNumDocs());
   }
 
   @Override
@@ -46,4 +53,14 @@ public class SnapshotMetadataSerializer implements MetadataSerializer<SnapshotMe
     JsonFormat.parser().ignoringUnknownFields().merge(data, snapshotMetadataBuiler);
     return fromSnapshotMetadataProto(snapshotMetadataBuiler.build());
   }
+
+  @Override
+  public Message toProto(SnapshotMetadata metadata) {
+    return toSnapshotMetadataProto(metadata);
+  }
+
+  @Override
+  public SnapshotMetadata fromProto(CodedInputStream input) throws IOException {
+    return fromSnapshotMetadataProto(Metadata.SnapshotMetadata.parseFrom(input));
+  }
 }
@@ -0,0 +1,100 @@
+package com.slack.kaldb.metadata.zookeeper;
+
+import static com.slack.kaldb.util.ArgValidationUtils.ensureTrue;
+
+import java.util.HashSet;
+import java.util.Set;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.TimeUnit;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * Coalesces a burst of changed keys into a single notification. A notification is sent once no
+ * change was seen for the debounce window, or once the oldest pending change is max latency old,
+ * whichever comes first. A debounce window of 0 notifies every change immediately, on the calling
+ * thread.
+ *
+ * <p>Every change carries the version of the cache after the change. A notification carries the
+ * version of its latest change, so a listener knows which version the notified keys bring it up to.
+ *
+ * <p>For example, a restarting cache node updates hundreds of cache slots in a few seconds, which
+ * would otherwise cause hundreds of notifications to every listener of the cache slot store.
+ */
+class CoalescingChangeNotifier {
+  private static final Logger LOG = LoggerFactory.getLogger(CoalescingChangeNotifier.class);
+
+  interface Notifier {
+    void notify(Set<String> changedKeys, long version);
+  }
+
+  private final long debounceNanos;
+  private final long maxLatencyNanos;
+  private final ScheduledExecutorService executorService;
+  private final Notifier notifier;
+
+  private Set<String> pendingKeys = new HashSet<>();
+  private long pendingVersion;
+  private long firstPendingNanos;
+  private ScheduledFuture<?> pendingNotification;
+
+  CoalescingChangeNotifier(
+      long debounceMs,
+      long maxLatencyMs,
+      ScheduledExecutorService executorService,
+      Notifier notifier) {
+    ensureTrue(debounceMs >= 0, "debounceMs can't be negative");
+    ensureTrue(
+        debounceMs == 0 || maxLatencyMs >= debounceMs,
+        "maxLatencyMs should be at least debounceMs");
+    this.debounceNanos = TimeUnit.MILLISECONDS.toNanos(debounceMs);
+    this.maxLatencyNanos = TimeUnit.MILLISECONDS.toNanos(maxLatencyMs);
+    this.executorService = executorService;
+    this.notifier = notifier;
+  }
+
+  void changed(String key, long version) {
+    if (debounceNanos == 0) {
+      notifier.notify(Set.of(key), version);
+      return;
+    }
+
+    synchronized (this) {
+      long now = System.nanoTime();
+      if (pendingKeys.isEmpty()) {
+        firstPendingNanos = now;
+      }
+      pendingKeys.add(key);
+      pendingVersion = Math.max(pendingVersion, version);
+
+      if (pendingNotification != null) {
+        pendingNotification.cancel(false);
+      }
+      long delayNanos = Math.min(debounceNanos, firstPendingNanos + maxLatencyNanos - now);
+      try {
+        pendingNotification =
+            executorService.schedule(this::notifyPending, delayNanos, TimeUnit.NANOSECONDS);
+      } catch (RejectedExecutionException e) {
+        // The metadata store is closing, so there is no one left to notify.
+        LOG.debug("Dropping notification for {} changed keys", pendingKeys.size(), e);
+      }
+    }
+  }
+
+  private void notifyPending() {
+    Set<String> changedKeys;
+    long version;
+    synchronized (this) {
+      if (pendingKeys.isEmpty()) {
+        return;
+      }
+      changedKeys = pendingKeys;
+      version = pendingVersion;
+      pendingKeys = new HashSet<>();
+      pendingNotification = null;
+    }
+    notifier.notify(Set.copyOf(changedKeys), version);
+  }
+}
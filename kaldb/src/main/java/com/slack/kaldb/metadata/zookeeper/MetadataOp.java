@@ -0,0 +1,51 @@
+package com.slack.kaldb.metadata.zookeeper;
+
+import static com.slack.kaldb.util.ArgValidationUtils.ensureNonEmptyString;
+import static com.slack.kaldb.util.ArgValidationUtils.ensureTrue;
+
+/** A write to a node of the metadata store, which is applied along with others in a batch. */
+public class MetadataOp {
+  public enum Type {
+    CREATE,
+    PUT,
+    DELETE
+  }
+
+  public final Type type;
+  public final String path;
+  public final byte[] data;
+
+  private MetadataOp(Type type, String path, byte[] data) {
+    ensureNonEmptyString(path, "path can't be null or empty");
+    this.type = type;
+    this.path = path;
+    this.data = data;
+  }
+
+  /** Creates a persistent node at path, whose parent must exist. */
+  public static MetadataOp create(String path, byte[] data) {
+    ensureTrue(data != null, "data can't be null");
+    return new MetadataOp(Type.CREATE, path, data);
+  }
+
+  /** Stores data in an existing node at path. */
+  public static MetadataOp put(String path, byte[] data) {
+    ensureTrue(data != null, "data can't be null");
+    return new MetadataOp(Type.PUT, path, data);
+  }
+
+  /** Deletes the node at path. */
+  public static MetadataOp delete(String path) {
+    return new MetadataOp(Type.DELETE, path, new byte[0]);
+  }
+
+  /** The approximate size of the op in a ZK request. */
+  int sizeBytes() {
+    return path.length() + data.length;
+  }
+
+  @Override
+  public String toString() {
+    return "MetadataOp{" + "type=" + type + ", path='" + path + '\'' + '}';
+  }
+}
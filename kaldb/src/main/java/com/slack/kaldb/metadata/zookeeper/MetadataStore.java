@@ -4,6 +4,7 @@ import com.google.common.util.concurrent.ListenableFuture;
 import com.slack.kaldb.metadata.core.KaldbMetadata;
 import com.slack.kaldb.metadata.core.MetadataSerializer;
 import java.util.List;
+import org.apache.zookeeper.Watcher;
 
 /**
  * An interface for the physical metadata store that abstracts the details of the underlying
@@ -15,18 +16,52 @@ public interface MetadataStore {
 
   ListenableFuture<?> createEphemeralNode(String path, String data);
 
+  ListenableFuture<?> createEphemeralNode(String path, byte[] data);
+
   ListenableFuture<?> create(String path, String data, boolean createMissingParents);
 
+  ListenableFuture<?> create(String path, byte[] data, boolean createMissingParents);
+
   ListenableFuture<Boolean> exists(String path);
 
   ListenableFuture<?> put(String path, String data);
 
+  ListenableFuture<?> put(String path, byte[] data);
+
   ListenableFuture<String> get(String path);
 
+  ListenableFuture<byte[]> getData(String path);
+
   ListenableFuture<?> delete(String path);
 
+  /**
+   * Applies the ops in batches, each of which is a single ZK request. Returns a future for every
+   * op, in the order of the ops, so the caller can tell which ops failed.
+   */
+  List<ListenableFuture<?>> batch(List<MetadataOp> ops);
+
+  /**
+   * Applies all the ops in a single ZK request, so either all of them are applied or none. Unlike
+   * batch, the ops are never split or retried one at a time.
+   */
+  ListenableFuture<?> transaction(List<MetadataOp> ops);
+
   ListenableFuture<List<String>> getChildren(String path);
 
+  /**
+   * Adds a persistent watch on the node at path. Unlike a regular ZK watch, it keeps firing for
+   * every change of the node until it is removed. A single watcher can be added on many paths.
+   */
+  ListenableFuture<?> addPersistentWatch(String path, Watcher watcher);
+
+  ListenableFuture<?> removeWatch(String path, Watcher watcher);
+
+  /**
+   * Whether metadata nodes are written as binary protobuf messages instead of JSON. Both encodings
+   * are always readable.
+   */
+  boolean useBinaryEncoding();
+
   <T extends KaldbMetadata> ZookeeperCachedMetadataStore<T> cacheNodeAndChildren(
       String path, MetadataSerializer<T> metadataSerializer) throws Exception;
 }
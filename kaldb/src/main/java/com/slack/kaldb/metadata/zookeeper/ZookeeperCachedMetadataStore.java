@@ -5,8 +5,15 @@ import java.util.Optional;
 import java.util.concurrent.Executor;
 
 public interface ZookeeperCachedMetadataStore<T> {
+  /** Returns an immutable view of the cached instances, which is shared between readers. */
   List<T> getInstances();
 
+  /**
+   * Returns a version number that is incremented on every change to the cached instances. Callers
+   * can compare it across calls to skip recomputing results when nothing has changed.
+   */
+  long getVersion();
+
   Optional<T> get(String relativePathName);
 
   void start() throws Exception;
@@ -2,8 +2,8 @@ package com.slack.kaldb.metadata.zookeeper;
 
 import com.google.common.annotations.VisibleForTesting;
 import com.google.common.base.Preconditions;
-import com.google.common.collect.Lists;
 import com.google.common.collect.Maps;
+import com.google.common.util.concurrent.ThreadFactoryBuilder;
 import com.google.protobuf.InvalidProtocolBufferException;
 import com.slack.kaldb.metadata.core.KaldbMetadata;
 import com.slack.kaldb.metadata.core.MetadataSerializer;
@@ -11,9 +11,13 @@ import io.micrometer.core.instrument.Counter;
 import io.micrometer.core.instrument.MeterRegistry;
 import java.util.List;
 import java.util.Optional;
+import java.util.Set;
 import java.util.concurrent.ConcurrentMap;
 import java.util.concurrent.CountDownLatch;
 import java.util.concurrent.Executor;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.atomic.AtomicLong;
 import java.util.concurrent.atomic.AtomicReference;
 import org.apache.curator.framework.CuratorFramework;
 import org.apache.curator.framework.EnsureContainers;
@@ -38,6 +42,15 @@ import org.slf4j.LoggerFactory;
  * <p>NOTE: Unlike a regular file system, Since a directory is also a node in ZK, the directory node
  * should also have a metadata object in it's value.
  *
+ * <p>Readers get a copy-on-write immutable view of the instances, along with a version number that
+ * changes with every update. The view is rebuilt at most once per batch of ZK changes, on the first
+ * read after the batch, so repeated reads don't allocate.
+ *
+ * <p>Listeners are notified of every change by default. Optionally, the changes in a burst can be
+ * coalesced into a single notification, which carries the ids of all the changed nodes. Listeners
+ * are still told of every changed node as soon as it is cached, so they can track the changes that
+ * were not notified yet.
+ *
  * <p>Currently, the cache is not cleared when a ZK server starts and stops which could be a bug.
  * But it's fine for now, since we may terminate and restart the process when ZK is unavailable.
  *
@@ -55,12 +68,18 @@ public class ZookeeperCachedMetadataStoreImpl<T extends KaldbMetadata>
   private final CuratorCacheBridge cache;
 
   private final ConcurrentMap<String, T> instances = Maps.newConcurrentMap();
+  // Incremented after every change to the instances map.
+  private final AtomicLong version = new AtomicLong();
+  private volatile InstancesView<T> instancesView = new InstancesView<>(0, List.of());
 
   private final EnsureContainers ensureContainers;
   private final CountDownLatch initializedLatch = new CountDownLatch(1);
   private final MetadataSerializer<T> metadataSerde;
   private final String pathPrefix;
   private final Counter errorCounter;
+  private final CoalescingChangeNotifier changeNotifier;
+  // Null when the notifications are not coalesced, and sent from the curator thread.
+  private final ScheduledExecutorService notificationExecutorService;
 
   private enum State {
     LATENT,
@@ -73,6 +92,21 @@ public class ZookeeperCachedMetadataStoreImpl<T extends KaldbMetadata>
       MetadataSerializer<T> metadataSerde,
       CuratorFramework curator,
       MeterRegistry meterRegistry) {
+    this(path, metadataSerde, curator, meterRegistry, 0, 0);
+  }
+
+  /**
+   * Creates a cache whose change notifications are coalesced over notificationDebounceMs, but
+   * delayed by at most notificationMaxLatencyMs. The notifications are then sent from a thread of
+   * this cache, so a slow listener of one cache doesn't delay the notifications of the others.
+   */
+  ZookeeperCachedMetadataStoreImpl(
+      String path,
+      MetadataSerializer<T> metadataSerde,
+      CuratorFramework curator,
+      MeterRegistry meterRegistry,
+      long notificationDebounceMs,
+      long notificationMaxLatencyMs) {
     Preconditions.checkNotNull(path, "name cannot be null");
     Preconditions.checkNotNull(metadataSerde, "metadata serializer cannot be null");
     Preconditions.checkNotNull(curator, "curator framework cannot be null");
@@ -105,26 +139,72 @@ public class ZookeeperCachedMetadataStoreImpl<T extends KaldbMetadata>
     cache.listenable().addListener(listener);
     ensureContainers = new EnsureContainers(curator, path);
     errorCounter = meterRegistry.counter(CACHE_ERROR_COUNTER);
+    notificationExecutorService =
+        notificationDebounceMs > 0
+            ? Executors.newSingleThreadScheduledExecutor(
+                new ThreadFactoryBuilder()
+                    .setNameFormat("zk-metadata-notifier-" + path + "-%d")
+                    .build())
+            : null;
+    changeNotifier =
+        new CoalescingChangeNotifier(
+            notificationDebounceMs,
+            notificationMaxLatencyMs,
+            notificationExecutorService,
+            this::notifyListeners);
+  }
+
+  /** An immutable list of the cached instances, and the version of the cache it was built at. */
+  private static final class InstancesView<T> {
+    private final long version;
+    private final List<T> instances;
+
+    private InstancesView(long version, List<T> instances) {
+      this.version = version;
+      this.instances = instances;
+    }
   }
 
   private void nodeCreated(ChildData newData) {
     addInstance(newData);
-    maybeNotify();
+    maybeNotify(instanceIdFromData(newData));
   }
 
   private void nodeDeleted(ChildData childData) {
-    instances.remove(instanceIdFromData(childData));
-    maybeNotify();
+    String instanceId = instanceIdFromData(childData);
+    instances.remove(instanceId);
+    version.incrementAndGet();
+    maybeNotify(instanceId);
   }
 
   private void nodeChanged(ChildData oldData, ChildData currentData) {
     addInstance(currentData);
-    maybeNotify();
+    maybeNotify(instanceIdFromData(currentData));
   }
 
   @Override
   public List<T> getInstances() {
-    return Lists.newArrayList(instances.values());
+    long currentVersion = version.get();
+    InstancesView<T> view = instancesView;
+    if (view.version == currentVersion) {
+      return view.instances;
+    }
+
+    synchronized (this) {
+      view = instancesView;
+      if (view.version != currentVersion) {
+        // The copy may already contain changes newer than currentVersion, which only means the
+        // next read rebuilds the view once more.
+        view = new InstancesView<>(currentVersion, List.copyOf(instances.values()));
+        instancesView = view;
+      }
+      return view.instances;
+    }
+  }
+
+  @Override
+  public long getVersion() {
+    return version.get();
   }
 
   @Override
@@ -155,6 +235,9 @@ public class ZookeeperCachedMetadataStoreImpl<T extends KaldbMetadata>
         "Already closed or has not been started");
     listenerContainer.clear();
     CloseableUtils.closeQuietly(cache);
+    if (notificationExecutorService != null) {
+      notificationExecutorService.shutdownNow();
+    }
     LOG.info("Closing cache for path: {}", pathPrefix);
   }
 
@@ -192,8 +275,9 @@ public class ZookeeperCachedMetadataStoreImpl<T extends KaldbMetadata>
     String instanceId = "";
     try {
       instanceId = instanceIdFromData(childData);
-      T serviceInstance = metadataSerde.fromJsonStr(new String(childData.getData()));
+      T serviceInstance = metadataSerde.fromBytes(childData.getData());
       instances.put(instanceId, serviceInstance);
+      version.incrementAndGet();
     } catch (InvalidProtocolBufferException e) {
       // If we are unable to add the updated value to the cache, invalidate the key so cache is
       // consistent even though it's incomplete. If the incomplete cache becomes an issue,
@@ -213,7 +297,7 @@ public class ZookeeperCachedMetadataStoreImpl<T extends KaldbMetadata>
    * value Optional, to better clarify the intent.
    */
   private void invalidateKey(String key) {
-    if (!key.isEmpty()) instances.remove(key);
+    if (!key.isEmpty() && instances.remove(key) != null) version.incrementAndGet();
   }
 
   @VisibleForTesting
@@ -226,24 +310,42 @@ public class ZookeeperCachedMetadataStoreImpl<T extends KaldbMetadata>
     return state.get().equals(State.STOPPED);
   }
 
-  private void maybeNotify() {
+  private void maybeNotify(String instanceId) {
     // TODO: getCount when used this way could return a stale value and we may have a race
     //  condition here. Update this code to not use getCount.
     if (initializedLatch.getCount() == 0) {
+      long changeVersion = version.get();
       listenerContainer.forEach(
           listener -> {
             try {
-              listener.cacheChanged();
+              listener.cacheChangeApplied(instanceId, changeVersion);
             } catch (Exception e) {
-              // If a listener throws an exception log it and ignore it.
               errorCounter.increment();
-              LOG.error("Caught an exception notifying listener " + listener, e);
+              LOG.error("Caught an exception recording a change for listener " + listener, e);
             }
           });
-      LOG.debug("Notified {} listeners on node change at {}", listenerContainer.size(), pathPrefix);
+      changeNotifier.changed(instanceId, changeVersion);
     }
   }
 
+  private void notifyListeners(Set<String> changedInstanceIds, long cacheVersion) {
+    listenerContainer.forEach(
+        listener -> {
+          try {
+            listener.cacheChanged(changedInstanceIds, cacheVersion);
+          } catch (Exception e) {
+            // If a listener throws an exception log it and ignore it.
+            errorCounter.increment();
+            LOG.error("Caught an exception notifying listener " + listener, e);
+          }
+        });
+    LOG.debug(
+        "Notified {} listeners on {} node changes at {}",
+        listenerContainer.size(),
+        changedInstanceIds.size(),
+        pathPrefix);
+  }
+
   /** This function is called after both the path and it's children are cached. */
   public void cachedNodeAndChildren() {
     LOG.debug("initialized");
@@ -1,5 +1,6 @@
 package com.slack.kaldb.metadata.zookeeper;
 
+import java.util.Set;
 import org.apache.curator.framework.state.ConnectionStateListener;
 
 /**
@@ -17,4 +18,28 @@ public interface ZookeeperCachedMetadataStoreListener extends ConnectionStateLis
    * to a separate thread pool.
    */
   void cacheChanged();
+
+  /**
+   * Called when cache is changed, with the ids of the changed instances relative to the cache root.
+   * When notifications are coalesced, a single call covers all the changes of a burst.
+   */
+  default void cacheChanged(Set<String> changedInstanceIds) {
+    cacheChanged();
+  }
+
+  /**
+   * Called when cache is changed, with the ids of the changed instances and the version of the
+   * cache after the latest of those changes. Changes after that version are notified later.
+   */
+  default void cacheChanged(Set<String> changedInstanceIds, long version) {
+    cacheChanged(changedInstanceIds);
+  }
+
+  /**
+   * Called as soon as a change is applied to the cache, with the version of the cache after the
+   * change, before the change is notified. So a listener can keep track of the changed instances
+   * while their notification is coalesced. This runs on the thread that updates the cache, so it
+   * must return quickly.
+   */
+  default void cacheChangeApplied(String changedInstanceId, long version) {}
 }
@@ -7,6 +7,7 @@ import com.google.common.annotations.VisibleForTesting;
 import com.google.common.util.concurrent.ListenableFuture;
 import com.google.common.util.concurrent.ListeningExecutorService;
 import com.google.common.util.concurrent.MoreExecutors;
+import com.google.common.util.concurrent.SettableFuture;
 import com.google.common.util.concurrent.ThreadFactoryBuilder;
 import com.slack.kaldb.metadata.core.KaldbMetadata;
 import com.slack.kaldb.metadata.core.MetadataSerializer;
@@ -25,7 +26,9 @@ import org.apache.curator.RetryPolicy;
 import org.apache.curator.framework.CuratorFramework;
 import org.apache.curator.framework.CuratorFrameworkFactory;
 import org.apache.curator.framework.api.CuratorEventType;
+import org.apache.curator.framework.api.transaction.CuratorOp;
 import org.apache.curator.retry.RetryNTimes;
+import org.apache.zookeeper.AddWatchMode;
 import org.apache.zookeeper.CreateMode;
 import org.apache.zookeeper.KeeperException;
 import org.apache.zookeeper.Watcher;
@@ -53,6 +56,13 @@ public class ZookeeperMetadataStoreImpl implements MetadataStore {
   public static final String ZK_FAILED_COUNTER = "metadata.failed.zk";
   public static final String METADATA_WRITE_COUNTER = "metadata.write";
   public static final String METADATA_READ_COUNTER = "metadata.read";
+  public static final String METADATA_BATCH_COUNTER = "metadata.batch";
+  public static final String METADATA_BATCH_FAILED_COUNTER = "metadata.batch.failed";
+
+  // ZK rejects requests larger than jute.maxbuffer, which is 1MB by default. The batches are kept
+  // well under that size. Bounding the op count also bounds the work a single failed batch retries.
+  @VisibleForTesting static final int MAX_BATCH_OPS = 100;
+  @VisibleForTesting static final int MAX_BATCH_BYTES = 512 * 1024;
 
   private static final int ZK_RETRY_COUNT = 3;
 
@@ -65,7 +75,10 @@ public class ZookeeperMetadataStoreImpl implements MetadataStore {
         zkConfig.getZkConnectionTimeoutMs(),
         new RetryNTimes(ZK_RETRY_COUNT, zkConfig.getSleepBetweenRetriesMs()),
         new RuntimeHalterImpl(),
-        meterRegistry);
+        meterRegistry,
+        zkConfig.getNotificationDebounceMs(),
+        zkConfig.getNotificationMaxLatencyMs(),
+        zkConfig.getBinaryMetadataEncoding());
   }
 
   private final CuratorFramework curator;
@@ -73,11 +86,16 @@ public class ZookeeperMetadataStoreImpl implements MetadataStore {
   private final Counter zkFailureCounter;
   private final Counter metadataWriteCounter;
   private final Counter metadataReadCounter;
+  private final Counter metadataBatchCounter;
+  private final Counter metadataBatchFailedCounter;
 
   // A thread pool to run all the metadata store operations in.
   private final ListeningExecutorService metadataExecutorService;
   private final ExecutorService runSafeService;
   private final MeterRegistry meterRegistry;
+  private final int notificationDebounceMs;
+  private final int notificationMaxLatencyMs;
+  private final boolean binaryEncoding;
 
   public ZookeeperMetadataStoreImpl(
       String zkConnectString,
@@ -87,16 +105,49 @@ public class ZookeeperMetadataStoreImpl implements MetadataStore {
       RetryPolicy retryPolicy,
       FatalErrorHandler fatalErrorHandler,
       MeterRegistry meterRegistry) {
+    this(
+        zkConnectString,
+        zkPathPrefix,
+        sessionTimeoutMs,
+        connectionTimeoutMs,
+        retryPolicy,
+        fatalErrorHandler,
+        meterRegistry,
+        0,
+        0,
+        false);
+  }
+
+  public ZookeeperMetadataStoreImpl(
+      String zkConnectString,
+      String zkPathPrefix,
+      int sessionTimeoutMs,
+      int connectionTimeoutMs,
+      RetryPolicy retryPolicy,
+      FatalErrorHandler fatalErrorHandler,
+      MeterRegistry meterRegistry,
+      int notificationDebounceMs,
+      int notificationMaxLatencyMs,
+      boolean binaryEncoding) {
     ensureNonEmptyString(zkConnectString, "zkConnectString can't be null or empty");
     ensureNonEmptyString(zkPathPrefix, "zkPathPrefix can't be null or empty");
     ensureTrue(sessionTimeoutMs > 0, "sessionTimeoutMs should be a positive number");
     ensureTrue(connectionTimeoutMs > 0, "connectionTimeoutMs should be a positive number");
+    ensureTrue(notificationDebounceMs >= 0, "notificationDebounceMs can't be negative");
+    ensureTrue(
+        notificationDebounceMs == 0 || notificationMaxLatencyMs >= notificationDebounceMs,
+        "notificationMaxLatencyMs should be at least notificationDebounceMs");
+    this.notificationDebounceMs = notificationDebounceMs;
+    this.notificationMaxLatencyMs = notificationMaxLatencyMs;
+    this.binaryEncoding = binaryEncoding;
 
     this.meterRegistry = meterRegistry;
     this.failureCounter = meterRegistry.counter(METADATA_FAILED_COUNTER);
     this.zkFailureCounter = meterRegistry.counter(ZK_FAILED_COUNTER);
     this.metadataWriteCounter = meterRegistry.counter(METADATA_WRITE_COUNTER);
     this.metadataReadCounter = meterRegistry.counter(METADATA_READ_COUNTER);
+    this.metadataBatchCounter = meterRegistry.counter(METADATA_BATCH_COUNTER);
+    this.metadataBatchFailedCounter = meterRegistry.counter(METADATA_BATCH_FAILED_COUNTER);
 
     this.metadataExecutorService = this.buildExecutor();
     this.runSafeService = this.buildRunSafeService();
@@ -206,11 +257,11 @@ public class ZookeeperMetadataStoreImpl implements MetadataStore {
     LOG.info("Closed curator connection successfully.");
   }
 
-  private void createEphemeralNodeImpl(String path, String data) {
+  private void createEphemeralNodeImpl(String path, byte[] data) {
     metadataWriteCounter.increment();
-    LOG.info("Creating ephemeral node at {} with data {}", path, data);
+    LOG.info("Creating ephemeral node at {} with {} bytes of data", path, data.length);
     try {
-      curator.create().withMode(CreateMode.EPHEMERAL).forPath(path, data.getBytes());
+      curator.create().withMode(CreateMode.EPHEMERAL).forPath(path, data);
     } catch (KeeperException.NodeExistsException e) {
       throw new NodeExistsException(path);
     } catch (KeeperException e) {
@@ -227,21 +278,26 @@ public class ZookeeperMetadataStoreImpl implements MetadataStore {
   /** Create an ephemeral node at path */
   @Override
   public ListenableFuture<?> createEphemeralNode(String path, String data) {
+    return createEphemeralNode(path, data.getBytes());
+  }
+
+  @Override
+  public ListenableFuture<?> createEphemeralNode(String path, byte[] data) {
     return metadataExecutorService.submit(() -> createEphemeralNodeImpl(path, data));
   }
 
-  private void createImpl(String path, String data, boolean createMissingParents) {
+  private void createImpl(String path, byte[] data, boolean createMissingParents) {
     try {
-      LOG.info("Creating a node at {} with data {}.", path, data);
+      LOG.info("Creating a node at {} with {} bytes of data.", path, data.length);
       metadataWriteCounter.increment();
       if (createMissingParents) {
         curator
             .create()
             .creatingParentsIfNeeded()
             .withMode(CreateMode.PERSISTENT)
-            .forPath(path, data.getBytes());
+            .forPath(path, data);
       } else {
-        curator.create().withMode(CreateMode.PERSISTENT).forPath(path, data.getBytes());
+        curator.create().withMode(CreateMode.PERSISTENT).forPath(path, data);
       }
     } catch (KeeperException.NodeExistsException e) {
       throw new NodeExistsException(path);
@@ -263,6 +319,11 @@ public class ZookeeperMetadataStoreImpl implements MetadataStore {
    */
   @Override
   public ListenableFuture<?> create(String path, String data, boolean createMissingParents) {
+    return create(path, data.getBytes(), createMissingParents);
+  }
+
+  @Override
+  public ListenableFuture<?> create(String path, byte[] data, boolean createMissingParents) {
     return metadataExecutorService.submit(() -> createImpl(path, data, createMissingParents));
   }
 
@@ -291,11 +352,11 @@ public class ZookeeperMetadataStoreImpl implements MetadataStore {
   }
 
   /** Store data in path. Throw exception if node doesn't exist. */
-  private void putImpl(String path, String data) {
+  private void putImpl(String path, byte[] data) {
     try {
       metadataWriteCounter.increment();
-      LOG.info("Setting data for node at {} to {}", path, data);
-      curator.setData().forPath(path, data.getBytes());
+      LOG.info("Setting {} bytes of data for node at {}", data.length, path);
+      curator.setData().forPath(path, data);
     } catch (KeeperException.NoNodeException e) {
       throw new NoNodeException(path);
     } catch (KeeperException e) {
@@ -311,18 +372,23 @@ public class ZookeeperMetadataStoreImpl implements MetadataStore {
 
   @Override
   public ListenableFuture<?> put(String path, String data) {
+    return put(path, data.getBytes());
+  }
+
+  @Override
+  public ListenableFuture<?> put(String path, byte[] data) {
     return metadataExecutorService.submit(() -> putImpl(path, data));
   }
 
   // TODO: Consider fetching the data in background if it results in better perf due to batching.
-  private String getImpl(String path) {
-    String result;
+  private byte[] getImpl(String path) {
+    byte[] result;
     try {
       metadataReadCounter.increment();
       LOG.debug("Fetching data for node at {}", path);
       byte[] data = curator.getData().forPath(path);
       if (data != null) {
-        result = new String(data);
+        result = data;
       } else {
         throw new InternalMetadataStoreException("Get returned no data");
       }
@@ -342,6 +408,11 @@ public class ZookeeperMetadataStoreImpl implements MetadataStore {
 
   @Override
   public ListenableFuture<String> get(String path) {
+    return metadataExecutorService.submit(() -> new String(getImpl(path)));
+  }
+
+  @Override
+  public ListenableFuture<byte[]> getData(String path) {
     return metadataExecutorService.submit(() -> getImpl(path));
   }
 
@@ -368,6 +439,161 @@ public class ZookeeperMetadataStoreImpl implements MetadataStore {
     return metadataExecutorService.submit(() -> deleteImpl(path));
   }
 
+  private CuratorOp toCuratorOp(MetadataOp op) throws Exception {
+    switch (op.type) {
+      case CREATE:
+        return curator
+            .transactionOp()
+            .create()
+            .withMode(CreateMode.PERSISTENT)
+            .forPath(op.path, op.data);
+      case PUT:
+        return curator.transactionOp().setData().forPath(op.path, op.data);
+      case DELETE:
+        return curator.transactionOp().delete().forPath(op.path);
+      default:
+        throw new IllegalArgumentException("Unknown op type " + op.type);
+    }
+  }
+
+  private void applyImpl(MetadataOp op) {
+    switch (op.type) {
+      case CREATE:
+        createImpl(op.path, op.data, false);
+        break;
+      case PUT:
+        putImpl(op.path, op.data);
+        break;
+      case DELETE:
+        deleteImpl(op.path);
+        break;
+      default:
+        throw new IllegalArgumentException("Unknown op type " + op.type);
+    }
+  }
+
+  private void batchImpl(List<MetadataOp> ops, List<SettableFuture<Object>> results) {
+    try {
+      metadataBatchCounter.increment();
+      metadataWriteCounter.increment(ops.size());
+      LOG.info("Applying a batch of {} ops", ops.size());
+      List<CuratorOp> curatorOps = new ArrayList<>(ops.size());
+      for (MetadataOp op : ops) {
+        curatorOps.add(toCuratorOp(op));
+      }
+      curator.transaction().forOperations(curatorOps);
+      results.forEach((result) -> result.set(null));
+    } catch (Exception e) {
+      // A ZK transaction is atomic, so a single failed op fails the whole batch. Retry the ops one
+      // at a time, to apply the ops that can be applied and to tell which ones failed.
+      metadataBatchFailedCounter.increment();
+      LOG.warn("Failed to apply a batch of {} ops, applying them one at a time", ops.size(), e);
+      for (int i = 0; i < ops.size(); i++) {
+        try {
+          applyImpl(ops.get(i));
+          results.get(i).set(null);
+        } catch (Exception opException) {
+          results.get(i).setException(opException);
+        }
+      }
+    }
+  }
+
+  private void transactionImpl(List<MetadataOp> ops) {
+    try {
+      metadataWriteCounter.increment(ops.size());
+      LOG.info("Applying a transaction of {} ops", ops.size());
+      List<CuratorOp> curatorOps = new ArrayList<>(ops.size());
+      for (MetadataOp op : ops) {
+        curatorOps.add(toCuratorOp(op));
+      }
+      curator.transaction().forOperations(curatorOps);
+    } catch (KeeperException e) {
+      zkFailureCounter.increment();
+      LOG.warn("Failed with a ZK exception when applying a transaction of {}", ops, e);
+      throw new InternalMetadataStoreException("Applying a transaction of " + ops.size() + " ops");
+    } catch (Exception e) {
+      failureCounter.increment();
+      LOG.error("Failed with an unknown error {}", e.getMessage(), e);
+      throw new InternalMetadataStoreException("Applying a transaction of " + ops.size() + " ops");
+    }
+  }
+
+  @Override
+  public ListenableFuture<?> transaction(List<MetadataOp> ops) {
+    return metadataExecutorService.submit(() -> transactionImpl(ops));
+  }
+
+  private List<ListenableFuture<?>> submitBatch(List<MetadataOp> ops) {
+    List<SettableFuture<Object>> results = new ArrayList<>(ops.size());
+    for (int i = 0; i < ops.size(); i++) {
+      results.add(SettableFuture.create());
+    }
+    metadataExecutorService.execute(() -> batchImpl(ops, results));
+    return List.copyOf(results);
+  }
+
+  @Override
+  public List<ListenableFuture<?>> batch(List<MetadataOp> ops) {
+    List<ListenableFuture<?>> results = new ArrayList<>(ops.size());
+    List<MetadataOp> batch = new ArrayList<>();
+    int batchBytes = 0;
+    for (MetadataOp op : ops) {
+      if (!batch.isEmpty()
+          && (batch.size() >= MAX_BATCH_OPS || batchBytes + op.sizeBytes() > MAX_BATCH_BYTES)) {
+        results.addAll(submitBatch(batch));
+        batch = new ArrayList<>();
+        batchBytes = 0;
+      }
+      batch.add(op);
+      batchBytes += op.sizeBytes();
+    }
+    if (!batch.isEmpty()) {
+      results.addAll(submitBatch(batch));
+    }
+    return results;
+  }
+
+  private void addPersistentWatchImpl(String path, Watcher watcher) {
+    try {
+      metadataReadCounter.increment();
+      curator
+          .watchers()
+          .add()
+          .withMode(AddWatchMode.PERSISTENT)
+          .usingWatcher(watcher)
+          .forPath(path);
+    } catch (KeeperException e) {
+      zkFailureCounter.increment();
+      LOG.warn("Failed with a ZK exception when watching node at {}", path, e);
+      throw new InternalMetadataStoreException("Watching node at " + path);
+    } catch (Exception e) {
+      failureCounter.increment();
+      LOG.error("Failed with an unknown error {}", e.getMessage(), e);
+      throw new InternalMetadataStoreException("Watching node at " + path);
+    }
+  }
+
+  @Override
+  public ListenableFuture<?> addPersistentWatch(String path, Watcher watcher) {
+    return metadataExecutorService.submit(() -> addPersistentWatchImpl(path, watcher));
+  }
+
+  private void removeWatchImpl(String path, Watcher watcher) {
+    try {
+      curator.watchers().remove(watcher).ofType(Watcher.WatcherType.Any).quietly().forPath(path);
+    } catch (Exception e) {
+      failureCounter.increment();
+      LOG.error("Failed with an unknown error {}", e.getMessage(), e);
+      throw new InternalMetadataStoreException("Removing watch on node at " + path);
+    }
+  }
+
+  @Override
+  public ListenableFuture<?> removeWatch(String path, Watcher watcher) {
+    return metadataExecutorService.submit(() -> removeWatchImpl(path, watcher));
+  }
+
   private List<String> getChildrenImpl(String path) {
     List<String> result;
     try {
@@ -392,6 +618,11 @@ public class ZookeeperMetadataStoreImpl implements MetadataStore {
     return metadataExecutorService.submit(() -> getChildrenImpl(path));
   }
 
+  @Override
+  public boolean useBinaryEncoding() {
+    return binaryEncoding;
+  }
+
   /**
    * This implementation uses a CachedMetadataStore, a wrapper on curator cache, to cache all the
    * nodes under a given path.
@@ -402,7 +633,13 @@ public class ZookeeperMetadataStoreImpl implements MetadataStore {
     if (!existsImpl(path)) {
       throw new NoNodeException("Node doesn't exist at path: " + path);
     }
-    return new ZookeeperCachedMetadataStoreImpl<>(path, metadataSerializer, curator, meterRegistry);
+    return new ZookeeperCachedMetadataStoreImpl<>(
+        path,
+        metadataSerializer,
+        curator,
+        meterRegistry,
+        notificationDebounceMs,
+        notificationMaxLatencyMs);
   }
 
   @VisibleForTesting
@@ -0,0 +1,115 @@
+package com.slack.kaldb.recovery;
+
+import static com.slack.kaldb.server.KaldbConfig.DEFAULT_START_STOP_DURATION;
+import static com.slack.kaldb.server.ValidateKaldbConfig.INDEXER_DATA_TRANSFORMER_MAP;
+
+import com.google.protobuf.TextFormat;
+import com.slack.kaldb.blobfs.BlobFs;
+import com.slack.kaldb.chunkManager.RecoveryChunkManager;
+import com.slack.kaldb.logstore.LogMessage;
+import com.slack.kaldb.metadata.search.SearchMetadataStore;
+import com.slack.kaldb.metadata.snapshot.SnapshotMetadataStore;
+import com.slack.kaldb.proto.config.KaldbConfigs;
+import com.slack.kaldb.writer.LogMessageTransformer;
+import com.slack.kaldb.writer.LogMessageWriterImpl;
+import com.slack.kaldb.writer.kafka.KaldbKafkaConsumer;
+import io.micrometer.core.instrument.MeterRegistry;
+import java.util.concurrent.atomic.AtomicLong;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * The OffsetRangeIndexer indexes the messages between a start and end offset of a kafka partition
+ * in parallel, into a single recovery chunk which is uploaded to S3 and published as a snapshot
+ * once all the messages are indexed.
+ *
+ * <p>A recovery node uses it to recover the offsets of a recovery task, and an indexer uses it to
+ * catch up with the head of its partition before indexing live data.
+ */
+public class OffsetRangeIndexer {
+  private static final Logger LOG = LoggerFactory.getLogger(OffsetRangeIndexer.class);
+
+  private final KaldbConfigs.IndexerConfig indexerConfig;
+  private final KaldbConfigs.KafkaConfig kafkaConfig;
+  private final KaldbConfigs.S3Config s3Config;
+  private final boolean writerPerThread;
+  private final SearchMetadataStore searchMetadataStore;
+  private final SnapshotMetadataStore snapshotMetadataStore;
+  private final BlobFs blobFs;
+  private final MeterRegistry meterRegistry;
+
+  public OffsetRangeIndexer(
+      KaldbConfigs.IndexerConfig indexerConfig,
+      KaldbConfigs.KafkaConfig kafkaConfig,
+      KaldbConfigs.S3Config s3Config,
+      boolean writerPerThread,
+      SearchMetadataStore searchMetadataStore,
+      SnapshotMetadataStore snapshotMetadataStore,
+      BlobFs blobFs,
+      MeterRegistry meterRegistry) {
+    this.indexerConfig = indexerConfig;
+    this.kafkaConfig = kafkaConfig;
+    this.s3Config = s3Config;
+    this.writerPerThread = writerPerThread;
+    this.searchMetadataStore = searchMetadataStore;
+    this.snapshotMetadataStore = snapshotMetadataStore;
+    this.blobFs = blobFs;
+    this.meterRegistry = meterRegistry;
+  }
+
+  /**
+   * To index an offset range, we create a recovery chunk manager, create a kafka consumer for the
+   * partition, index the data in parallel, upload the data to S3 and close all the components
+   * correctly. We return true only if all the messages of the offset range are durable in S3.
+   *
+   * @param messagesConsumed is updated with the number of messages consumed so far.
+   */
+  public boolean indexOffsetRange(
+      String partitionId, long startOffset, long endOffset, AtomicLong messagesConsumed)
+      throws Exception {
+    RecoveryChunkManager<LogMessage> chunkManager =
+        RecoveryChunkManager.fromConfig(
+            meterRegistry,
+            searchMetadataStore,
+            snapshotMetadataStore,
+            indexerConfig,
+            blobFs,
+            s3Config,
+            writerPerThread);
+    // Ingest data in parallel
+    LogMessageTransformer messageTransformer =
+        INDEXER_DATA_TRANSFORMER_MAP.get(indexerConfig.getDataTransformer());
+    LogMessageWriterImpl logMessageWriterImpl =
+        new LogMessageWriterImpl(chunkManager, messageTransformer);
+    KaldbKafkaConsumer kafkaConsumer =
+        KaldbKafkaConsumer.fromConfig(
+            makeKafkaConfig(kafkaConfig, partitionId), logMessageWriterImpl, meterRegistry);
+    kafkaConsumer.prepConsumerForConsumption(startOffset);
+    boolean consumed =
+        kafkaConsumer.consumeMessagesBetweenOffsetsInParallel(
+            KaldbKafkaConsumer.KAFKA_POLL_TIMEOUT_MS, startOffset, endOffset, messagesConsumed);
+    if (!consumed) {
+      LOG.error(
+          "Failed to index the messages between offsets {} and {} of partition {}",
+          startOffset,
+          endOffset,
+          partitionId);
+    }
+    // Wait for chunks to upload, unless some messages are missing from them.
+    boolean success = consumed && chunkManager.waitForRollOvers();
+    // Close the recovery chunk manager and kafka consumer.
+    kafkaConsumer.close();
+    chunkManager.stopAsync();
+    chunkManager.awaitTerminated(DEFAULT_START_STOP_DURATION);
+    return success;
+  }
+
+  // Replace the Kafka PartitionId from the kafkaConfig added.
+  private static KaldbConfigs.KafkaConfig makeKafkaConfig(
+      KaldbConfigs.KafkaConfig kafkaConfig, String partitionId) throws TextFormat.ParseException {
+    KaldbConfigs.KafkaConfig.Builder builder = KaldbConfigs.KafkaConfig.newBuilder();
+    TextFormat.merge(kafkaConfig.toString(), builder);
+    builder.setKafkaTopicPartition(partitionId);
+    return builder.build();
+  }
+}
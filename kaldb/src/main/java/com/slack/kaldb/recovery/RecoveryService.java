@@ -1,17 +1,11 @@
 package com.slack.kaldb.recovery;
 
-import static com.slack.kaldb.server.KaldbConfig.DEFAULT_START_STOP_DURATION;
-import static com.slack.kaldb.server.ValidateKaldbConfig.INDEXER_DATA_TRANSFORMER_MAP;
-
 import com.google.common.annotations.VisibleForTesting;
 import com.google.common.collect.ImmutableList;
 import com.google.common.util.concurrent.AbstractIdleService;
 import com.google.common.util.concurrent.ThreadFactoryBuilder;
-import com.google.protobuf.TextFormat;
 import com.slack.kaldb.blobfs.BlobFs;
 import com.slack.kaldb.chunk.SearchContext;
-import com.slack.kaldb.chunkManager.RecoveryChunkManager;
-import com.slack.kaldb.logstore.LogMessage;
 import com.slack.kaldb.metadata.core.KaldbMetadataStoreChangeListener;
 import com.slack.kaldb.metadata.recovery.RecoveryNodeMetadata;
 import com.slack.kaldb.metadata.recovery.RecoveryNodeMetadataStore;
@@ -22,9 +16,6 @@ import com.slack.kaldb.metadata.snapshot.SnapshotMetadataStore;
 import com.slack.kaldb.metadata.zookeeper.MetadataStore;
 import com.slack.kaldb.proto.config.KaldbConfigs;
 import com.slack.kaldb.proto.metadata.Metadata;
-import com.slack.kaldb.writer.LogMessageTransformer;
-import com.slack.kaldb.writer.LogMessageWriterImpl;
-import com.slack.kaldb.writer.kafka.KaldbKafkaConsumer;
 import io.micrometer.core.instrument.Counter;
 import io.micrometer.core.instrument.MeterRegistry;
 import io.micrometer.core.instrument.Tag;
@@ -32,6 +23,7 @@ import java.time.Instant;
 import java.util.Collection;
 import java.util.concurrent.ExecutorService;
 import java.util.concurrent.Executors;
+import java.util.concurrent.atomic.AtomicLong;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
@@ -71,7 +63,14 @@ public class RecoveryService extends AbstractIdleService {
   protected final Counter recoveryNodeAssignmentReceived;
   protected final Counter recoveryNodeAssignmentSuccess;
   protected final Counter recoveryNodeAssignmentFailed;
+
+  // The progress of the task being recovered, which is 0 of 0 messages while the node is free.
+  public static final String RECOVERY_TASK_MESSAGES = "recovery_task_messages";
+  public static final String RECOVERY_TASK_MESSAGES_CONSUMED = "recovery_task_messages_consumed";
+  protected final AtomicLong recoveryTaskMessages;
+  protected final AtomicLong recoveryTaskMessagesConsumed;
   private SearchMetadataStore searchMetadataStore;
+  private OffsetRangeIndexer offsetRangeIndexer;
 
   public RecoveryService(
       KaldbConfigs.KaldbConfig kaldbConfig,
@@ -98,6 +97,9 @@ public class RecoveryService extends AbstractIdleService {
         meterRegistry.counter(RECOVERY_NODE_ASSIGNMENT_SUCCESS, meterTags);
     recoveryNodeAssignmentFailed =
         meterRegistry.counter(RECOVERY_NODE_ASSIGNMENT_FAILED, meterTags);
+    recoveryTaskMessages = meterRegistry.gauge(RECOVERY_TASK_MESSAGES, meterTags, new AtomicLong());
+    recoveryTaskMessagesConsumed =
+        meterRegistry.gauge(RECOVERY_TASK_MESSAGES_CONSUMED, meterTags, new AtomicLong());
   }
 
   @Override
@@ -108,6 +110,16 @@ public class RecoveryService extends AbstractIdleService {
     recoveryTaskMetadataStore = new RecoveryTaskMetadataStore(metadataStore, false);
     snapshotMetadataStore = new SnapshotMetadataStore(metadataStore, false);
     searchMetadataStore = new SearchMetadataStore(metadataStore, false);
+    offsetRangeIndexer =
+        new OffsetRangeIndexer(
+            kaldbConfig.getIndexerConfig(),
+            kaldbConfig.getKafkaConfig(),
+            kaldbConfig.getS3Config(),
+            kaldbConfig.getRecoveryConfig().getIndexWriterPerThread(),
+            searchMetadataStore,
+            snapshotMetadataStore,
+            blobFs,
+            meterRegistry);
 
     recoveryNodeMetadataStore.createSync(
         new RecoveryNodeMetadata(
@@ -205,59 +217,28 @@ public class RecoveryService extends AbstractIdleService {
 
   /**
    * This method does the recovery work from a recovery task. A recovery task indicates the start
-   * and end offset of a kafka partition to index. To do the recovery work, we create a recovery
-   * chunk manager, create a kafka consumer for the recovery partition, indexes the data in
-   * parallel, uploads the data to S3 and closes all the components correctly. We return true if the
-   * operation succeeded.
+   * and end offset of a kafka partition to index, which the offset range indexer indexes in
+   * parallel and uploads to S3. We return true if the operation succeeded.
    */
   @VisibleForTesting
   boolean handleRecoveryTask(RecoveryTaskMetadata recoveryTaskMetadata) {
+    recoveryTaskMessages.set(recoveryTaskMetadata.getOffsetCount());
+    recoveryTaskMessagesConsumed.set(0);
     try {
-      RecoveryChunkManager<LogMessage> chunkManager =
-          RecoveryChunkManager.fromConfig(
-              meterRegistry,
-              searchMetadataStore,
-              snapshotMetadataStore,
-              kaldbConfig.getIndexerConfig(),
-              blobFs,
-              kaldbConfig.getS3Config());
-      // Ingest data in parallel
-      LogMessageTransformer messageTransformer =
-          INDEXER_DATA_TRANSFORMER_MAP.get(kaldbConfig.getIndexerConfig().getDataTransformer());
-      LogMessageWriterImpl logMessageWriterImpl =
-          new LogMessageWriterImpl(chunkManager, messageTransformer);
-      KaldbKafkaConsumer kafkaConsumer =
-          KaldbKafkaConsumer.fromConfig(
-              makeKafkaConfig(kaldbConfig.getKafkaConfig(), recoveryTaskMetadata.partitionId),
-              logMessageWriterImpl,
-              meterRegistry);
-      kafkaConsumer.prepConsumerForConsumption(recoveryTaskMetadata.startOffset);
-      kafkaConsumer.consumeMessagesBetweenOffsetsInParallel(
-          KaldbKafkaConsumer.KAFKA_POLL_TIMEOUT_MS,
+      return offsetRangeIndexer.indexOffsetRange(
+          recoveryTaskMetadata.partitionId,
           recoveryTaskMetadata.startOffset,
-          recoveryTaskMetadata.endOffset);
-      // Wait for chunks to upload.
-      boolean success = chunkManager.waitForRollOvers();
-      // Close the recovery chunk manager and kafka consumer.
-      kafkaConsumer.close();
-      chunkManager.stopAsync();
-      chunkManager.awaitTerminated(DEFAULT_START_STOP_DURATION);
-      return success;
+          recoveryTaskMetadata.endOffset,
+          recoveryTaskMessagesConsumed);
     } catch (Exception ex) {
       LOG.error("Exception in recovery task [{}]: {}", recoveryTaskMetadata, ex);
       return false;
+    } finally {
+      recoveryTaskMessages.set(0);
+      recoveryTaskMessagesConsumed.set(0);
     }
   }
 
-  // Replace the Kafka PartitionId from the kafkaConfig added.
-  private KaldbConfigs.KafkaConfig makeKafkaConfig(
-      KaldbConfigs.KafkaConfig kafkaConfig, String partitionId) throws TextFormat.ParseException {
-    KaldbConfigs.KafkaConfig.Builder builder = KaldbConfigs.KafkaConfig.newBuilder();
-    TextFormat.merge(kafkaConfig.toString(), builder);
-    builder.setKafkaTopicPartition(partitionId);
-    return builder.build();
-  }
-
   private void setRecoveryNodeMetadataState(
       Metadata.RecoveryNodeMetadata.RecoveryNodeState newRecoveryNodeState) {
     RecoveryNodeMetadata recoveryNodeMetadata =
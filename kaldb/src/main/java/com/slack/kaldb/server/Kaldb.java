@@ -9,6 +9,7 @@ import com.slack.kaldb.chunkManager.CachingChunkManager;
 import com.slack.kaldb.chunkManager.ChunkCleanerService;
 import com.slack.kaldb.chunkManager.IndexingChunkManager;
 import com.slack.kaldb.clusterManager.ClusterMonitorService;
+import com.slack.kaldb.clusterManager.ClusterState;
 import com.slack.kaldb.clusterManager.RecoveryTaskAssignmentService;
 import com.slack.kaldb.clusterManager.ReplicaAssignmentService;
 import com.slack.kaldb.clusterManager.ReplicaCreationService;
@@ -20,12 +21,16 @@ import com.slack.kaldb.elasticsearchApi.ElasticsearchApiService;
 import com.slack.kaldb.logstore.LogMessage;
 import com.slack.kaldb.logstore.search.KaldbDistributedQueryService;
 import com.slack.kaldb.logstore.search.KaldbLocalQueryService;
+import com.slack.kaldb.logstore.search.SnapshotHeatRecorder;
+import com.slack.kaldb.metadata.cache.CacheNodeMetadataStore;
 import com.slack.kaldb.metadata.cache.CacheSlotMetadataStore;
 import com.slack.kaldb.metadata.dataset.DatasetMetadataStore;
 import com.slack.kaldb.metadata.recovery.RecoveryNodeMetadataStore;
 import com.slack.kaldb.metadata.recovery.RecoveryTaskMetadataStore;
 import com.slack.kaldb.metadata.replica.ReplicaMetadataStore;
 import com.slack.kaldb.metadata.search.SearchMetadataStore;
+import com.slack.kaldb.metadata.search.SearchNodeMetadataStore;
+import com.slack.kaldb.metadata.snapshot.SnapshotHeatMetadataStore;
 import com.slack.kaldb.metadata.snapshot.SnapshotMetadataStore;
 import com.slack.kaldb.metadata.zookeeper.MetadataStore;
 import com.slack.kaldb.metadata.zookeeper.MetadataStoreLifecycleManager;
@@ -130,7 +135,7 @@ public class Kaldb {
             prometheusMeterRegistry, kaldbConfig.getMetadataStoreConfig().getZookeeperConfig());
 
     // Initialize blobfs. Only S3 is supported currently.
-    S3BlobFs s3BlobFs = new S3BlobFs(s3Client);
+    S3BlobFs s3BlobFs = S3BlobFs.fromConfig(s3Client, kaldbConfig.getS3Config());
 
     Set<Service> services =
         getServices(metadataStore, kaldbConfig, s3BlobFs, prometheusMeterRegistry);
@@ -172,6 +177,8 @@ public class Kaldb {
               metadataStore,
               kaldbConfig.getIndexerConfig(),
               kaldbConfig.getKafkaConfig(),
+              blobFs,
+              kaldbConfig.getS3Config(),
               meterRegistry);
       services.add(indexer);
 
@@ -193,18 +200,40 @@ public class Kaldb {
 
     if (roles.contains(KaldbConfigs.NodeRole.QUERY)) {
       SearchMetadataStore searchMetadataStore = new SearchMetadataStore(metadataStore, true);
+      SearchNodeMetadataStore searchNodeMetadataStore =
+          new SearchNodeMetadataStore(metadataStore, true);
       SnapshotMetadataStore snapshotMetadataStore = new SnapshotMetadataStore(metadataStore, true);
       DatasetMetadataStore datasetMetadataStore = new DatasetMetadataStore(metadataStore, true);
+      SnapshotHeatMetadataStore snapshotHeatMetadataStore =
+          new SnapshotHeatMetadataStore(metadataStore, false);
       services.add(
           new MetadataStoreLifecycleManager(
-              KaldbConfigs.NodeRole.QUERY, List.of(searchMetadataStore, snapshotMetadataStore)));
+              KaldbConfigs.NodeRole.QUERY,
+              List.of(
+                  searchMetadataStore,
+                  searchNodeMetadataStore,
+                  snapshotMetadataStore,
+                  snapshotHeatMetadataStore)));
+      KaldbConfigs.ServerConfig queryServerConfig = kaldbConfig.getQueryConfig().getServerConfig();
+      SnapshotHeatRecorder snapshotHeatRecorder =
+          new SnapshotHeatRecorder(
+              snapshotHeatMetadataStore,
+              String.format(
+                  "%s:%s", queryServerConfig.getServerAddress(), queryServerConfig.getServerPort()),
+              kaldbConfig.getQueryConfig().getSnapshotHeatPublishSecs(),
+              meterRegistry);
+      if (snapshotHeatRecorder.isEnabled()) {
+        services.add(snapshotHeatRecorder);
+      }
       Duration requestTimeout =
           Duration.ofMillis(kaldbConfig.getQueryConfig().getServerConfig().getRequestTimeoutMs());
       KaldbDistributedQueryService kaldbDistributedQueryService =
           new KaldbDistributedQueryService(
               searchMetadataStore,
+              searchNodeMetadataStore,
               snapshotMetadataStore,
               datasetMetadataStore,
+              snapshotHeatRecorder,
               meterRegistry,
               requestTimeout,
               Duration.ofMillis(kaldbConfig.getQueryConfig().getDefaultQueryTimeoutMs()));
@@ -258,7 +287,11 @@ public class Kaldb {
           new RecoveryNodeMetadataStore(metadataStore, true);
       CacheSlotMetadataStore cacheSlotMetadataStore =
           new CacheSlotMetadataStore(metadataStore, true);
+      CacheNodeMetadataStore cacheNodeMetadataStore =
+          new CacheNodeMetadataStore(metadataStore, true);
       DatasetMetadataStore datasetMetadataStore = new DatasetMetadataStore(metadataStore, true);
+      SnapshotHeatMetadataStore snapshotHeatMetadataStore =
+          new SnapshotHeatMetadataStore(metadataStore, true);
 
       Duration requestTimeout =
           Duration.ofMillis(kaldbConfig.getManagerConfig().getServerConfig().getRequestTimeoutMs());
@@ -284,16 +317,31 @@ public class Kaldb {
                   snapshotMetadataStore,
                   recoveryTaskMetadataStore,
                   recoveryNodeMetadataStore,
-                  cacheSlotMetadataStore)));
+                  cacheSlotMetadataStore,
+                  cacheNodeMetadataStore,
+                  snapshotHeatMetadataStore)));
+
+      // The replica services share one model of the cluster, which tracks the store changes once.
+      ClusterState clusterState =
+          new ClusterState(
+              replicaMetadataStore,
+              snapshotMetadataStore,
+              cacheSlotMetadataStore,
+              cacheNodeMetadataStore);
 
       ReplicaCreationService replicaCreationService =
           new ReplicaCreationService(
-              replicaMetadataStore, snapshotMetadataStore, managerConfig, meterRegistry);
+              replicaMetadataStore,
+              snapshotMetadataStore,
+              snapshotHeatMetadataStore,
+              clusterState,
+              managerConfig,
+              meterRegistry);
       services.add(replicaCreationService);
 
       ReplicaEvictionService replicaEvictionService =
           new ReplicaEvictionService(
-              cacheSlotMetadataStore, replicaMetadataStore, managerConfig, meterRegistry);
+              cacheSlotMetadataStore, clusterState, managerConfig, meterRegistry);
       services.add(replicaEvictionService);
 
       ReplicaDeletionService replicaDeletionService =
@@ -308,7 +356,12 @@ public class Kaldb {
 
       ReplicaAssignmentService replicaAssignmentService =
           new ReplicaAssignmentService(
-              cacheSlotMetadataStore, replicaMetadataStore, managerConfig, meterRegistry);
+              cacheSlotMetadataStore,
+              cacheNodeMetadataStore,
+              replicaMetadataStore,
+              clusterState,
+              managerConfig,
+              meterRegistry);
       services.add(replicaAssignmentService);
 
       SnapshotDeletionService snapshotDeletionService =
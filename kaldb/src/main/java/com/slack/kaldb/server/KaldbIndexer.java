@@ -5,19 +5,24 @@ import static com.slack.kaldb.server.KaldbConfig.DEFAULT_START_STOP_DURATION;
 import static com.slack.kaldb.server.ValidateKaldbConfig.INDEXER_DATA_TRANSFORMER_MAP;
 
 import com.google.common.util.concurrent.AbstractExecutionThreadService;
+import com.slack.kaldb.blobfs.BlobFs;
 import com.slack.kaldb.chunkManager.ChunkRollOverException;
 import com.slack.kaldb.chunkManager.IndexingChunkManager;
 import com.slack.kaldb.logstore.LogMessage;
 import com.slack.kaldb.metadata.recovery.RecoveryTaskMetadataStore;
+import com.slack.kaldb.metadata.search.SearchMetadataStore;
 import com.slack.kaldb.metadata.snapshot.SnapshotMetadataStore;
 import com.slack.kaldb.metadata.zookeeper.MetadataStore;
 import com.slack.kaldb.proto.config.KaldbConfigs;
+import com.slack.kaldb.recovery.OffsetRangeIndexer;
 import com.slack.kaldb.util.RuntimeHalterImpl;
 import com.slack.kaldb.writer.LogMessageTransformer;
 import com.slack.kaldb.writer.LogMessageWriterImpl;
 import com.slack.kaldb.writer.kafka.KaldbKafkaConsumer;
 import io.micrometer.core.instrument.MeterRegistry;
 import java.io.IOException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
@@ -34,6 +39,16 @@ public class KaldbIndexer extends AbstractExecutionThreadService {
   private final KaldbConfigs.KafkaConfig kafkaConfig;
   private final KaldbKafkaConsumer kafkaConsumer;
   private final IndexingChunkManager<LogMessage> chunkManager;
+  private final BlobFs blobFs;
+  private final KaldbConfigs.S3Config s3Config;
+
+  // The backlog of offsets [catchUpStartOffset, catchUpEndOffset] to catch up before indexing live
+  // data, which is empty unless the indexer started far enough behind the head of its partition.
+  private long catchUpStartOffset = 0;
+  private long catchUpEndOffset = -1;
+
+  public static final String CATCH_UP_MESSAGES_REMAINING = "indexer_catch_up_messages_remaining";
+  private final AtomicLong catchUpMessagesRemaining;
 
   /**
    * This class contains the code to needed to run a single instance of an Kaldb indexer. A single
@@ -50,19 +65,40 @@ public class KaldbIndexer extends AbstractExecutionThreadService {
    * <p>On an indexer restart, we should start indexing at a last known good offset for that
    * partition. The indexer pre-start job, ensures that we choose the correct start offset and end
    * offset for the indexer. Optionally, the pre start task also creates an recovery task if needed,
-   * since the indexer may not be able to catch up.
+   * since the indexer may not be able to catch up. When the indexer is behind by at least the
+   * configured catch up messages, it catches up by indexing the backlog in parallel before it
+   * starts indexing live data.
+   */
+  public KaldbIndexer(
+      IndexingChunkManager<LogMessage> chunkManager,
+      MetadataStore metadataStore,
+      KaldbConfigs.IndexerConfig indexerConfig,
+      KaldbConfigs.KafkaConfig kafkaConfig,
+      MeterRegistry meterRegistry) {
+    this(chunkManager, metadataStore, indexerConfig, kafkaConfig, null, null, meterRegistry);
+  }
+
+  /**
+   * Create an indexer that can upload the chunks it catches up with to the given blob store. An
+   * indexer created without a blob store never catches up.
    */
   public KaldbIndexer(
       IndexingChunkManager<LogMessage> chunkManager,
       MetadataStore metadataStore,
       KaldbConfigs.IndexerConfig indexerConfig,
       KaldbConfigs.KafkaConfig kafkaConfig,
+      BlobFs blobFs,
+      KaldbConfigs.S3Config s3Config,
       MeterRegistry meterRegistry) {
     checkNotNull(chunkManager, "Chunk manager can't be null");
     this.metadataStore = metadataStore;
     this.indexerConfig = indexerConfig;
     this.kafkaConfig = kafkaConfig;
+    this.blobFs = blobFs;
+    this.s3Config = s3Config;
     this.meterRegistry = meterRegistry;
+    this.catchUpMessagesRemaining =
+        meterRegistry.gauge(CATCH_UP_MESSAGES_REMAINING, new AtomicLong());
 
     // Create a chunk manager
     this.chunkManager = chunkManager;
@@ -113,6 +149,22 @@ public class KaldbIndexer extends AbstractExecutionThreadService {
     long currentHeadOffsetForPartition = kafkaConsumer.getEndOffSetForPartition();
     long startOffset = recoveryTaskCreator.determineStartingOffset(currentHeadOffsetForPartition);
 
+    // Catch up with the backlog before indexing live data from the head, if we are far behind.
+    long catchUpMinMessages = indexerConfig.getCatchUpMinMessages();
+    if (blobFs != null
+        && catchUpMinMessages > 0
+        && startOffset > 0
+        && currentHeadOffsetForPartition - startOffset >= catchUpMinMessages) {
+      LOG.info(
+          "Catching up with the offsets {} to {} of partition {} before indexing live data.",
+          startOffset,
+          currentHeadOffsetForPartition - 1,
+          partitionId);
+      catchUpStartOffset = startOffset;
+      catchUpEndOffset = currentHeadOffsetForPartition - 1;
+      startOffset = currentHeadOffsetForPartition;
+    }
+
     // Close these stores since we don't need them after preStart.
     snapshotMetadataStore.close();
     recoveryTaskMetadataStore.close();
@@ -121,9 +173,93 @@ public class KaldbIndexer extends AbstractExecutionThreadService {
     return startOffset;
   }
 
+  /**
+   * Index the backlog of offsets from the pre start in parallel, into recovery chunks of at most
+   * max messages per chunk. Like the output of a recovery task, each of those chunks is uploaded
+   * and published as a snapshot, so the highest durable offset of the partition moves forward as
+   * the catch up progresses, and a restarted indexer resumes from there.
+   *
+   * <p>Since the live data is indexed from the head, the offsets that we fail to catch up with are
+   * handed to the recovery nodes as recovery tasks instead.
+   */
+  private void catchUp() throws Exception {
+    String partitionId = kafkaConfig.getKafkaTopicPartition();
+    long maxMessagesPerChunk = indexerConfig.getMaxMessagesPerChunk();
+    SearchMetadataStore searchMetadataStore = new SearchMetadataStore(metadataStore, false);
+    SnapshotMetadataStore snapshotMetadataStore = new SnapshotMetadataStore(metadataStore, false);
+    OffsetRangeIndexer offsetRangeIndexer =
+        new OffsetRangeIndexer(
+            indexerConfig,
+            kafkaConfig,
+            s3Config,
+            true,
+            searchMetadataStore,
+            snapshotMetadataStore,
+            blobFs,
+            meterRegistry);
+
+    long startOffset = catchUpStartOffset;
+    long catchUpStartTime = System.nanoTime();
+    try {
+      while (startOffset <= catchUpEndOffset && isRunning()) {
+        catchUpMessagesRemaining.set(catchUpEndOffset - startOffset + 1);
+        long endOffset = Math.min(startOffset + maxMessagesPerChunk - 1, catchUpEndOffset);
+        if (!offsetRangeIndexer.indexOffsetRange(
+            partitionId, startOffset, endOffset, new AtomicLong())) {
+          break;
+        }
+        startOffset = endOffset + 1;
+      }
+    } catch (Exception e) {
+      LOG.error("Failed to catch up with the offsets of partition {}", partitionId, e);
+    }
+
+    // A shut down indexer resumes the catch up from the highest durable offset on restart.
+    if (startOffset <= catchUpEndOffset && isRunning()) {
+      LOG.warn(
+          "Creating recovery tasks for the offsets {} to {} of partition {} that failed to catch up",
+          startOffset,
+          catchUpEndOffset,
+          partitionId);
+      RecoveryTaskMetadataStore recoveryTaskMetadataStore =
+          new RecoveryTaskMetadataStore(metadataStore, false);
+      new RecoveryTaskCreator(
+              snapshotMetadataStore,
+              recoveryTaskMetadataStore,
+              partitionId,
+              indexerConfig.getMaxOffsetDelayMessages(),
+              maxMessagesPerChunk,
+              meterRegistry)
+          .createRecoveryTasks(partitionId, startOffset, catchUpEndOffset, maxMessagesPerChunk);
+      recoveryTaskMetadataStore.close();
+    } else {
+      LOG.info(
+          "Caught up with the offsets {} to {} of partition {} in {} ms",
+          catchUpStartOffset,
+          startOffset - 1,
+          partitionId,
+          TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - catchUpStartTime));
+    }
+    catchUpMessagesRemaining.set(0);
+    searchMetadataStore.close();
+    snapshotMetadataStore.close();
+  }
+
   protected void run() throws Exception {
+    if (catchUpStartOffset <= catchUpEndOffset) {
+      try {
+        catchUp();
+      } catch (Exception e) {
+        // The live data is indexed from the head, so we can't skip the backlog.
+        LOG.error("FATAL: Failed to hand the backlog over to the recovery nodes.", e);
+        new RuntimeHalterImpl().handleFatal(e);
+      }
+    }
     while (isRunning()) {
       try {
+        // Apply back pressure when chunks are rolled over slower than they are filled up. The
+        // consumer is resumed once one of the pending roll overs completes.
+        kafkaConsumer.setPaused(chunkManager.isRolloverCapacityExhausted());
         kafkaConsumer.consumeMessages();
       } catch (ChunkRollOverException | IOException e) {
         // Once we hit these exceptions, we likely have an issue related to storage. So, terminate
@@ -0,0 +1,118 @@
+package com.slack.kaldb.util;
+
+import java.util.ArrayDeque;
+import java.util.Deque;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.Executor;
+import java.util.concurrent.RejectedExecutionException;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * Runs tasks on a shared executor, while running the tasks submitted for the same key one at a
+ * time, in the order they were submitted. This gives every key the ordering of a single thread
+ * executor, without a dedicated thread per key. A queued task only occupies a thread of the shared
+ * executor while it runs, and every task is scheduled separately so a key with a long queue can't
+ * starve the others.
+ */
+public class KeyedSerialExecutor {
+  private static final Logger LOG = LoggerFactory.getLogger(KeyedSerialExecutor.class);
+
+  private final Executor executor;
+  private final ConcurrentMap<String, SerialQueue> queues = new ConcurrentHashMap<>();
+
+  private static class SerialQueue {
+    private final Deque<Runnable> tasks = new ArrayDeque<>();
+    private boolean scheduled = false;
+    private boolean shutdown = false;
+    private Thread runner = null;
+  }
+
+  public KeyedSerialExecutor(Executor executor) {
+    this.executor = executor;
+  }
+
+  /**
+   * Queues the task to run after all the earlier tasks of the key.
+   *
+   * @throws RejectedExecutionException if the key was shut down
+   */
+  public void execute(String key, Runnable task) {
+    SerialQueue queue = queues.computeIfAbsent(key, (k) -> new SerialQueue());
+    synchronized (queue) {
+      if (queue.shutdown) {
+        throw new RejectedExecutionException("Tasks for key " + key + " were shut down");
+      }
+      queue.tasks.add(task);
+      if (queue.scheduled) {
+        return;
+      }
+      queue.scheduled = true;
+    }
+    schedule(key, queue);
+  }
+
+  /**
+   * Drops the queued tasks of the key, interrupts its running task and rejects any further tasks
+   * for it. The other keys are not affected.
+   */
+  public void shutdownNow(String key) {
+    SerialQueue queue = queues.computeIfAbsent(key, (k) -> new SerialQueue());
+    synchronized (queue) {
+      queue.shutdown = true;
+      queue.tasks.clear();
+      if (queue.runner != null) {
+        queue.runner.interrupt();
+      }
+    }
+  }
+
+  private void schedule(String key, SerialQueue queue) {
+    try {
+      executor.execute(() -> runNext(key, queue));
+    } catch (RejectedExecutionException e) {
+      synchronized (queue) {
+        queue.scheduled = false;
+        queue.tasks.clear();
+      }
+      throw e;
+    }
+  }
+
+  private void runNext(String key, SerialQueue queue) {
+    Runnable task;
+    synchronized (queue) {
+      task = queue.tasks.poll();
+      if (task == null || queue.shutdown) {
+        queue.scheduled = false;
+        return;
+      }
+      queue.runner = Thread.currentThread();
+    }
+
+    try {
+      task.run();
+    } catch (Exception e) {
+      LOG.error("Task for key {} failed", key, e);
+    } finally {
+      boolean hasMoreTasks;
+      synchronized (queue) {
+        queue.runner = null;
+        hasMoreTasks = !queue.tasks.isEmpty() && !queue.shutdown;
+        if (!hasMoreTasks) {
+          queue.scheduled = false;
+        }
+      }
+      // Don't leak an interrupt meant for this key's task into the next task of the thread.
+      Thread.interrupted();
+      if (hasMoreTasks) {
+        try {
+          schedule(key, queue);
+        } catch (RejectedExecutionException e) {
+          LOG.warn("Dropping the queued tasks for key {}, executor is shut down", key);
+        }
+      }
+    }
+  }
+}
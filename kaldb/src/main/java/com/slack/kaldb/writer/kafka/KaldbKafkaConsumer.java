@@ -4,6 +4,10 @@ import static com.google.common.base.Preconditions.checkArgument;
 import static java.lang.Integer.parseInt;
 
 import com.google.common.annotations.VisibleForTesting;
+import com.google.common.util.concurrent.Futures;
+import com.google.common.util.concurrent.ListenableFuture;
+import com.google.common.util.concurrent.ListeningExecutorService;
+import com.google.common.util.concurrent.MoreExecutors;
 import com.google.common.util.concurrent.ThreadFactoryBuilder;
 import com.slack.kaldb.proto.config.KaldbConfigs;
 import com.slack.kaldb.server.KaldbConfig;
@@ -13,12 +17,17 @@ import io.micrometer.core.instrument.MeterRegistry;
 import io.micrometer.core.instrument.binder.kafka.KafkaClientMetrics;
 import java.io.IOException;
 import java.time.Duration;
+import java.util.ArrayList;
 import java.util.Collections;
 import java.util.List;
 import java.util.Properties;
 import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.ExecutionException;
 import java.util.concurrent.ThreadPoolExecutor;
 import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicLong;
 import org.apache.kafka.clients.consumer.ConsumerConfig;
 import org.apache.kafka.clients.consumer.ConsumerRecord;
 import org.apache.kafka.clients.consumer.ConsumerRecords;
@@ -84,8 +93,16 @@ public class KaldbKafkaConsumer {
 
   public static final String RECORDS_RECEIVED_COUNTER = "records_received";
   public static final String RECORDS_FAILED_COUNTER = "records_failed";
+  public static final String CONSUMER_PAUSES_COUNTER = "kafka_consumer_pauses";
   private final Counter recordsReceivedCounter;
   private final Counter recordsFailedCounter;
+  private final Counter consumerPausesCounter;
+
+  // Only accessed from the consumer thread.
+  private boolean paused = false;
+
+  // Indexes the batches of a parallel consumption.
+  private ListeningExecutorService parallelConsumptionExecutor;
 
   // TODO: Instead of passing each property as a field, consider defining props in config file.
   public KaldbKafkaConsumer(
@@ -137,6 +154,7 @@ public class KaldbKafkaConsumer {
 
     recordsReceivedCounter = meterRegistry.counter(RECORDS_RECEIVED_COUNTER);
     recordsFailedCounter = meterRegistry.counter(RECORDS_FAILED_COUNTER);
+    consumerPausesCounter = meterRegistry.counter(CONSUMER_PAUSES_COUNTER);
 
     this.logMessageWriterImpl = logMessageWriterImpl;
 
@@ -171,6 +189,11 @@ public class KaldbKafkaConsumer {
 
   public void close() {
     LOG.info("Closing kafka consumer for partition:{}", topicPartition);
+    synchronized (this) {
+      if (parallelConsumptionExecutor != null) {
+        parallelConsumptionExecutor.shutdownNow();
+      }
+    }
     kafkaConsumer.close(KaldbConfig.DEFAULT_START_STOP_DURATION);
     LOG.info("Closed kafka consumer for partition:{}", topicPartition);
   }
@@ -191,6 +214,29 @@ public class KaldbKafkaConsumer {
     return kafkaConsumer.position(topicPartition);
   }
 
+  /**
+   * Pause or resume fetching records from the partition. Polling a paused consumer returns no
+   * records, so the caller can keep calling consumeMessages while the consumer is paused.
+   */
+  public void setPaused(boolean pause) {
+    if (pause == paused) {
+      return;
+    }
+    if (pause) {
+      LOG.info("Pausing consumption from partition {}", topicPartition);
+      kafkaConsumer.pause(List.of(topicPartition));
+      consumerPausesCounter.increment();
+    } else {
+      LOG.info("Resuming consumption from partition {}", topicPartition);
+      kafkaConsumer.resume(List.of(topicPartition));
+    }
+    paused = pause;
+  }
+
+  public boolean isPaused() {
+    return paused;
+  }
+
   public void consumeMessages() throws IOException {
     consumeMessages(KAFKA_POLL_TIMEOUT_MS);
   }
@@ -245,73 +291,125 @@ public class KaldbKafkaConsumer {
    * consumer is not thread safe, instead of calling the consumer from multiple threads, we will
    * decouple the consumption from processing using a blocking queue as recommended by the kafka
    * documentation.
+   *
+   * <p>Returns true once all the messages are indexed, and false if indexing any of them failed or
+   * timed out. Consumption stops at the first failure, since the messages will be indexed again.
    */
   public boolean consumeMessagesBetweenOffsetsInParallel(
       final long kafkaPollTimeoutMs, final long startOffsetInclusive, final long endOffsetInclusive)
       throws InterruptedException {
-    final int maxPoolSize = 16;
-    final int poolSize = Math.min(Runtime.getRuntime().availableProcessors() * 2, maxPoolSize);
-    LOG.info("Pool size for queue is: {}", poolSize);
-
-    // TODO: Track and log errors and success better.
-    BlockingArrayBlockingQueue<Runnable> queue = new BlockingArrayBlockingQueue<>(100);
-    ThreadPoolExecutor executor =
-        new ThreadPoolExecutor(
-            poolSize,
-            poolSize,
-            0L,
-            TimeUnit.MILLISECONDS,
-            queue,
-            new ThreadFactoryBuilder().setNameFormat("recovery-task-%d").build());
+    return consumeMessagesBetweenOffsetsInParallel(
+        kafkaPollTimeoutMs, startOffsetInclusive, endOffsetInclusive, new AtomicLong());
+  }
+
+  /**
+   * Consume messages between the given start and end offset as fast as possible, and report the
+   * count of messages consumed so far in messagesConsumed.
+   */
+  public boolean consumeMessagesBetweenOffsetsInParallel(
+      final long kafkaPollTimeoutMs,
+      final long startOffsetInclusive,
+      final long endOffsetInclusive,
+      final AtomicLong messagesConsumed)
+      throws InterruptedException {
+    ListeningExecutorService executor = getParallelConsumptionExecutor();
+    List<ListenableFuture<?>> batches = new ArrayList<>();
+    AtomicBoolean batchFailed = new AtomicBoolean(false);
 
     final long messagesToIndex = endOffsetInclusive - startOffsetInclusive;
     long messagesIndexed = 0;
-    while (messagesIndexed <= messagesToIndex) {
+    while (messagesIndexed <= messagesToIndex && !batchFailed.get()) {
       ConsumerRecords<String, byte[]> records =
           kafkaConsumer.poll(Duration.ofMillis(kafkaPollTimeoutMs));
       int recordCount = records.count();
       LOG.debug("Fetched records={} from partition:{}", recordCount, topicPartition.partition());
       if (recordCount > 0) {
         messagesIndexed += recordCount;
-        executor.submit(
-            () -> {
-              LOG.info("Ingesting batch: [{}/{}]", topicPartition.partition(), recordCount);
-              for (ConsumerRecord<String, byte[]> record : records) {
-                if (startOffsetInclusive >= 0 && record.offset() < startOffsetInclusive) {
-                  throw new IllegalArgumentException(
-                      "Record is outside of start offset range: " + startOffsetInclusive);
-                }
-                if (endOffsetInclusive >= 0 && record.offset() > endOffsetInclusive) {
-                  throw new IllegalArgumentException(
-                      "Record is outside of start offset range: " + startOffsetInclusive);
-                }
-                try {
-                  if (logMessageWriterImpl.insertRecord(record)) {
-                    recordsReceivedCounter.increment();
-                  } else {
-                    recordsFailedCounter.increment();
+        messagesConsumed.set(messagesIndexed);
+        batches.add(
+            executor.submit(
+                () -> {
+                  try {
+                    insertRecordsBetweenOffsets(records, startOffsetInclusive, endOffsetInclusive);
+                  } catch (Exception e) {
+                    batchFailed.set(true);
+                    throw e;
                   }
-                } catch (IOException e) {
-                  LOG.error(
-                      "Encountered exception processing batch [{}/{}]: {}",
-                      topicPartition.partition(),
-                      recordCount,
-                      e);
-                }
-              }
-              // TODO: Not all threads are printing this message.
-              LOG.info(
-                  "Finished ingesting batch: [{}/{}]", topicPartition.partition(), recordCount);
-            });
+                  return null;
+                }));
         LOG.debug("Queued");
       } else {
         // temporary diagnostic logging
         LOG.info("Encountered zero-record batch from partition {}", topicPartition.partition());
       }
     }
-    executor.shutdown();
-    LOG.info("Shut down");
-    return executor.awaitTermination(1, TimeUnit.MINUTES);
+
+    try {
+      Futures.allAsList(batches).get(1, TimeUnit.MINUTES);
+      return true;
+    } catch (ExecutionException e) {
+      LOG.error(
+          "Failed to index the messages between offsets {} and {} of partition {}",
+          startOffsetInclusive,
+          endOffsetInclusive,
+          topicPartition,
+          e.getCause());
+      return false;
+    } catch (TimeoutException e) {
+      LOG.error(
+          "Timed out indexing the messages between offsets {} and {} of partition {}",
+          startOffsetInclusive,
+          endOffsetInclusive,
+          topicPartition);
+      return false;
+    } finally {
+      // don't index the queued batches of a failed consumption
+      batches.forEach(batch -> batch.cancel(false));
+    }
+  }
+
+  private void insertRecordsBetweenOffsets(
+      ConsumerRecords<String, byte[]> records, long startOffsetInclusive, long endOffsetInclusive)
+      throws IOException {
+    LOG.debug("Ingesting batch: [{}/{}]", topicPartition.partition(), records.count());
+    for (ConsumerRecord<String, byte[]> record : records) {
+      if (startOffsetInclusive >= 0 && record.offset() < startOffsetInclusive) {
+        throw new IllegalArgumentException(
+            "Record is outside of start offset range: " + startOffsetInclusive);
+      }
+      // the last batch usually goes past the end offset
+      if (endOffsetInclusive >= 0 && record.offset() > endOffsetInclusive) {
+        break;
+      }
+      if (logMessageWriterImpl.insertRecord(record)) {
+        recordsReceivedCounter.increment();
+      } else {
+        recordsFailedCounter.increment();
+      }
+    }
+    LOG.debug("Finished ingesting batch: [{}/{}]", topicPartition.partition(), records.count());
+  }
+
+  /**
+   * The executor is created on the first parallel consumption, and reused by the later ones until
+   * the consumer is closed.
+   */
+  private synchronized ListeningExecutorService getParallelConsumptionExecutor() {
+    if (parallelConsumptionExecutor == null) {
+      final int maxPoolSize = 16;
+      final int poolSize = Math.min(Runtime.getRuntime().availableProcessors() * 2, maxPoolSize);
+      LOG.info("Pool size for queue is: {}", poolSize);
+      parallelConsumptionExecutor =
+          MoreExecutors.listeningDecorator(
+              new ThreadPoolExecutor(
+                  poolSize,
+                  poolSize,
+                  0L,
+                  TimeUnit.MILLISECONDS,
+                  new BlockingArrayBlockingQueue<>(100),
+                  new ThreadFactoryBuilder().setNameFormat("recovery-task-%d").build()));
+    }
+    return parallelConsumptionExecutor;
   }
 
   @VisibleForTesting
@@ -1,24 +1,33 @@
 package com.slack.kaldb.blobfs.s3;
 
+import static com.slack.kaldb.blobfs.s3.S3BlobFs.MIN_MULTIPART_PART_SIZE_BYTES;
+
 import com.adobe.testing.s3mock.junit4.S3MockRule;
 import java.io.File;
 import java.io.IOException;
 import java.io.InputStream;
 import java.net.URI;
 import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
 import java.util.ArrayList;
 import java.util.Arrays;
+import java.util.LinkedHashMap;
 import java.util.List;
+import java.util.Map;
+import java.util.Random;
 import java.util.UUID;
 import org.apache.commons.io.IOUtils;
 import org.junit.After;
 import org.junit.Assert;
 import org.junit.Before;
 import org.junit.ClassRule;
+import org.junit.Rule;
 import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
 import software.amazon.awssdk.core.sync.RequestBody;
 import software.amazon.awssdk.services.s3.S3Client;
 import software.amazon.awssdk.services.s3.model.CreateBucketRequest;
+import software.amazon.awssdk.services.s3.model.GetObjectRequest;
 import software.amazon.awssdk.services.s3.model.HeadObjectResponse;
 import software.amazon.awssdk.services.s3.model.ListObjectsV2Response;
 import software.amazon.awssdk.services.s3.model.S3Object;
@@ -26,6 +35,7 @@ import software.amazon.awssdk.services.s3.model.S3Object;
 /** Don't assertj but use junit asserts for this code to keep the blobfs lib deps simpler. */
 public class S3BlobFsTest {
   @ClassRule public static final S3MockRule S3_MOCK_RULE = S3MockRule.builder().silent().build();
+  @Rule public TemporaryFolder temporaryFolder = new TemporaryFolder();
 
   final String DELIMITER = "/";
   final String SCHEME = "s3";
@@ -326,6 +336,120 @@ public class S3BlobFsTest {
     fileToDownload.deleteOnExit();
   }
 
+  private File createFileWithRandomContent(String fileName, int length) throws IOException {
+    byte[] content = new byte[length];
+    new Random().nextBytes(content);
+    File file = temporaryFolder.newFile(fileName);
+    Files.write(file.toPath(), content);
+    return file;
+  }
+
+  private byte[] getObjectContent(String key) {
+    return s3Client
+        .getObjectAsBytes(GetObjectRequest.builder().bucket(bucket).key(key).build())
+        .asByteArray();
+  }
+
+  @Test
+  public void testMultipartCopyFromLocal() throws Exception {
+    S3BlobFs multipartBlobFs = new S3BlobFs(s3Client, 2, MIN_MULTIPART_PART_SIZE_BYTES);
+    try {
+      // 3 parts, with a smaller last part.
+      File fileToCopy =
+          createFileWithRandomContent(
+              "multipart.bin", (int) (2 * MIN_MULTIPART_PART_SIZE_BYTES + 1024));
+      multipartBlobFs.copyFromLocalFile(
+          fileToCopy, URI.create(String.format(FILE_FORMAT, SCHEME, bucket, "multipart.bin")));
+
+      Assert.assertArrayEquals(
+          Files.readAllBytes(fileToCopy.toPath()), getObjectContent("multipart.bin"));
+    } finally {
+      multipartBlobFs.close();
+    }
+  }
+
+  @Test
+  public void testParallelCopyFromLocal() throws Exception {
+    S3BlobFs parallelBlobFs = new S3BlobFs(s3Client, 4, MIN_MULTIPART_PART_SIZE_BYTES);
+    try {
+      // A mix of files that fit in a single request and files uploaded in parts.
+      Map<File, URI> filesToCopy = new LinkedHashMap<>();
+      for (int i = 0; i < 10; i++) {
+        String fileName = "parallel-" + i + ".bin";
+        int length = i % 3 == 0 ? (int) MIN_MULTIPART_PART_SIZE_BYTES + i * 1024 : i * 1024;
+        filesToCopy.put(
+            createFileWithRandomContent(fileName, length),
+            URI.create(String.format(FILE_FORMAT, SCHEME, bucket, "folder/" + fileName)));
+      }
+      parallelBlobFs.copyFromLocalFiles(filesToCopy);
+
+      for (File file : filesToCopy.keySet()) {
+        Assert.assertArrayEquals(
+            Files.readAllBytes(file.toPath()), getObjectContent("folder/" + file.getName()));
+      }
+    } finally {
+      parallelBlobFs.close();
+    }
+  }
+
+  @Test
+  public void testParallelRangedCopyToLocal() throws Exception {
+    S3BlobFs rangedBlobFs = new S3BlobFs(s3Client, 1, MIN_MULTIPART_PART_SIZE_BYTES, 4, 1024);
+    try {
+      // A mix of files that fit in a single request, files that are an exact number of ranges, and
+      // files with a partial last range.
+      int[] lengths = new int[] {0, 100, 1024, 1025, 4096, 10 * 1024 + 7};
+      Map<URI, File> filesToCopy = new LinkedHashMap<>();
+      Map<URI, File> srcFiles = new LinkedHashMap<>();
+      for (int i = 0; i < lengths.length; i++) {
+        String fileName = "ranged-" + i + ".bin";
+        URI uri = URI.create(String.format(FILE_FORMAT, SCHEME, bucket, "folder/" + fileName));
+        File srcFile = createFileWithRandomContent(fileName, lengths[i]);
+        s3Client.putObject(
+            S3TestUtils.getPutObjectRequest(bucket, "folder/" + fileName), srcFile.toPath());
+        srcFiles.put(uri, srcFile);
+        filesToCopy.put(uri, new File(temporaryFolder.getRoot(), "download/" + fileName));
+      }
+      rangedBlobFs.copyToLocalFiles(filesToCopy);
+
+      for (Map.Entry<URI, File> entry : filesToCopy.entrySet()) {
+        Assert.assertArrayEquals(
+            Files.readAllBytes(srcFiles.get(entry.getKey()).toPath()),
+            Files.readAllBytes(entry.getValue().toPath()));
+      }
+    } finally {
+      rangedBlobFs.close();
+    }
+  }
+
+  @Test
+  public void testParallelCopyToLocalFailsOnMissingFile() throws Exception {
+    Map<URI, File> filesToCopy = new LinkedHashMap<>();
+    filesToCopy.put(
+        URI.create(String.format(FILE_FORMAT, SCHEME, bucket, "missing.bin")),
+        new File(temporaryFolder.getRoot(), "missing.bin"));
+
+    Assert.assertThrows(Exception.class, () -> s3BlobFs.copyToLocalFiles(filesToCopy));
+  }
+
+  @Test(expected = IllegalArgumentException.class)
+  public void testPartSizeBelowS3Minimum() {
+    new S3BlobFs(s3Client, 2, MIN_MULTIPART_PART_SIZE_BYTES - 1);
+  }
+
+  @Test
+  public void testParallelCopyFromLocalFailsOnMissingFile() throws Exception {
+    Map<File, URI> filesToCopy = new LinkedHashMap<>();
+    filesToCopy.put(
+        createFileWithRandomContent("present.bin", 100),
+        URI.create(String.format(FILE_FORMAT, SCHEME, bucket, "present.bin")));
+    filesToCopy.put(
+        new File(temporaryFolder.getRoot(), "missing.bin"),
+        URI.create(String.format(FILE_FORMAT, SCHEME, bucket, "missing.bin")));
+
+    Assert.assertThrows(Exception.class, () -> s3BlobFs.copyFromLocalFiles(filesToCopy));
+  }
+
   @Test
   public void testOpenFile() throws Exception {
     String fileName = "sample.txt";
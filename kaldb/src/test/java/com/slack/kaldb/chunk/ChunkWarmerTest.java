@@ -0,0 +1,148 @@
+package com.slack.kaldb.chunk;
+
+import static com.slack.kaldb.chunk.ChunkWarmer.CHUNK_WARM_PRELOADED_BYTES;
+import static com.slack.kaldb.chunk.ChunkWarmer.CHUNK_WARM_TIMER;
+import static com.slack.kaldb.testlib.MetricsUtil.getTimerCount;
+import static com.slack.kaldb.testlib.MetricsUtil.getValue;
+import static org.assertj.core.api.Assertions.assertThat;
+
+import com.slack.kaldb.logstore.LogMessage;
+import com.slack.kaldb.logstore.search.LogIndexSearcher;
+import com.slack.kaldb.logstore.search.SearchResult;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.Instant;
+import java.time.temporal.ChronoUnit;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+public class ChunkWarmerTest {
+  @Rule public TemporaryFolder temporaryFolder = new TemporaryFolder();
+
+  private SimpleMeterRegistry meterRegistry;
+
+  @Before
+  public void setUp() {
+    meterRegistry = new SimpleMeterRegistry();
+  }
+
+  @After
+  public void tearDown() {
+    meterRegistry.close();
+  }
+
+  // A chunk with 100 bytes of small files, and 1000 bytes of other files.
+  private Path makeChunkDirectory() throws IOException {
+    Path chunkDirectory = temporaryFolder.newFolder().toPath();
+    Files.write(chunkDirectory.resolve("_0.si"), new byte[10]);
+    Files.write(chunkDirectory.resolve("_0.tip"), new byte[90]);
+    Files.write(chunkDirectory.resolve("_0.doc"), new byte[600]);
+    Files.write(chunkDirectory.resolve("_0.tim"), new byte[400]);
+    return chunkDirectory;
+  }
+
+  private static long oldDataEndTime() {
+    return Instant.now().minus(1, ChronoUnit.DAYS).toEpochMilli();
+  }
+
+  @Test(expected = IllegalArgumentException.class)
+  public void testInvalidPreloadBytes() {
+    new ChunkWarmer(meterRegistry, true, List.of(), -1, 0);
+  }
+
+  @Test
+  public void testPreloadSmallFiles() throws IOException {
+    ChunkWarmer chunkWarmer = new ChunkWarmer(meterRegistry, true, List.of(), 250, 0);
+
+    ChunkWarmer.Warming warming1 = chunkWarmer.preload(makeChunkDirectory(), oldDataEndTime());
+    assertThat(warming1.pinned).isFalse();
+    assertThat(warming1.preloadedBytes).isEqualTo(100);
+    ChunkWarmer.Warming warming2 = chunkWarmer.preload(makeChunkDirectory(), oldDataEndTime());
+    assertThat(warming2.preloadedBytes).isEqualTo(100);
+    assertThat(getValue(CHUNK_WARM_PRELOADED_BYTES, meterRegistry)).isEqualTo(200);
+
+    // The third chunk doesn't fit in the budget.
+    ChunkWarmer.Warming warming3 = chunkWarmer.preload(makeChunkDirectory(), oldDataEndTime());
+    assertThat(warming3).isSameAs(ChunkWarmer.Warming.NONE);
+
+    chunkWarmer.release(warming1);
+    chunkWarmer.release(warming3);
+    assertThat(chunkWarmer.getPreloadedBytes()).isEqualTo(100);
+    assertThat(chunkWarmer.preload(makeChunkDirectory(), oldDataEndTime()).preloadedBytes)
+        .isEqualTo(100);
+  }
+
+  @Test
+  public void testPinRecentChunks() throws IOException {
+    ChunkWarmer chunkWarmer =
+        new ChunkWarmer(meterRegistry, true, List.of(), 1500, TimeUnit.HOURS.toMillis(1));
+
+    ChunkWarmer.Warming recentWarming =
+        chunkWarmer.preload(makeChunkDirectory(), Instant.now().toEpochMilli());
+    assertThat(recentWarming.pinned).isTrue();
+    assertThat(recentWarming.preloadedBytes).isEqualTo(1100);
+
+    // An old chunk only preloads its small files.
+    ChunkWarmer.Warming oldWarming = chunkWarmer.preload(makeChunkDirectory(), oldDataEndTime());
+    assertThat(oldWarming.pinned).isFalse();
+    assertThat(oldWarming.preloadedBytes).isEqualTo(100);
+
+    // A recent chunk that can't be pinned falls back to preloading its small files.
+    ChunkWarmer.Warming unpinnedWarming =
+        chunkWarmer.preload(makeChunkDirectory(), Instant.now().toEpochMilli());
+    assertThat(unpinnedWarming.pinned).isFalse();
+    assertThat(unpinnedWarming.preloadedBytes).isEqualTo(100);
+    assertThat(chunkWarmer.getPreloadedBytes()).isEqualTo(1300);
+  }
+
+  @Test
+  public void testWarmSearcher() {
+    ChunkWarmer chunkWarmer =
+        new ChunkWarmer(meterRegistry, true, List.of("*:*", "fail", "level:error"), 0, 0);
+    List<String> queries = new ArrayList<>();
+    LogIndexSearcher<LogMessage> logSearcher =
+        new LogIndexSearcher<>() {
+          @Override
+          public SearchResult<LogMessage> search(
+              String dataset,
+              String query,
+              long minTime,
+              long maxTime,
+              int howMany,
+              int bucketCount) {
+            queries.add(query);
+            assertThat(minTime).isEqualTo(1000);
+            assertThat(maxTime).isEqualTo(2000);
+            if (query.equals("fail")) {
+              throw new IllegalArgumentException("Invalid query");
+            }
+            return SearchResult.empty();
+          }
+
+          @Override
+          public void close() {}
+        };
+
+    // A failed warm up query doesn't stop the others.
+    chunkWarmer.warmSearcher(logSearcher, 1000, 2000);
+    assertThat(queries).containsExactly("*:*", "fail", "level:error");
+    assertThat(getTimerCount(CHUNK_WARM_TIMER, meterRegistry)).isEqualTo(1);
+  }
+
+  @Test
+  public void testDisabledWarmer() throws IOException {
+    ChunkWarmer chunkWarmer = new ChunkWarmer(meterRegistry, false, List.of("*:*"), 1000, 1000);
+    assertThat(chunkWarmer.preload(makeChunkDirectory(), Instant.now().toEpochMilli()))
+        .isSameAs(ChunkWarmer.Warming.NONE);
+    chunkWarmer.warmSearcher(null, 0, 1);
+    assertThat(getTimerCount(CHUNK_WARM_TIMER, meterRegistry)).isZero();
+  }
+}
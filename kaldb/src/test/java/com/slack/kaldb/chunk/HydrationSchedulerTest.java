@@ -0,0 +1,196 @@
+package com.slack.kaldb.chunk;
+
+import static com.slack.kaldb.chunk.HydrationScheduler.HYDRATION_ACTIVE_DOWNLOADS;
+import static com.slack.kaldb.chunk.HydrationScheduler.HYDRATION_QUEUE_DEPTH;
+import static com.slack.kaldb.chunk.HydrationScheduler.HYDRATION_WAIT_TIMER;
+import static com.slack.kaldb.testlib.MetricsUtil.getValue;
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.awaitility.Awaitility.await;
+
+import com.slack.kaldb.proto.config.KaldbConfigs;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.Duration;
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+public class HydrationSchedulerTest {
+  @Rule public TemporaryFolder temporaryFolder = new TemporaryFolder();
+
+  private SimpleMeterRegistry meterRegistry;
+  private ExecutorService executorService;
+
+  @Before
+  public void setUp() {
+    meterRegistry = new SimpleMeterRegistry();
+    executorService = Executors.newCachedThreadPool();
+  }
+
+  @After
+  public void tearDown() {
+    executorService.shutdownNow();
+    meterRegistry.close();
+  }
+
+  @Test
+  public void testInitViaConfig() {
+    HydrationScheduler defaultScheduler =
+        HydrationScheduler.fromConfig(meterRegistry, KaldbConfigs.CacheConfig.getDefaultInstance());
+    assertThat(defaultScheduler.getMaxConcurrentDownloads())
+        .isEqualTo(HydrationScheduler.DEFAULT_MAX_CONCURRENT_DOWNLOADS);
+
+    HydrationScheduler scheduler =
+        HydrationScheduler.fromConfig(
+            new SimpleMeterRegistry(),
+            KaldbConfigs.CacheConfig.newBuilder().setMaxConcurrentDownloads(7).build());
+    assertThat(scheduler.getMaxConcurrentDownloads()).isEqualTo(7);
+  }
+
+  @Test(expected = IllegalArgumentException.class)
+  public void testInvalidBandwidth() {
+    new HydrationScheduler(meterRegistry, 1, -1);
+  }
+
+  @Test
+  public void testDownloadsStartInPriorityOrder() throws Exception {
+    HydrationScheduler scheduler = new HydrationScheduler(meterRegistry, 1, 0);
+    Path dataDirectory = temporaryFolder.newFolder().toPath();
+    List<String> downloadOrder = new CopyOnWriteArrayList<>();
+
+    CountDownLatch blockerStarted = new CountDownLatch(1);
+    CountDownLatch releaseBlocker = new CountDownLatch(1);
+    Future<Boolean> blocker =
+        executorService.submit(
+            () ->
+                scheduler.download(
+                    () -> {
+                      blockerStarted.countDown();
+                      releaseBlocker.await();
+                      return false;
+                    },
+                    dataDirectory,
+                    new HydrationScheduler.Priority(false, 0),
+                    0));
+    assertThat(blockerStarted.await(10, TimeUnit.SECONDS)).isTrue();
+    assertThat(getValue(HYDRATION_ACTIVE_DOWNLOADS, meterRegistry)).isEqualTo(1);
+
+    List<Future<Boolean>> downloads = new CopyOnWriteArrayList<>();
+    String[] names = new String[] {"old", "restore", "new", "older"};
+    HydrationScheduler.Priority[] priorities =
+        new HydrationScheduler.Priority[] {
+          new HydrationScheduler.Priority(false, 2000),
+          new HydrationScheduler.Priority(true, 1000),
+          new HydrationScheduler.Priority(false, 3000),
+          new HydrationScheduler.Priority(false, 1000)
+        };
+    for (int i = 0; i < names.length; i++) {
+      String name = names[i];
+      HydrationScheduler.Priority priority = priorities[i];
+      downloads.add(
+          executorService.submit(
+              () -> scheduler.download(() -> downloadOrder.add(name), dataDirectory, priority, 0)));
+      int queued = i + 1;
+      await().until(() -> getValue(HYDRATION_QUEUE_DEPTH, meterRegistry) == queued);
+    }
+
+    releaseBlocker.countDown();
+    assertThat(blocker.get(10, TimeUnit.SECONDS)).isFalse();
+    for (Future<Boolean> download : downloads) {
+      assertThat(download.get(10, TimeUnit.SECONDS)).isTrue();
+    }
+
+    assertThat(downloadOrder).containsExactly("restore", "new", "old", "older");
+    assertThat(getValue(HYDRATION_QUEUE_DEPTH, meterRegistry)).isZero();
+    assertThat(getValue(HYDRATION_ACTIVE_DOWNLOADS, meterRegistry)).isZero();
+    assertThat(
+            meterRegistry.get(HYDRATION_WAIT_TIMER).tag("onDemandRestore", "false").timer().count())
+        .isEqualTo(4);
+    assertThat(
+            meterRegistry.get(HYDRATION_WAIT_TIMER).tag("onDemandRestore", "true").timer().count())
+        .isEqualTo(1);
+  }
+
+  @Test
+  public void testConcurrentDownloadsAreCapped() throws Exception {
+    HydrationScheduler scheduler = new HydrationScheduler(meterRegistry, 2, 0);
+    Path dataDirectory = temporaryFolder.newFolder().toPath();
+
+    CountDownLatch releaseDownloads = new CountDownLatch(1);
+    List<Future<Boolean>> downloads = new CopyOnWriteArrayList<>();
+    for (int i = 0; i < 5; i++) {
+      downloads.add(
+          executorService.submit(
+              () ->
+                  scheduler.download(
+                      () -> releaseDownloads.await(10, TimeUnit.SECONDS),
+                      dataDirectory,
+                      new HydrationScheduler.Priority(false, 0),
+                      0)));
+    }
+
+    await().until(() -> getValue(HYDRATION_QUEUE_DEPTH, meterRegistry) == 3);
+    assertThat(getValue(HYDRATION_ACTIVE_DOWNLOADS, meterRegistry)).isEqualTo(2);
+
+    releaseDownloads.countDown();
+    for (Future<Boolean> download : downloads) {
+      assertThat(download.get(10, TimeUnit.SECONDS)).isTrue();
+    }
+    assertThat(getValue(HYDRATION_ACTIVE_DOWNLOADS, meterRegistry)).isZero();
+  }
+
+  @Test
+  public void testDownloadBandwidthIsLimited() throws Exception {
+    // 100KB per second, and every download is 100KB.
+    HydrationScheduler scheduler = new HydrationScheduler(meterRegistry, 4, 100 * 1024);
+    Path dataDirectory = temporaryFolder.newFolder().toPath();
+    ChunkDownloader chunkDownloader =
+        () -> {
+          Files.write(dataDirectory.resolve("chunk"), new byte[100 * 1024]);
+          return false;
+        };
+
+    long startTime = System.nanoTime();
+    for (int i = 0; i < 3; i++) {
+      scheduler.download(
+          chunkDownloader, dataDirectory, new HydrationScheduler.Priority(false, 0), 0);
+    }
+    // The first download is free, and each of the next ones waits for the previous one.
+    assertThat(Duration.ofNanos(System.nanoTime() - startTime))
+        .isGreaterThanOrEqualTo(Duration.ofMillis(1800));
+  }
+
+  @Test
+  public void testDownloadBandwidthIsAcquiredBeforeTransfer() throws Exception {
+    // 100KB per second, and the first download is 200KB.
+    HydrationScheduler scheduler = new HydrationScheduler(meterRegistry, 4, 100 * 1024);
+    Path dataDirectory = temporaryFolder.newFolder().toPath();
+
+    long startTime = System.nanoTime();
+    scheduler.download(
+        () -> false, dataDirectory, new HydrationScheduler.Priority(false, 0), 200 * 1024);
+    AtomicLong secondTransferStartNanos = new AtomicLong();
+    scheduler.download(
+        () -> {
+          secondTransferStartNanos.set(System.nanoTime());
+          return false;
+        },
+        dataDirectory,
+        new HydrationScheduler.Priority(false, 0),
+        100 * 1024);
+    // The second transfer doesn't start until the bandwidth of the first one is paid for.
+    assertThat(Duration.ofNanos(secondTransferStartNanos.get() - startTime))
+        .isGreaterThanOrEqualTo(Duration.ofMillis(1800));
+  }
+}
@@ -611,6 +611,8 @@ public class IndexingChunkImplTest {
       assertThat(liveSnapshot.partitionId).isEqualTo(TEST_KAFKA_PARTITION_ID);
       assertThat(liveSnapshot.maxOffset).isEqualTo(offset - 1);
       assertThat(liveSnapshot.snapshotPath).isEqualTo(SnapshotMetadata.LIVE_SNAPSHOT_PATH);
+      assertThat(liveSnapshot.numDocs).isEqualTo(100);
+      assertThat(liveSnapshot.sizeInBytes).isPositive();
 
       List<SearchMetadata> afterSearchNodes =
           searchMetadataStore.list().get(DEFAULT_ZK_TIMEOUT_SECS, TimeUnit.SECONDS);
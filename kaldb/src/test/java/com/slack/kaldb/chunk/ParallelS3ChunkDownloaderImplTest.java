@@ -0,0 +1,237 @@
+package com.slack.kaldb.chunk;
+
+import static com.slack.kaldb.blobfs.s3.S3BlobFs.MIN_MULTIPART_PART_SIZE_BYTES;
+import static com.slack.kaldb.chunk.ParallelS3ChunkDownloaderImpl.CHUNK_DOWNLOAD_BYTES;
+import static com.slack.kaldb.chunk.ParallelS3ChunkDownloaderImpl.CHUNK_DOWNLOAD_THROUGHPUT;
+import static com.slack.kaldb.chunk.ParallelS3ChunkDownloaderImpl.CHUNK_DOWNLOAD_TIMER;
+import static com.slack.kaldb.logstore.BlobFsUtils.copyToS3;
+import static com.slack.kaldb.logstore.BlobFsUtils.copyToS3Packed;
+import static com.slack.kaldb.logstore.BlobFsUtils.createURI;
+import static com.slack.kaldb.logstore.BlobFsUtils.getSnapshotManifest;
+import static com.slack.kaldb.testlib.MetricsUtil.getCount;
+import static com.slack.kaldb.testlib.MetricsUtil.getTimerCount;
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatExceptionOfType;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.Mockito.doThrow;
+import static org.mockito.Mockito.spy;
+
+import com.adobe.testing.s3mock.junit4.S3MockRule;
+import com.slack.kaldb.blobfs.s3.S3BlobFs;
+import com.slack.kaldb.proto.metadata.Metadata;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import java.io.File;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.List;
+import java.util.Random;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.ClassRule;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+import software.amazon.awssdk.core.sync.RequestBody;
+import software.amazon.awssdk.services.s3.S3Client;
+import software.amazon.awssdk.services.s3.model.CreateBucketRequest;
+import software.amazon.awssdk.services.s3.model.PutObjectRequest;
+import software.amazon.awssdk.services.s3.model.S3Exception;
+
+public class ParallelS3ChunkDownloaderImplTest {
+  @ClassRule public static final S3MockRule S3_MOCK_RULE = S3MockRule.builder().silent().build();
+  @Rule public TemporaryFolder temporaryFolder = new TemporaryFolder();
+
+  private static final String TEST_S3_BUCKET = "parallel-chunk-downloader-test";
+
+  private SimpleMeterRegistry meterRegistry;
+  private S3Client s3Client;
+  private S3BlobFs s3BlobFs;
+
+  @Before
+  public void setUp() {
+    meterRegistry = new SimpleMeterRegistry();
+    s3Client = S3_MOCK_RULE.createS3ClientV2();
+    s3Client.createBucket(CreateBucketRequest.builder().bucket(TEST_S3_BUCKET).build());
+    s3BlobFs = new S3BlobFs(s3Client, 1, MIN_MULTIPART_PART_SIZE_BYTES, 4, 1000);
+  }
+
+  @After
+  public void tearDown() throws IOException {
+    s3BlobFs.close();
+    s3Client.close();
+    meterRegistry.close();
+  }
+
+  private byte[] putObject(String key, int length) {
+    byte[] content = new byte[length];
+    new Random().nextBytes(content);
+    s3Client.putObject(
+        PutObjectRequest.builder().bucket(TEST_S3_BUCKET).key(key).build(),
+        RequestBody.fromBytes(content));
+    return content;
+  }
+
+  @Test
+  public void testDownloadChunk() throws Exception {
+    byte[] segment = putObject("snapshot1/_0.cfs", 5500);
+    byte[] segmentsFile = putObject("snapshot1/segments_1", 300);
+    putObject("snapshot2/_0.cfs", 100);
+
+    Path dataDirectory = temporaryFolder.newFolder().toPath();
+    ChunkDownloader chunkDownloader =
+        new ParallelS3ChunkDownloaderImpl(
+            TEST_S3_BUCKET,
+            "snapshot1",
+            Metadata.IndexType.LOGS_LUCENE9,
+            s3BlobFs,
+            dataDirectory,
+            meterRegistry,
+            "slot1");
+    assertThat(chunkDownloader.download()).isFalse();
+
+    assertThat(dataDirectory.toFile().list()).containsExactlyInAnyOrder("_0.cfs", "segments_1");
+    assertThat(Files.readAllBytes(dataDirectory.resolve("_0.cfs"))).isEqualTo(segment);
+    assertThat(Files.readAllBytes(dataDirectory.resolve("segments_1"))).isEqualTo(segmentsFile);
+
+    assertThat(getCount(CHUNK_DOWNLOAD_BYTES, meterRegistry)).isEqualTo(5800);
+    assertThat(getTimerCount(CHUNK_DOWNLOAD_TIMER, meterRegistry)).isEqualTo(1);
+    assertThat(meterRegistry.get(CHUNK_DOWNLOAD_THROUGHPUT).summary().count()).isEqualTo(1);
+    assertThat(meterRegistry.get(CHUNK_DOWNLOAD_THROUGHPUT).summary().totalAmount()).isPositive();
+  }
+
+  @Test
+  public void testDownloadChunkWithManifest() throws Exception {
+    Path sourceDirectory = temporaryFolder.newFolder().toPath();
+    byte[] segment = new byte[5500];
+    new Random().nextBytes(segment);
+    Files.write(sourceDirectory.resolve("_0.cfs"), segment);
+    Files.write(sourceDirectory.resolve("segments_1"), new byte[300]);
+    assertThat(
+            copyToS3(
+                sourceDirectory,
+                List.of("_0.cfs", "segments_1"),
+                TEST_S3_BUCKET,
+                "manifestSnapshot",
+                s3BlobFs))
+        .isEqualTo(2);
+
+    Metadata.SnapshotManifest manifest =
+        getSnapshotManifest(TEST_S3_BUCKET, "manifestSnapshot", s3BlobFs);
+    assertThat(manifest).isNotNull();
+    assertThat(manifest.getFilesList())
+        .extracting(Metadata.SnapshotManifest.FileEntry::getName)
+        .containsExactlyInAnyOrder("_0.cfs", "segments_1");
+
+    Path dataDirectory = temporaryFolder.newFolder().toPath();
+    ChunkDownloader chunkDownloader =
+        new ParallelS3ChunkDownloaderImpl(
+            TEST_S3_BUCKET,
+            "manifestSnapshot",
+            Metadata.IndexType.LOGS_LUCENE9,
+            s3BlobFs,
+            dataDirectory,
+            meterRegistry,
+            "slot1");
+    assertThat(chunkDownloader.download()).isFalse();
+
+    // The manifest itself isn't downloaded into the index directory.
+    assertThat(dataDirectory.toFile().list()).containsExactlyInAnyOrder("_0.cfs", "segments_1");
+    assertThat(Files.readAllBytes(dataDirectory.resolve("_0.cfs"))).isEqualTo(segment);
+    assertThat(getCount(CHUNK_DOWNLOAD_BYTES, meterRegistry)).isEqualTo(5800);
+  }
+
+  @Test
+  public void testDownloadFailsOnChecksumMismatch() throws Exception {
+    Path sourceDirectory = temporaryFolder.newFolder().toPath();
+    Files.write(sourceDirectory.resolve("_0.cfs"), new byte[2000]);
+    copyToS3(sourceDirectory, List.of("_0.cfs"), TEST_S3_BUCKET, "corruptSnapshot", s3BlobFs);
+
+    // Same length, different contents.
+    putObject("corruptSnapshot/_0.cfs", 2000);
+
+    ChunkDownloader chunkDownloader =
+        new ParallelS3ChunkDownloaderImpl(
+            TEST_S3_BUCKET,
+            "corruptSnapshot",
+            Metadata.IndexType.LOGS_LUCENE9,
+            s3BlobFs,
+            temporaryFolder.newFolder().toPath(),
+            meterRegistry,
+            "slot1");
+    assertThatExceptionOfType(IOException.class)
+        .isThrownBy(chunkDownloader::download)
+        .withMessageContaining("checksum");
+  }
+
+  @Test
+  public void testDownloadPackedChunk() throws Exception {
+    Path sourceDirectory = temporaryFolder.newFolder().toPath();
+    byte[] segment = new byte[5500];
+    new Random().nextBytes(segment);
+    byte[] segmentsFile = new byte[300];
+    new Random().nextBytes(segmentsFile);
+    Files.write(sourceDirectory.resolve("_0.cfs"), segment);
+    Files.write(sourceDirectory.resolve("segments_1"), segmentsFile);
+    assertThat(
+            copyToS3Packed(
+                sourceDirectory,
+                List.of("_0.cfs", "segments_1"),
+                TEST_S3_BUCKET,
+                "packedSnapshot",
+                s3BlobFs))
+        .isEqualTo(2);
+    // The snapshot is a single object, and the temporary packed file is cleaned up.
+    assertThat(s3BlobFs.listFiles(createURI(TEST_S3_BUCKET, "packedSnapshot", ""), true))
+        .hasSize(1);
+    assertThat(sourceDirectory.getParent().toFile().list())
+        .noneMatch(fileName -> fileName.endsWith(".packed"));
+
+    Path dataDirectory = temporaryFolder.newFolder().toPath();
+    ChunkDownloader chunkDownloader =
+        new ParallelS3ChunkDownloaderImpl(
+            TEST_S3_BUCKET,
+            "packedSnapshot",
+            Metadata.IndexType.LOGS_LUCENE9_PACKED,
+            s3BlobFs,
+            dataDirectory,
+            meterRegistry,
+            "slot1");
+    assertThat(chunkDownloader.download()).isFalse();
+
+    assertThat(dataDirectory.toFile().list()).containsExactlyInAnyOrder("_0.cfs", "segments_1");
+    assertThat(Files.readAllBytes(dataDirectory.resolve("_0.cfs"))).isEqualTo(segment);
+    assertThat(Files.readAllBytes(dataDirectory.resolve("segments_1"))).isEqualTo(segmentsFile);
+    assertThat(getCount(CHUNK_DOWNLOAD_BYTES, meterRegistry)).isEqualTo(5800);
+  }
+
+  @Test
+  public void testDownloadMissingChunk() throws Exception {
+    File dataDirectory = temporaryFolder.newFolder();
+    ChunkDownloader chunkDownloader =
+        new ParallelS3ChunkDownloaderImpl(
+            TEST_S3_BUCKET,
+            "missing",
+            Metadata.IndexType.LOGS_LUCENE9,
+            s3BlobFs,
+            dataDirectory.toPath(),
+            meterRegistry,
+            "slot1");
+    assertThat(chunkDownloader.download()).isTrue();
+    assertThat(dataDirectory.list()).isEmpty();
+    assertThat(getCount(CHUNK_DOWNLOAD_BYTES, meterRegistry)).isZero();
+  }
+
+  @Test
+  public void testSnapshotManifestFallsBackOnlyWhenMissing() throws Exception {
+    assertThat(getSnapshotManifest(TEST_S3_BUCKET, "noManifest", s3BlobFs)).isNull();
+
+    // Errors other than a missing manifest are not hidden by listing the snapshot.
+    S3BlobFs throttledBlobFs = spy(s3BlobFs);
+    doThrow(S3Exception.builder().statusCode(503).message("Slow Down").build())
+        .when(throttledBlobFs)
+        .open(any());
+    assertThatExceptionOfType(S3Exception.class)
+        .isThrownBy(() -> getSnapshotManifest(TEST_S3_BUCKET, "noManifest", throttledBlobFs));
+  }
+}
@@ -18,12 +18,14 @@ import brave.Tracing;
 import com.adobe.testing.s3mock.junit4.S3MockRule;
 import com.slack.kaldb.blobfs.LocalBlobFs;
 import com.slack.kaldb.blobfs.s3.S3BlobFs;
+import com.slack.kaldb.logstore.BlobFsBlockCache;
 import com.slack.kaldb.logstore.LogMessage;
 import com.slack.kaldb.logstore.LuceneIndexStoreImpl;
 import com.slack.kaldb.logstore.search.SearchQuery;
 import com.slack.kaldb.logstore.search.SearchResult;
 import com.slack.kaldb.metadata.cache.CacheSlotMetadata;
 import com.slack.kaldb.metadata.cache.CacheSlotMetadataStore;
+import com.slack.kaldb.metadata.cache.CacheSlotWatcher;
 import com.slack.kaldb.metadata.replica.ReplicaMetadata;
 import com.slack.kaldb.metadata.replica.ReplicaMetadataStore;
 import com.slack.kaldb.metadata.search.SearchMetadata;
@@ -35,6 +37,7 @@ import com.slack.kaldb.metadata.zookeeper.ZookeeperMetadataStoreImpl;
 import com.slack.kaldb.proto.config.KaldbConfigs;
 import com.slack.kaldb.proto.metadata.Metadata;
 import com.slack.kaldb.testlib.MessageUtil;
+import com.slack.kaldb.util.KeyedSerialExecutor;
 import io.micrometer.core.instrument.MeterRegistry;
 import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
 import java.io.IOException;
@@ -44,6 +47,12 @@ import java.time.Instant;
 import java.time.temporal.ChronoUnit;
 import java.util.Collection;
 import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.ThreadPoolExecutor;
 import java.util.concurrent.TimeUnit;
 import org.apache.commons.lang3.RandomStringUtils;
 import org.apache.curator.test.TestingServer;
@@ -63,6 +72,7 @@ public class ReadOnlyChunkImplTest {
   private TestingServer testingServer;
   private MeterRegistry meterRegistry;
   private S3BlobFs s3BlobFs;
+  private ExecutorService slotExecutorService;
 
   @ClassRule public static final S3MockRule S3_MOCK_RULE = S3MockRule.builder().silent().build();
 
@@ -71,6 +81,7 @@ public class ReadOnlyChunkImplTest {
     Tracing.newBuilder().build();
     meterRegistry = new SimpleMeterRegistry();
     testingServer = new TestingServer();
+    slotExecutorService = Executors.newCachedThreadPool();
 
     S3Client s3Client = S3_MOCK_RULE.createS3ClientV2();
     s3Client.createBucket(CreateBucketRequest.builder().bucket(TEST_S3_BUCKET).build());
@@ -79,6 +90,7 @@ public class ReadOnlyChunkImplTest {
 
   @After
   public void shutdown() throws IOException {
+    slotExecutorService.shutdownNow();
     s3BlobFs.close();
     testingServer.close();
     meterRegistry.close();
@@ -114,7 +126,9 @@ public class ReadOnlyChunkImplTest {
 
     ReadOnlyChunkImpl<LogMessage> readOnlyChunk =
         new ReadOnlyChunkImpl<>(
-            metadataStore,
+            new CacheSlotWatcher(metadataStore),
+            new KeyedSerialExecutor(slotExecutorService),
+            slotExecutorService,
             meterRegistry,
             s3BlobFs,
             SearchContext.fromConfig(kaldbConfig.getCacheConfig().getServerConfig()),
@@ -123,7 +137,11 @@ public class ReadOnlyChunkImplTest {
             cacheSlotMetadataStore,
             replicaMetadataStore,
             snapshotMetadataStore,
-            searchMetadataStore);
+            searchMetadataStore,
+            new HydrationScheduler(meterRegistry, 1, 0),
+            new SnapshotDiskCache(meterRegistry, null, 0),
+            new BlobFsBlockCache(meterRegistry, s3BlobFs, null, 0, 1),
+            new ChunkWarmer(meterRegistry, false, List.of(), 0, 0));
 
     // wait for chunk to register
     await()
@@ -238,7 +256,9 @@ public class ReadOnlyChunkImplTest {
 
     ReadOnlyChunkImpl<LogMessage> readOnlyChunk =
         new ReadOnlyChunkImpl<>(
-            metadataStore,
+            new CacheSlotWatcher(metadataStore),
+            new KeyedSerialExecutor(slotExecutorService),
+            slotExecutorService,
             meterRegistry,
             s3BlobFs,
             SearchContext.fromConfig(kaldbConfig.getCacheConfig().getServerConfig()),
@@ -247,7 +267,11 @@ public class ReadOnlyChunkImplTest {
             cacheSlotMetadataStore,
             replicaMetadataStore,
             snapshotMetadataStore,
-            searchMetadataStore);
+            searchMetadataStore,
+            new HydrationScheduler(meterRegistry, 1, 0),
+            new SnapshotDiskCache(meterRegistry, null, 0),
+            new BlobFsBlockCache(meterRegistry, s3BlobFs, null, 0, 1),
+            new ChunkWarmer(meterRegistry, false, List.of(), 0, 0));
 
     // wait for chunk to register
     await()
@@ -276,6 +300,113 @@ public class ReadOnlyChunkImplTest {
     metadataStore.close();
   }
 
+  @Test
+  public void shouldHydrateSlotReassignedAfterFailedAssignment() throws Exception {
+    KaldbConfigs.KaldbConfig kaldbConfig = makeCacheConfig();
+    KaldbConfigs.ZookeeperConfig zkConfig =
+        KaldbConfigs.ZookeeperConfig.newBuilder()
+            .setZkConnectString(testingServer.getConnectString())
+            .setZkPathPrefix("shouldHydrateSlotReassignedAfterFailedAssignment")
+            .setZkSessionTimeoutMs(1000)
+            .setZkConnectionTimeoutMs(1000)
+            .setSleepBetweenRetriesMs(1000)
+            .build();
+
+    MetadataStore metadataStore = ZookeeperMetadataStoreImpl.fromConfig(meterRegistry, zkConfig);
+
+    ReplicaMetadataStore replicaMetadataStore = new ReplicaMetadataStore(metadataStore, false);
+    SnapshotMetadataStore snapshotMetadataStore = new SnapshotMetadataStore(metadataStore, false);
+    SearchMetadataStore searchMetadataStore = new SearchMetadataStore(metadataStore, true);
+    CacheSlotMetadataStore cacheSlotMetadataStore =
+        new CacheSlotMetadataStore(metadataStore, false);
+
+    // the first replica has no files in the blob store, so its assignment fails
+    initializeZkReplica(metadataStore, "missing", "missingSnapshot");
+    initializeZkSnapshot(metadataStore, "missingSnapshot");
+    initializeZkReplica(metadataStore, "foo", "bar");
+    initializeZkSnapshot(metadataStore, "bar");
+    initializeBlobStorageWithIndex("bar");
+
+    // single threaded executors, which the test blocks to control when the changes are handled
+    ThreadPoolExecutor slotPool =
+        new ThreadPoolExecutor(1, 1, 0, TimeUnit.MILLISECONDS, new LinkedBlockingQueue<>());
+    ThreadPoolExecutor hydrationPool =
+        new ThreadPoolExecutor(1, 1, 0, TimeUnit.MILLISECONDS, new LinkedBlockingQueue<>());
+    ReadOnlyChunkImpl<LogMessage> readOnlyChunk =
+        new ReadOnlyChunkImpl<>(
+            new CacheSlotWatcher(metadataStore),
+            new KeyedSerialExecutor(slotPool),
+            hydrationPool,
+            meterRegistry,
+            s3BlobFs,
+            SearchContext.fromConfig(kaldbConfig.getCacheConfig().getServerConfig()),
+            kaldbConfig.getS3Config().getS3Bucket(),
+            kaldbConfig.getCacheConfig().getDataDirectory(),
+            cacheSlotMetadataStore,
+            replicaMetadataStore,
+            snapshotMetadataStore,
+            searchMetadataStore,
+            new HydrationScheduler(meterRegistry, 1, 0),
+            new SnapshotDiskCache(meterRegistry, null, 0),
+            new BlobFsBlockCache(meterRegistry, s3BlobFs, null, 0, 1),
+            new ChunkWarmer(meterRegistry, false, List.of(), 0, 0));
+
+    await()
+        .until(
+            () ->
+                readOnlyChunk.getChunkMetadataState()
+                    == Metadata.CacheSlotMetadata.CacheSlotState.FREE);
+
+    // hold the failing assignment until the slot changes can't be handled anymore
+    CountDownLatch hydrationLatch = new CountDownLatch(1);
+    hydrationPool.execute(
+        () -> {
+          try {
+            hydrationLatch.await();
+          } catch (InterruptedException ignored) {
+          }
+        });
+    assignReplicaToChunk(cacheSlotMetadataStore, "missing", readOnlyChunk);
+    await().until(() -> hydrationPool.getQueue().size() == 1);
+
+    CountDownLatch slotLatch = new CountDownLatch(1);
+    slotPool.execute(
+        () -> {
+          try {
+            slotLatch.await();
+          } catch (InterruptedException ignored) {
+          }
+        });
+    hydrationLatch.countDown();
+    await()
+        .until(
+            () ->
+                meterRegistry.get(CHUNK_ASSIGNMENT_TIMER).tag("successful", "false").timer().count()
+                    == 1);
+    assertThat(readOnlyChunk.getChunkMetadataState())
+        .isEqualTo(Metadata.CacheSlotMetadata.CacheSlotState.FREE);
+
+    // the slot is assigned again before the changes of the failed assignment are handled, so all
+    // the queued changes read the new assignment
+    assignReplicaToChunk(cacheSlotMetadataStore, "foo", readOnlyChunk);
+    await()
+        .until(
+            () ->
+                cacheSlotMetadataStore.getNodeSync(readOnlyChunk.slotName).replicaId.equals("foo"));
+    slotLatch.countDown();
+
+    await().until(() -> searchMetadataStore.listSync().size() == 1);
+    assertThat(readOnlyChunk.getChunkMetadataState())
+        .isEqualTo(Metadata.CacheSlotMetadata.CacheSlotState.LIVE);
+    assertThat(meterRegistry.get(CHUNK_ASSIGNMENT_TIMER).tag("successful", "true").timer().count())
+        .isEqualTo(1);
+
+    readOnlyChunk.close();
+    slotPool.shutdownNow();
+    hydrationPool.shutdownNow();
+    metadataStore.close();
+  }
+
   @Test
   public void shouldHandleMissingZkData() throws Exception {
     KaldbConfigs.KaldbConfig kaldbConfig = makeCacheConfig();
@@ -305,7 +436,9 @@ public class ReadOnlyChunkImplTest {
 
     ReadOnlyChunkImpl<LogMessage> readOnlyChunk =
         new ReadOnlyChunkImpl<>(
-            metadataStore,
+            new CacheSlotWatcher(metadataStore),
+            new KeyedSerialExecutor(slotExecutorService),
+            slotExecutorService,
             meterRegistry,
             s3BlobFs,
             SearchContext.fromConfig(kaldbConfig.getCacheConfig().getServerConfig()),
@@ -314,7 +447,11 @@ public class ReadOnlyChunkImplTest {
             cacheSlotMetadataStore,
             replicaMetadataStore,
             snapshotMetadataStore,
-            searchMetadataStore);
+            searchMetadataStore,
+            new HydrationScheduler(meterRegistry, 1, 0),
+            new SnapshotDiskCache(meterRegistry, null, 0),
+            new BlobFsBlockCache(meterRegistry, s3BlobFs, null, 0, 1),
+            new ChunkWarmer(meterRegistry, false, List.of(), 0, 0));
 
     // wait for chunk to register
     await()
@@ -373,7 +510,9 @@ public class ReadOnlyChunkImplTest {
 
     ReadOnlyChunkImpl<LogMessage> readOnlyChunk =
         new ReadOnlyChunkImpl<>(
-            metadataStore,
+            new CacheSlotWatcher(metadataStore),
+            new KeyedSerialExecutor(slotExecutorService),
+            slotExecutorService,
             meterRegistry,
             s3BlobFs,
             SearchContext.fromConfig(kaldbConfig.getCacheConfig().getServerConfig()),
@@ -382,7 +521,11 @@ public class ReadOnlyChunkImplTest {
             cacheSlotMetadataStore,
             replicaMetadataStore,
             snapshotMetadataStore,
-            searchMetadataStore);
+            searchMetadataStore,
+            new HydrationScheduler(meterRegistry, 1, 0),
+            new SnapshotDiskCache(meterRegistry, null, 0),
+            new BlobFsBlockCache(meterRegistry, s3BlobFs, null, 0, 1),
+            new ChunkWarmer(meterRegistry, false, List.of(), 0, 0));
 
     // wait for chunk to register
     await()
@@ -0,0 +1,151 @@
+package com.slack.kaldb.chunk;
+
+import static com.slack.kaldb.chunk.SnapshotDiskCache.SNAPSHOT_DISK_CACHE_BYTES;
+import static com.slack.kaldb.chunk.SnapshotDiskCache.SNAPSHOT_DISK_CACHE_EVICTIONS;
+import static com.slack.kaldb.chunk.SnapshotDiskCache.SNAPSHOT_DISK_CACHE_HITS;
+import static com.slack.kaldb.chunk.SnapshotDiskCache.SNAPSHOT_DISK_CACHE_MISSES;
+import static com.slack.kaldb.testlib.MetricsUtil.getCount;
+import static com.slack.kaldb.testlib.MetricsUtil.getValue;
+import static org.assertj.core.api.Assertions.assertThat;
+
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Random;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+public class SnapshotDiskCacheTest {
+  @Rule public TemporaryFolder temporaryFolder = new TemporaryFolder();
+
+  private SimpleMeterRegistry meterRegistry;
+  private Path cacheDirectory;
+
+  @Before
+  public void setUp() throws IOException {
+    meterRegistry = new SimpleMeterRegistry();
+    cacheDirectory = temporaryFolder.newFolder().toPath();
+  }
+
+  @After
+  public void tearDown() {
+    meterRegistry.close();
+  }
+
+  private Path makeSlotDirectory(int... fileLengths) throws IOException {
+    Path slotDirectory = temporaryFolder.newFolder().toPath();
+    for (int i = 0; i < fileLengths.length; i++) {
+      byte[] content = new byte[fileLengths[i]];
+      new Random().nextBytes(content);
+      Files.write(slotDirectory.resolve("_" + i + ".cfs"), content);
+    }
+    return slotDirectory;
+  }
+
+  @Test(expected = IllegalArgumentException.class)
+  public void testInvalidSize() throws IOException {
+    new SnapshotDiskCache(meterRegistry, cacheDirectory, -1);
+  }
+
+  @Test
+  public void testPutAndTake() throws IOException {
+    SnapshotDiskCache snapshotDiskCache =
+        new SnapshotDiskCache(meterRegistry, cacheDirectory, 1000);
+    Path slotDirectory = makeSlotDirectory(100, 200);
+    byte[] segment = Files.readAllBytes(slotDirectory.resolve("_1.cfs"));
+
+    assertThat(snapshotDiskCache.put("snapshot1", slotDirectory)).isTrue();
+    assertThat(slotDirectory.toFile().list()).isEmpty();
+    assertThat(snapshotDiskCache.contains("snapshot1")).isTrue();
+    assertThat(getValue(SNAPSHOT_DISK_CACHE_BYTES, meterRegistry)).isEqualTo(300);
+
+    Path newSlotDirectory = temporaryFolder.getRoot().toPath().resolve("newSlot");
+    assertThat(snapshotDiskCache.take("snapshot2", newSlotDirectory)).isFalse();
+    assertThat(snapshotDiskCache.take("snapshot1", newSlotDirectory)).isTrue();
+    assertThat(newSlotDirectory.toFile().list()).containsExactlyInAnyOrder("_0.cfs", "_1.cfs");
+    assertThat(Files.readAllBytes(newSlotDirectory.resolve("_1.cfs"))).isEqualTo(segment);
+
+    // A snapshot is moved out of the cache when it is taken.
+    assertThat(snapshotDiskCache.contains("snapshot1")).isFalse();
+    assertThat(cacheDirectory.toFile().list()).isEmpty();
+    assertThat(getValue(SNAPSHOT_DISK_CACHE_BYTES, meterRegistry)).isZero();
+    assertThat(getCount(SNAPSHOT_DISK_CACHE_HITS, meterRegistry)).isEqualTo(1);
+    assertThat(getCount(SNAPSHOT_DISK_CACHE_MISSES, meterRegistry)).isEqualTo(1);
+  }
+
+  @Test
+  public void testLeastRecentlyAddedSnapshotsAreEvicted() throws IOException {
+    SnapshotDiskCache snapshotDiskCache =
+        new SnapshotDiskCache(meterRegistry, cacheDirectory, 1000);
+    assertThat(snapshotDiskCache.put("snapshot1", makeSlotDirectory(400))).isTrue();
+    assertThat(snapshotDiskCache.put("snapshot2", makeSlotDirectory(400))).isTrue();
+    assertThat(snapshotDiskCache.put("snapshot3", makeSlotDirectory(400))).isTrue();
+
+    assertThat(snapshotDiskCache.contains("snapshot1")).isFalse();
+    assertThat(snapshotDiskCache.contains("snapshot2")).isTrue();
+    assertThat(snapshotDiskCache.contains("snapshot3")).isTrue();
+    assertThat(snapshotDiskCache.getTotalBytes()).isEqualTo(800);
+    assertThat(cacheDirectory.toFile().list()).containsExactlyInAnyOrder("snapshot2", "snapshot3");
+    assertThat(getCount(SNAPSHOT_DISK_CACHE_EVICTIONS, meterRegistry)).isEqualTo(1);
+
+    // A snapshot larger than the cache is left in the slot directory.
+    Path slotDirectory = makeSlotDirectory(1001);
+    assertThat(snapshotDiskCache.put("snapshot4", slotDirectory)).isFalse();
+    assertThat(slotDirectory.toFile().list()).containsExactly("_0.cfs");
+  }
+
+  @Test
+  public void testCacheIsLoadedOnRestart() throws IOException {
+    SnapshotDiskCache snapshotDiskCache =
+        new SnapshotDiskCache(meterRegistry, cacheDirectory, 1000);
+    assertThat(snapshotDiskCache.put("snapshot1", makeSlotDirectory(300))).isTrue();
+    assertThat(snapshotDiskCache.put("snapshot2", makeSlotDirectory(300))).isTrue();
+    // An entry left behind by a crash while adding a snapshot.
+    Files.createDirectories(cacheDirectory.resolve("snapshot3.1234.staging"));
+
+    SnapshotDiskCache restartedCache =
+        new SnapshotDiskCache(new SimpleMeterRegistry(), cacheDirectory, 1000);
+    assertThat(restartedCache.contains("snapshot1")).isTrue();
+    assertThat(restartedCache.contains("snapshot2")).isTrue();
+    assertThat(restartedCache.getTotalBytes()).isEqualTo(600);
+    assertThat(cacheDirectory.toFile().list()).containsExactlyInAnyOrder("snapshot1", "snapshot2");
+
+    Path slotDirectory = temporaryFolder.newFolder().toPath();
+    assertThat(restartedCache.take("snapshot2", slotDirectory)).isTrue();
+    assertThat(slotDirectory.toFile().list()).containsExactly("_0.cfs");
+  }
+
+  @Test
+  public void testCorruptSnapshotIsNotUsed() throws IOException {
+    SnapshotDiskCache snapshotDiskCache =
+        new SnapshotDiskCache(meterRegistry, cacheDirectory, 1000);
+    assertThat(snapshotDiskCache.put("snapshot1", makeSlotDirectory(300))).isTrue();
+    try (RandomAccessFile file =
+        new RandomAccessFile(
+            cacheDirectory.resolve("snapshot1").resolve("_0.cfs").toFile(), "rw")) {
+      int value = file.read();
+      file.seek(0);
+      file.write(value ^ 0xff);
+    }
+
+    Path slotDirectory = temporaryFolder.newFolder().toPath();
+    assertThat(snapshotDiskCache.take("snapshot1", slotDirectory)).isFalse();
+    assertThat(slotDirectory.toFile().list()).isEmpty();
+    assertThat(snapshotDiskCache.contains("snapshot1")).isFalse();
+    assertThat(getCount(SNAPSHOT_DISK_CACHE_MISSES, meterRegistry)).isEqualTo(1);
+  }
+
+  @Test
+  public void testDisabledCache() throws IOException {
+    SnapshotDiskCache snapshotDiskCache = new SnapshotDiskCache(meterRegistry, cacheDirectory, 0);
+    Path slotDirectory = makeSlotDirectory(100);
+    assertThat(snapshotDiskCache.put("snapshot1", slotDirectory)).isFalse();
+    assertThat(slotDirectory.toFile().list()).containsExactly("_0.cfs");
+    assertThat(snapshotDiskCache.take("snapshot1", temporaryFolder.newFolder().toPath())).isFalse();
+  }
+}
@@ -7,8 +7,12 @@ import static org.awaitility.Awaitility.await;
 import com.adobe.testing.s3mock.junit4.S3MockRule;
 import com.slack.kaldb.blobfs.s3.S3BlobFs;
 import com.slack.kaldb.chunk.Chunk;
+import com.slack.kaldb.chunk.ChunkWarmer;
+import com.slack.kaldb.chunk.HydrationScheduler;
 import com.slack.kaldb.chunk.ReadOnlyChunkImpl;
 import com.slack.kaldb.chunk.SearchContext;
+import com.slack.kaldb.chunk.SnapshotDiskCache;
+import com.slack.kaldb.logstore.BlobFsBlockCache;
 import com.slack.kaldb.logstore.LogMessage;
 import com.slack.kaldb.metadata.zookeeper.ZookeeperMetadataStoreImpl;
 import com.slack.kaldb.proto.config.KaldbConfigs;
@@ -66,7 +70,7 @@ public class CachingChunkManagerTest {
     meterRegistry.close();
   }
 
-  private CachingChunkManager<LogMessage> initChunkManager() throws TimeoutException {
+  private CachingChunkManager<LogMessage> initChunkManager() throws TimeoutException, IOException {
     KaldbConfigs.CacheConfig cacheConfig =
         KaldbConfigs.CacheConfig.newBuilder()
             .setSlotsPerInstance(3)
@@ -109,9 +113,16 @@ public class CachingChunkManagerTest {
             metadataStore,
             s3BlobFs,
             SearchContext.fromConfig(kaldbConfig.getCacheConfig().getServerConfig()),
+            0,
             kaldbConfig.getS3Config().getS3Bucket(),
             kaldbConfig.getCacheConfig().getDataDirectory(),
-            kaldbConfig.getCacheConfig().getSlotsPerInstance());
+            kaldbConfig.getCacheConfig().getSlotsPerInstance(),
+            10L * 1024 * 1024 * 1024,
+            1024L * 1024 * 1024,
+            new HydrationScheduler(meterRegistry, 2, 0),
+            new SnapshotDiskCache(meterRegistry, null, 0),
+            new BlobFsBlockCache(meterRegistry, s3BlobFs, null, 0, 1),
+            new ChunkWarmer(meterRegistry, false, List.of(), 0, 0));
 
     cachingChunkManager.startAsync();
     cachingChunkManager.awaitRunning(15, TimeUnit.SECONDS);
@@ -146,7 +157,7 @@ public class CachingChunkManagerTest {
   }
 
   @Test
-  public void testAddMessageIsUnsupported() throws TimeoutException {
+  public void testAddMessageIsUnsupported() throws TimeoutException, IOException {
     cachingChunkManager = initChunkManager();
     MessageUtil.makeMessage(1);
     assertThatThrownBy(() -> cachingChunkManager.addMessage(MessageUtil.makeMessage(1), 10, "1", 1))
@@ -3,9 +3,12 @@ package com.slack.kaldb.chunkManager;
 import static com.slack.kaldb.chunk.ChunkInfo.MAX_FUTURE_TIME;
 import static com.slack.kaldb.chunkManager.IndexingChunkManager.LIVE_BYTES_INDEXED;
 import static com.slack.kaldb.chunkManager.IndexingChunkManager.LIVE_MESSAGES_INDEXED;
+import static com.slack.kaldb.chunkManager.IndexingChunkManager.ROLLOVERS_PENDING;
+import static com.slack.kaldb.chunkManager.IndexingChunkManager.ROLLOVER_BACKPRESSURE_TIMER;
 import static com.slack.kaldb.chunkManager.RollOverChunkTask.ROLLOVERS_COMPLETED;
 import static com.slack.kaldb.chunkManager.RollOverChunkTask.ROLLOVERS_FAILED;
 import static com.slack.kaldb.chunkManager.RollOverChunkTask.ROLLOVERS_INITIATED;
+import static com.slack.kaldb.chunkManager.RollOverChunkTask.ROLLOVER_QUEUE_TIMER;
 import static com.slack.kaldb.chunkManager.RollOverChunkTask.ROLLOVER_TIMER;
 import static com.slack.kaldb.chunkrollover.DiskOrMessageCountBasedRolloverStrategy.LIVE_BYTES_DIR;
 import static com.slack.kaldb.logstore.LuceneIndexStoreImpl.MESSAGES_FAILED_COUNTER;
@@ -65,6 +68,7 @@ import java.time.temporal.ChronoUnit;
 import java.util.Collections;
 import java.util.List;
 import java.util.Objects;
+import java.util.concurrent.CountDownLatch;
 import java.util.concurrent.ExecutionException;
 import java.util.concurrent.ExecutorService;
 import java.util.concurrent.Executors;
@@ -147,6 +151,19 @@ public class IndexingChunkManagerTest {
       String s3TestBucket,
       ListeningExecutorService listeningExecutorService)
       throws IOException, TimeoutException {
+    initChunkManager(
+        chunkRollOverStrategy,
+        s3TestBucket,
+        listeningExecutorService,
+        KaldbConfigUtil.makeIndexerConfig(TEST_PORT, 1000, "log_message", 100));
+  }
+
+  private void initChunkManager(
+      ChunkRollOverStrategy chunkRollOverStrategy,
+      String s3TestBucket,
+      ListeningExecutorService listeningExecutorService,
+      KaldbConfigs.IndexerConfig indexerConfig)
+      throws IOException, TimeoutException {
     SearchContext searchContext = new SearchContext(TEST_HOST, TEST_PORT);
     chunkManager =
         new IndexingChunkManager<>(
@@ -159,7 +176,7 @@ public class IndexingChunkManagerTest {
             listeningExecutorService,
             metadataStore,
             searchContext,
-            KaldbConfigUtil.makeIndexerConfig(TEST_PORT, 1000, "log_message", 100));
+            indexerConfig);
     chunkManager.startAsync();
     chunkManager.awaitRunning(DEFAULT_START_STOP_DURATION);
   }
@@ -994,7 +1011,7 @@ public class IndexingChunkManagerTest {
   }
 
   @Test
-  public void testChunkRollOverInProgressExceptionIsThrown() throws Exception {
+  public void testRollOversWithinPendingLimitDoNotBlockIngestion() throws Exception {
     final Instant startTime =
         LocalDateTime.of(2020, 10, 1, 10, 10, 0).atZone(ZoneOffset.UTC).toInstant();
     final List<LogMessage> messages =
@@ -1006,34 +1023,87 @@ public class IndexingChunkManagerTest {
         chunkRollOverStrategy, S3_TEST_BUCKET, IndexingChunkManager.makeDefaultRollOverExecutor());
 
     assertThat(snapshotMetadataStore.listSync()).isEmpty();
-    assertThat(fetchLiveSnapshot(snapshotMetadataStore.listSync())).isEmpty();
-    assertThat(fetchNonLiveSnapshot(snapshotMetadataStore.listSync())).isEmpty();
-    assertThat(searchMetadataStore.listSync()).isEmpty();
 
-    // Adding a messages very quickly when running a rollover in background would result in an
-    // exception.
-    assertThatThrownBy(
-            () -> {
-              int offset = 1;
-              for (LogMessage m : messages) {
-                chunkManager.addMessage(m, m.toString().length(), TEST_KAFKA_PARTITION_ID, offset);
-                offset++;
-              }
-            })
-        .isInstanceOf(ChunkRollOverException.class);
+    // By default, a second roll over can be queued while the first one is in progress.
+    int offset = 1;
+    for (LogMessage m : messages) {
+      chunkManager.addMessage(m, m.toString().length(), TEST_KAFKA_PARTITION_ID, offset);
+      offset++;
+    }
 
+    await().until(() -> getCount(ROLLOVERS_COMPLETED, metricsRegistry) == 2);
+    assertThat(getCount(ROLLOVERS_FAILED, metricsRegistry)).isEqualTo(0);
+    assertThat(getTimerCount(ROLLOVER_BACKPRESSURE_TIMER, metricsRegistry)).isEqualTo(0);
+    assertThat(getValue(ROLLOVERS_PENDING, metricsRegistry)).isEqualTo(0);
+    assertThat(chunkManager.isRolloverCapacityExhausted()).isFalse();
     List<SnapshotMetadata> snapshots = snapshotMetadataStore.listSync();
-    assertThat(snapshots.size()).isEqualTo(2);
-    List<SnapshotMetadata> liveSnapshots = fetchLiveSnapshot(snapshots);
-    assertThat(liveSnapshots.size()).isGreaterThanOrEqualTo(2);
-    assertThat(fetchNonLiveSnapshot(snapshots).size()).isEqualTo(0);
-    List<SearchMetadata> searchNodes = searchMetadataStore.listSync();
-    assertThat(searchNodes.size()).isEqualTo(2);
-    assertThat(liveSnapshots.stream().map(s -> s.snapshotId).collect(Collectors.toList()))
-        .containsExactlyInAnyOrderElementsOf(
-            searchNodes.stream().map(s -> s.snapshotName).collect(Collectors.toList()));
-    assertThat(snapshots.stream().filter(s -> s.endTimeEpochMs == MAX_FUTURE_TIME).count())
-        .isEqualTo(2);
+    assertThat(fetchLiveSnapshot(snapshots).size()).isEqualTo(2);
+    assertThat(fetchNonLiveSnapshot(snapshots).size()).isEqualTo(2);
+    assertThat(fetchNonLiveSnapshot(snapshots).stream().map(s -> s.maxOffset))
+        .containsExactlyInAnyOrder(10L, 20L);
+  }
+
+  @Test
+  public void testRollOverBlocksIngestionWhenPendingLimitIsReached() throws Exception {
+    final Instant startTime =
+        LocalDateTime.of(2020, 10, 1, 10, 10, 0).atZone(ZoneOffset.UTC).toInstant();
+    final List<LogMessage> messages =
+        MessageUtil.makeMessagesWithTimeDifference(1, 20, 1000, startTime);
+
+    // Hold the only roll over thread, so the roll overs queue up behind it.
+    ListeningExecutorService rollOverExecutor = IndexingChunkManager.makeDefaultRollOverExecutor();
+    CountDownLatch uploadLatch = new CountDownLatch(1);
+    ListenableFuture<?> blockingTask =
+        rollOverExecutor.submit(
+            () -> {
+              uploadLatch.await();
+              return null;
+            });
+
+    final ChunkRollOverStrategy chunkRollOverStrategy =
+        new DiskOrMessageCountBasedRolloverStrategy(metricsRegistry, 10 * 1024 * 1024 * 1024L, 10L);
+    initChunkManager(
+        chunkRollOverStrategy,
+        S3_TEST_BUCKET,
+        rollOverExecutor,
+        KaldbConfigUtil.makeIndexerConfig(TEST_PORT, 1000, "log_message", 100)
+            .toBuilder()
+            .setMaxPendingRollovers(1)
+            .build());
+
+    for (int i = 0; i < 10; i++) {
+      LogMessage m = messages.get(i);
+      chunkManager.addMessage(m, m.toString().length(), TEST_KAFKA_PARTITION_ID, i + 1);
+    }
+    assertThat(chunkManager.isRolloverCapacityExhausted()).isTrue();
+    assertThat(getValue(ROLLOVERS_PENDING, metricsRegistry)).isEqualTo(1);
+
+    // The next roll over waits for the pending one to complete.
+    ExecutorService ingestExecutor = Executors.newSingleThreadExecutor();
+    Future<?> ingestFuture =
+        ingestExecutor.submit(
+            () -> {
+              for (int i = 10; i < 20; i++) {
+                LogMessage m = messages.get(i);
+                chunkManager.addMessage(m, m.toString().length(), TEST_KAFKA_PARTITION_ID, i + 1);
+              }
+              return null;
+            });
+    assertThatThrownBy(() -> ingestFuture.get(500, TimeUnit.MILLISECONDS))
+        .isInstanceOf(TimeoutException.class);
+    assertThat(getCount(ROLLOVERS_INITIATED, metricsRegistry)).isEqualTo(0);
+
+    uploadLatch.countDown();
+    blockingTask.get(10, TimeUnit.SECONDS);
+    ingestFuture.get(10, TimeUnit.SECONDS);
+    ingestExecutor.shutdown();
+
+    await().until(() -> getCount(ROLLOVERS_COMPLETED, metricsRegistry) == 2);
+    assertThat(getCount(ROLLOVERS_FAILED, metricsRegistry)).isEqualTo(0);
+    assertThat(getTimerCount(ROLLOVER_BACKPRESSURE_TIMER, metricsRegistry)).isEqualTo(1);
+    assertThat(getTimerCount(ROLLOVER_QUEUE_TIMER, metricsRegistry)).isEqualTo(2);
+    assertThat(getCount(MESSAGES_RECEIVED_COUNTER, metricsRegistry)).isEqualTo(20);
+    assertThat(fetchNonLiveSnapshot(snapshotMetadataStore.listSync()).size()).isEqualTo(2);
   }
 
   @Test
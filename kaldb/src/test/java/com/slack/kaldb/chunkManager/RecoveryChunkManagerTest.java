@@ -40,8 +40,12 @@ import com.slack.kaldb.testlib.MessageUtil;
 import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
 import java.io.IOException;
 import java.time.Duration;
+import java.util.ArrayList;
 import java.util.Collections;
 import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
 import java.util.concurrent.TimeoutException;
 import java.util.stream.Collectors;
 import org.apache.curator.test.TestingServer;
@@ -116,6 +120,10 @@ public class RecoveryChunkManagerTest {
   }
 
   private void initChunkManager(String testS3Bucket) throws Exception {
+    initChunkManager(testS3Bucket, false);
+  }
+
+  private void initChunkManager(String testS3Bucket, boolean writerPerThread) throws Exception {
 
     KaldbConfigs.KaldbConfig kaldbCfg =
         KaldbConfigUtil.makeKaldbConfig(
@@ -141,7 +149,8 @@ public class RecoveryChunkManagerTest {
             snapshotMetadataStore,
             kaldbCfg.getIndexerConfig(),
             s3BlobFs,
-            kaldbCfg.getS3Config());
+            kaldbCfg.getS3Config(),
+            writerPerThread);
     chunkManager.startAsync();
     chunkManager.awaitRunning(DEFAULT_START_STOP_DURATION);
   }
@@ -348,6 +357,62 @@ public class RecoveryChunkManagerTest {
 
   // TODO: Add a test to create roll over failure due to ZK.
 
+  @Test
+  public void testAddMessagesFromManyThreadsWithWriterPerThread() throws Exception {
+    initChunkManager(S3_TEST_BUCKET, true);
+
+    int threadCount = 4;
+    int messagesPerThread = 25;
+    List<LogMessage> messages =
+        MessageUtil.makeMessagesWithTimeDifference(1, threadCount * messagesPerThread);
+    ExecutorService executorService = Executors.newFixedThreadPool(threadCount);
+    List<Future<?>> futures = new ArrayList<>();
+    for (int i = 0; i < threadCount; i++) {
+      List<LogMessage> threadMessages =
+          messages.subList(i * messagesPerThread, (i + 1) * messagesPerThread);
+      int firstOffset = i * messagesPerThread + 1;
+      futures.add(
+          executorService.submit(
+              () -> {
+                int offset = firstOffset;
+                for (LogMessage m : threadMessages) {
+                  chunkManager.addMessage(
+                      m, m.toString().length(), TEST_KAFKA_PARTITION_ID, offset);
+                  offset++;
+                }
+                return null;
+              }));
+    }
+    for (Future<?> future : futures) {
+      future.get();
+    }
+    executorService.shutdown();
+
+    // the messages are only added to the chunk of each thread until the roll over
+    assertThat(chunkManager.getChunkList()).isEmpty();
+    assertThat(getCount(MESSAGES_RECEIVED_COUNTER, metricsRegistry)).isEqualTo(100);
+    assertThat(getValue(LIVE_MESSAGES_INDEXED, metricsRegistry)).isEqualTo(100);
+
+    assertThat(chunkManager.waitForRollOvers()).isTrue();
+    assertThat(getCount(ROLLOVERS_COMPLETED, metricsRegistry)).isEqualTo(1);
+    assertThat(chunkManager.getChunkList().size()).isEqualTo(1);
+    testChunkManagerSearch(chunkManager, "Message1", 1);
+    testChunkManagerSearch(chunkManager, "Message100", 1);
+
+    // one snapshot covers the messages of all the threads
+    List<SnapshotMetadata> snapshots = snapshotMetadataStore.listSync();
+    assertThat(snapshots.size()).isEqualTo(1);
+    assertThat(snapshots.get(0).startTimeEpochMs).isEqualTo(messages.get(0).timeSinceEpochMilli);
+    assertThat(snapshots.get(0).endTimeEpochMs)
+        .isEqualTo(messages.get(messages.size() - 1).timeSinceEpochMilli);
+    assertThat(snapshots.get(0).maxOffset).isEqualTo(100);
+    assertThat(snapshots.get(0).numDocs).isEqualTo(100);
+
+    chunkManager.stopAsync();
+    chunkManager.awaitTerminated(DEFAULT_START_STOP_DURATION);
+    chunkManager = null;
+  }
+
   @Test
   public void testAddMessagesWithFailedRollOverStopsIngestion() throws Exception {
     // Use a non-existent bucket to induce roll-over failure.
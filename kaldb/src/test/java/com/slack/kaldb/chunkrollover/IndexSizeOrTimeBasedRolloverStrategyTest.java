@@ -0,0 +1,178 @@
+package com.slack.kaldb.chunkrollover;
+
+import static com.slack.kaldb.chunkrollover.IndexSizeOrTimeBasedRolloverStrategy.LIVE_DATA_SPAN_MS;
+import static com.slack.kaldb.chunkrollover.IndexSizeOrTimeBasedRolloverStrategy.LIVE_INDEX_BYTES;
+import static com.slack.kaldb.testlib.MetricsUtil.getValue;
+import static org.assertj.core.api.Assertions.assertThat;
+
+import brave.Tracing;
+import com.slack.kaldb.chunk.ChunkInfo;
+import com.slack.kaldb.logstore.LogMessage;
+import com.slack.kaldb.logstore.LuceneIndexStoreImpl;
+import com.slack.kaldb.proto.config.KaldbConfigs;
+import com.slack.kaldb.testlib.KaldbConfigUtil;
+import com.slack.kaldb.testlib.MessageUtil;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import java.io.IOException;
+import java.time.Duration;
+import java.time.Instant;
+import java.time.temporal.ChronoUnit;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.BeforeClass;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+public class IndexSizeOrTimeBasedRolloverStrategyTest {
+  @Rule public TemporaryFolder temporaryFolder = new TemporaryFolder();
+
+  private SimpleMeterRegistry metricsRegistry;
+  private LuceneIndexStoreImpl logStore;
+
+  @BeforeClass
+  public static void beforeClass() {
+    Tracing.newBuilder().build();
+  }
+
+  @Before
+  public void setUp() throws Exception {
+    metricsRegistry = new SimpleMeterRegistry();
+    logStore =
+        LuceneIndexStoreImpl.makeLogStore(
+            temporaryFolder.newFolder(),
+            Duration.ofMinutes(5),
+            Duration.ofMinutes(5),
+            metricsRegistry);
+  }
+
+  @After
+  public void tearDown() throws IOException {
+    logStore.close();
+    metricsRegistry.close();
+  }
+
+  @Test
+  public void testInitViaConfig() {
+    KaldbConfigs.IndexerConfig indexerCfg =
+        KaldbConfigUtil.makeIndexerConfig().toBuilder().setMaxChunkDataSpanSecs(3600).build();
+    IndexSizeOrTimeBasedRolloverStrategy chunkRollOverStrategy =
+        IndexSizeOrTimeBasedRolloverStrategy.fromConfig(metricsRegistry, indexerCfg);
+    assertThat(chunkRollOverStrategy.getMaxBytesPerChunk()).isEqualTo(10737418240L);
+    assertThat(chunkRollOverStrategy.getMaxMessagesPerChunk()).isEqualTo(100);
+    assertThat(chunkRollOverStrategy.getMaxDataSpanMs()).isEqualTo(3600 * 1000);
+  }
+
+  @Test(expected = IllegalArgumentException.class)
+  public void testZeroMaxDataSpan() {
+    new IndexSizeOrTimeBasedRolloverStrategy(metricsRegistry, 100, 100, Duration.ZERO);
+  }
+
+  @Test(expected = IllegalArgumentException.class)
+  public void testNegativeMaxBytesPerChunk() {
+    new IndexSizeOrTimeBasedRolloverStrategy(metricsRegistry, -100, 100, Duration.ofMinutes(1));
+  }
+
+  @Test
+  public void testIndexSizeIncludesBufferedAndFlushedDocs() {
+    assertThat(logStore.getIndexSizeBytes()).isZero();
+
+    for (LogMessage message : MessageUtil.makeMessagesWithTimeDifference(1, 100)) {
+      logStore.addMessage(message);
+    }
+    long bufferedBytes = logStore.getIndexSizeBytes();
+    assertThat(bufferedBytes).isPositive();
+
+    logStore.commit();
+    long flushedBytes = logStore.getIndexSizeBytes();
+    assertThat(flushedBytes).isPositive();
+
+    for (LogMessage message : MessageUtil.makeMessagesWithTimeDifference(101, 200)) {
+      logStore.addMessage(message);
+    }
+    logStore.commit();
+    assertThat(logStore.getIndexSizeBytes()).isGreaterThan(flushedBytes);
+  }
+
+  @Test
+  public void testRollOverOnIndexSize() {
+    ChunkInfo chunkInfo = new ChunkInfo("chunk", Instant.now().toEpochMilli(), "1", "path");
+    IndexSizeOrTimeBasedRolloverStrategy chunkRollOverStrategy =
+        new IndexSizeOrTimeBasedRolloverStrategy(
+            metricsRegistry, 1024 * 1024, 10000, Duration.ofHours(1));
+    chunkRollOverStrategy.setActiveChunk(logStore, chunkInfo);
+    assertThat(chunkRollOverStrategy.shouldRollOver(0, 0)).isFalse();
+
+    int count = 0;
+    for (LogMessage message : MessageUtil.makeMessagesWithTimeDifference(1, 5000)) {
+      logStore.addMessage(message);
+      chunkInfo.updateDataTimeRange(message.timeSinceEpochMilli);
+      count++;
+      if (chunkRollOverStrategy.shouldRollOver(count * 100L, count)) {
+        break;
+      }
+    }
+
+    // The chunk rolls over on the index size, well before the message limit.
+    assertThat(count).isLessThan(5000);
+    assertThat(logStore.getIndexSizeBytes()).isGreaterThanOrEqualTo(1024 * 1024);
+    assertThat(getValue(LIVE_INDEX_BYTES, metricsRegistry)).isGreaterThanOrEqualTo(1024 * 1024);
+  }
+
+  @Test
+  public void testRollOverOnDataSpan() {
+    Instant start = Instant.now().minus(2, ChronoUnit.MINUTES);
+    ChunkInfo chunkInfo = new ChunkInfo("chunk", start.toEpochMilli(), "1", "path");
+    IndexSizeOrTimeBasedRolloverStrategy chunkRollOverStrategy =
+        new IndexSizeOrTimeBasedRolloverStrategy(
+            metricsRegistry, Long.MAX_VALUE, Long.MAX_VALUE, Duration.ofMinutes(1));
+    chunkRollOverStrategy.setActiveChunk(logStore, chunkInfo);
+    assertThat(chunkRollOverStrategy.shouldRollOver(0, 0)).isFalse();
+
+    chunkInfo.updateDataTimeRange(start.toEpochMilli());
+    assertThat(chunkRollOverStrategy.shouldRollOver(1, 1)).isFalse();
+
+    chunkInfo.updateDataTimeRange(start.plusSeconds(59).toEpochMilli());
+    assertThat(chunkRollOverStrategy.shouldRollOver(2, 2)).isFalse();
+    assertThat(getValue(LIVE_DATA_SPAN_MS, metricsRegistry)).isEqualTo(59000);
+
+    // An out of order message also widens the time range of the chunk.
+    chunkInfo.updateDataTimeRange(start.minusSeconds(1).toEpochMilli());
+    assertThat(chunkRollOverStrategy.shouldRollOver(3, 3)).isTrue();
+    assertThat(getValue(LIVE_DATA_SPAN_MS, metricsRegistry)).isEqualTo(60000);
+  }
+
+  @Test
+  public void testOutOfRangeTimestampsDontRollOver() {
+    Instant start = Instant.now().minusSeconds(30);
+    ChunkInfo chunkInfo = new ChunkInfo("chunk", start.toEpochMilli(), "1", "path");
+    IndexSizeOrTimeBasedRolloverStrategy chunkRollOverStrategy =
+        new IndexSizeOrTimeBasedRolloverStrategy(
+            metricsRegistry, Long.MAX_VALUE, Long.MAX_VALUE, Duration.ofMinutes(1));
+    chunkRollOverStrategy.setActiveChunk(logStore, chunkInfo);
+
+    chunkInfo.updateDataTimeRange(start.toEpochMilli());
+    chunkInfo.updateDataTimeRange(start.plusSeconds(20).toEpochMilli());
+    assertThat(chunkRollOverStrategy.shouldRollOver(2, 2)).isFalse();
+
+    // A message from long before the chunk was created only counts from the tolerance before it.
+    chunkInfo.updateDataTimeRange(0);
+    assertThat(chunkRollOverStrategy.shouldRollOver(3, 3)).isFalse();
+    assertThat(getValue(LIVE_DATA_SPAN_MS, metricsRegistry)).isEqualTo(26000);
+
+    // A message from far in the future only counts up to the tolerance after the current time.
+    chunkInfo.updateDataTimeRange(Instant.now().plus(1, ChronoUnit.DAYS).toEpochMilli());
+    assertThat(chunkRollOverStrategy.shouldRollOver(4, 4)).isFalse();
+    assertThat(getValue(LIVE_DATA_SPAN_MS, metricsRegistry)).isBetween(42000.0, 46000.0);
+    assertThat(chunkInfo.getDataStartTimeEpochMs()).isZero();
+  }
+
+  @Test
+  public void testRollOverOnMessageCount() {
+    ChunkRollOverStrategy chunkRollOverStrategy =
+        new IndexSizeOrTimeBasedRolloverStrategy(
+            metricsRegistry, Long.MAX_VALUE, 100, Duration.ofHours(1));
+    assertThat(chunkRollOverStrategy.shouldRollOver(1, 99)).isFalse();
+    assertThat(chunkRollOverStrategy.shouldRollOver(1, 100)).isTrue();
+  }
+}
@@ -0,0 +1,301 @@
+package com.slack.kaldb.clusterManager;
+
+import static com.slack.kaldb.proto.metadata.Metadata.IndexType.LOGS_LUCENE9;
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.awaitility.Awaitility.await;
+import static org.mockito.Mockito.spy;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+
+import brave.Tracing;
+import com.slack.kaldb.metadata.cache.CacheNodeMetadata;
+import com.slack.kaldb.metadata.cache.CacheNodeMetadataStore;
+import com.slack.kaldb.metadata.cache.CacheSlotMetadata;
+import com.slack.kaldb.metadata.cache.CacheSlotMetadataStore;
+import com.slack.kaldb.metadata.replica.ReplicaMetadata;
+import com.slack.kaldb.metadata.replica.ReplicaMetadataStore;
+import com.slack.kaldb.metadata.snapshot.SnapshotMetadata;
+import com.slack.kaldb.metadata.snapshot.SnapshotMetadataStore;
+import com.slack.kaldb.metadata.zookeeper.MetadataStore;
+import com.slack.kaldb.metadata.zookeeper.ZookeeperMetadataStoreImpl;
+import com.slack.kaldb.proto.config.KaldbConfigs;
+import com.slack.kaldb.proto.metadata.Metadata;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import java.io.IOException;
+import java.time.Instant;
+import java.util.List;
+import java.util.stream.Collectors;
+import org.apache.curator.test.TestingServer;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+public class ClusterStateTest {
+
+  private TestingServer testingServer;
+  private MeterRegistry meterRegistry;
+
+  private MetadataStore metadataStore;
+  private ReplicaMetadataStore replicaMetadataStore;
+  private SnapshotMetadataStore snapshotMetadataStore;
+  private CacheSlotMetadataStore cacheSlotMetadataStore;
+  private CacheNodeMetadataStore cacheNodeMetadataStore;
+  private ClusterState clusterState;
+
+  @Before
+  public void setup() throws Exception {
+    Tracing.newBuilder().build();
+    meterRegistry = new SimpleMeterRegistry();
+    testingServer = new TestingServer();
+
+    KaldbConfigs.ZookeeperConfig zkConfig =
+        KaldbConfigs.ZookeeperConfig.newBuilder()
+            .setZkConnectString(testingServer.getConnectString())
+            .setZkPathPrefix("ClusterStateTest")
+            .setZkSessionTimeoutMs(1000)
+            .setZkConnectionTimeoutMs(1000)
+            .setSleepBetweenRetriesMs(1000)
+            .build();
+
+    metadataStore = ZookeeperMetadataStoreImpl.fromConfig(meterRegistry, zkConfig);
+    replicaMetadataStore = new ReplicaMetadataStore(metadataStore, true);
+    snapshotMetadataStore = new SnapshotMetadataStore(metadataStore, true);
+    cacheSlotMetadataStore = new CacheSlotMetadataStore(metadataStore, true);
+    cacheNodeMetadataStore = new CacheNodeMetadataStore(metadataStore, true);
+    clusterState =
+        new ClusterState(
+            replicaMetadataStore,
+            snapshotMetadataStore,
+            cacheSlotMetadataStore,
+            cacheNodeMetadataStore);
+  }
+
+  @After
+  public void shutdown() throws IOException {
+    clusterState.close();
+    cacheNodeMetadataStore.close();
+    cacheSlotMetadataStore.close();
+    snapshotMetadataStore.close();
+    replicaMetadataStore.close();
+    metadataStore.close();
+
+    testingServer.close();
+    meterRegistry.close();
+  }
+
+  @Test
+  public void shouldIndexFreeSlotsAndUnassignedReplicas() {
+    ReplicaMetadata replica1 = newReplica("replica1", "snapshot1", 1000);
+    ReplicaMetadata replica2 = newReplica("replica2", "snapshot1", 1000);
+    replicaMetadataStore.createSync(replica1);
+    replicaMetadataStore.createSync(replica2);
+
+    CacheSlotMetadata freeSlot = newCacheSlot("slot1", "");
+    CacheSlotMetadata assignedSlot = newCacheSlot("slot2", "replica1");
+    cacheSlotMetadataStore.createSync(freeSlot);
+    cacheSlotMetadataStore.createSync(assignedSlot);
+    await().until(() -> cacheSlotMetadataStore.getCached().size() == 2);
+    await().until(() -> replicaMetadataStore.getCached().size() == 2);
+
+    assertThat(clusterState.getFreeCacheSlots()).containsExactly(freeSlot);
+    assertThat(clusterState.getUnassignedReplicas()).containsExactly(replica2);
+
+    // assigning the free slot, and freeing the assigned one, swaps the indexes
+    CacheSlotMetadata reassignedSlot = newCacheSlot("slot1", "replica2");
+    CacheSlotMetadata freedSlot = newCacheSlot("slot2", "");
+    cacheSlotMetadataStore.updateSync(reassignedSlot);
+    cacheSlotMetadataStore.updateSync(freedSlot);
+    await()
+        .until(
+            () ->
+                cacheSlotMetadataStore
+                    .getCached()
+                    .stream()
+                    .allMatch(slot -> slot.equals(reassignedSlot) || slot.equals(freedSlot)));
+
+    assertThat(clusterState.getFreeCacheSlots()).containsExactly(freedSlot);
+    assertThat(clusterState.getUnassignedReplicas()).containsExactly(replica1);
+    assertThat(clusterState.getCacheSlot("slot1")).contains(reassignedSlot);
+
+    // a deleted replica is no longer unassigned
+    replicaMetadataStore.deleteSync(replica1);
+    await().until(() -> replicaMetadataStore.getCached().size() == 1);
+
+    assertThat(clusterState.getUnassignedReplicas()).isEmpty();
+    assertThat(clusterState.getReplica("replica1")).isEmpty();
+  }
+
+  @Test
+  public void shouldIndexSnapshotsByReplicaCount() {
+    snapshotMetadataStore.createSync(newSnapshot("snapshot1"));
+    snapshotMetadataStore.createSync(newSnapshot("snapshot2"));
+    snapshotMetadataStore.createSync(newSnapshot("snapshot3"));
+    replicaMetadataStore.createSync(newReplica("replica1", "snapshot1", 1000));
+    replicaMetadataStore.createSync(newReplica("replica2", "snapshot2", 1000));
+    replicaMetadataStore.createSync(newReplica("replica3", "snapshot2", 1000));
+    // a replica of an unknown snapshot is counted, but the snapshot isn't indexed
+    replicaMetadataStore.createSync(newReplica("replica4", "snapshot4", 1000));
+    await().until(() -> snapshotMetadataStore.getCached().size() == 3);
+    await().until(() -> replicaMetadataStore.getCached().size() == 4);
+
+    assertThat(snapshotIds(clusterState.getSnapshotsWithFewerReplicasThan(1)))
+        .containsExactly("snapshot3");
+    assertThat(snapshotIds(clusterState.getSnapshotsWithFewerReplicasThan(2)))
+        .containsExactlyInAnyOrder("snapshot1", "snapshot3");
+    assertThat(snapshotIds(clusterState.getSnapshotsWithMoreReplicasThan(1)))
+        .containsExactly("snapshot2");
+    assertThat(clusterState.getReplicaCount("snapshot2")).isEqualTo(2);
+    assertThat(clusterState.getReplicaCount("snapshot4")).isEqualTo(1);
+    assertThat(clusterState.getReplicasOf("snapshot2").stream().map(replica -> replica.name))
+        .containsExactlyInAnyOrder("replica2", "replica3");
+
+    replicaMetadataStore.createSync(newReplica("replica5", "snapshot3", 1000));
+    snapshotMetadataStore.deleteSync(newSnapshot("snapshot2"));
+    await().until(() -> snapshotMetadataStore.getCached().size() == 2);
+    await().until(() -> replicaMetadataStore.getCached().size() == 5);
+
+    assertThat(clusterState.getSnapshotsWithFewerReplicasThan(1)).isEmpty();
+    assertThat(snapshotIds(clusterState.getSnapshotsWithFewerReplicasThan(2)))
+        .containsExactlyInAnyOrder("snapshot1", "snapshot3");
+    assertThat(clusterState.getSnapshotsWithMoreReplicasThan(1)).isEmpty();
+    assertThat(clusterState.getSnapshot("snapshot2")).isEmpty();
+  }
+
+  @Test
+  public void shouldReturnSlotsOfExpiringReplicas() {
+    long now = Instant.now().toEpochMilli();
+    replicaMetadataStore.createSync(newReplica("replica1", "snapshot1", now - 1000));
+    replicaMetadataStore.createSync(newReplica("replica2", "snapshot1", now + 1000));
+    replicaMetadataStore.createSync(newReplica("replica3", "snapshot1", now - 2000));
+    cacheSlotMetadataStore.createSync(newCacheSlot("slot1", "replica1"));
+    cacheSlotMetadataStore.createSync(newCacheSlot("slot2", "replica2"));
+    await().until(() -> replicaMetadataStore.getCached().size() == 3);
+    await().until(() -> cacheSlotMetadataStore.getCached().size() == 2);
+
+    assertThat(
+            clusterState.getCacheSlotsOfReplicasExpiringBefore(now).stream().map(slot -> slot.name))
+        .containsExactly("slot1");
+    assertThat(
+            clusterState
+                .getCacheSlotsOfReplicasExpiringBefore(now + 2000)
+                .stream()
+                .map(slot -> slot.name))
+        .containsExactly("slot1", "slot2");
+
+    // an updated expiration moves the replica in the index
+    replicaMetadataStore.updateSync(newReplica("replica1", "snapshot1", now + 3000));
+    await()
+        .until(
+            () ->
+                replicaMetadataStore
+                    .getCached()
+                    .stream()
+                    .anyMatch(replica -> replica.expireAfterEpochMs == now + 3000));
+
+    assertThat(
+            clusterState
+                .getCacheSlotsOfReplicasExpiringBefore(now + 2000)
+                .stream()
+                .map(slot -> slot.name))
+        .containsExactly("slot2");
+  }
+
+  @Test
+  public void shouldMapCacheSlotsToTheirNode() {
+    CacheNodeMetadata cacheNode =
+        new CacheNodeMetadata("node1", "host1", List.of("slot1", "slot2"), 1000, 1000);
+    cacheNodeMetadataStore.createSync(cacheNode);
+    await().until(() -> cacheNodeMetadataStore.getCached().size() == 1);
+
+    assertThat(clusterState.getCacheNodeOf("slot1")).contains(cacheNode);
+    assertThat(clusterState.getCacheNodeOf("slot2")).contains(cacheNode);
+    assertThat(clusterState.getCacheNodeOf("slot3")).isEmpty();
+
+    CacheSlotMetadata advertisedSlot = newCacheSlot("slot1", "");
+    CacheSlotMetadata unadvertisedSlot = newCacheSlot("slot3", "");
+    cacheSlotMetadataStore.createSync(advertisedSlot);
+    cacheSlotMetadataStore.createSync(unadvertisedSlot);
+    await().until(() -> cacheSlotMetadataStore.getCached().size() == 2);
+    assertThat(clusterState.getUnadvertisedCacheSlots()).containsExactly(unadvertisedSlot);
+
+    cacheNodeMetadataStore.deleteSync(cacheNode);
+    await().until(() -> cacheNodeMetadataStore.getCached().isEmpty());
+
+    assertThat(clusterState.getCacheNodeOf("slot1")).isEmpty();
+    assertThat(clusterState.getUnadvertisedCacheSlots())
+        .containsExactlyInAnyOrder(advertisedSlot, unadvertisedSlot);
+  }
+
+  @Test
+  public void shouldApplyChangesWithoutRebuildWhileNotificationIsPending() throws Exception {
+    // the notifications of this store are coalesced for longer than the test runs
+    KaldbConfigs.ZookeeperConfig zkConfig =
+        KaldbConfigs.ZookeeperConfig.newBuilder()
+            .setZkConnectString(testingServer.getConnectString())
+            .setZkPathPrefix("ClusterStateTest")
+            .setZkSessionTimeoutMs(1000)
+            .setZkConnectionTimeoutMs(1000)
+            .setSleepBetweenRetriesMs(1000)
+            .setNotificationDebounceMs(60000)
+            .setNotificationMaxLatencyMs(60000)
+            .build();
+    MetadataStore debouncedMetadataStore =
+        ZookeeperMetadataStoreImpl.fromConfig(meterRegistry, zkConfig);
+    CacheSlotMetadataStore debouncedCacheSlotStore =
+        spy(new CacheSlotMetadataStore(debouncedMetadataStore, true));
+    ClusterState debouncedState = new ClusterState(null, null, debouncedCacheSlotStore, null);
+    assertThat(debouncedState.getFreeCacheSlots()).isEmpty();
+
+    CacheSlotMetadata freeSlot = newCacheSlot("slot1", "");
+    debouncedCacheSlotStore.createSync(freeSlot);
+    await().until(() -> debouncedState.getCacheSlot("slot1").isPresent());
+    assertThat(debouncedState.getFreeCacheSlots()).containsExactly(freeSlot);
+
+    CacheSlotMetadata assignedSlot = newCacheSlot("slot1", "replica1");
+    debouncedCacheSlotStore.updateSync(assignedSlot);
+    await().until(() -> debouncedState.getCacheSlot("slot1").get().equals(assignedSlot));
+    assertThat(debouncedState.getFreeCacheSlots()).isEmpty();
+
+    // only the first read rebuilt the model from the whole cache
+    verify(debouncedCacheSlotStore, times(1)).getCached();
+
+    debouncedState.close();
+    debouncedCacheSlotStore.close();
+    debouncedMetadataStore.close();
+  }
+
+  @Test
+  public void shouldTreatMissingStoresAsEmpty() {
+    replicaMetadataStore.createSync(newReplica("replica1", "snapshot1", 1000));
+    await().until(() -> replicaMetadataStore.getCached().size() == 1);
+
+    ClusterState replicaState = new ClusterState(replicaMetadataStore, null, null, null);
+    assertThat(replicaState.getUnassignedReplicas()).hasSize(1);
+    assertThat(replicaState.getFreeCacheSlots()).isEmpty();
+    assertThat(replicaState.getSnapshotsWithFewerReplicasThan(2)).isEmpty();
+    replicaState.close();
+  }
+
+  private static List<String> snapshotIds(List<SnapshotMetadata> snapshots) {
+    return snapshots.stream().map(snapshot -> snapshot.snapshotId).collect(Collectors.toList());
+  }
+
+  private static ReplicaMetadata newReplica(String name, String snapshotId, long expireAfter) {
+    return new ReplicaMetadata(name, snapshotId, 1, expireAfter, false, LOGS_LUCENE9);
+  }
+
+  private static SnapshotMetadata newSnapshot(String snapshotId) {
+    return new SnapshotMetadata(snapshotId, snapshotId, 1, 2, 0, "1", LOGS_LUCENE9);
+  }
+
+  private static CacheSlotMetadata newCacheSlot(String name, String replicaId) {
+    return new CacheSlotMetadata(
+        name,
+        replicaId.isEmpty()
+            ? Metadata.CacheSlotMetadata.CacheSlotState.FREE
+            : Metadata.CacheSlotMetadata.CacheSlotState.LIVE,
+        replicaId,
+        1);
+  }
+}
@@ -28,6 +28,7 @@ import java.util.List;
 import java.util.UUID;
 import java.util.concurrent.ExecutorService;
 import java.util.concurrent.Executors;
+import java.util.stream.Collectors;
 import org.apache.curator.test.TestingServer;
 import org.junit.After;
 import org.junit.Before;
@@ -419,6 +420,184 @@ public class RecoveryTaskAssignmentServiceTest {
         .isEqualTo(1);
   }
 
+  @Test
+  public void shouldAssignNewestTasksFirst() {
+    KaldbConfigs.ManagerConfig.RecoveryTaskAssignmentServiceConfig
+        recoveryTaskAssignmentServiceConfig =
+            KaldbConfigs.ManagerConfig.RecoveryTaskAssignmentServiceConfig.newBuilder()
+                .setSchedulePeriodMins(10)
+                .setAssignNewestTasksFirst(true)
+                .build();
+
+    KaldbConfigs.ManagerConfig managerConfig =
+        KaldbConfigs.ManagerConfig.newBuilder()
+            .setRecoveryTaskAssignmentServiceConfig(recoveryTaskAssignmentServiceConfig)
+            .setScheduleInitialDelayMins(5)
+            .setEventAggregationSecs(1)
+            .build();
+
+    RecoveryTaskAssignmentService recoveryTaskAssignmentService =
+        new RecoveryTaskAssignmentService(
+            recoveryTaskMetadataStore, recoveryNodeMetadataStore, managerConfig, meterRegistry);
+
+    long now = Instant.now().toEpochMilli();
+    RecoveryTaskMetadata oldTask =
+        new RecoveryTaskMetadata(
+            UUID.randomUUID().toString(),
+            "1",
+            0,
+            1,
+            Instant.now().minus(1, ChronoUnit.DAYS).toEpochMilli());
+    recoveryTaskMetadataStore.create(oldTask);
+    // tasks created together are ordered by their size, and then by their offsets
+    RecoveryTaskMetadata newTask =
+        new RecoveryTaskMetadata(UUID.randomUUID().toString(), "1", 2, 11, now);
+    recoveryTaskMetadataStore.create(newTask);
+    RecoveryTaskMetadata newestTask =
+        new RecoveryTaskMetadata(UUID.randomUUID().toString(), "1", 12, 13, now);
+    recoveryTaskMetadataStore.create(newestTask);
+
+    for (int i = 0; i < 2; i++) {
+      recoveryNodeMetadataStore.create(
+          new RecoveryNodeMetadata(
+              UUID.randomUUID().toString(),
+              Metadata.RecoveryNodeMetadata.RecoveryNodeState.FREE,
+              "",
+              Instant.now().toEpochMilli()));
+    }
+
+    await().until(() -> recoveryNodeMetadataStore.getCached().size() == 2);
+    await().until(() -> recoveryTaskMetadataStore.getCached().size() == 3);
+
+    int assignments = recoveryTaskAssignmentService.assignRecoveryTasksToNodes();
+
+    assertThat(assignments).isEqualTo(2);
+    assertThat(
+            recoveryNodeMetadataStore
+                .listSync()
+                .stream()
+                .map(recoveryNode -> recoveryNode.recoveryTaskName))
+        .containsExactlyInAnyOrder(newTask.name, newestTask.name);
+  }
+
+  @Test
+  public void shouldAssignSmallerTasksCreatedTogetherFirst() {
+    KaldbConfigs.ManagerConfig.RecoveryTaskAssignmentServiceConfig
+        recoveryTaskAssignmentServiceConfig =
+            KaldbConfigs.ManagerConfig.RecoveryTaskAssignmentServiceConfig.newBuilder()
+                .setSchedulePeriodMins(10)
+                .build();
+
+    KaldbConfigs.ManagerConfig managerConfig =
+        KaldbConfigs.ManagerConfig.newBuilder()
+            .setRecoveryTaskAssignmentServiceConfig(recoveryTaskAssignmentServiceConfig)
+            .setScheduleInitialDelayMins(5)
+            .setEventAggregationSecs(1)
+            .build();
+
+    RecoveryTaskAssignmentService recoveryTaskAssignmentService =
+        new RecoveryTaskAssignmentService(
+            recoveryTaskMetadataStore, recoveryNodeMetadataStore, managerConfig, meterRegistry);
+
+    // the offsets of different partitions are not comparable, so the smaller task goes first
+    long now = Instant.now().toEpochMilli();
+    RecoveryTaskMetadata largeTask =
+        new RecoveryTaskMetadata(UUID.randomUUID().toString(), "1", 0, 999, now);
+    recoveryTaskMetadataStore.create(largeTask);
+    RecoveryTaskMetadata smallTask =
+        new RecoveryTaskMetadata(UUID.randomUUID().toString(), "2", 5000, 5009, now);
+    recoveryTaskMetadataStore.create(smallTask);
+
+    recoveryNodeMetadataStore.create(
+        new RecoveryNodeMetadata(
+            UUID.randomUUID().toString(),
+            Metadata.RecoveryNodeMetadata.RecoveryNodeState.FREE,
+            "",
+            Instant.now().toEpochMilli()));
+
+    await().until(() -> recoveryNodeMetadataStore.getCached().size() == 1);
+    await().until(() -> recoveryTaskMetadataStore.getCached().size() == 2);
+
+    int assignments = recoveryTaskAssignmentService.assignRecoveryTasksToNodes();
+
+    assertThat(assignments).isEqualTo(1);
+    assertThat(recoveryNodeMetadataStore.listSync().get(0).recoveryTaskName)
+        .isEqualTo(smallTask.name);
+  }
+
+  @Test
+  public void shouldSplitTasksForFreeNodes() {
+    KaldbConfigs.ManagerConfig.RecoveryTaskAssignmentServiceConfig
+        recoveryTaskAssignmentServiceConfig =
+            KaldbConfigs.ManagerConfig.RecoveryTaskAssignmentServiceConfig.newBuilder()
+                .setSchedulePeriodMins(10)
+                .setMinMessagesPerSplitTask(200)
+                .build();
+
+    KaldbConfigs.ManagerConfig managerConfig =
+        KaldbConfigs.ManagerConfig.newBuilder()
+            .setRecoveryTaskAssignmentServiceConfig(recoveryTaskAssignmentServiceConfig)
+            .setScheduleInitialDelayMins(5)
+            .setEventAggregationSecs(1)
+            .build();
+
+    RecoveryTaskAssignmentService recoveryTaskAssignmentService =
+        new RecoveryTaskAssignmentService(
+            recoveryTaskMetadataStore, recoveryNodeMetadataStore, managerConfig, meterRegistry);
+
+    long createdTime = Instant.now().toEpochMilli();
+    // split into 4 tasks of 250 messages
+    recoveryTaskMetadataStore.createSync(
+        new RecoveryTaskMetadata("largeTask", "1", 0, 999, createdTime));
+    // too small to be split
+    recoveryTaskMetadataStore.createSync(
+        new RecoveryTaskMetadata("smallTask", "2", 0, 299, createdTime));
+    for (int i = 0; i < 6; i++) {
+      recoveryNodeMetadataStore.createSync(
+          new RecoveryNodeMetadata(
+              UUID.randomUUID().toString(),
+              Metadata.RecoveryNodeMetadata.RecoveryNodeState.FREE,
+              "",
+              Instant.now().toEpochMilli()));
+    }
+
+    await().until(() -> recoveryNodeMetadataStore.getCached().size() == 6);
+    await().until(() -> recoveryTaskMetadataStore.getCached().size() == 2);
+
+    int assignments = recoveryTaskAssignmentService.assignRecoveryTasksToNodes();
+
+    assertThat(assignments).isEqualTo(5);
+    List<RecoveryTaskMetadata> recoveryTasks = recoveryTaskMetadataStore.listSync();
+    assertThat(recoveryTasks.size()).isEqualTo(5);
+    assertThat(
+            recoveryTasks
+                .stream()
+                .filter(recoveryTask -> recoveryTask.partitionId.equals("1"))
+                .map(recoveryTask -> recoveryTask.startOffset + "-" + recoveryTask.endOffset))
+        .containsExactlyInAnyOrder("0-249", "250-499", "500-749", "750-999");
+    assertThat(recoveryTasks)
+        .allMatch(recoveryTask -> recoveryTask.createdTimeEpochMs == createdTime);
+    assertThat(
+            recoveryNodeMetadataStore
+                .listSync()
+                .stream()
+                .map(recoveryNode -> recoveryNode.recoveryTaskName)
+                .filter(recoveryTaskName -> !recoveryTaskName.isEmpty()))
+        .containsExactlyInAnyOrderElementsOf(
+            recoveryTasks
+                .stream()
+                .map(recoveryTask -> recoveryTask.name)
+                .collect(Collectors.toList()));
+
+    assertThat(
+            MetricsUtil.getCount(RecoveryTaskAssignmentService.RECOVERY_TASKS_SPLIT, meterRegistry))
+        .isEqualTo(1);
+    assertThat(
+            MetricsUtil.getCount(
+                RecoveryTaskAssignmentService.RECOVERY_TASKS_ASSIGNED, meterRegistry))
+        .isEqualTo(5);
+  }
+
   @Test
   public void shouldRetryFailedAssignmentOnFollowingRun() {
     KaldbConfigs.ManagerConfig.RecoveryTaskAssignmentServiceConfig
@@ -5,15 +5,20 @@ import static com.slack.kaldb.server.KaldbConfig.DEFAULT_START_STOP_DURATION;
 import static org.assertj.core.api.Assertions.assertThat;
 import static org.awaitility.Awaitility.await;
 import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.Mockito.doAnswer;
 import static org.mockito.Mockito.doCallRealMethod;
 import static org.mockito.Mockito.spy;
 
 import brave.Tracing;
 import com.google.common.util.concurrent.Futures;
+import com.slack.kaldb.metadata.cache.CacheNodeMetadata;
+import com.slack.kaldb.metadata.cache.CacheNodeMetadataStore;
 import com.slack.kaldb.metadata.cache.CacheSlotMetadata;
 import com.slack.kaldb.metadata.cache.CacheSlotMetadataStore;
 import com.slack.kaldb.metadata.replica.ReplicaMetadata;
 import com.slack.kaldb.metadata.replica.ReplicaMetadataStore;
+import com.slack.kaldb.metadata.snapshot.SnapshotMetadata;
+import com.slack.kaldb.metadata.snapshot.SnapshotMetadataStore;
 import com.slack.kaldb.metadata.zookeeper.MetadataStore;
 import com.slack.kaldb.metadata.zookeeper.ZookeeperMetadataStoreImpl;
 import com.slack.kaldb.proto.config.KaldbConfigs;
@@ -43,6 +48,8 @@ public class ReplicaAssignmentServiceTest {
   private MetadataStore metadataStore;
   private CacheSlotMetadataStore cacheSlotMetadataStore;
   private ReplicaMetadataStore replicaMetadataStore;
+  private CacheNodeMetadataStore cacheNodeMetadataStore;
+  private SnapshotMetadataStore snapshotMetadataStore;
 
   @Before
   public void setup() throws Exception {
@@ -62,12 +69,16 @@ public class ReplicaAssignmentServiceTest {
     metadataStore = ZookeeperMetadataStoreImpl.fromConfig(meterRegistry, zkConfig);
     cacheSlotMetadataStore = spy(new CacheSlotMetadataStore(metadataStore, true));
     replicaMetadataStore = spy(new ReplicaMetadataStore(metadataStore, true));
+    cacheNodeMetadataStore = new CacheNodeMetadataStore(metadataStore, true);
+    snapshotMetadataStore = new SnapshotMetadataStore(metadataStore, true);
   }
 
   @After
   public void shutdown() throws IOException {
     cacheSlotMetadataStore.close();
     replicaMetadataStore.close();
+    cacheNodeMetadataStore.close();
+    snapshotMetadataStore.close();
     metadataStore.close();
 
     testingServer.close();
@@ -88,7 +99,12 @@ public class ReplicaAssignmentServiceTest {
             .build();
 
     new ReplicaAssignmentService(
-        cacheSlotMetadataStore, replicaMetadataStore, managerConfig, meterRegistry);
+        cacheSlotMetadataStore,
+        cacheNodeMetadataStore,
+        replicaMetadataStore,
+        snapshotMetadataStore,
+        managerConfig,
+        meterRegistry);
   }
 
   @Test(expected = IllegalArgumentException.class)
@@ -105,7 +121,12 @@ public class ReplicaAssignmentServiceTest {
             .build();
 
     new ReplicaAssignmentService(
-            cacheSlotMetadataStore, replicaMetadataStore, managerConfig, meterRegistry)
+            cacheSlotMetadataStore,
+            cacheNodeMetadataStore,
+            replicaMetadataStore,
+            snapshotMetadataStore,
+            managerConfig,
+            meterRegistry)
         .scheduler();
   }
 
@@ -124,7 +145,12 @@ public class ReplicaAssignmentServiceTest {
 
     ReplicaAssignmentService replicaAssignmentService =
         new ReplicaAssignmentService(
-            cacheSlotMetadataStore, replicaMetadataStore, managerConfig, meterRegistry);
+            cacheSlotMetadataStore,
+            cacheNodeMetadataStore,
+            replicaMetadataStore,
+            snapshotMetadataStore,
+            managerConfig,
+            meterRegistry);
 
     assertThat(cacheSlotMetadataStore.listSync().size()).isEqualTo(0);
     assertThat(replicaMetadataStore.listSync().size()).isEqualTo(0);
@@ -163,7 +189,12 @@ public class ReplicaAssignmentServiceTest {
 
     ReplicaAssignmentService replicaAssignmentService =
         new ReplicaAssignmentService(
-            cacheSlotMetadataStore, replicaMetadataStore, managerConfig, meterRegistry);
+            cacheSlotMetadataStore,
+            cacheNodeMetadataStore,
+            replicaMetadataStore,
+            snapshotMetadataStore,
+            managerConfig,
+            meterRegistry);
 
     List<ReplicaMetadata> replicaMetadataList = new ArrayList<>();
     for (int i = 0; i < 3; i++) {
@@ -218,7 +249,12 @@ public class ReplicaAssignmentServiceTest {
 
     ReplicaAssignmentService replicaAssignmentService =
         new ReplicaAssignmentService(
-            cacheSlotMetadataStore, replicaMetadataStore, managerConfig, meterRegistry);
+            cacheSlotMetadataStore,
+            cacheNodeMetadataStore,
+            replicaMetadataStore,
+            snapshotMetadataStore,
+            managerConfig,
+            meterRegistry);
 
     List<CacheSlotMetadata> cacheSlotMetadataList = new ArrayList<>();
     for (int i = 0; i < 3; i++) {
@@ -271,7 +307,12 @@ public class ReplicaAssignmentServiceTest {
 
     ReplicaAssignmentService replicaAssignmentService =
         new ReplicaAssignmentService(
-            cacheSlotMetadataStore, replicaMetadataStore, managerConfig, meterRegistry);
+            cacheSlotMetadataStore,
+            cacheNodeMetadataStore,
+            replicaMetadataStore,
+            snapshotMetadataStore,
+            managerConfig,
+            meterRegistry);
 
     List<ReplicaMetadata> replicaMetadataList = new ArrayList<>();
     for (int i = 0; i < 3; i++) {
@@ -350,7 +391,12 @@ public class ReplicaAssignmentServiceTest {
 
     ReplicaAssignmentService replicaAssignmentService =
         new ReplicaAssignmentService(
-            cacheSlotMetadataStore, replicaMetadataStore, managerConfig, meterRegistry);
+            cacheSlotMetadataStore,
+            cacheNodeMetadataStore,
+            replicaMetadataStore,
+            snapshotMetadataStore,
+            managerConfig,
+            meterRegistry);
 
     List<ReplicaMetadata> replicaMetadataList = new ArrayList<>();
     for (int i = 0; i < 4; i++) {
@@ -453,7 +499,12 @@ public class ReplicaAssignmentServiceTest {
 
     ReplicaAssignmentService replicaAssignmentService =
         new ReplicaAssignmentService(
-            cacheSlotMetadataStore, replicaMetadataStore, managerConfig, meterRegistry);
+            cacheSlotMetadataStore,
+            cacheNodeMetadataStore,
+            replicaMetadataStore,
+            snapshotMetadataStore,
+            managerConfig,
+            meterRegistry);
 
     List<ReplicaMetadata> replicaMetadataList = new ArrayList<>();
     for (int i = 0; i < 5; i++) {
@@ -521,7 +572,12 @@ public class ReplicaAssignmentServiceTest {
 
     ReplicaAssignmentService replicaAssignmentService =
         new ReplicaAssignmentService(
-            cacheSlotMetadataStore, replicaMetadataStore, managerConfig, meterRegistry);
+            cacheSlotMetadataStore,
+            cacheNodeMetadataStore,
+            replicaMetadataStore,
+            snapshotMetadataStore,
+            managerConfig,
+            meterRegistry);
 
     List<ReplicaMetadata> replicaMetadataExpiredList = new ArrayList<>();
     for (int i = 0; i < 2; i++) {
@@ -641,7 +697,12 @@ public class ReplicaAssignmentServiceTest {
 
     ReplicaAssignmentService replicaAssignmentService =
         new ReplicaAssignmentService(
-            cacheSlotMetadataStore, replicaMetadataStore, managerConfig, meterRegistry);
+            cacheSlotMetadataStore,
+            cacheNodeMetadataStore,
+            replicaMetadataStore,
+            snapshotMetadataStore,
+            managerConfig,
+            meterRegistry);
 
     for (int i = 0; i < 2; i++) {
       ReplicaMetadata replicaMetadata =
@@ -668,6 +729,16 @@ public class ReplicaAssignmentServiceTest {
     await().until(() -> cacheSlotMetadataStore.getCached().size() == 3);
     await().until(() -> replicaMetadataStore.getCached().size() == 2);
 
+    // route the batched updates through update(), to fail or delay single slots
+    doAnswer(
+            invocation ->
+                invocation
+                    .<List<CacheSlotMetadata>>getArgument(0)
+                    .stream()
+                    .map(cacheSlotMetadataStore::update)
+                    .collect(Collectors.toList()))
+        .when(cacheSlotMetadataStore)
+        .updateAll(any());
     doCallRealMethod()
         .doReturn(Futures.immediateFailedFuture(new Exception()))
         .when(cacheSlotMetadataStore)
@@ -765,7 +836,12 @@ public class ReplicaAssignmentServiceTest {
 
     ReplicaAssignmentService replicaAssignmentService =
         new ReplicaAssignmentService(
-            cacheSlotMetadataStore, replicaMetadataStore, managerConfig, meterRegistry);
+            cacheSlotMetadataStore,
+            cacheNodeMetadataStore,
+            replicaMetadataStore,
+            snapshotMetadataStore,
+            managerConfig,
+            meterRegistry);
 
     for (int i = 0; i < 2; i++) {
       ReplicaMetadata replicaMetadata =
@@ -794,6 +870,16 @@ public class ReplicaAssignmentServiceTest {
 
     replicaAssignmentService.futuresListTimeoutSecs = 2;
     ExecutorService timeoutServiceExecutor = Executors.newSingleThreadExecutor();
+    // route the batched updates through update(), to fail or delay single slots
+    doAnswer(
+            invocation ->
+                invocation
+                    .<List<CacheSlotMetadata>>getArgument(0)
+                    .stream()
+                    .map(cacheSlotMetadataStore::update)
+                    .collect(Collectors.toList()))
+        .when(cacheSlotMetadataStore)
+        .updateAll(any());
     doCallRealMethod()
         .doReturn(
             Futures.submit(
@@ -864,7 +950,12 @@ public class ReplicaAssignmentServiceTest {
 
     ReplicaAssignmentService replicaAssignmentService =
         new ReplicaAssignmentService(
-            cacheSlotMetadataStore, replicaMetadataStore, managerConfig, meterRegistry);
+            cacheSlotMetadataStore,
+            cacheNodeMetadataStore,
+            replicaMetadataStore,
+            snapshotMetadataStore,
+            managerConfig,
+            meterRegistry);
 
     for (int i = 0; i < 2; i++) {
       ReplicaMetadata replicaMetadata =
@@ -891,6 +982,16 @@ public class ReplicaAssignmentServiceTest {
     await().until(() -> cacheSlotMetadataStore.getCached().size() == 3);
     await().until(() -> replicaMetadataStore.getCached().size() == 2);
 
+    // route the batched updates through update(), to fail or delay single slots
+    doAnswer(
+            invocation ->
+                invocation
+                    .<List<CacheSlotMetadata>>getArgument(0)
+                    .stream()
+                    .map(cacheSlotMetadataStore::update)
+                    .collect(Collectors.toList()))
+        .when(cacheSlotMetadataStore)
+        .updateAll(any());
     doCallRealMethod()
         .doReturn(Futures.immediateFailedFuture(new Exception()))
         .when(cacheSlotMetadataStore)
@@ -951,7 +1052,12 @@ public class ReplicaAssignmentServiceTest {
 
     ReplicaAssignmentService replicaAssignmentService =
         new ReplicaAssignmentService(
-            cacheSlotMetadataStore, replicaMetadataStore, managerConfig, meterRegistry);
+            cacheSlotMetadataStore,
+            cacheNodeMetadataStore,
+            replicaMetadataStore,
+            snapshotMetadataStore,
+            managerConfig,
+            meterRegistry);
 
     for (int i = 0; i < 3; i++) {
       CacheSlotMetadata cacheSlotMetadata =
@@ -1049,7 +1155,12 @@ public class ReplicaAssignmentServiceTest {
 
     ReplicaAssignmentService replicaAssignmentService =
         new ReplicaAssignmentService(
-            cacheSlotMetadataStore, replicaMetadataStore, managerConfig, meterRegistry);
+            cacheSlotMetadataStore,
+            cacheNodeMetadataStore,
+            replicaMetadataStore,
+            snapshotMetadataStore,
+            managerConfig,
+            meterRegistry);
 
     List<ReplicaMetadata> replicaMetadataList = new ArrayList<>();
     for (int i = 0; i < 3; i++) {
@@ -1127,7 +1238,12 @@ public class ReplicaAssignmentServiceTest {
 
     ReplicaAssignmentService replicaAssignmentService =
         new ReplicaAssignmentService(
-            cacheSlotMetadataStore, replicaMetadataStore, managerConfig, meterRegistry);
+            cacheSlotMetadataStore,
+            cacheNodeMetadataStore,
+            replicaMetadataStore,
+            snapshotMetadataStore,
+            managerConfig,
+            meterRegistry);
 
     Instant now = Instant.now();
     ReplicaMetadata olderReplicaMetadata =
@@ -1175,4 +1291,266 @@ public class ReplicaAssignmentServiceTest {
     List<CacheSlotMetadata> assignedCacheSlot = cacheSlotMetadataStore.listSync();
     assertThat(assignedCacheSlot.get(0).replicaId).isEqualTo(newerReplicaMetadata.name);
   }
+
+  private List<String> createCacheNode(long diskCapacityBytes, int slotCount) {
+    List<String> cacheSlotNames = new ArrayList<>();
+    for (int i = 0; i < slotCount; i++) {
+      CacheSlotMetadata cacheSlotMetadata =
+          new CacheSlotMetadata(
+              UUID.randomUUID().toString(),
+              Metadata.CacheSlotMetadata.CacheSlotState.FREE,
+              "",
+              Instant.now().toEpochMilli());
+      cacheSlotMetadataStore.createSync(cacheSlotMetadata);
+      cacheSlotNames.add(cacheSlotMetadata.name);
+    }
+    cacheNodeMetadataStore.createSync(
+        new CacheNodeMetadata(
+            UUID.randomUUID().toString(), "localhost", cacheSlotNames, diskCapacityBytes, 1000));
+    return cacheSlotNames;
+  }
+
+  private long countAssigned(List<String> cacheSlotNames) {
+    return cacheSlotMetadataStore
+        .listSync()
+        .stream()
+        .filter(
+            cacheSlotMetadata ->
+                cacheSlotNames.contains(cacheSlotMetadata.name)
+                    && cacheSlotMetadata.cacheSlotState.equals(
+                        Metadata.CacheSlotMetadata.CacheSlotState.ASSIGNED))
+        .count();
+  }
+
+  @Test
+  public void shouldPackReplicasByBytes() {
+    KaldbConfigs.ManagerConfig.ReplicaAssignmentServiceConfig replicaAssignmentServiceConfig =
+        KaldbConfigs.ManagerConfig.ReplicaAssignmentServiceConfig.newBuilder()
+            .setSchedulePeriodMins(1)
+            .build();
+    KaldbConfigs.ManagerConfig managerConfig =
+        KaldbConfigs.ManagerConfig.newBuilder()
+            .setEventAggregationSecs(10)
+            .setScheduleInitialDelayMins(1)
+            .setReplicaAssignmentServiceConfig(replicaAssignmentServiceConfig)
+            .build();
+
+    ReplicaAssignmentService replicaAssignmentService =
+        new ReplicaAssignmentService(
+            cacheSlotMetadataStore,
+            cacheNodeMetadataStore,
+            replicaMetadataStore,
+            snapshotMetadataStore,
+            managerConfig,
+            meterRegistry);
+
+    // Both nodes have enough slots for all the replicas, but not enough disk.
+    List<String> smallNodeSlots = createCacheNode(1000, 3);
+    List<String> largeNodeSlots = createCacheNode(2000, 3);
+
+    List<ReplicaMetadata> replicaMetadataList = new ArrayList<>();
+    for (int i = 0; i < 5; i++) {
+      SnapshotMetadata snapshotMetadata =
+          new SnapshotMetadata(
+              UUID.randomUUID().toString(),
+              "/testPath",
+              Instant.now().toEpochMilli(),
+              Instant.now().toEpochMilli(),
+              0,
+              "1",
+              LOGS_LUCENE9,
+              600,
+              100);
+      snapshotMetadataStore.createSync(snapshotMetadata);
+      ReplicaMetadata replicaMetadata =
+          new ReplicaMetadata(
+              UUID.randomUUID().toString(),
+              snapshotMetadata.snapshotId,
+              Instant.now().minusSeconds(i).toEpochMilli(),
+              Instant.now().plusSeconds(60).toEpochMilli(),
+              false,
+              LOGS_LUCENE9);
+      replicaMetadataList.add(replicaMetadata);
+      replicaMetadataStore.createSync(replicaMetadata);
+    }
+
+    await().until(() -> replicaMetadataStore.getCached().size() == 5);
+    await().until(() -> snapshotMetadataStore.getCached().size() == 5);
+    await().until(() -> cacheSlotMetadataStore.getCached().size() == 6);
+    await().until(() -> cacheNodeMetadataStore.getCached().size() == 2);
+
+    int assignments = replicaAssignmentService.assignReplicasToCacheSlots();
+    assertThat(assignments).isEqualTo(4);
+    assertThat(countAssigned(smallNodeSlots)).isEqualTo(1);
+    assertThat(countAssigned(largeNodeSlots)).isEqualTo(3);
+
+    // The oldest replica doesn't fit on either node.
+    assertThat(
+            cacheSlotMetadataStore
+                .listSync()
+                .stream()
+                .map(cacheSlotMetadata -> cacheSlotMetadata.replicaId)
+                .collect(Collectors.toList()))
+        .doesNotContain(replicaMetadataList.get(4).name);
+    assertThat(
+            MetricsUtil.getCount(ReplicaAssignmentService.REPLICA_ASSIGN_SUCCEEDED, meterRegistry))
+        .isEqualTo(4);
+  }
+
+  @Test
+  public void shouldSpreadOverlappingReplicasAcrossNodes() {
+    KaldbConfigs.ManagerConfig.ReplicaAssignmentServiceConfig replicaAssignmentServiceConfig =
+        KaldbConfigs.ManagerConfig.ReplicaAssignmentServiceConfig.newBuilder()
+            .setSchedulePeriodMins(1)
+            .build();
+    KaldbConfigs.ManagerConfig managerConfig =
+        KaldbConfigs.ManagerConfig.newBuilder()
+            .setEventAggregationSecs(10)
+            .setScheduleInitialDelayMins(1)
+            .setReplicaAssignmentServiceConfig(replicaAssignmentServiceConfig)
+            .build();
+
+    ReplicaAssignmentService replicaAssignmentService =
+        new ReplicaAssignmentService(
+            cacheSlotMetadataStore,
+            cacheNodeMetadataStore,
+            replicaMetadataStore,
+            snapshotMetadataStore,
+            managerConfig,
+            meterRegistry);
+
+    // The large node has the lowest utilization for all the replicas.
+    List<String> largeNodeSlots = createCacheNode(100000, 4);
+    List<String> nodeSlots1 = createCacheNode(1000, 4);
+    List<String> nodeSlots2 = createCacheNode(1000, 4);
+
+    // Three snapshots of the same time range from different partitions, and two replicas of the
+    // first snapshot.
+    long startTime = Instant.now().minus(1, ChronoUnit.HOURS).toEpochMilli();
+    List<SnapshotMetadata> snapshots = new ArrayList<>();
+    for (int i = 0; i < 3; i++) {
+      SnapshotMetadata snapshotMetadata =
+          new SnapshotMetadata(
+              UUID.randomUUID().toString(),
+              "/testPath",
+              startTime,
+              startTime + 1000 * (i + 1),
+              0,
+              String.valueOf(i),
+              LOGS_LUCENE9,
+              100,
+              100);
+      snapshotMetadataStore.createSync(snapshotMetadata);
+      snapshots.add(snapshotMetadata);
+    }
+    List<ReplicaMetadata> replicaMetadataList = new ArrayList<>();
+    for (int i = 0; i < 4; i++) {
+      ReplicaMetadata replicaMetadata =
+          new ReplicaMetadata(
+              UUID.randomUUID().toString(),
+              snapshots.get(i % 3).snapshotId,
+              Instant.now().minusSeconds(i).toEpochMilli(),
+              Instant.now().plusSeconds(60).toEpochMilli(),
+              false,
+              LOGS_LUCENE9);
+      replicaMetadataList.add(replicaMetadata);
+      replicaMetadataStore.createSync(replicaMetadata);
+    }
+
+    await().until(() -> replicaMetadataStore.getCached().size() == 4);
+    await().until(() -> snapshotMetadataStore.getCached().size() == 3);
+    await().until(() -> cacheSlotMetadataStore.getCached().size() == 12);
+    await().until(() -> cacheNodeMetadataStore.getCached().size() == 3);
+
+    assertThat(replicaAssignmentService.assignReplicasToCacheSlots()).isEqualTo(4);
+    assertThat(countAssigned(largeNodeSlots)).isEqualTo(1);
+    assertThat(countAssigned(nodeSlots1)).isBetween(1L, 2L);
+    assertThat(countAssigned(nodeSlots2)).isBetween(1L, 2L);
+
+    // The replicas of the same snapshot are on different nodes.
+    List<String> firstSnapshotSlots =
+        cacheSlotMetadataStore
+            .listSync()
+            .stream()
+            .filter(
+                cacheSlotMetadata ->
+                    cacheSlotMetadata.replicaId.equals(replicaMetadataList.get(0).name)
+                        || cacheSlotMetadata.replicaId.equals(replicaMetadataList.get(3).name))
+            .map(cacheSlotMetadata -> cacheSlotMetadata.name)
+            .collect(Collectors.toList());
+    assertThat(firstSnapshotSlots).hasSize(2);
+    for (List<String> nodeSlots : List.of(largeNodeSlots, nodeSlots1, nodeSlots2)) {
+      assertThat(firstSnapshotSlots.stream().filter(nodeSlots::contains).count())
+          .isLessThanOrEqualTo(1);
+    }
+  }
+
+  @Test
+  public void shouldPreferAdvertisedNodesOverUnadvertisedSlots() {
+    KaldbConfigs.ManagerConfig.ReplicaAssignmentServiceConfig replicaAssignmentServiceConfig =
+        KaldbConfigs.ManagerConfig.ReplicaAssignmentServiceConfig.newBuilder()
+            .setSchedulePeriodMins(1)
+            .build();
+    KaldbConfigs.ManagerConfig managerConfig =
+        KaldbConfigs.ManagerConfig.newBuilder()
+            .setEventAggregationSecs(10)
+            .setScheduleInitialDelayMins(1)
+            .setReplicaAssignmentServiceConfig(replicaAssignmentServiceConfig)
+            .build();
+
+    ReplicaAssignmentService replicaAssignmentService =
+        new ReplicaAssignmentService(
+            cacheSlotMetadataStore,
+            cacheNodeMetadataStore,
+            replicaMetadataStore,
+            snapshotMetadataStore,
+            managerConfig,
+            meterRegistry);
+
+    List<String> nodeSlots = createCacheNode(1000, 2);
+    List<String> unadvertisedSlots = new ArrayList<>();
+    for (int i = 0; i < 2; i++) {
+      CacheSlotMetadata cacheSlotMetadata =
+          new CacheSlotMetadata(
+              UUID.randomUUID().toString(),
+              Metadata.CacheSlotMetadata.CacheSlotState.FREE,
+              "",
+              Instant.now().toEpochMilli());
+      cacheSlotMetadataStore.createSync(cacheSlotMetadata);
+      unadvertisedSlots.add(cacheSlotMetadata.name);
+    }
+
+    for (int i = 0; i < 3; i++) {
+      SnapshotMetadata snapshotMetadata =
+          new SnapshotMetadata(
+              UUID.randomUUID().toString(),
+              "/testPath",
+              Instant.now().toEpochMilli(),
+              Instant.now().toEpochMilli(),
+              0,
+              String.valueOf(i),
+              LOGS_LUCENE9,
+              100,
+              100);
+      snapshotMetadataStore.createSync(snapshotMetadata);
+      replicaMetadataStore.createSync(
+          new ReplicaMetadata(
+              UUID.randomUUID().toString(),
+              snapshotMetadata.snapshotId,
+              Instant.now().minusSeconds(i).toEpochMilli(),
+              Instant.now().plusSeconds(60).toEpochMilli(),
+              false,
+              LOGS_LUCENE9));
+    }
+
+    await().until(() -> replicaMetadataStore.getCached().size() == 3);
+    await().until(() -> snapshotMetadataStore.getCached().size() == 3);
+    await().until(() -> cacheSlotMetadataStore.getCached().size() == 4);
+    await().until(() -> cacheNodeMetadataStore.getCached().size() == 1);
+
+    // The unadvertised slots only take the replica that doesn't fit on the advertised node.
+    assertThat(replicaAssignmentService.assignReplicasToCacheSlots()).isEqualTo(3);
+    assertThat(countAssigned(nodeSlots)).isEqualTo(2);
+    assertThat(countAssigned(unadvertisedSlots)).isEqualTo(1);
+  }
 }
@@ -12,6 +12,8 @@ import brave.Tracing;
 import com.google.common.util.concurrent.Futures;
 import com.slack.kaldb.metadata.replica.ReplicaMetadata;
 import com.slack.kaldb.metadata.replica.ReplicaMetadataStore;
+import com.slack.kaldb.metadata.snapshot.SnapshotHeatMetadata;
+import com.slack.kaldb.metadata.snapshot.SnapshotHeatMetadataStore;
 import com.slack.kaldb.metadata.snapshot.SnapshotMetadata;
 import com.slack.kaldb.metadata.snapshot.SnapshotMetadataStore;
 import com.slack.kaldb.metadata.zookeeper.MetadataStore;
@@ -27,6 +29,7 @@ import java.util.ArrayList;
 import java.util.Arrays;
 import java.util.Collections;
 import java.util.List;
+import java.util.Map;
 import java.util.Objects;
 import java.util.UUID;
 import java.util.concurrent.ExecutorService;
@@ -46,6 +49,7 @@ public class ReplicaCreationServiceTest {
   private MetadataStore metadataStore;
   private SnapshotMetadataStore snapshotMetadataStore;
   private ReplicaMetadataStore replicaMetadataStore;
+  private SnapshotHeatMetadataStore snapshotHeatMetadataStore;
 
   @Before
   public void setup() throws Exception {
@@ -65,12 +69,14 @@ public class ReplicaCreationServiceTest {
     metadataStore = ZookeeperMetadataStoreImpl.fromConfig(meterRegistry, zkConfig);
     snapshotMetadataStore = spy(new SnapshotMetadataStore(metadataStore, true));
     replicaMetadataStore = spy(new ReplicaMetadataStore(metadataStore, true));
+    snapshotHeatMetadataStore = new SnapshotHeatMetadataStore(metadataStore, true);
   }
 
   @After
   public void shutdown() throws IOException {
     snapshotMetadataStore.close();
     replicaMetadataStore.close();
+    snapshotHeatMetadataStore.close();
     metadataStore.close();
 
     testingServer.close();
@@ -117,7 +123,11 @@ public class ReplicaCreationServiceTest {
 
     ReplicaCreationService replicaCreationService =
         new ReplicaCreationService(
-            replicaMetadataStore, snapshotMetadataStore, managerConfig, meterRegistry);
+            replicaMetadataStore,
+            snapshotMetadataStore,
+            snapshotHeatMetadataStore,
+            managerConfig,
+            meterRegistry);
     replicaCreationService.startAsync();
     replicaCreationService.awaitRunning(DEFAULT_START_STOP_DURATION);
 
@@ -160,7 +170,11 @@ public class ReplicaCreationServiceTest {
 
     ReplicaCreationService replicaCreationService =
         new ReplicaCreationService(
-            replicaMetadataStore, snapshotMetadataStore, managerConfig, meterRegistry);
+            replicaMetadataStore,
+            snapshotMetadataStore,
+            snapshotHeatMetadataStore,
+            managerConfig,
+            meterRegistry);
     replicaCreationService.startAsync();
     replicaCreationService.awaitRunning(DEFAULT_START_STOP_DURATION);
 
@@ -204,7 +218,11 @@ public class ReplicaCreationServiceTest {
 
     ReplicaCreationService replicaCreationService =
         new ReplicaCreationService(
-            replicaMetadataStore, snapshotMetadataStore, managerConfig, meterRegistry);
+            replicaMetadataStore,
+            snapshotMetadataStore,
+            snapshotHeatMetadataStore,
+            managerConfig,
+            meterRegistry);
     replicaCreationService.startAsync();
     replicaCreationService.awaitRunning(DEFAULT_START_STOP_DURATION);
 
@@ -270,7 +288,11 @@ public class ReplicaCreationServiceTest {
 
     ReplicaCreationService replicaCreationService =
         new ReplicaCreationService(
-            replicaMetadataStore, snapshotMetadataStore, managerConfig, meterRegistry);
+            replicaMetadataStore,
+            snapshotMetadataStore,
+            snapshotHeatMetadataStore,
+            managerConfig,
+            meterRegistry);
 
     await()
         .until(
@@ -385,7 +407,11 @@ public class ReplicaCreationServiceTest {
 
     ReplicaCreationService replicaCreationService =
         new ReplicaCreationService(
-            replicaMetadataStore, snapshotMetadataStore, managerConfig, meterRegistry);
+            replicaMetadataStore,
+            snapshotMetadataStore,
+            snapshotHeatMetadataStore,
+            managerConfig,
+            meterRegistry);
 
     int replicasCreated = replicaCreationService.createReplicasForUnassignedSnapshots();
     int expectedReplicas = eligibleSnapshotsToCreate * replicasToCreate;
@@ -434,7 +460,11 @@ public class ReplicaCreationServiceTest {
 
     ReplicaCreationService replicaCreationService =
         new ReplicaCreationService(
-            replicaMetadataStore, snapshotMetadataStore, managerConfig, meterRegistry);
+            replicaMetadataStore,
+            snapshotMetadataStore,
+            snapshotHeatMetadataStore,
+            managerConfig,
+            meterRegistry);
     replicaCreationService.startAsync();
     replicaCreationService.awaitRunning(DEFAULT_START_STOP_DURATION);
 
@@ -486,7 +516,11 @@ public class ReplicaCreationServiceTest {
 
     ReplicaCreationService replicaCreationService =
         new ReplicaCreationService(
-            replicaMetadataStore, snapshotMetadataStore, managerConfig, meterRegistry);
+            replicaMetadataStore,
+            snapshotMetadataStore,
+            snapshotHeatMetadataStore,
+            managerConfig,
+            meterRegistry);
     replicaCreationService.futuresListTimeoutSecs = 2;
     replicaCreationService.startAsync();
     replicaCreationService.awaitRunning(DEFAULT_START_STOP_DURATION);
@@ -594,7 +628,11 @@ public class ReplicaCreationServiceTest {
 
     ReplicaCreationService replicaCreationService =
         new ReplicaCreationService(
-            replicaMetadataStore, snapshotMetadataStore, managerConfig, meterRegistry);
+            replicaMetadataStore,
+            snapshotMetadataStore,
+            snapshotHeatMetadataStore,
+            managerConfig,
+            meterRegistry);
 
     doCallRealMethod()
         .doReturn(Futures.immediateFailedFuture(new Exception()))
@@ -642,7 +680,11 @@ public class ReplicaCreationServiceTest {
 
     ReplicaCreationService replicaCreationService =
         new ReplicaCreationService(
-            replicaMetadataStore, snapshotMetadataStore, managerConfig, meterRegistry);
+            replicaMetadataStore,
+            snapshotMetadataStore,
+            snapshotHeatMetadataStore,
+            managerConfig,
+            meterRegistry);
     replicaCreationService.futuresListTimeoutSecs = 2;
 
     ExecutorService timeoutServiceExecutor = Executors.newSingleThreadExecutor();
@@ -689,7 +731,11 @@ public class ReplicaCreationServiceTest {
             .build();
 
     new ReplicaCreationService(
-        replicaMetadataStore, snapshotMetadataStore, managerConfig, meterRegistry);
+        replicaMetadataStore,
+        snapshotMetadataStore,
+        snapshotHeatMetadataStore,
+        managerConfig,
+        meterRegistry);
   }
 
   @Test(expected = IllegalArgumentException.class)
@@ -709,7 +755,11 @@ public class ReplicaCreationServiceTest {
             .build();
 
     new ReplicaCreationService(
-        replicaMetadataStore, snapshotMetadataStore, managerConfig, meterRegistry);
+        replicaMetadataStore,
+        snapshotMetadataStore,
+        snapshotHeatMetadataStore,
+        managerConfig,
+        meterRegistry);
   }
 
   @Test(expected = IllegalArgumentException.class)
@@ -729,6 +779,246 @@ public class ReplicaCreationServiceTest {
             .build();
 
     new ReplicaCreationService(
-        replicaMetadataStore, snapshotMetadataStore, managerConfig, meterRegistry);
+        replicaMetadataStore,
+        snapshotMetadataStore,
+        snapshotHeatMetadataStore,
+        managerConfig,
+        meterRegistry);
+  }
+
+  @Test
+  public void shouldCreateExtraReplicasForHotSnapshots() throws Exception {
+    for (String snapshotId : List.of("a", "b", "c")) {
+      snapshotMetadataStore.createSync(
+          new SnapshotMetadata(
+              snapshotId,
+              snapshotId,
+              Instant.now().toEpochMilli() - 1,
+              Instant.now().toEpochMilli(),
+              0,
+              snapshotId,
+              LOGS_LUCENE9,
+              100,
+              10));
+    }
+    snapshotHeatMetadataStore.createSync(
+        new SnapshotHeatMetadata(
+            "query1", Map.of("a", 30L, "b", 20L, "c", 5L), Instant.now().toEpochMilli()));
+    snapshotHeatMetadataStore.createSync(
+        new SnapshotHeatMetadata("query2", Map.of("a", 30L), Instant.now().toEpochMilli()));
+    await().until(() -> snapshotMetadataStore.getCached().size() == 3);
+    await().until(() -> snapshotHeatMetadataStore.getCached().size() == 2);
+
+    KaldbConfigs.ManagerConfig.ReplicaCreationServiceConfig replicaCreationServiceConfig =
+        KaldbConfigs.ManagerConfig.ReplicaCreationServiceConfig.newBuilder()
+            .setReplicasPerSnapshot(1)
+            .setSchedulePeriodMins(10)
+            .setReplicaLifespanMins(1440)
+            .setMaxReplicasPerSnapshot(4)
+            .setQueriesPerExtraReplica(10)
+            .setExtraReplicasMaxBytes(400)
+            .build();
+
+    KaldbConfigs.ManagerConfig managerConfig =
+        KaldbConfigs.ManagerConfig.newBuilder()
+            .setReplicaCreationServiceConfig(replicaCreationServiceConfig)
+            .setEventAggregationSecs(2)
+            .setScheduleInitialDelayMins(0)
+            .build();
+
+    ReplicaCreationService replicaCreationService =
+        new ReplicaCreationService(
+            replicaMetadataStore,
+            snapshotMetadataStore,
+            snapshotHeatMetadataStore,
+            managerConfig,
+            meterRegistry);
+
+    // "a" is capped at the max replicas, and "b" by the remaining byte budget
+    assertThat(replicaCreationService.createReplicasForUnassignedSnapshots()).isEqualTo(7);
+    await().until(() -> replicaMetadataStore.getCached().size() == 7);
+    Map<String, Long> replicasBySnapshotId =
+        replicaMetadataStore
+            .getCached()
+            .stream()
+            .collect(Collectors.groupingBy(r -> r.snapshotId, Collectors.counting()));
+    assertThat(replicasBySnapshotId).isEqualTo(Map.of("a", 4L, "b", 2L, "c", 1L));
+    assertThat(MetricsUtil.getCount(ReplicaCreationService.REPLICAS_CREATED, meterRegistry))
+        .isEqualTo(7);
+  }
+
+  @Test
+  public void shouldDropExtraReplicasOfColdSnapshots() throws Exception {
+    SnapshotMetadata snapshotA =
+        new SnapshotMetadata(
+            "a",
+            "a",
+            Instant.now().toEpochMilli() - 1,
+            Instant.now().toEpochMilli(),
+            0,
+            "a",
+            LOGS_LUCENE9);
+    snapshotMetadataStore.createSync(snapshotA);
+
+    long expireAfter = Instant.now().plus(1, ChronoUnit.DAYS).toEpochMilli();
+    ReplicaMetadata oldReplica =
+        new ReplicaMetadata(
+            "old", "a", Instant.now().toEpochMilli() - 1000, expireAfter, false, LOGS_LUCENE9);
+    ReplicaMetadata newReplica =
+        new ReplicaMetadata(
+            "new", "a", Instant.now().toEpochMilli(), expireAfter, false, LOGS_LUCENE9);
+    ReplicaMetadata restoredReplica =
+        new ReplicaMetadata(
+            "restored", "a", Instant.now().toEpochMilli(), expireAfter, true, LOGS_LUCENE9);
+    replicaMetadataStore.createSync(oldReplica);
+    replicaMetadataStore.createSync(newReplica);
+    replicaMetadataStore.createSync(restoredReplica);
+    await().until(() -> snapshotMetadataStore.getCached().size() == 1);
+    await().until(() -> replicaMetadataStore.getCached().size() == 3);
+
+    KaldbConfigs.ManagerConfig.ReplicaCreationServiceConfig replicaCreationServiceConfig =
+        KaldbConfigs.ManagerConfig.ReplicaCreationServiceConfig.newBuilder()
+            .setReplicasPerSnapshot(1)
+            .setSchedulePeriodMins(10)
+            .setReplicaLifespanMins(1440)
+            .setMaxReplicasPerSnapshot(3)
+            .setQueriesPerExtraReplica(10)
+            .build();
+
+    KaldbConfigs.ManagerConfig managerConfig =
+        KaldbConfigs.ManagerConfig.newBuilder()
+            .setReplicaCreationServiceConfig(replicaCreationServiceConfig)
+            .setEventAggregationSecs(2)
+            .setScheduleInitialDelayMins(0)
+            .build();
+
+    ReplicaCreationService replicaCreationService =
+        new ReplicaCreationService(
+            replicaMetadataStore,
+            snapshotMetadataStore,
+            snapshotHeatMetadataStore,
+            managerConfig,
+            meterRegistry);
+
+    // without any heat only the newest non-restored replica is expired
+    assertThat(replicaCreationService.createReplicasForUnassignedSnapshots()).isZero();
+    assertThat(MetricsUtil.getCount(ReplicaCreationService.REPLICAS_DROPPED, meterRegistry))
+        .isEqualTo(1);
+    await()
+        .until(
+            () ->
+                replicaMetadataStore
+                        .getCached()
+                        .stream()
+                        .filter(r -> r.expireAfterEpochMs <= Instant.now().toEpochMilli())
+                        .count()
+                    == 1);
+    assertThat(
+            replicaMetadataStore
+                .getCached()
+                .stream()
+                .filter(r -> r.expireAfterEpochMs == expireAfter)
+                .map(r -> r.name)
+                .collect(Collectors.toList()))
+        .containsExactlyInAnyOrder("old", "restored");
+
+    // the expired replica is not counted again
+    assertThat(replicaCreationService.createReplicasForUnassignedSnapshots()).isZero();
+    assertThat(MetricsUtil.getCount(ReplicaCreationService.REPLICAS_DROPPED, meterRegistry))
+        .isEqualTo(1);
+  }
+
+  @Test
+  public void shouldKeepYoungExtraReplicasAndReplaceExpiredOnes() throws Exception {
+    SnapshotMetadata snapshotA =
+        new SnapshotMetadata(
+            "a",
+            "a",
+            Instant.now().toEpochMilli() - 1,
+            Instant.now().toEpochMilli(),
+            0,
+            "a",
+            LOGS_LUCENE9);
+    snapshotMetadataStore.createSync(snapshotA);
+
+    long expireAfter = Instant.now().plus(1, ChronoUnit.DAYS).toEpochMilli();
+    replicaMetadataStore.createSync(
+        new ReplicaMetadata(
+            "young1", "a", Instant.now().toEpochMilli(), expireAfter, false, LOGS_LUCENE9));
+    replicaMetadataStore.createSync(
+        new ReplicaMetadata(
+            "young2", "a", Instant.now().toEpochMilli(), expireAfter, false, LOGS_LUCENE9));
+    replicaMetadataStore.createSync(
+        new ReplicaMetadata(
+            "expired",
+            "a",
+            Instant.now().toEpochMilli() - 1000,
+            Instant.now().toEpochMilli() - 1,
+            false,
+            LOGS_LUCENE9));
+    await().until(() -> snapshotMetadataStore.getCached().size() == 1);
+    await().until(() -> replicaMetadataStore.getCached().size() == 3);
+
+    KaldbConfigs.ManagerConfig.ReplicaCreationServiceConfig replicaCreationServiceConfig =
+        KaldbConfigs.ManagerConfig.ReplicaCreationServiceConfig.newBuilder()
+            .setReplicasPerSnapshot(1)
+            .setSchedulePeriodMins(10)
+            .setReplicaLifespanMins(1440)
+            .setMaxReplicasPerSnapshot(3)
+            .setQueriesPerExtraReplica(10)
+            .setExtraReplicaMinLifespanMins(10)
+            .build();
+
+    KaldbConfigs.ManagerConfig managerConfig =
+        KaldbConfigs.ManagerConfig.newBuilder()
+            .setReplicaCreationServiceConfig(replicaCreationServiceConfig)
+            .setEventAggregationSecs(2)
+            .setScheduleInitialDelayMins(0)
+            .build();
+
+    ReplicaCreationService replicaCreationService =
+        new ReplicaCreationService(
+            replicaMetadataStore,
+            snapshotMetadataStore,
+            snapshotHeatMetadataStore,
+            managerConfig,
+            meterRegistry);
+
+    // without any heat the snapshot is above its target, but its replicas are too young to drop
+    assertThat(replicaCreationService.createReplicasForUnassignedSnapshots()).isZero();
+    assertThat(MetricsUtil.getCount(ReplicaCreationService.REPLICAS_DROPPED, meterRegistry))
+        .isZero();
+
+    // once hot again, the expired replica doesn't count towards the target
+    snapshotHeatMetadataStore.createSync(
+        new SnapshotHeatMetadata("query1", Map.of("a", 20L), Instant.now().toEpochMilli()));
+    await().until(() -> snapshotHeatMetadataStore.getCached().size() == 1);
+    assertThat(replicaCreationService.createReplicasForUnassignedSnapshots()).isEqualTo(1);
+    await().until(() -> replicaMetadataStore.getCached().size() == 4);
+  }
+
+  @Test(expected = IllegalArgumentException.class)
+  public void shouldThrowOnMissingQueriesPerExtraReplica() {
+    KaldbConfigs.ManagerConfig.ReplicaCreationServiceConfig replicaCreationServiceConfig =
+        KaldbConfigs.ManagerConfig.ReplicaCreationServiceConfig.newBuilder()
+            .setReplicasPerSnapshot(1)
+            .setSchedulePeriodMins(10)
+            .setReplicaLifespanMins(1440)
+            .setMaxReplicasPerSnapshot(3)
+            .build();
+
+    KaldbConfigs.ManagerConfig managerConfig =
+        KaldbConfigs.ManagerConfig.newBuilder()
+            .setReplicaCreationServiceConfig(replicaCreationServiceConfig)
+            .setEventAggregationSecs(2)
+            .setScheduleInitialDelayMins(0)
+            .build();
+
+    new ReplicaCreationService(
+        replicaMetadataStore,
+        snapshotMetadataStore,
+        snapshotHeatMetadataStore,
+        managerConfig,
+        meterRegistry);
   }
 }
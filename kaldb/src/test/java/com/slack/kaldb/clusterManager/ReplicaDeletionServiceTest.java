@@ -5,6 +5,7 @@ import static com.slack.kaldb.server.KaldbConfig.DEFAULT_START_STOP_DURATION;
 import static org.assertj.core.api.Assertions.assertThat;
 import static org.awaitility.Awaitility.await;
 import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.Mockito.doAnswer;
 import static org.mockito.Mockito.doCallRealMethod;
 import static org.mockito.Mockito.doReturn;
 import static org.mockito.Mockito.spy;
@@ -30,6 +31,7 @@ import java.util.UUID;
 import java.util.concurrent.ExecutorService;
 import java.util.concurrent.Executors;
 import java.util.concurrent.TimeoutException;
+import java.util.stream.Collectors;
 import org.apache.curator.test.TestingServer;
 import org.junit.After;
 import org.junit.Before;
@@ -340,6 +342,16 @@ public class ReplicaDeletionServiceTest {
         new ReplicaDeletionService(
             cacheSlotMetadataStore, replicaMetadataStore, managerConfig, meterRegistry);
 
+    // route the batched deletes through delete(), to fail or delay single replicas
+    doAnswer(
+            invocation ->
+                invocation
+                    .<List<ReplicaMetadata>>getArgument(0)
+                    .stream()
+                    .map(replicaMetadataStore::delete)
+                    .collect(Collectors.toList()))
+        .when(replicaMetadataStore)
+        .deleteAll(any());
     doReturn(Futures.immediateFailedFuture(new Exception()))
         .when(replicaMetadataStore)
         .delete(any(ReplicaMetadata.class));
@@ -422,6 +434,16 @@ public class ReplicaDeletionServiceTest {
     replicaDeletionService.futuresListTimeoutSecs = 2;
 
     ExecutorService timeoutServiceExecutor = Executors.newSingleThreadExecutor();
+    // route the batched deletes through delete(), to fail or delay single replicas
+    doAnswer(
+            invocation ->
+                invocation
+                    .<List<ReplicaMetadata>>getArgument(0)
+                    .stream()
+                    .map(replicaMetadataStore::delete)
+                    .collect(Collectors.toList()))
+        .when(replicaMetadataStore)
+        .deleteAll(any());
     doCallRealMethod()
         .doReturn(
             Futures.submit(
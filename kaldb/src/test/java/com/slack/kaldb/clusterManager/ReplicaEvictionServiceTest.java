@@ -5,6 +5,7 @@ import static com.slack.kaldb.server.KaldbConfig.DEFAULT_START_STOP_DURATION;
 import static org.assertj.core.api.Assertions.assertThat;
 import static org.awaitility.Awaitility.await;
 import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.Mockito.doAnswer;
 import static org.mockito.Mockito.doCallRealMethod;
 import static org.mockito.Mockito.doReturn;
 import static org.mockito.Mockito.spy;
@@ -31,6 +32,7 @@ import java.util.UUID;
 import java.util.concurrent.ExecutorService;
 import java.util.concurrent.Executors;
 import java.util.concurrent.TimeoutException;
+import java.util.stream.Collectors;
 import org.apache.curator.test.TestingServer;
 import org.junit.After;
 import org.junit.Before;
@@ -515,6 +517,16 @@ public class ReplicaEvictionServiceTest {
     await().until(() -> replicaMetadataStore.getCached().size() == 1);
     await().until(() -> cacheSlotMetadataStore.getCached().size() == 1);
 
+    // route the batched updates through update(), to fail or delay single slots
+    doAnswer(
+            invocation ->
+                invocation
+                    .<List<CacheSlotMetadata>>getArgument(0)
+                    .stream()
+                    .map(cacheSlotMetadataStore::update)
+                    .collect(Collectors.toList()))
+        .when(cacheSlotMetadataStore)
+        .updateAll(any());
     doReturn(Futures.immediateFailedFuture(new Exception()))
         .when(cacheSlotMetadataStore)
         .update(any());
@@ -624,6 +636,16 @@ public class ReplicaEvictionServiceTest {
 
     ExecutorService timeoutServiceExecutor = Executors.newSingleThreadExecutor();
     // allow the first replica creation to work, and timeout the second one
+    // route the batched updates through update(), to fail or delay single slots
+    doAnswer(
+            invocation ->
+                invocation
+                    .<List<CacheSlotMetadata>>getArgument(0)
+                    .stream()
+                    .map(cacheSlotMetadataStore::update)
+                    .collect(Collectors.toList()))
+        .when(cacheSlotMetadataStore)
+        .updateAll(any());
     doCallRealMethod()
         .doReturn(
             Futures.submit(
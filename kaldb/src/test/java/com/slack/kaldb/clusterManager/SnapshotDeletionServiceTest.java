@@ -8,6 +8,7 @@ import static org.awaitility.Awaitility.await;
 import static org.mockito.ArgumentMatchers.any;
 import static org.mockito.ArgumentMatchers.anyBoolean;
 import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.doAnswer;
 import static org.mockito.Mockito.doCallRealMethod;
 import static org.mockito.Mockito.doReturn;
 import static org.mockito.Mockito.doThrow;
@@ -36,9 +37,11 @@ import java.nio.file.Files;
 import java.nio.file.Path;
 import java.time.Instant;
 import java.time.temporal.ChronoUnit;
+import java.util.List;
 import java.util.UUID;
 import java.util.concurrent.ExecutorService;
 import java.util.concurrent.Executors;
+import java.util.stream.Collectors;
 import org.apache.curator.test.TestingServer;
 import org.junit.After;
 import org.junit.Before;
@@ -520,6 +523,16 @@ public class SnapshotDeletionServiceTest {
     SnapshotDeletionService snapshotDeletionService =
         new SnapshotDeletionService(
             replicaMetadataStore, snapshotMetadataStore, s3BlobFs, managerConfig, meterRegistry);
+    // route the batched deletes through delete(), to fail or delay single snapshots
+    doAnswer(
+            invocation ->
+                invocation
+                    .<List<SnapshotMetadata>>getArgument(0)
+                    .stream()
+                    .map(snapshotMetadataStore::delete)
+                    .collect(Collectors.toList()))
+        .when(snapshotMetadataStore)
+        .deleteAll(any());
     doReturn(Futures.immediateFailedFuture(new InternalMetadataStoreException("failed")))
         .when(snapshotMetadataStore)
         .delete(any(SnapshotMetadata.class));
@@ -644,6 +657,16 @@ public class SnapshotDeletionServiceTest {
     assertThat(s3BlobFsFiles.length).isNotEqualTo(0);
 
     ExecutorService timeoutServiceExecutor = Executors.newSingleThreadExecutor();
+    // route the batched deletes through delete(), to fail or delay single snapshots
+    doAnswer(
+            invocation ->
+                invocation
+                    .<List<SnapshotMetadata>>getArgument(0)
+                    .stream()
+                    .map(snapshotMetadataStore::delete)
+                    .collect(Collectors.toList()))
+        .when(snapshotMetadataStore)
+        .deleteAll(any());
     doReturn(
             Futures.submit(
                 () -> {
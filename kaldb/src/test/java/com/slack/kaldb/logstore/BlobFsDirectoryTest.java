@@ -0,0 +1,186 @@
+package com.slack.kaldb.logstore;
+
+import static com.slack.kaldb.logstore.BlobFsBlockCache.BLOCK_CACHE_FETCHED_BYTES;
+import static com.slack.kaldb.logstore.BlobFsBlockCache.BLOCK_CACHE_HITS;
+import static com.slack.kaldb.logstore.BlobFsUtils.copyToS3;
+import static com.slack.kaldb.logstore.BlobFsUtils.copyToS3Packed;
+import static com.slack.kaldb.logstore.BlobFsUtils.createURI;
+import static com.slack.kaldb.testlib.MetricsUtil.getCount;
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatExceptionOfType;
+
+import com.adobe.testing.s3mock.junit4.S3MockRule;
+import com.slack.kaldb.blobfs.s3.S3BlobFs;
+import com.slack.kaldb.proto.metadata.Metadata;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import java.io.IOException;
+import java.net.URI;
+import java.nio.ByteBuffer;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Random;
+import java.util.stream.Collectors;
+import org.apache.lucene.analysis.standard.StandardAnalyzer;
+import org.apache.lucene.document.Document;
+import org.apache.lucene.document.Field;
+import org.apache.lucene.document.StringField;
+import org.apache.lucene.document.TextField;
+import org.apache.lucene.index.DirectoryReader;
+import org.apache.lucene.index.IndexWriter;
+import org.apache.lucene.index.IndexWriterConfig;
+import org.apache.lucene.index.Term;
+import org.apache.lucene.search.IndexSearcher;
+import org.apache.lucene.search.TermQuery;
+import org.apache.lucene.store.FSDirectory;
+import org.apache.lucene.store.IOContext;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.ClassRule;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+import software.amazon.awssdk.core.sync.RequestBody;
+import software.amazon.awssdk.services.s3.S3Client;
+import software.amazon.awssdk.services.s3.model.CreateBucketRequest;
+import software.amazon.awssdk.services.s3.model.PutObjectRequest;
+
+public class BlobFsDirectoryTest {
+  @ClassRule public static final S3MockRule S3_MOCK_RULE = S3MockRule.builder().silent().build();
+  @Rule public TemporaryFolder temporaryFolder = new TemporaryFolder();
+
+  private static final String TEST_S3_BUCKET = "blobfs-directory-test";
+
+  private SimpleMeterRegistry meterRegistry;
+  private S3Client s3Client;
+  private S3BlobFs s3BlobFs;
+  private BlobFsBlockCache blockCache;
+
+  @Before
+  public void setUp() throws IOException {
+    meterRegistry = new SimpleMeterRegistry();
+    s3Client = S3_MOCK_RULE.createS3ClientV2();
+    s3Client.createBucket(CreateBucketRequest.builder().bucket(TEST_S3_BUCKET).build());
+    s3BlobFs = new S3BlobFs(s3Client);
+    blockCache =
+        new BlobFsBlockCache(
+            meterRegistry, s3BlobFs, temporaryFolder.newFolder().toPath(), 1024 * 1024, 4096);
+  }
+
+  @After
+  public void tearDown() throws IOException {
+    s3BlobFs.close();
+    s3Client.close();
+    meterRegistry.close();
+  }
+
+  private List<String> writeIndex(Path indexPath, int docCount) throws IOException {
+    try (FSDirectory directory = FSDirectory.open(indexPath);
+        IndexWriter indexWriter =
+            new IndexWriter(directory, new IndexWriterConfig(new StandardAnalyzer()))) {
+      for (int i = 0; i < docCount; i++) {
+        Document document = new Document();
+        document.add(new StringField("id", "doc" + i, Field.Store.YES));
+        document.add(
+            new TextField("message", i % 2 == 0 ? "even message" : "odd message", Field.Store.NO));
+        indexWriter.addDocument(document);
+      }
+      indexWriter.commit();
+    }
+    return Arrays.stream(indexPath.toFile().list())
+        .filter(fileName -> !fileName.equals(IndexWriter.WRITE_LOCK_NAME))
+        .collect(Collectors.toList());
+  }
+
+  private void assertSearchable(BlobFsDirectory directory, int docCount) throws IOException {
+    try (DirectoryReader directoryReader = DirectoryReader.open(directory)) {
+      assertThat(directoryReader.numDocs()).isEqualTo(docCount);
+      IndexSearcher searcher = new IndexSearcher(directoryReader);
+      assertThat(searcher.count(new TermQuery(new Term("message", "even"))))
+          .isEqualTo(docCount / 2);
+      assertThat(searcher.count(new TermQuery(new Term("id", "doc7")))).isEqualTo(1);
+    }
+  }
+
+  @Test
+  public void testSearchSnapshot() throws Exception {
+    Path indexPath = temporaryFolder.newFolder().toPath();
+    List<String> files = writeIndex(indexPath, 1000);
+    copyToS3(indexPath, files, TEST_S3_BUCKET, "snapshot", s3BlobFs);
+
+    BlobFsDirectory directory =
+        BlobFsDirectory.open(
+            TEST_S3_BUCKET, "snapshot", Metadata.IndexType.LOGS_LUCENE9, s3BlobFs, blockCache);
+    assertThat(directory.listAll()).containsExactlyInAnyOrderElementsOf(files);
+    for (String file : files) {
+      assertThat(directory.fileLength(file)).isEqualTo(indexPath.resolve(file).toFile().length());
+    }
+    assertSearchable(directory, 1000);
+
+    // Searching again reads the blocks from the cache.
+    double fetchedBytes = getCount(BLOCK_CACHE_FETCHED_BYTES, meterRegistry);
+    assertSearchable(directory, 1000);
+    assertThat(getCount(BLOCK_CACHE_FETCHED_BYTES, meterRegistry)).isEqualTo(fetchedBytes);
+    assertThat(getCount(BLOCK_CACHE_HITS, meterRegistry)).isPositive();
+
+    directory.close();
+    assertThatExceptionOfType(Exception.class)
+        .isThrownBy(() -> directory.openInput(files.get(0), IOContext.READ));
+  }
+
+  @Test
+  public void testSearchPackedSnapshot() throws Exception {
+    Path indexPath = temporaryFolder.newFolder().toPath();
+    List<String> files = writeIndex(indexPath, 1000);
+    copyToS3Packed(indexPath, files, TEST_S3_BUCKET, "packedSnapshot", s3BlobFs);
+
+    BlobFsDirectory directory =
+        BlobFsDirectory.open(
+            TEST_S3_BUCKET,
+            "packedSnapshot",
+            Metadata.IndexType.LOGS_LUCENE9_PACKED,
+            s3BlobFs,
+            blockCache);
+    assertThat(directory.listAll()).containsExactlyInAnyOrderElementsOf(files);
+    assertSearchable(directory, 1000);
+  }
+
+  @Test
+  public void testMissingSnapshot() {
+    assertThatExceptionOfType(IOException.class)
+        .isThrownBy(
+            () ->
+                BlobFsDirectory.open(
+                    TEST_S3_BUCKET,
+                    "missing",
+                    Metadata.IndexType.LOGS_LUCENE9,
+                    s3BlobFs,
+                    blockCache));
+  }
+
+  @Test
+  public void testBlockCacheReadsAcrossBlocksAndEvicts() throws Exception {
+    byte[] content = new byte[10000];
+    new Random().nextBytes(content);
+    s3Client.putObject(
+        PutObjectRequest.builder().bucket(TEST_S3_BUCKET).key("blocks/file").build(),
+        RequestBody.fromBytes(content));
+    URI uri = createURI(TEST_S3_BUCKET, "blocks", "file");
+
+    Path cacheDirectory = temporaryFolder.newFolder().toPath();
+    // Fits two blocks of 4096 bytes.
+    BlobFsBlockCache smallBlockCache =
+        new BlobFsBlockCache(new SimpleMeterRegistry(), s3BlobFs, cacheDirectory, 8192, 4096);
+
+    ByteBuffer buffer = ByteBuffer.allocate(6000);
+    smallBlockCache.read(uri, content.length, 4000, buffer);
+    assertThat(buffer.array()).isEqualTo(Arrays.copyOfRange(content, 4000, 10000));
+    assertThat(smallBlockCache.getBlockCount()).isLessThanOrEqualTo(2);
+    assertThat(Files.list(cacheDirectory).count()).isEqualTo(smallBlockCache.getBlockCount());
+
+    ByteBuffer lastBytes = ByteBuffer.allocate(10);
+    smallBlockCache.read(uri, content.length, 9990, lastBytes);
+    assertThat(lastBytes.array()).isEqualTo(Arrays.copyOfRange(content, 9990, 10000));
+  }
+}
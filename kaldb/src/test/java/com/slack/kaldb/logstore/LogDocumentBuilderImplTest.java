@@ -1,11 +1,24 @@
 package com.slack.kaldb.logstore;
 
 import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatExceptionOfType;
 
+import com.slack.kaldb.proto.config.KaldbConfigs;
 import com.slack.kaldb.testlib.MessageUtil;
+import com.slack.kaldb.util.JsonUtil;
 import java.io.IOException;
 import java.util.Collections;
+import java.util.Map;
 import org.apache.lucene.document.Document;
+import org.apache.lucene.document.DoublePoint;
+import org.apache.lucene.document.FloatPoint;
+import org.apache.lucene.document.IntPoint;
+import org.apache.lucene.document.LongPoint;
+import org.apache.lucene.document.NumericDocValuesField;
+import org.apache.lucene.document.SortedSetDocValuesField;
+import org.apache.lucene.index.DocValuesType;
+import org.apache.lucene.index.IndexOptions;
+import org.apache.lucene.index.IndexableField;
 import org.junit.Before;
 import org.junit.Test;
 
@@ -61,4 +74,165 @@ public class LogDocumentBuilderImplTest {
     testMessage.addProperty(key, Collections.EMPTY_LIST);
     builder.fromMessage(testMessage);
   }
+
+  @Test
+  public void testFieldConfigIndexOptions() throws IOException {
+    DocumentBuilder<LogMessage> builder =
+        LogDocumentBuilderImpl.build(
+            false,
+            Map.of(
+                "trace_id",
+                KaldbConfigs.FieldConfig.newBuilder()
+                    .setType(KaldbConfigs.FieldConfig.FieldType.KEYWORD)
+                    .build(),
+                "message",
+                KaldbConfigs.FieldConfig.newBuilder()
+                    .setType(KaldbConfigs.FieldConfig.FieldType.TEXT)
+                    .setIndexOptions(KaldbConfigs.FieldConfig.IndexOptions.DOCS_AND_FREQS)
+                    .build(),
+                "host_id",
+                KaldbConfigs.FieldConfig.newBuilder()
+                    .setType(KaldbConfigs.FieldConfig.FieldType.KEYWORD)
+                    .setIndexOptions(KaldbConfigs.FieldConfig.IndexOptions.NONE)
+                    .setDocValues(true)
+                    .build(),
+                MessageUtil.TEST_SOURCE_LONG_PROPERTY,
+                KaldbConfigs.FieldConfig.newBuilder()
+                    .setType(KaldbConfigs.FieldConfig.FieldType.LONG)
+                    .setDocValues(true)
+                    .build()));
+
+    testMessage.addProperty("trace_id", "1a2b3c");
+    testMessage.addProperty("host_id", "host-1");
+    Document testDocument = builder.fromMessage(testMessage);
+
+    IndexableField traceId = testDocument.getField("trace_id");
+    assertThat(traceId.fieldType().indexOptions()).isEqualTo(IndexOptions.DOCS);
+    assertThat(traceId.fieldType().tokenized()).isFalse();
+    assertThat(traceId.fieldType().omitNorms()).isTrue();
+
+    IndexableField message = testDocument.getField("message");
+    assertThat(message.fieldType().indexOptions()).isEqualTo(IndexOptions.DOCS_AND_FREQS);
+    assertThat(message.fieldType().tokenized()).isTrue();
+    assertThat(message.fieldType().omitNorms()).isTrue();
+
+    IndexableField[] hostId = testDocument.getFields("host_id");
+    assertThat(hostId.length).isEqualTo(1);
+    assertThat(hostId[0]).isInstanceOf(SortedSetDocValuesField.class);
+    assertThat(hostId[0].fieldType().indexOptions()).isEqualTo(IndexOptions.NONE);
+
+    IndexableField[] longProperty = testDocument.getFields(MessageUtil.TEST_SOURCE_LONG_PROPERTY);
+    assertThat(longProperty.length).isEqualTo(2);
+    assertThat(longProperty[0]).isInstanceOf(LongPoint.class);
+    assertThat(longProperty[1]).isInstanceOf(NumericDocValuesField.class);
+    assertThat(longProperty[1].fieldType().docValuesType()).isEqualTo(DocValuesType.NUMERIC);
+
+    // Fields without a config keep the default treatment of analyzed strings.
+    IndexableField intProperty = testDocument.getField(MessageUtil.TEST_SOURCE_INT_PROPERTY);
+    assertThat(intProperty.fieldType().indexOptions())
+        .isEqualTo(IndexOptions.DOCS_AND_FREQS_AND_POSITIONS);
+  }
+
+  private static Map<String, KaldbConfigs.FieldConfig> makeTypedFieldConfigs() {
+    return Map.of(
+        "int_field", makeFieldConfig(KaldbConfigs.FieldConfig.FieldType.INTEGER),
+        "long_field", makeFieldConfig(KaldbConfigs.FieldConfig.FieldType.LONG),
+        "float_field", makeFieldConfig(KaldbConfigs.FieldConfig.FieldType.FLOAT),
+        "double_field", makeFieldConfig(KaldbConfigs.FieldConfig.FieldType.DOUBLE),
+        "keyword_field", makeFieldConfig(KaldbConfigs.FieldConfig.FieldType.KEYWORD));
+  }
+
+  private static KaldbConfigs.FieldConfig makeFieldConfig(
+      KaldbConfigs.FieldConfig.FieldType fieldType) {
+    return KaldbConfigs.FieldConfig.newBuilder().setType(fieldType).build();
+  }
+
+  private void addJsonProperties(String json) throws IOException {
+    Map<String, Object> properties = JsonUtil.read(json, Map.class);
+    properties.forEach(testMessage::addProperty);
+  }
+
+  @Test
+  public void testFieldConfigCoercesJsonNumbers() throws IOException {
+    DocumentBuilder<LogMessage> builder =
+        LogDocumentBuilderImpl.build(false, makeTypedFieldConfigs());
+
+    // The json parser returns a Double for float_field, an Integer for double_field and a Long
+    // for int_field.
+    addJsonProperties(
+        "{\"int_field\": 7, \"long_field\": 5, \"float_field\": 1.5, \"double_field\": 5,"
+            + " \"keyword_field\": 42}");
+    Document testDocument = builder.fromMessage(testMessage);
+
+    assertThat(testDocument.getField("int_field")).isInstanceOf(IntPoint.class);
+    assertThat(testDocument.getField("int_field").numericValue()).isEqualTo(7);
+    assertThat(testDocument.getField("long_field")).isInstanceOf(LongPoint.class);
+    assertThat(testDocument.getField("long_field").numericValue()).isEqualTo(5L);
+    assertThat(testDocument.getField("float_field")).isInstanceOf(FloatPoint.class);
+    assertThat(testDocument.getField("float_field").numericValue()).isEqualTo(1.5f);
+    assertThat(testDocument.getField("double_field")).isInstanceOf(DoublePoint.class);
+    assertThat(testDocument.getField("double_field").numericValue()).isEqualTo(5.0);
+    assertThat(testDocument.getField("keyword_field").stringValue()).isEqualTo("42");
+
+    // Whole numbers too large for an int are parsed as a Long, and truncated decimals still fit.
+    testMessage = MessageUtil.makeMessage(0);
+    addJsonProperties("{\"int_field\": 2147483647, \"long_field\": 3000000000.9}");
+    testDocument = builder.fromMessage(testMessage);
+    assertThat(testDocument.getField("int_field").numericValue()).isEqualTo(Integer.MAX_VALUE);
+    assertThat(testDocument.getField("long_field").numericValue()).isEqualTo(3000000000L);
+  }
+
+  @Test
+  public void testFieldConfigRejectsJsonNumbersOutOfRange() throws IOException {
+    addJsonProperties("{\"int_field\": 3000000000}");
+    assertThatExceptionOfType(PropertyTypeMismatchException.class)
+        .isThrownBy(
+            () ->
+                LogDocumentBuilderImpl.build(false, makeTypedFieldConfigs())
+                    .fromMessage(testMessage));
+
+    // When property type exceptions are ignored, only the out of range field is dropped.
+    Document testDocument =
+        LogDocumentBuilderImpl.build(true, makeTypedFieldConfigs()).fromMessage(testMessage);
+    assertThat(testDocument.getField("int_field")).isNull();
+    assertThat(testDocument.getFields().size()).isEqualTo(12);
+  }
+
+  @Test
+  public void testInvalidFieldConfigs() {
+    assertThatExceptionOfType(InvalidPropertyDescriptionException.class)
+        .isThrownBy(
+            () ->
+                LogDocumentBuilderImpl.build(
+                    false,
+                    Map.of(
+                        LogMessage.SystemField.TIME_SINCE_EPOCH.fieldName,
+                        KaldbConfigs.FieldConfig.newBuilder()
+                            .setType(KaldbConfigs.FieldConfig.FieldType.KEYWORD)
+                            .build())));
+
+    assertThatExceptionOfType(InvalidPropertyDescriptionException.class)
+        .isThrownBy(
+            () ->
+                LogDocumentBuilderImpl.build(
+                    false,
+                    Map.of(
+                        "duration",
+                        KaldbConfigs.FieldConfig.newBuilder()
+                            .setType(KaldbConfigs.FieldConfig.FieldType.LONG)
+                            .setIndexOptions(KaldbConfigs.FieldConfig.IndexOptions.DOCS)
+                            .build())));
+
+    assertThatExceptionOfType(InvalidPropertyDescriptionException.class)
+        .isThrownBy(
+            () ->
+                LogDocumentBuilderImpl.build(
+                    false,
+                    Map.of(
+                        "message",
+                        KaldbConfigs.FieldConfig.newBuilder()
+                            .setType(KaldbConfigs.FieldConfig.FieldType.TEXT)
+                            .setDocValues(true)
+                            .build())));
+  }
 }
@@ -0,0 +1,91 @@
+package com.slack.kaldb.logstore;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatExceptionOfType;
+import static org.assertj.core.api.Assertions.tuple;
+
+import com.slack.kaldb.proto.metadata.Metadata;
+import java.io.File;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.List;
+import java.util.Random;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+public class PackedSnapshotTest {
+  @Rule public TemporaryFolder temporaryFolder = new TemporaryFolder();
+
+  private byte[] writeFile(Path dirPath, String fileName, int length) throws IOException {
+    byte[] content = new byte[length];
+    new Random().nextBytes(content);
+    Files.write(dirPath.resolve(fileName), content);
+    return content;
+  }
+
+  @Test
+  public void testPackAndUnpack() throws IOException {
+    Path sourceDirPath = temporaryFolder.newFolder().toPath();
+    byte[] segment = writeFile(sourceDirPath, "_0.cfs", 200_000);
+    byte[] emptyFile = writeFile(sourceDirPath, "_0.si", 0);
+    byte[] segmentsFile = writeFile(sourceDirPath, "segments_1", 300);
+
+    File packedFile = temporaryFolder.newFile();
+    Metadata.SnapshotManifest footer =
+        PackedSnapshot.pack(sourceDirPath, List.of("_0.cfs", "_0.si", "segments_1"), packedFile);
+    assertThat(footer.getFilesList())
+        .extracting(
+            Metadata.SnapshotManifest.FileEntry::getName,
+            Metadata.SnapshotManifest.FileEntry::getOffset,
+            Metadata.SnapshotManifest.FileEntry::getLength)
+        .containsExactly(
+            tuple("_0.cfs", 0L, 200_000L),
+            tuple("_0.si", 200_000L, 0L),
+            tuple("segments_1", 200_000L, 300L));
+    assertThat(packedFile.length()).isGreaterThan(200_300);
+
+    Path destDirPath = temporaryFolder.newFolder().toPath();
+    assertThat(PackedSnapshot.unpack(packedFile, destDirPath))
+        .containsExactly("_0.cfs", "_0.si", "segments_1");
+    assertThat(packedFile).doesNotExist();
+    assertThat(Files.readAllBytes(destDirPath.resolve("_0.cfs"))).isEqualTo(segment);
+    assertThat(Files.readAllBytes(destDirPath.resolve("_0.si"))).isEqualTo(emptyFile);
+    assertThat(Files.readAllBytes(destDirPath.resolve("segments_1"))).isEqualTo(segmentsFile);
+  }
+
+  @Test
+  public void testUnpackCorruptFile() throws IOException {
+    Path sourceDirPath = temporaryFolder.newFolder().toPath();
+    writeFile(sourceDirPath, "_0.cfs", 1000);
+    File packedFile = temporaryFolder.newFile();
+    PackedSnapshot.pack(sourceDirPath, List.of("_0.cfs"), packedFile);
+
+    try (RandomAccessFile randomAccessFile = new RandomAccessFile(packedFile, "rw")) {
+      randomAccessFile.seek(10);
+      int value = randomAccessFile.read();
+      randomAccessFile.seek(10);
+      randomAccessFile.write(value ^ 0xff);
+    }
+
+    Path destDirPath = temporaryFolder.newFolder().toPath();
+    assertThatExceptionOfType(IOException.class)
+        .isThrownBy(() -> PackedSnapshot.unpack(packedFile, destDirPath))
+        .withMessageContaining("checksum");
+  }
+
+  @Test
+  public void testUnpackNotPackedFile() throws IOException {
+    Path dirPath = temporaryFolder.newFolder().toPath();
+    writeFile(dirPath, "_0.cfs", 1000);
+
+    assertThatExceptionOfType(IOException.class)
+        .isThrownBy(
+            () ->
+                PackedSnapshot.unpack(
+                    dirPath.resolve("_0.cfs").toFile(), temporaryFolder.newFolder().toPath()))
+        .withMessageContaining("Not a packed snapshot");
+  }
+}
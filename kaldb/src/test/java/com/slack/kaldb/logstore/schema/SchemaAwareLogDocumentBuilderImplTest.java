@@ -16,15 +16,23 @@ import static org.assertj.core.api.Assertions.assertThatThrownBy;
 
 import com.fasterxml.jackson.core.JsonProcessingException;
 import com.slack.kaldb.logstore.FieldDefMismatchException;
+import com.slack.kaldb.logstore.InvalidFieldDefException;
 import com.slack.kaldb.logstore.LogMessage;
+import com.slack.kaldb.proto.config.KaldbConfigs;
 import com.slack.kaldb.testlib.MessageUtil;
 import com.slack.kaldb.testlib.MetricsUtil;
+import com.slack.kaldb.util.JsonUtil;
 import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
 import java.io.IOException;
 import java.util.Collections;
 import java.util.List;
 import java.util.Map;
 import org.apache.lucene.document.Document;
+import org.apache.lucene.document.DoublePoint;
+import org.apache.lucene.document.FloatPoint;
+import org.apache.lucene.document.IntPoint;
+import org.apache.lucene.index.IndexOptions;
+import org.apache.lucene.index.IndexableField;
 import org.junit.Before;
 import org.junit.Test;
 
@@ -1078,4 +1086,100 @@ public class SchemaAwareLogDocumentBuilderImplTest {
     assertThat(MetricsUtil.getCount(CONVERT_FIELD_VALUE_COUNTER, meterRegistry)).isZero();
     assertThat(MetricsUtil.getCount(CONVERT_AND_DUPLICATE_FIELD_COUNTER, meterRegistry)).isZero();
   }
+
+  @Test
+  public void testFieldConfigIndexOptions() throws IOException {
+    SchemaAwareLogDocumentBuilderImpl docBuilder =
+        build(
+            DROP_FIELD,
+            Map.of(
+                "trace_id",
+                KaldbConfigs.FieldConfig.newBuilder()
+                    .setType(KaldbConfigs.FieldConfig.FieldType.KEYWORD)
+                    .build(),
+                MessageUtil.TEST_SOURCE_DOUBLE_PROPERTY,
+                KaldbConfigs.FieldConfig.newBuilder()
+                    .setType(KaldbConfigs.FieldConfig.FieldType.DOUBLE)
+                    .build()),
+            meterRegistry);
+    assertThat(docBuilder.getFieldDefMap().size()).isEqualTo(18);
+    assertThat(docBuilder.getFieldDefMap().get("trace_id").isAnalyzed).isFalse();
+
+    final LogMessage message = MessageUtil.makeMessage(0);
+    message.addProperty("trace_id", "1a2b3c");
+    Document testDocument = docBuilder.fromMessage(message);
+
+    IndexableField traceId = testDocument.getField("trace_id");
+    assertThat(traceId.fieldType().indexOptions()).isEqualTo(IndexOptions.DOCS);
+    assertThat(traceId.fieldType().omitNorms()).isTrue();
+
+    IndexableField[] doubleProperty =
+        testDocument.getFields(MessageUtil.TEST_SOURCE_DOUBLE_PROPERTY);
+    assertThat(doubleProperty.length).isEqualTo(1);
+    assertThat(doubleProperty[0]).isInstanceOf(DoublePoint.class);
+  }
+
+  @Test
+  public void testFieldConfigCoercesJsonNumbers() throws IOException {
+    SchemaAwareLogDocumentBuilderImpl docBuilder =
+        build(
+            DROP_FIELD,
+            Map.of(
+                "int_field",
+                KaldbConfigs.FieldConfig.newBuilder()
+                    .setType(KaldbConfigs.FieldConfig.FieldType.INTEGER)
+                    .build(),
+                "float_field",
+                KaldbConfigs.FieldConfig.newBuilder()
+                    .setType(KaldbConfigs.FieldConfig.FieldType.FLOAT)
+                    .build(),
+                "double_field",
+                KaldbConfigs.FieldConfig.newBuilder()
+                    .setType(KaldbConfigs.FieldConfig.FieldType.DOUBLE)
+                    .build(),
+                "keyword_field",
+                KaldbConfigs.FieldConfig.newBuilder()
+                    .setType(KaldbConfigs.FieldConfig.FieldType.KEYWORD)
+                    .build()),
+            meterRegistry);
+
+    final LogMessage message = MessageUtil.makeMessage(0);
+    Map<String, Object> properties =
+        JsonUtil.read(
+            "{\"int_field\": 7, \"float_field\": 1.5, \"double_field\": 5, \"keyword_field\": 42}",
+            Map.class);
+    properties.forEach(message::addProperty);
+    Document testDocument = docBuilder.fromMessage(message);
+
+    assertThat(testDocument.getField("int_field")).isInstanceOf(IntPoint.class);
+    assertThat(testDocument.getField("float_field")).isInstanceOf(FloatPoint.class);
+    assertThat(testDocument.getField("float_field").numericValue()).isEqualTo(1.5f);
+    assertThat(testDocument.getField("double_field")).isInstanceOf(DoublePoint.class);
+    assertThat(testDocument.getField("double_field").numericValue()).isEqualTo(5.0);
+    assertThat(testDocument.getField("keyword_field").stringValue()).isEqualTo("42");
+    assertThat(MetricsUtil.getCount(DROP_FIELDS_COUNTER, meterRegistry)).isZero();
+
+    // A number out of the range of a configured field is a field conflict.
+    final LogMessage outOfRangeMessage = MessageUtil.makeMessage(1);
+    outOfRangeMessage.addProperty(
+        "int_field", JsonUtil.read("{\"int_field\": 3000000000}", Map.class).get("int_field"));
+    testDocument = docBuilder.fromMessage(outOfRangeMessage);
+    assertThat(testDocument.getField("int_field")).isNull();
+    assertThat(MetricsUtil.getCount(DROP_FIELDS_COUNTER, meterRegistry)).isEqualTo(1);
+  }
+
+  @Test
+  public void testFieldConfigCannotOverrideSystemFields() {
+    assertThatThrownBy(
+            () ->
+                build(
+                    DROP_FIELD,
+                    Map.of(
+                        LogMessage.SystemField.ID.fieldName,
+                        KaldbConfigs.FieldConfig.newBuilder()
+                            .setType(KaldbConfigs.FieldConfig.FieldType.KEYWORD)
+                            .build()),
+                    meterRegistry))
+        .isInstanceOf(InvalidFieldDefException.class);
+  }
 }
@@ -13,6 +13,7 @@ import static org.awaitility.Awaitility.await;
 import static org.mockito.Mockito.spy;
 
 import brave.Tracing;
+import com.google.common.collect.Iterables;
 import com.slack.kaldb.chunk.ChunkInfo;
 import com.slack.kaldb.chunk.ReadOnlyChunkImpl;
 import com.slack.kaldb.chunk.SearchContext;
@@ -21,6 +22,7 @@ import com.slack.kaldb.metadata.dataset.DatasetMetadataStore;
 import com.slack.kaldb.metadata.dataset.DatasetPartitionMetadata;
 import com.slack.kaldb.metadata.search.SearchMetadata;
 import com.slack.kaldb.metadata.search.SearchMetadataStore;
+import com.slack.kaldb.metadata.search.SearchNodeMetadata;
 import com.slack.kaldb.metadata.snapshot.SnapshotMetadata;
 import com.slack.kaldb.metadata.snapshot.SnapshotMetadataStore;
 import com.slack.kaldb.metadata.zookeeper.MetadataStore;
@@ -792,6 +794,33 @@ public class KaldbDistributedQueryServiceTest {
     assertThat(searchNodes.size()).isEqualTo(0);
   }
 
+  @Test
+  public void testSearchNodeMetadata() {
+    String indexName = "testIndex";
+    DatasetPartitionMetadata partition = new DatasetPartitionMetadata(1, 500, List.of("1"));
+    datasetMetadataStore.createSync(
+        new DatasetMetadata(indexName, "testOwner", 1, List.of(partition)));
+    await().until(() -> datasetMetadataStore.listSync().size() == 1);
+
+    Instant chunkCreationTime = Instant.ofEpochMilli(100);
+    Instant chunkEndTime = Instant.ofEpochMilli(200);
+    String snapshotName =
+        createIndexerZKMetadata(chunkCreationTime, chunkEndTime, "1", indexer1SearchContext);
+    await().until(() -> searchMetadataStore.getCached().size() == 1);
+
+    // a cache node listing the snapshot in its search node metadata is preferred over the indexer
+    SearchNodeMetadata cacheSearchNodeMetadata =
+        new SearchNodeMetadata(
+            "cache_host1:20000", cache1SearchContext.toUrl(), List.of(snapshotName), 1000);
+    Map<String, List<SearchMetadata>> searchMetadataToQuery =
+        getMatchingSearchMetadata(
+            Iterables.concat(
+                searchMetadataStore.getCached(), cacheSearchNodeMetadata.toSearchMetadata()),
+            getMatchingSnapshots(snapshotMetadataStore, datasetMetadataStore, 0, 300, indexName));
+    Map<String, List<String>> searchNodes = getNodesAndSnapshotsToQuery(searchMetadataToQuery);
+    assertThat(searchNodes).isEqualTo(Map.of(cache1SearchContext.toUrl(), List.of(snapshotName)));
+  }
+
   private String createIndexerZKMetadata(
       Instant chunkCreationTime,
       Instant chunkEndTime,
@@ -851,7 +880,7 @@ public class KaldbDistributedQueryServiceTest {
             dataset);
 
     Map<String, List<SearchMetadata>> searchMetadataToQuery =
-        getMatchingSearchMetadata(searchMetadataStore, snapshotsToSearch);
+        getMatchingSearchMetadata(searchMetadataStore.getCached(), snapshotsToSearch);
 
     return getNodesAndSnapshotsToQuery(searchMetadataToQuery);
   }
@@ -0,0 +1,198 @@
+package com.slack.kaldb.logstore.search;
+
+import static com.slack.kaldb.testlib.MessageUtil.TEST_DATASET_NAME;
+import static com.slack.kaldb.testlib.MessageUtil.TEST_SOURCE_DOUBLE_PROPERTY;
+import static com.slack.kaldb.testlib.MessageUtil.TEST_SOURCE_FLOAT_PROPERTY;
+import static com.slack.kaldb.testlib.MessageUtil.TEST_SOURCE_INT_PROPERTY;
+import static com.slack.kaldb.testlib.MessageUtil.TEST_SOURCE_LONG_PROPERTY;
+import static com.slack.kaldb.testlib.TemporaryLogStoreAndSearcherRule.MAX_TIME;
+import static com.slack.kaldb.testlib.TemporaryLogStoreAndSearcherRule.addMessages;
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatExceptionOfType;
+
+import brave.Tracing;
+import com.slack.kaldb.logstore.LogMessage;
+import com.slack.kaldb.logstore.LuceneIndexStoreImpl;
+import com.slack.kaldb.proto.config.KaldbConfigs;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import java.io.IOException;
+import java.time.Duration;
+import java.util.Map;
+import org.apache.lucene.analysis.standard.StandardAnalyzer;
+import org.apache.lucene.document.NumericDocValuesField;
+import org.apache.lucene.search.IndexOrDocValuesQuery;
+import org.apache.lucene.search.IndexSearcher;
+import org.apache.lucene.search.MatchNoDocsQuery;
+import org.apache.lucene.search.PointRangeQuery;
+import org.apache.lucene.search.TermQuery;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.BeforeClass;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+public class SchemaAwareQueryParserTest {
+  @Rule public TemporaryFolder tempFolder = new TemporaryFolder();
+
+  private SimpleMeterRegistry meterRegistry;
+  private LuceneIndexStoreImpl logStore;
+  private LogIndexSearcherImpl logSearcher;
+
+  @BeforeClass
+  public static void beforeClass() throws Exception {
+    Tracing.newBuilder().build();
+  }
+
+  @Before
+  public void setUp() throws IOException {
+    meterRegistry = new SimpleMeterRegistry();
+    logStore =
+        LuceneIndexStoreImpl.makeLogStore(
+            tempFolder.newFolder(),
+            Duration.ofMinutes(5),
+            Duration.ofMinutes(5),
+            Map.of(
+                TEST_SOURCE_LONG_PROPERTY,
+                KaldbConfigs.FieldConfig.newBuilder()
+                    .setType(KaldbConfigs.FieldConfig.FieldType.LONG)
+                    .setDocValues(true)
+                    .build(),
+                TEST_SOURCE_INT_PROPERTY,
+                KaldbConfigs.FieldConfig.newBuilder()
+                    .setType(KaldbConfigs.FieldConfig.FieldType.INTEGER)
+                    .setIndexOptions(KaldbConfigs.FieldConfig.IndexOptions.NONE)
+                    .setDocValues(true)
+                    .build(),
+                TEST_SOURCE_DOUBLE_PROPERTY,
+                KaldbConfigs.FieldConfig.newBuilder()
+                    .setType(KaldbConfigs.FieldConfig.FieldType.DOUBLE)
+                    .build(),
+                TEST_SOURCE_FLOAT_PROPERTY,
+                KaldbConfigs.FieldConfig.newBuilder()
+                    .setType(KaldbConfigs.FieldConfig.FieldType.FLOAT)
+                    .setIndexOptions(KaldbConfigs.FieldConfig.IndexOptions.NONE)
+                    .setDocValues(true)
+                    .build()),
+            meterRegistry);
+    logSearcher = new LogIndexSearcherImpl(logStore.getSearcherManager(), logStore::getSchema);
+    addMessages(logStore, 1, 100, true);
+  }
+
+  @After
+  public void tearDown() throws IOException {
+    logSearcher.close();
+    logStore.close();
+    meterRegistry.close();
+  }
+
+  private int count(LogIndexSearcherImpl searcher, String query) {
+    return searcher.search(TEST_DATASET_NAME, query, 0, MAX_TIME, 1000, 0).hits.size();
+  }
+
+  @Test
+  public void testNumericComparisons() {
+    assertThat(count(logSearcher, TEST_SOURCE_LONG_PROPERTY + ":>90")).isEqualTo(10);
+    assertThat(count(logSearcher, TEST_SOURCE_LONG_PROPERTY + ":>=90")).isEqualTo(11);
+    assertThat(count(logSearcher, TEST_SOURCE_LONG_PROPERTY + ":<10")).isEqualTo(9);
+    assertThat(count(logSearcher, TEST_SOURCE_LONG_PROPERTY + ":<=10")).isEqualTo(10);
+    assertThat(count(logSearcher, TEST_SOURCE_LONG_PROPERTY + ":50")).isEqualTo(1);
+    assertThat(count(logSearcher, TEST_SOURCE_DOUBLE_PROPERTY + ":>99.5")).isEqualTo(1);
+    assertThat(count(logSearcher, TEST_SOURCE_DOUBLE_PROPERTY + ":<-1")).isEqualTo(0);
+  }
+
+  @Test
+  public void testNumericRanges() {
+    // Lexicographically there are 11 terms between 5 and 50, but only 5 of the numbers are.
+    assertThat(count(logSearcher, TEST_SOURCE_LONG_PROPERTY + ":[5 TO 50]")).isEqualTo(46);
+    assertThat(count(logSearcher, TEST_SOURCE_LONG_PROPERTY + ":{5 TO 50}")).isEqualTo(44);
+    assertThat(count(logSearcher, TEST_SOURCE_LONG_PROPERTY + ":[95 TO *]")).isEqualTo(6);
+    assertThat(count(logSearcher, TEST_SOURCE_DOUBLE_PROPERTY + ":[1.5 TO 3.5]")).isEqualTo(2);
+    assertThat(
+            count(
+                logSearcher,
+                TEST_SOURCE_LONG_PROPERTY
+                    + ":[10 TO 20] AND "
+                    + TEST_SOURCE_DOUBLE_PROPERTY
+                    + ":>15"))
+        .isEqualTo(5);
+  }
+
+  @Test
+  public void testDocValuesOnlyField() {
+    assertThat(count(logSearcher, TEST_SOURCE_INT_PROPERTY + ":>90")).isEqualTo(10);
+    assertThat(count(logSearcher, TEST_SOURCE_INT_PROPERTY + ":[1 TO 10]")).isEqualTo(10);
+  }
+
+  @Test
+  public void testIntegerRangesOutsideIntDomain() throws Exception {
+    assertThat(count(logSearcher, TEST_SOURCE_INT_PROPERTY + ":>3000000000")).isZero();
+    assertThat(count(logSearcher, TEST_SOURCE_INT_PROPERTY + ":<-3000000000")).isZero();
+    assertThat(count(logSearcher, TEST_SOURCE_INT_PROPERTY + ":[95 TO 3000000000]")).isEqualTo(6);
+    assertThat(count(logSearcher, TEST_SOURCE_INT_PROPERTY + ":[-3000000000 TO 5]")).isEqualTo(5);
+
+    IndexSearcher searcher = logStore.getSearcherManager().acquire();
+    try {
+      SchemaAwareQueryParser parser =
+          new SchemaAwareQueryParser(
+              LogMessage.ReservedField.MESSAGE.fieldName,
+              new StandardAnalyzer(),
+              logStore.getSchema(),
+              searcher.getIndexReader());
+      assertThat(parser.parse(TEST_SOURCE_INT_PROPERTY + ":>3000000000"))
+          .isInstanceOf(MatchNoDocsQuery.class);
+      assertThat(parser.parse(TEST_SOURCE_INT_PROPERTY + ":[95 TO 3000000000]"))
+          .isEqualTo(
+              NumericDocValuesField.newSlowRangeQuery(
+                  TEST_SOURCE_INT_PROPERTY, 95, Integer.MAX_VALUE));
+    } finally {
+      logStore.getSearcherManager().release(searcher);
+    }
+  }
+
+  @Test
+  public void testQueryTypes() throws Exception {
+    IndexSearcher searcher = logStore.getSearcherManager().acquire();
+    try {
+      SchemaAwareQueryParser parser =
+          new SchemaAwareQueryParser(
+              LogMessage.ReservedField.MESSAGE.fieldName,
+              new StandardAnalyzer(),
+              logStore.getSchema(),
+              searcher.getIndexReader());
+      assertThat(parser.parse(TEST_SOURCE_LONG_PROPERTY + ":>5"))
+          .isInstanceOf(IndexOrDocValuesQuery.class);
+      assertThat(parser.parse(TEST_SOURCE_DOUBLE_PROPERTY + ":>5"))
+          .isInstanceOf(PointRangeQuery.class);
+      assertThat(parser.parse("missing_field:>5")).isInstanceOf(TermQuery.class);
+      assertThat(parser.parse(LogMessage.ReservedField.DURATION_MS.fieldName + ":>5"))
+          .isInstanceOf(MatchNoDocsQuery.class);
+    } finally {
+      logStore.getSearcherManager().release(searcher);
+    }
+  }
+
+  @Test
+  public void testInvalidNumericQueries() {
+    assertThatExceptionOfType(IllegalArgumentException.class)
+        .isThrownBy(() -> count(logSearcher, TEST_SOURCE_LONG_PROPERTY + ":>abc"));
+    // Float doc values don't sort like the values they encode, so they can't serve a range.
+    assertThatExceptionOfType(IllegalArgumentException.class)
+        .isThrownBy(() -> count(logSearcher, TEST_SOURCE_FLOAT_PROPERTY + ":>5"));
+  }
+
+  @Test
+  public void testSchemaIsReadFromIndexCommit() throws IOException {
+    logStore.commit();
+    LogIndexSearcherImpl snapshotSearcher =
+        new LogIndexSearcherImpl(
+            LogIndexSearcherImpl.searcherManagerFromPath(logStore.getDirectory()));
+    try {
+      assertThat(count(snapshotSearcher, TEST_SOURCE_LONG_PROPERTY + ":>90")).isEqualTo(10);
+      assertThat(count(snapshotSearcher, TEST_SOURCE_DOUBLE_PROPERTY + ":[1.5 TO 3.5]"))
+          .isEqualTo(2);
+    } finally {
+      snapshotSearcher.close();
+    }
+  }
+}
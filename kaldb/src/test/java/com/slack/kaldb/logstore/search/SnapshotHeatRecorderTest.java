@@ -0,0 +1,122 @@
+package com.slack.kaldb.logstore.search;
+
+import static com.slack.kaldb.logstore.search.SnapshotHeatRecorder.SNAPSHOT_HEAT_PUBLISHED;
+import static com.slack.kaldb.metadata.snapshot.SnapshotMetadata.LIVE_SNAPSHOT_PATH;
+import static com.slack.kaldb.proto.metadata.Metadata.IndexType.LOGS_LUCENE9;
+import static com.slack.kaldb.testlib.MetricsUtil.getCount;
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.awaitility.Awaitility.await;
+
+import com.slack.kaldb.metadata.snapshot.SnapshotHeatMetadata;
+import com.slack.kaldb.metadata.snapshot.SnapshotHeatMetadataStore;
+import com.slack.kaldb.metadata.snapshot.SnapshotMetadata;
+import com.slack.kaldb.metadata.zookeeper.MetadataStore;
+import com.slack.kaldb.metadata.zookeeper.ZookeeperMetadataStoreImpl;
+import com.slack.kaldb.proto.config.KaldbConfigs;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import java.util.List;
+import java.util.Map;
+import org.apache.curator.test.TestingServer;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+public class SnapshotHeatRecorderTest {
+  private TestingServer testingServer;
+  private SimpleMeterRegistry meterRegistry;
+  private MetadataStore metadataStore;
+  private SnapshotHeatMetadataStore snapshotHeatMetadataStore;
+
+  private final SnapshotMetadata snapshotA =
+      new SnapshotMetadata("a", "a", 1, 2, 0, "1", LOGS_LUCENE9);
+  private final SnapshotMetadata snapshotB =
+      new SnapshotMetadata("b", "b", 1, 2, 0, "1", LOGS_LUCENE9);
+  private final SnapshotMetadata liveSnapshot =
+      new SnapshotMetadata("live", LIVE_SNAPSHOT_PATH, 1, 2, 0, "1", LOGS_LUCENE9);
+
+  @Before
+  public void setUp() throws Exception {
+    meterRegistry = new SimpleMeterRegistry();
+    testingServer = new TestingServer();
+
+    KaldbConfigs.ZookeeperConfig zkConfig =
+        KaldbConfigs.ZookeeperConfig.newBuilder()
+            .setZkConnectString(testingServer.getConnectString())
+            .setZkPathPrefix("SnapshotHeatRecorderTest")
+            .setZkSessionTimeoutMs(1000)
+            .setZkConnectionTimeoutMs(1000)
+            .setSleepBetweenRetriesMs(1000)
+            .build();
+    metadataStore = ZookeeperMetadataStoreImpl.fromConfig(meterRegistry, zkConfig);
+    snapshotHeatMetadataStore = new SnapshotHeatMetadataStore(metadataStore, true);
+  }
+
+  @After
+  public void tearDown() throws Exception {
+    snapshotHeatMetadataStore.close();
+    metadataStore.close();
+    testingServer.close();
+    meterRegistry.close();
+  }
+
+  @Test
+  public void testPublishDecayedQueryCounts() {
+    SnapshotHeatRecorder snapshotHeatRecorder =
+        new SnapshotHeatRecorder(snapshotHeatMetadataStore, "query1", 60, meterRegistry);
+
+    for (int i = 0; i < 8; i++) {
+      snapshotHeatRecorder.record(List.of(snapshotA, liveSnapshot));
+    }
+    snapshotHeatRecorder.record(List.of(snapshotB));
+
+    // Live snapshots are not counted, and a single period only counts for a part of the average.
+    assertThat(snapshotHeatRecorder.publish()).isEqualTo(Map.of("a", 4L, "b", 1L));
+    await().until(() -> snapshotHeatMetadataStore.getCached().size() == 1);
+    SnapshotHeatMetadata snapshotHeatMetadata = snapshotHeatMetadataStore.getCached().get(0);
+    assertThat(snapshotHeatMetadata.name).isEqualTo("query1");
+    assertThat(snapshotHeatMetadata.queryCountsBySnapshotId).isEqualTo(Map.of("a", 4L, "b", 1L));
+
+    // A steady query rate settles at the queries per publish period.
+    Map<String, Long> publishedQueryCounts = null;
+    for (int period = 0; period < 10; period++) {
+      for (int i = 0; i < 8; i++) {
+        snapshotHeatRecorder.record(List.of(snapshotA));
+      }
+      publishedQueryCounts = snapshotHeatRecorder.publish();
+    }
+    assertThat(publishedQueryCounts).isEqualTo(Map.of("a", 8L));
+
+    // The counts halve in every period without queries, until they drop off.
+    assertThat(snapshotHeatRecorder.publish()).isEqualTo(Map.of("a", 4L));
+    await()
+        .until(
+            () ->
+                snapshotHeatMetadataStore
+                    .getCached()
+                    .get(0)
+                    .queryCountsBySnapshotId
+                    .equals(Map.of("a", 4L)));
+    // Unchanged counts of the steady periods are not re-published.
+    assertThat(getCount(SNAPSHOT_HEAT_PUBLISHED, meterRegistry)).isEqualTo(5);
+  }
+
+  @Test
+  public void testUnchangedCountsAreNotRepublished() {
+    SnapshotHeatRecorder snapshotHeatRecorder =
+        new SnapshotHeatRecorder(snapshotHeatMetadataStore, "query1", 60, meterRegistry);
+
+    assertThat(snapshotHeatRecorder.publish()).isEmpty();
+    assertThat(snapshotHeatRecorder.publish()).isEmpty();
+    assertThat(getCount(SNAPSHOT_HEAT_PUBLISHED, meterRegistry)).isEqualTo(1);
+  }
+
+  @Test
+  public void testDisabledRecorder() {
+    SnapshotHeatRecorder snapshotHeatRecorder =
+        new SnapshotHeatRecorder(snapshotHeatMetadataStore, "query1", 0, meterRegistry);
+    assertThat(snapshotHeatRecorder.isEnabled()).isFalse();
+
+    snapshotHeatRecorder.record(List.of(snapshotA));
+    assertThat(snapshotHeatRecorder.publish()).isEmpty();
+  }
+}
@@ -0,0 +1,38 @@
+package com.slack.kaldb.metadata.cache;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+import com.google.protobuf.InvalidProtocolBufferException;
+import java.util.List;
+import org.junit.Test;
+
+public class CacheNodeMetadataSerializerTest {
+  private final CacheNodeMetadataSerializer serDe = new CacheNodeMetadataSerializer();
+
+  @Test
+  public void testCacheNodeMetadataSerializer() throws InvalidProtocolBufferException {
+    CacheNodeMetadata cacheNodeMetadata =
+        new CacheNodeMetadata("name", "localhost", List.of("slot1", "slot2"), 1000, 500);
+
+    String serializedCacheNodeMetadata = serDe.toJsonStr(cacheNodeMetadata);
+    assertThat(serializedCacheNodeMetadata).isNotEmpty();
+
+    CacheNodeMetadata deserializedCacheNodeMetadata =
+        serDe.fromJsonStr(serializedCacheNodeMetadata);
+    assertThat(deserializedCacheNodeMetadata).isEqualTo(cacheNodeMetadata);
+    assertThat(deserializedCacheNodeMetadata.hostname).isEqualTo("localhost");
+    assertThat(deserializedCacheNodeMetadata.cacheSlotNames).containsExactly("slot1", "slot2");
+    assertThat(deserializedCacheNodeMetadata.diskCapacityBytes).isEqualTo(1000);
+    assertThat(deserializedCacheNodeMetadata.memoryCapacityBytes).isEqualTo(500);
+  }
+
+  @Test(expected = IllegalArgumentException.class)
+  public void serializeNullObject() throws InvalidProtocolBufferException {
+    serDe.toJsonStr(null);
+  }
+
+  @Test(expected = IllegalArgumentException.class)
+  public void invalidDiskCapacityShouldThrow() {
+    new CacheNodeMetadata("name", "localhost", List.of(), 0, 500);
+  }
+}
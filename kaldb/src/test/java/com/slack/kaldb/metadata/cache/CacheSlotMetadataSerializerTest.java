@@ -28,6 +28,8 @@ public class CacheSlotMetadataSerializerTest {
     CacheSlotMetadata deserializedCacheSlotMetadata =
         serDe.fromJsonStr(serializedCacheSlotMetadata);
     assertThat(deserializedCacheSlotMetadata).isEqualTo(cacheSlotMetadata);
+    assertThat(serDe.fromBytes(serDe.toBytes(cacheSlotMetadata, true)))
+        .isEqualTo(cacheSlotMetadata);
 
     assertThat(deserializedCacheSlotMetadata.name).isEqualTo(name);
     assertThat(deserializedCacheSlotMetadata.cacheSlotState).isEqualTo(cacheSlotState);
@@ -0,0 +1,101 @@
+package com.slack.kaldb.metadata.cache;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.awaitility.Awaitility.await;
+
+import com.slack.kaldb.metadata.zookeeper.MetadataStore;
+import com.slack.kaldb.metadata.zookeeper.ZookeeperMetadataStoreImpl;
+import com.slack.kaldb.proto.metadata.Metadata;
+import com.slack.kaldb.util.CountingFatalErrorHandler;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import java.io.IOException;
+import java.time.Instant;
+import java.util.concurrent.atomic.AtomicInteger;
+import org.apache.curator.retry.RetryNTimes;
+import org.apache.curator.test.TestingServer;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+public class CacheSlotWatcherTest {
+  private SimpleMeterRegistry meterRegistry;
+  private TestingServer testingServer;
+  private MetadataStore zkMetadataStore;
+  private CacheSlotMetadataStore store;
+  private CacheSlotWatcher watcher;
+
+  @Before
+  public void setUp() throws Exception {
+    meterRegistry = new SimpleMeterRegistry();
+    testingServer = new TestingServer();
+    zkMetadataStore =
+        new ZookeeperMetadataStoreImpl(
+            testingServer.getConnectString(),
+            "test",
+            1000,
+            1000,
+            new RetryNTimes(1, 500),
+            new CountingFatalErrorHandler(),
+            meterRegistry);
+    store = new CacheSlotMetadataStore(zkMetadataStore, false);
+    watcher = new CacheSlotWatcher(zkMetadataStore);
+  }
+
+  @After
+  public void tearDown() throws IOException {
+    watcher.close();
+    store.close();
+    zkMetadataStore.close();
+    testingServer.close();
+    meterRegistry.close();
+  }
+
+  private static CacheSlotMetadata makeSlot(
+      String name, Metadata.CacheSlotMetadata.CacheSlotState state) {
+    return new CacheSlotMetadata(
+        name,
+        state,
+        state.equals(Metadata.CacheSlotMetadata.CacheSlotState.FREE) ? "" : "replica",
+        Instant.now().toEpochMilli());
+  }
+
+  @Test
+  public void testNotifiesOnlyTheChangedSlot() throws Exception {
+    store.createSync(makeSlot("slot1", Metadata.CacheSlotMetadata.CacheSlotState.FREE));
+    store.createSync(makeSlot("slot2", Metadata.CacheSlotMetadata.CacheSlotState.FREE));
+    store.createSync(makeSlot("slot3", Metadata.CacheSlotMetadata.CacheSlotState.FREE));
+
+    AtomicInteger slot1Changes = new AtomicInteger();
+    AtomicInteger slot2Changes = new AtomicInteger();
+    watcher.watch("slot1", slot1Changes::incrementAndGet);
+    watcher.watch("slot2", slot2Changes::incrementAndGet);
+
+    store.updateSync(makeSlot("slot1", Metadata.CacheSlotMetadata.CacheSlotState.ASSIGNED));
+    await().until(() -> slot1Changes.get() == 1);
+    // the watch is persistent, so it keeps firing after the first change
+    store.updateSync(makeSlot("slot1", Metadata.CacheSlotMetadata.CacheSlotState.LOADING));
+    await().until(() -> slot1Changes.get() == 2);
+
+    store.updateSync(makeSlot("slot3", Metadata.CacheSlotMetadata.CacheSlotState.ASSIGNED));
+    store.updateSync(makeSlot("slot2", Metadata.CacheSlotMetadata.CacheSlotState.ASSIGNED));
+    await().until(() -> slot2Changes.get() == 1);
+    assertThat(slot1Changes.get()).isEqualTo(2);
+  }
+
+  @Test
+  public void testUnwatchStopsNotifications() throws Exception {
+    store.createSync(makeSlot("slot1", Metadata.CacheSlotMetadata.CacheSlotState.FREE));
+    store.createSync(makeSlot("slot2", Metadata.CacheSlotMetadata.CacheSlotState.FREE));
+
+    AtomicInteger slot1Changes = new AtomicInteger();
+    AtomicInteger slot2Changes = new AtomicInteger();
+    watcher.watch("slot1", slot1Changes::incrementAndGet);
+    watcher.watch("slot2", slot2Changes::incrementAndGet);
+    watcher.unwatch("slot1");
+
+    store.updateSync(makeSlot("slot1", Metadata.CacheSlotMetadata.CacheSlotState.ASSIGNED));
+    store.updateSync(makeSlot("slot2", Metadata.CacheSlotMetadata.CacheSlotState.ASSIGNED));
+    await().until(() -> slot2Changes.get() == 1);
+    assertThat(slot1Changes.get()).isZero();
+  }
+}
@@ -596,6 +596,55 @@ public class KaldbMetadataStoreTest {
       assertThat(store.list().get()).containsOnly(null, snapshot2);
       expectedCacheErrorCounter = 1;
     }
+
+    @Test
+    public void testMixedMetadataEncodings() throws Exception {
+      MetadataStore binaryZkMetadataStore =
+          new ZookeeperMetadataStoreImpl(
+              testingServer.getConnectString(),
+              "test",
+              1000,
+              1000,
+              new RetryNTimes(1, 500),
+              new CountingFatalErrorHandler(),
+              meterRegistry,
+              0,
+              0,
+              true);
+      DummyPersistentCreatableUpdatableCacheableMetadataStore binaryStore =
+          new DummyPersistentCreatableUpdatableCacheableMetadataStore(
+              SNAPSHOT_METADATA_STORE_ZK_PATH,
+              binaryZkMetadataStore,
+              snapshotMetadataSerializer,
+              LOG);
+
+      try {
+        SnapshotMetadata jsonSnapshot = makeSnapshot("jsonSnapshot");
+        SnapshotMetadata binarySnapshot = makeSnapshot("binarySnapshot");
+        assertThat(store.create(jsonSnapshot).get()).isNull();
+        assertThat(binaryStore.create(binarySnapshot).get()).isNull();
+
+        assertThat(store.getNode(binarySnapshot.name).get()).isEqualTo(binarySnapshot);
+        assertThat(binaryStore.getNode(jsonSnapshot.name).get()).isEqualTo(jsonSnapshot);
+        await().until(() -> store.getCached().size() == 3);
+        await().until(() -> binaryStore.getCached().size() == 3);
+        assertThat(store.getCached()).containsOnly(ROOT_SNAPSHOT, jsonSnapshot, binarySnapshot);
+        assertThat(binaryStore.getCached())
+            .containsOnly(ROOT_SNAPSHOT, jsonSnapshot, binarySnapshot);
+
+        // Updating a node with the binary encoding migrates it.
+        SnapshotMetadata updatedSnapshot = makeSnapshot(jsonSnapshot.name, 200);
+        assertThat(binaryStore.update(updatedSnapshot).get()).isNull();
+        assertThat(
+                zkMetadataStore.getData(SNAPSHOT_METADATA_STORE_ZK_PATH + "/" + jsonSnapshot.name)
+                    .get()[0])
+            .isEqualTo(MetadataSerializer.PROTOBUF_V1);
+        assertThat(store.getNode(jsonSnapshot.name).get()).isEqualTo(updatedSnapshot);
+      } finally {
+        binaryStore.close();
+        binaryZkMetadataStore.close();
+      }
+    }
   }
 
   public static class TestPersistentCreatableCacheableMetadataStore {
@@ -27,6 +27,7 @@ public class ReplicaMetadataSerializerTest {
 
     ReplicaMetadata deserializedReplicaMetadata = serDe.fromJsonStr(serializedReplicaMetadata);
     assertThat(deserializedReplicaMetadata).isEqualTo(replicaMetadata);
+    assertThat(serDe.fromBytes(serDe.toBytes(replicaMetadata, true))).isEqualTo(replicaMetadata);
 
     assertThat(deserializedReplicaMetadata.name).isEqualTo(name);
     assertThat(deserializedReplicaMetadata.snapshotId).isEqualTo(snapshotId);
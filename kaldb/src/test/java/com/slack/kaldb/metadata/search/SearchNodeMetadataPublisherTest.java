@@ -0,0 +1,127 @@
+package com.slack.kaldb.metadata.search;
+
+import static com.slack.kaldb.metadata.search.SearchNodeMetadataPublisher.SEARCH_NODE_METADATA_PUBLISHED;
+import static com.slack.kaldb.testlib.MetricsUtil.getCount;
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.awaitility.Awaitility.await;
+
+import com.slack.kaldb.metadata.zookeeper.MetadataStore;
+import com.slack.kaldb.metadata.zookeeper.ZookeeperMetadataStoreImpl;
+import com.slack.kaldb.proto.config.KaldbConfigs;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import java.util.List;
+import org.apache.curator.test.TestingServer;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+public class SearchNodeMetadataPublisherTest {
+  private static final String NODE_NAME = "host1:8080";
+  private static final String NODE_URL = "gproto+http://host1:8080";
+
+  private TestingServer testingServer;
+  private SimpleMeterRegistry meterRegistry;
+  private MetadataStore metadataStore;
+  private SearchNodeMetadataStore searchNodeMetadataStore;
+
+  @Before
+  public void setUp() throws Exception {
+    meterRegistry = new SimpleMeterRegistry();
+    testingServer = new TestingServer();
+
+    KaldbConfigs.ZookeeperConfig zkConfig =
+        KaldbConfigs.ZookeeperConfig.newBuilder()
+            .setZkConnectString(testingServer.getConnectString())
+            .setZkPathPrefix("SearchNodeMetadataPublisherTest")
+            .setZkSessionTimeoutMs(1000)
+            .setZkConnectionTimeoutMs(1000)
+            .setSleepBetweenRetriesMs(1000)
+            .build();
+    metadataStore = ZookeeperMetadataStoreImpl.fromConfig(meterRegistry, zkConfig);
+    searchNodeMetadataStore = new SearchNodeMetadataStore(metadataStore, true);
+  }
+
+  @After
+  public void tearDown() throws Exception {
+    searchNodeMetadataStore.close();
+    metadataStore.close();
+    testingServer.close();
+    meterRegistry.close();
+  }
+
+  @Test
+  public void testAddsArePublishedInBatches() {
+    SearchNodeMetadataPublisher publisher =
+        new SearchNodeMetadataPublisher(
+            searchNodeMetadataStore, NODE_NAME, NODE_URL, 60000, meterRegistry);
+
+    publisher.add("snapshot1");
+    publisher.add("snapshot2");
+    assertThat(searchNodeMetadataStore.listSync()).isEmpty();
+
+    assertThat(publisher.publish()).isTrue();
+    await().until(() -> searchNodeMetadataStore.getCached().size() == 1);
+    SearchNodeMetadata searchNodeMetadata = searchNodeMetadataStore.getCached().get(0);
+    assertThat(searchNodeMetadata.name).isEqualTo(NODE_NAME);
+    assertThat(searchNodeMetadata.url).isEqualTo(NODE_URL);
+    assertThat(searchNodeMetadata.snapshotNames).containsExactly("snapshot1", "snapshot2");
+
+    // Nothing changed, so nothing is written.
+    assertThat(publisher.publish()).isTrue();
+    assertThat(getCount(SEARCH_NODE_METADATA_PUBLISHED, meterRegistry)).isEqualTo(1);
+  }
+
+  @Test
+  public void testRemovesArePublishedRightAway() {
+    SearchNodeMetadataPublisher publisher =
+        new SearchNodeMetadataPublisher(
+            searchNodeMetadataStore, NODE_NAME, NODE_URL, 60000, meterRegistry);
+
+    publisher.add("snapshot1");
+    publisher.add("snapshot2");
+    assertThat(publisher.publish()).isTrue();
+
+    publisher.remove("snapshot1");
+    assertThat(getCount(SEARCH_NODE_METADATA_PUBLISHED, meterRegistry)).isEqualTo(2);
+    assertThat(searchNodeMetadataStore.getNodeSync(NODE_NAME).snapshotNames)
+        .containsExactly("snapshot2");
+
+    // Removing an unknown snapshot doesn't publish.
+    publisher.remove("snapshot1");
+    assertThat(getCount(SEARCH_NODE_METADATA_PUBLISHED, meterRegistry)).isEqualTo(2);
+  }
+
+  @Test
+  public void testSearchMetadataStoreRoutesToPublisher() throws Exception {
+    SearchNodeMetadataPublisher publisher =
+        new SearchNodeMetadataPublisher(
+            searchNodeMetadataStore, NODE_NAME, NODE_URL, 100, meterRegistry);
+    SearchMetadataStore searchMetadataStore =
+        new SearchMetadataStore(metadataStore, false, publisher);
+    publisher.startAsync().awaitRunning();
+
+    try {
+      SearchMetadata searchMetadata = new SearchMetadata("snapshot1_host1", "snapshot1", NODE_URL);
+      searchMetadataStore.createSync(searchMetadata);
+      await()
+          .until(
+              () ->
+                  searchNodeMetadataStore.getCached().size() == 1
+                      && searchNodeMetadataStore
+                          .getCached()
+                          .get(0)
+                          .snapshotNames
+                          .equals(List.of("snapshot1")));
+      assertThat(searchMetadataStore.listSync()).isEmpty();
+
+      searchMetadataStore.deleteSync(searchMetadata);
+      assertThat(searchNodeMetadataStore.getNodeSync(NODE_NAME).snapshotNames).isEmpty();
+    } finally {
+      publisher.stopAsync().awaitTerminated();
+      searchMetadataStore.close();
+    }
+
+    // The node is deleted when the publisher stops.
+    assertThat(searchNodeMetadataStore.listSync()).isEmpty();
+  }
+}
@@ -0,0 +1,56 @@
+package com.slack.kaldb.metadata.search;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+import com.google.protobuf.InvalidProtocolBufferException;
+import java.util.List;
+import org.junit.Test;
+
+public class SearchNodeMetadataSerializerTest {
+  private final SearchNodeMetadataSerializer serDe = new SearchNodeMetadataSerializer();
+
+  @Test
+  public void testSearchNodeMetadataSerializer() throws InvalidProtocolBufferException {
+    SearchNodeMetadata searchNodeMetadata =
+        new SearchNodeMetadata(
+            "host1:8080", "gproto+http://host1:8080", List.of("LIVE_snapshot1", "snapshot2"), 1000);
+
+    String serializedSearchNodeMetadata = serDe.toJsonStr(searchNodeMetadata);
+    assertThat(serializedSearchNodeMetadata).isNotEmpty();
+
+    SearchNodeMetadata deserializedSearchNodeMetadata =
+        serDe.fromJsonStr(serializedSearchNodeMetadata);
+    assertThat(deserializedSearchNodeMetadata).isEqualTo(searchNodeMetadata);
+    assertThat(serDe.fromBytes(serDe.toBytes(searchNodeMetadata, true)))
+        .isEqualTo(searchNodeMetadata);
+
+    assertThat(deserializedSearchNodeMetadata.name).isEqualTo("host1:8080");
+    assertThat(deserializedSearchNodeMetadata.url).isEqualTo("gproto+http://host1:8080");
+    assertThat(deserializedSearchNodeMetadata.snapshotNames)
+        .containsExactly("LIVE_snapshot1", "snapshot2");
+    assertThat(deserializedSearchNodeMetadata.updatedTimeEpochMs).isEqualTo(1000);
+  }
+
+  @Test
+  public void testToSearchMetadata() {
+    SearchNodeMetadata searchNodeMetadata =
+        new SearchNodeMetadata(
+            "host1:8080", "gproto+http://host1:8080", List.of("LIVE_snapshot1", "snapshot2"), 1000);
+
+    assertThat(searchNodeMetadata.toSearchMetadata())
+        .containsExactly(
+            new SearchMetadata(
+                "LIVE_snapshot1_host1:8080", "LIVE_snapshot1", "gproto+http://host1:8080"),
+            new SearchMetadata("snapshot2_host1:8080", "snapshot2", "gproto+http://host1:8080"));
+  }
+
+  @Test(expected = IllegalArgumentException.class)
+  public void serializeNullObject() throws InvalidProtocolBufferException {
+    serDe.toJsonStr(null);
+  }
+
+  @Test(expected = IllegalArgumentException.class)
+  public void emptyUrlShouldThrow() {
+    new SearchNodeMetadata("host1:8080", "", List.of(), 1000);
+  }
+}
@@ -0,0 +1,38 @@
+package com.slack.kaldb.metadata.snapshot;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+import com.google.protobuf.InvalidProtocolBufferException;
+import java.util.Map;
+import org.junit.Test;
+
+public class SnapshotHeatMetadataSerializerTest {
+  private final SnapshotHeatMetadataSerializer serDe = new SnapshotHeatMetadataSerializer();
+
+  @Test
+  public void testSnapshotHeatMetadataSerializer() throws InvalidProtocolBufferException {
+    SnapshotHeatMetadata snapshotHeatMetadata =
+        new SnapshotHeatMetadata("query1", Map.of("snapshot1", 10L, "snapshot2", 3L), 1000);
+
+    String serializedSnapshotHeatMetadata = serDe.toJsonStr(snapshotHeatMetadata);
+    assertThat(serializedSnapshotHeatMetadata).isNotEmpty();
+
+    SnapshotHeatMetadata deserializedSnapshotHeatMetadata =
+        serDe.fromJsonStr(serializedSnapshotHeatMetadata);
+    assertThat(deserializedSnapshotHeatMetadata).isEqualTo(snapshotHeatMetadata);
+    assertThat(deserializedSnapshotHeatMetadata.name).isEqualTo("query1");
+    assertThat(deserializedSnapshotHeatMetadata.queryCountsBySnapshotId)
+        .containsExactlyInAnyOrderEntriesOf(Map.of("snapshot1", 10L, "snapshot2", 3L));
+    assertThat(deserializedSnapshotHeatMetadata.updatedTimeEpochMs).isEqualTo(1000);
+  }
+
+  @Test(expected = IllegalArgumentException.class)
+  public void serializeNullObject() throws InvalidProtocolBufferException {
+    serDe.toJsonStr(null);
+  }
+
+  @Test(expected = IllegalArgumentException.class)
+  public void invalidUpdatedTimeShouldThrow() {
+    new SnapshotHeatMetadata("query1", Map.of(), 0);
+  }
+}
@@ -2,8 +2,11 @@ package com.slack.kaldb.metadata.snapshot;
 
 import static com.slack.kaldb.proto.metadata.Metadata.IndexType.LOGS_LUCENE9;
 import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.catchThrowable;
 
 import com.google.protobuf.InvalidProtocolBufferException;
+import com.slack.kaldb.metadata.core.MetadataSerializer;
+import java.util.Arrays;
 import org.junit.Test;
 
 public class SnapshotMetadataSerializerTest {
@@ -17,9 +20,20 @@ public class SnapshotMetadataSerializerTest {
     final long endTime = 100;
     final long maxOffset = 123;
     final String partitionId = "1";
+    final long sizeInBytes = 4096;
+    final long numDocs = 1000;
 
     SnapshotMetadata snapshotMetadata =
-        new SnapshotMetadata(name, path, startTime, endTime, maxOffset, partitionId, LOGS_LUCENE9);
+        new SnapshotMetadata(
+            name,
+            path,
+            startTime,
+            endTime,
+            maxOffset,
+            partitionId,
+            LOGS_LUCENE9,
+            sizeInBytes,
+            numDocs);
 
     String serializedSnapshot = serDe.toJsonStr(snapshotMetadata);
     assertThat(serializedSnapshot).isNotEmpty();
@@ -35,6 +49,46 @@ public class SnapshotMetadataSerializerTest {
     assertThat(deserializedSnapshotMetadata.maxOffset).isEqualTo(maxOffset);
     assertThat(deserializedSnapshotMetadata.partitionId).isEqualTo(partitionId);
     assertThat(deserializedSnapshotMetadata.indexType).isEqualTo(LOGS_LUCENE9);
+    assertThat(deserializedSnapshotMetadata.sizeInBytes).isEqualTo(sizeInBytes);
+    assertThat(deserializedSnapshotMetadata.numDocs).isEqualTo(numDocs);
+  }
+
+  @Test
+  public void testBinarySnapshotMetadataSerializer() throws InvalidProtocolBufferException {
+    SnapshotMetadata snapshotMetadata =
+        new SnapshotMetadata(
+            "testSnapshotId", "/testPath", 1, 100, 123, "1", LOGS_LUCENE9, 4096, 1000);
+
+    byte[] binarySnapshot = serDe.toBytes(snapshotMetadata, true);
+    assertThat(binarySnapshot[0]).isEqualTo(MetadataSerializer.PROTOBUF_V1);
+    assertThat(serDe.fromBytes(binarySnapshot)).isEqualTo(snapshotMetadata);
+
+    // Nodes written before the binary encoding was enabled are still read as JSON.
+    byte[] jsonSnapshot = serDe.toBytes(snapshotMetadata, false);
+    assertThat(jsonSnapshot).isEqualTo(serDe.toJsonStr(snapshotMetadata).getBytes());
+    assertThat(serDe.fromBytes(jsonSnapshot)).isEqualTo(snapshotMetadata);
+
+    assertThat(binarySnapshot.length).isLessThan(jsonSnapshot.length);
+  }
+
+  @Test
+  public void testInvalidBinarySerializations() throws InvalidProtocolBufferException {
+    Throwable serializeNull = catchThrowable(() -> serDe.toBytes(null, true));
+    assertThat(serializeNull).isInstanceOf(IllegalArgumentException.class);
+
+    Throwable deserializeCorrupt =
+        catchThrowable(() -> serDe.fromBytes(new byte[] {MetadataSerializer.PROTOBUF_V1, -1}));
+    assertThat(deserializeCorrupt).isInstanceOf(InvalidProtocolBufferException.class);
+
+    byte[] binarySnapshot =
+        serDe.toBytes(
+            new SnapshotMetadata(
+                "testSnapshotId", "/testPath", 1, 100, 123, "1", LOGS_LUCENE9, 4096, 1000),
+            true);
+    Throwable deserializeTruncated =
+        catchThrowable(
+            () -> serDe.fromBytes(Arrays.copyOf(binarySnapshot, binarySnapshot.length - 1)));
+    assertThat(deserializeTruncated).isInstanceOf(InvalidProtocolBufferException.class);
   }
 
   @Test(expected = IllegalArgumentException.class)
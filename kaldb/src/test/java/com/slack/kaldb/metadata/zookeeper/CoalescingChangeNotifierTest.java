@@ -0,0 +1,86 @@
+package com.slack.kaldb.metadata.zookeeper;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.awaitility.Awaitility.await;
+
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+public class CoalescingChangeNotifierTest {
+  private ScheduledExecutorService executorService;
+  private List<Set<String>> notifications;
+  private List<Long> versions;
+
+  @Before
+  public void setUp() {
+    executorService = Executors.newSingleThreadScheduledExecutor();
+    notifications = new CopyOnWriteArrayList<>();
+    versions = new CopyOnWriteArrayList<>();
+  }
+
+  @After
+  public void tearDown() {
+    executorService.shutdownNow();
+  }
+
+  private void record(Set<String> changedKeys, long version) {
+    versions.add(version);
+    notifications.add(changedKeys);
+  }
+
+  @Test
+  public void testNotifyImmediatelyWithoutDebounce() {
+    CoalescingChangeNotifier notifier =
+        new CoalescingChangeNotifier(0, 0, executorService, this::record);
+    notifier.changed("a", 1);
+    notifier.changed("b", 2);
+    assertThat(notifications).containsExactly(Set.of("a"), Set.of("b"));
+    assertThat(versions).containsExactly(1L, 2L);
+  }
+
+  @Test
+  public void testCoalesceBurstOfChanges() {
+    CoalescingChangeNotifier notifier =
+        new CoalescingChangeNotifier(200, 10000, executorService, this::record);
+    for (int i = 0; i < 100; i++) {
+      notifier.changed("slot" + (i % 10), i + 1);
+    }
+    assertThat(notifications).isEmpty();
+
+    await().until(() -> notifications.size() == 1);
+    assertThat(notifications.get(0)).hasSize(10).contains("slot0", "slot9");
+    assertThat(versions.get(0)).isEqualTo(100);
+
+    notifier.changed("slot0", 101);
+    await().until(() -> notifications.size() == 2);
+    assertThat(notifications.get(1)).containsExactly("slot0");
+    assertThat(versions.get(1)).isEqualTo(101);
+  }
+
+  @Test
+  public void testMaxLatencyBoundsDelay() throws InterruptedException {
+    CoalescingChangeNotifier notifier =
+        new CoalescingChangeNotifier(200, 500, executorService, this::record);
+
+    // A steady stream of changes never leaves a quiet debounce window.
+    long start = System.nanoTime();
+    while (notifications.isEmpty() && System.nanoTime() - start < TimeUnit.SECONDS.toNanos(5)) {
+      notifier.changed("a", 1);
+      Thread.sleep(50);
+    }
+    assertThat(notifications).isNotEmpty();
+    assertThat(System.nanoTime() - start).isLessThan(TimeUnit.SECONDS.toNanos(2));
+  }
+
+  @Test(expected = IllegalArgumentException.class)
+  public void testMaxLatencyBelowDebounceThrows() {
+    new CoalescingChangeNotifier(200, 100, executorService, this::record);
+  }
+}
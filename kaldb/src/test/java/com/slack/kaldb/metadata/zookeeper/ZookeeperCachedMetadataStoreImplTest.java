@@ -5,6 +5,7 @@ import static com.slack.kaldb.testlib.MetricsUtil.getCount;
 import static com.slack.kaldb.testlib.ZkUtils.closeZookeeperClientConnection;
 import static com.slack.kaldb.util.SnapshotUtil.makeSnapshot;
 import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatExceptionOfType;
 import static org.assertj.core.api.Assertions.assertThatIllegalStateException;
 import static org.awaitility.Awaitility.await;
 
@@ -16,6 +17,9 @@ import com.slack.kaldb.util.CountingFatalErrorHandler;
 import io.micrometer.core.instrument.MeterRegistry;
 import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
 import java.io.IOException;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.CopyOnWriteArrayList;
 import java.util.concurrent.CountDownLatch;
 import java.util.concurrent.TimeUnit;
 import java.util.concurrent.atomic.AtomicBoolean;
@@ -175,6 +179,118 @@ public class ZookeeperCachedMetadataStoreImplTest {
     assertThat(listenerExecutions.get()).isZero();
   }
 
+  @Test
+  public void testVersionedInstances() throws Exception {
+    String root = "/versioned";
+    assertThat(metadataStore.create(root, defaultRootStr, true).get()).isNull();
+    ZookeeperCachedMetadataStore<SnapshotMetadata> cache = makeCachedStore(root, null, serDe);
+
+    // Reads without changes in between share the same immutable list.
+    List<SnapshotMetadata> instances = cache.getInstances();
+    long version = cache.getVersion();
+    assertThat(instances).containsOnly(defaultRoot);
+    assertThat(cache.getInstances()).isSameAs(instances);
+    assertThat(cache.getVersion()).isEqualTo(version);
+    assertThatExceptionOfType(UnsupportedOperationException.class)
+        .isThrownBy(() -> instances.add(defaultRoot));
+
+    SnapshotMetadata snapshot1 = makeSnapshot("versioned1");
+    metadataStore.create(root + "/1", serDe.toJsonStr(snapshot1), true).get();
+    await().until(() -> cache.getVersion() > version);
+    List<SnapshotMetadata> updatedInstances = cache.getInstances();
+    assertThat(updatedInstances).isNotSameAs(instances).containsOnly(defaultRoot, snapshot1);
+    assertThat(cache.getInstances()).isSameAs(updatedInstances);
+    // The earlier view is unchanged.
+    assertThat(instances).containsOnly(defaultRoot);
+
+    long updatedVersion = cache.getVersion();
+    metadataStore.delete(root + "/1").get();
+    await().until(() -> cache.getVersion() > updatedVersion);
+    assertThat(cache.getInstances()).containsOnly(defaultRoot);
+
+    cache.close();
+  }
+
+  @Test
+  public void testCoalescedNotifications() throws Exception {
+    String root = "/coalesced";
+    assertThat(metadataStore.create(root, defaultRootStr, true).get()).isNull();
+    List<Set<String>> notifications = new CopyOnWriteArrayList<>();
+    ZookeeperCachedMetadataStore<SnapshotMetadata> cache =
+        new ZookeeperCachedMetadataStoreImpl<>(
+            root, serDe, metadataStore.getCurator(), meterRegistry, 500, 5000);
+    cache.addListener(
+        new ZookeeperCachedMetadataStoreListener() {
+          @Override
+          public void cacheChanged() {
+            throw new IllegalStateException("Expected the coalesced notification");
+          }
+
+          @Override
+          public void cacheChanged(Set<String> changedInstanceIds) {
+            notifications.add(changedInstanceIds);
+          }
+
+          @Override
+          public void stateChanged(CuratorFramework client, ConnectionState newState) {}
+        });
+    cache.start();
+
+    for (int i = 0; i < 5; i++) {
+      SnapshotMetadata snapshot = makeSnapshot("coalesced" + i);
+      metadataStore.create(root + "/" + i, serDe.toJsonStr(snapshot), true).get();
+    }
+    await().until(() -> cache.getInstances().size() == 6);
+    await().until(() -> notifications.size() == 1);
+    assertThat(notifications.get(0)).containsOnly("0", "1", "2", "3", "4");
+
+    cache.close();
+  }
+
+  @Test
+  public void testSlowListenerDoesNotDelayOtherCaches() throws Exception {
+    String slowRoot = "/slow";
+    String fastRoot = "/fast";
+    assertThat(metadataStore.create(slowRoot, defaultRootStr, true).get()).isNull();
+    assertThat(metadataStore.create(fastRoot, defaultRootStr, true).get()).isNull();
+    ZookeeperCachedMetadataStore<SnapshotMetadata> slowCache =
+        new ZookeeperCachedMetadataStoreImpl<>(
+            slowRoot, serDe, metadataStore.getCurator(), meterRegistry, 100, 1000);
+    ZookeeperCachedMetadataStore<SnapshotMetadata> fastCache =
+        new ZookeeperCachedMetadataStoreImpl<>(
+            fastRoot, serDe, metadataStore.getCurator(), meterRegistry, 100, 1000);
+
+    CountDownLatch slowListenerCalled = new CountDownLatch(1);
+    CountDownLatch releaseSlowListener = new CountDownLatch(1);
+    slowCache.addListener(
+        new ZookeeperCachedMetadataStoreListener() {
+          @Override
+          public void cacheChanged() {
+            slowListenerCalled.countDown();
+            try {
+              releaseSlowListener.await();
+            } catch (InterruptedException ignored) {
+            }
+          }
+
+          @Override
+          public void stateChanged(CuratorFramework client, ConnectionState newState) {}
+        });
+    CountingCachedMetadataListener fastListener = new CountingCachedMetadataListener();
+    fastCache.addListener(fastListener);
+    slowCache.start();
+    fastCache.start();
+
+    metadataStore.create(slowRoot + "/1", serDe.toJsonStr(makeSnapshot("slow")), true).get();
+    assertThat(slowListenerCalled.await(10, TimeUnit.SECONDS)).isTrue();
+    metadataStore.create(fastRoot + "/1", serDe.toJsonStr(makeSnapshot("fast")), true).get();
+    await().until(() -> fastListener.getCacheChangedCounter() == 1);
+
+    releaseSlowListener.countDown();
+    slowCache.close();
+    fastCache.close();
+  }
+
   @SuppressWarnings("OptionalGetWithoutIsPresent")
   @Test
   public void watchCachePersistentTreeTest() throws Exception {
@@ -1,5 +1,7 @@
 package com.slack.kaldb.metadata.zookeeper;
 
+import static com.slack.kaldb.metadata.zookeeper.ZookeeperMetadataStoreImpl.METADATA_BATCH_COUNTER;
+import static com.slack.kaldb.metadata.zookeeper.ZookeeperMetadataStoreImpl.METADATA_BATCH_FAILED_COUNTER;
 import static com.slack.kaldb.metadata.zookeeper.ZookeeperMetadataStoreImpl.METADATA_FAILED_COUNTER;
 import static com.slack.kaldb.metadata.zookeeper.ZookeeperMetadataStoreImpl.METADATA_READ_COUNTER;
 import static com.slack.kaldb.metadata.zookeeper.ZookeeperMetadataStoreImpl.METADATA_WRITE_COUNTER;
@@ -11,12 +13,15 @@ import static org.assertj.core.api.Assertions.assertThat;
 import static org.assertj.core.api.Assertions.catchThrowable;
 import static org.awaitility.Awaitility.await;
 
+import com.google.common.util.concurrent.Futures;
+import com.google.common.util.concurrent.ListenableFuture;
 import com.slack.kaldb.metadata.snapshot.SnapshotMetadata;
 import com.slack.kaldb.metadata.snapshot.SnapshotMetadataSerializer;
 import com.slack.kaldb.util.CountingFatalErrorHandler;
 import io.micrometer.core.instrument.MeterRegistry;
 import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
 import java.io.IOException;
+import java.util.ArrayList;
 import java.util.List;
 import java.util.concurrent.ExecutionException;
 import org.apache.curator.retry.RetryNTimes;
@@ -496,6 +501,92 @@ public class ZookeeperMetadataStoreImplTest {
     closeZookeeperClientConnection(zooKeeper);
   }
 
+  @Test
+  public void testBatch() throws Exception {
+    int nodeCount = ZookeeperMetadataStoreImpl.MAX_BATCH_OPS * 2 + 1;
+    List<MetadataOp> puts = new ArrayList<>();
+    for (int i = 0; i < nodeCount; i++) {
+      metadataStore.create("/root/node" + i, "", true).get();
+      puts.add(MetadataOp.put("/root/node" + i, ("data" + i).getBytes()));
+    }
+
+    List<ListenableFuture<?>> putResults = metadataStore.batch(puts);
+    assertThat(putResults.size()).isEqualTo(nodeCount);
+    Futures.allAsList(putResults).get();
+    for (int i = 0; i < nodeCount; i++) {
+      assertThat(metadataStore.get("/root/node" + i).get()).isEqualTo("data" + i);
+    }
+    assertThat(getCount(METADATA_BATCH_COUNTER, meterRegistry)).isEqualTo(3);
+    assertThat(getCount(METADATA_BATCH_FAILED_COUNTER, meterRegistry)).isEqualTo(0);
+
+    List<MetadataOp> deletes = new ArrayList<>();
+    for (int i = 0; i < nodeCount; i++) {
+      deletes.add(MetadataOp.delete("/root/node" + i));
+    }
+    Futures.allAsList(metadataStore.batch(deletes)).get();
+    assertThat(metadataStore.getChildren("/root").get()).isEmpty();
+    assertThat(getCount(METADATA_BATCH_COUNTER, meterRegistry)).isEqualTo(6);
+  }
+
+  @Test
+  public void testBatchReportsFailedOps() throws Exception {
+    metadataStore.create("/root/node1", "", true).get();
+    metadataStore.create("/root/node2", "", true).get();
+    metadataStore.create("/root/node3", "", true).get();
+
+    List<ListenableFuture<?>> results =
+        metadataStore.batch(
+            List.of(
+                MetadataOp.put("/root/node1", "data1".getBytes()),
+                MetadataOp.put("/root/missing", "data".getBytes()),
+                MetadataOp.delete("/root/node2"),
+                MetadataOp.delete("/root/missing")));
+
+    assertThat(results.get(0).get()).isNull();
+    Throwable missingPut = catchThrowable(() -> results.get(1).get());
+    assertThat(missingPut.getCause()).isInstanceOf(NoNodeException.class);
+    assertThat(results.get(2).get()).isNull();
+    Throwable missingDelete = catchThrowable(() -> results.get(3).get());
+    assertThat(missingDelete.getCause()).isInstanceOf(NoNodeException.class);
+
+    // the failed ops don't stop the other ops of the batch
+    assertThat(metadataStore.get("/root/node1").get()).isEqualTo("data1");
+    assertThat(metadataStore.exists("/root/node2").get()).isFalse();
+    assertThat(metadataStore.get("/root/node3").get()).isEqualTo("");
+    assertThat(getCount(METADATA_BATCH_COUNTER, meterRegistry)).isEqualTo(1);
+    assertThat(getCount(METADATA_BATCH_FAILED_COUNTER, meterRegistry)).isEqualTo(1);
+  }
+
+  @Test
+  public void testTransactionIsAllOrNothing() throws Exception {
+    metadataStore.create("/root/node1", "", true).get();
+
+    metadataStore
+        .transaction(
+            List.of(
+                MetadataOp.delete("/root/node1"),
+                MetadataOp.create("/root/node2", "data2".getBytes()),
+                MetadataOp.create("/root/node3", "data3".getBytes())))
+        .get();
+    assertThat(metadataStore.exists("/root/node1").get()).isFalse();
+    assertThat(metadataStore.get("/root/node2").get()).isEqualTo("data2");
+    assertThat(metadataStore.get("/root/node3").get()).isEqualTo("data3");
+
+    // a failed op rolls back the ops before it
+    Throwable failedTransaction =
+        catchThrowable(
+            () ->
+                metadataStore
+                    .transaction(
+                        List.of(
+                            MetadataOp.delete("/root/node2"),
+                            MetadataOp.create("/root/node3", "data".getBytes())))
+                    .get());
+    assertThat(failedTransaction.getCause()).isInstanceOf(InternalMetadataStoreException.class);
+    assertThat(metadataStore.get("/root/node2").get()).isEqualTo("data2");
+    assertThat(metadataStore.get("/root/node3").get()).isEqualTo("data3");
+  }
+
   @Test
   public void testFatalErrorHandlerInvocation() throws Exception {
     String root = "/root/1/2/3";
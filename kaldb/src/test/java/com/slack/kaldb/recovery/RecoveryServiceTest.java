@@ -152,6 +152,47 @@ public class RecoveryServiceTest {
     assertThat(getCount(ROLLOVERS_FAILED, meterRegistry)).isEqualTo(0);
   }
 
+  @Test
+  public void testShouldHandleRecoveryTaskWithWriterPerThread() throws Exception {
+    KaldbConfigs.KaldbConfig kaldbCfg = makeKaldbConfig(TEST_S3_BUCKET);
+    kaldbCfg =
+        kaldbCfg
+            .toBuilder()
+            .setRecoveryConfig(
+                kaldbCfg.getRecoveryConfig().toBuilder().setIndexWriterPerThread(true).build())
+            .build();
+    metadataStore =
+        ZookeeperMetadataStoreImpl.fromConfig(
+            meterRegistry, kaldbCfg.getMetadataStoreConfig().getZookeeperConfig());
+
+    // Start recovery service
+    recoveryService = new RecoveryService(kaldbCfg, metadataStore, meterRegistry, blobFs);
+    recoveryService.startAsync();
+    recoveryService.awaitRunning(DEFAULT_START_STOP_DURATION);
+
+    // Populate data in  Kafka so we can recover from it.
+    final Instant startTime =
+        LocalDateTime.of(2020, 10, 1, 10, 10, 0).atZone(ZoneOffset.UTC).toInstant();
+    produceMessagesToKafka(kafkaServer.getBroker(), startTime, TEST_KAFKA_TOPIC_1, 0);
+
+    SnapshotMetadataStore snapshotMetadataStore = new SnapshotMetadataStore(metadataStore, false);
+    assertThat(snapshotMetadataStore.listSync().size()).isZero();
+    // Start recovery
+    RecoveryTaskMetadata recoveryTask =
+        new RecoveryTaskMetadata("testRecoveryTask", "0", 30, 60, Instant.now().toEpochMilli());
+    assertThat(recoveryService.handleRecoveryTask(recoveryTask)).isTrue();
+
+    // the indexes of all the threads are merged into one snapshot
+    List<SnapshotMetadata> snapshots = snapshotMetadataStore.listSync();
+    assertThat(snapshots.size()).isEqualTo(1);
+    assertThat(snapshots.get(0).numDocs).isEqualTo(31);
+    assertThat(snapshots.get(0).maxOffset).isEqualTo(60);
+    assertThat(blobFs.exists(URI.create(snapshots.get(0).snapshotPath))).isTrue();
+    assertThat(getCount(MESSAGES_RECEIVED_COUNTER, meterRegistry)).isEqualTo(31);
+    assertThat(getCount(MESSAGES_FAILED_COUNTER, meterRegistry)).isEqualTo(0);
+    assertThat(getCount(ROLLOVERS_COMPLETED, meterRegistry)).isEqualTo(1);
+  }
+
   @Test
   public void testShouldHandleRecoveryTaskFailure() throws Exception {
     String fakeS3Bucket = "fakeBucket";
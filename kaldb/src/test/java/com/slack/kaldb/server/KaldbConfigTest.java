@@ -186,6 +186,10 @@ public class KaldbConfigTest {
     assertThat(s3Config.getS3Region()).isEqualTo("us-east-1");
     assertThat(s3Config.getS3EndPoint()).isEqualTo("https://s3.us-east-1.amazonaws.com/");
     assertThat(s3Config.getS3Bucket()).isEqualTo("test-s3-bucket");
+    assertThat(s3Config.getS3UploadConcurrency()).isZero();
+    assertThat(s3Config.getS3MultipartPartSizeBytes()).isZero();
+    assertThat(s3Config.getS3DownloadConcurrency()).isZero();
+    assertThat(s3Config.getS3DownloadRangeSizeBytes()).isZero();
 
     final KaldbConfigs.TracingConfig tracingConfig = config.getTracingConfig();
     assertThat(tracingConfig.getZipkinEndpoint()).isEqualTo("http://localhost:9411/api/v2/spans");
@@ -203,11 +207,15 @@ public class KaldbConfigTest {
     assertThat(indexerConfig.getServerConfig().getServerAddress()).isEqualTo("localhost");
     assertThat(indexerConfig.getServerConfig().getRequestTimeoutMs()).isEqualTo(3000);
     assertThat(indexerConfig.getMaxOffsetDelayMessages()).isEqualTo(10002);
+    assertThat(indexerConfig.getMaxChunkDataSpanSecs()).isZero();
+    assertThat(indexerConfig.getPackSnapshots()).isFalse();
+    assertThat(indexerConfig.getCatchUpMinMessages()).isZero();
 
     final KaldbConfigs.QueryServiceConfig queryServiceConfig = config.getQueryConfig();
     assertThat(queryServiceConfig.getServerConfig().getServerPort()).isEqualTo(8081);
     assertThat(queryServiceConfig.getServerConfig().getServerAddress()).isEqualTo("1.2.3.4");
     assertThat(queryServiceConfig.getManagerConnectString()).isEqualTo("localhost:8083");
+    assertThat(queryServiceConfig.getSnapshotHeatPublishSecs()).isZero();
 
     final KaldbConfigs.MetadataStoreConfig metadataStoreConfig = config.getMetadataStoreConfig();
     final KaldbConfigs.ZookeeperConfig zookeeperConfig = metadataStoreConfig.getZookeeperConfig();
@@ -216,11 +224,26 @@ public class KaldbConfigTest {
     assertThat(zookeeperConfig.getZkSessionTimeoutMs()).isEqualTo(1000);
     assertThat(zookeeperConfig.getZkConnectionTimeoutMs()).isEqualTo(1500);
     assertThat(zookeeperConfig.getSleepBetweenRetriesMs()).isEqualTo(500);
+    assertThat(zookeeperConfig.getNotificationDebounceMs()).isZero();
+    assertThat(zookeeperConfig.getNotificationMaxLatencyMs()).isZero();
+    assertThat(zookeeperConfig.getBinaryMetadataEncoding()).isFalse();
 
     final KaldbConfigs.CacheConfig cacheConfig = config.getCacheConfig();
     final KaldbConfigs.ServerConfig cacheServerConfig = cacheConfig.getServerConfig();
+    assertThat(cacheServerConfig.getSearchNodeMetadataPublishMs()).isZero();
     assertThat(cacheConfig.getSlotsPerInstance()).isEqualTo(10);
     assertThat(cacheConfig.getDataDirectory()).isEqualTo("/tmp");
+    assertThat(cacheConfig.getMaxConcurrentDownloads()).isZero();
+    assertThat(cacheConfig.getMaxDownloadBytesPerSec()).isZero();
+    assertThat(cacheConfig.getDiskCacheMaxBytes()).isZero();
+    assertThat(cacheConfig.getBlockCacheMaxBytes()).isZero();
+    assertThat(cacheConfig.getBlockCacheBlockSizeBytes()).isZero();
+    assertThat(cacheConfig.getWarmChunks()).isFalse();
+    assertThat(cacheConfig.getWarmQueriesList()).isEmpty();
+    assertThat(cacheConfig.getWarmMaxPreloadBytes()).isZero();
+    assertThat(cacheConfig.getWarmPinRecentSecs()).isZero();
+    assertThat(cacheConfig.getDiskCapacityBytes()).isZero();
+    assertThat(cacheConfig.getMemoryCapacityBytes()).isZero();
     assertThat(cacheServerConfig.getServerPort()).isEqualTo(8082);
     assertThat(cacheServerConfig.getServerAddress()).isEqualTo("localhost");
 
@@ -233,6 +256,10 @@ public class KaldbConfigTest {
     assertThat(replicaCreationServiceConfig.getReplicasPerSnapshot()).isEqualTo(2);
     assertThat(replicaCreationServiceConfig.getSchedulePeriodMins()).isEqualTo(15);
     assertThat(replicaCreationServiceConfig.getReplicaLifespanMins()).isEqualTo(1440);
+    assertThat(replicaCreationServiceConfig.getMaxReplicasPerSnapshot()).isZero();
+    assertThat(replicaCreationServiceConfig.getQueriesPerExtraReplica()).isZero();
+    assertThat(replicaCreationServiceConfig.getExtraReplicasMaxBytes()).isZero();
+    assertThat(replicaCreationServiceConfig.getExtraReplicaMinLifespanMins()).isZero();
 
     final KaldbConfigs.ManagerConfig.ReplicaEvictionServiceConfig replicaEvictionServiceConfig =
         managerConfig.getReplicaEvictionServiceConfig();
@@ -246,6 +273,8 @@ public class KaldbConfigTest {
         recoveryTaskAssignmentServiceConfig =
             managerConfig.getRecoveryTaskAssignmentServiceConfig();
     assertThat(recoveryTaskAssignmentServiceConfig.getSchedulePeriodMins()).isEqualTo(10);
+    assertThat(recoveryTaskAssignmentServiceConfig.getAssignNewestTasksFirst()).isFalse();
+    assertThat(recoveryTaskAssignmentServiceConfig.getMinMessagesPerSplitTask()).isZero();
 
     final KaldbConfigs.ManagerConfig.ReplicaAssignmentServiceConfig replicaAssignmentServiceConfig =
         managerConfig.getReplicaAssignmentServiceConfig();
@@ -274,6 +303,7 @@ public class KaldbConfigTest {
     final KaldbConfigs.ServerConfig recoveryServerConfig = recoveryConfig.getServerConfig();
     assertThat(recoveryServerConfig.getServerPort()).isEqualTo(8084);
     assertThat(recoveryServerConfig.getServerAddress()).isEqualTo("localhost");
+    assertThat(recoveryConfig.getIndexWriterPerThread()).isFalse();
 
     final KaldbConfigs.PreprocessorConfig preprocessorConfig = config.getPreprocessorConfig();
     assertThat(preprocessorConfig.getPreprocessorInstanceCount()).isEqualTo(1);
@@ -331,6 +361,10 @@ public class KaldbConfigTest {
     assertThat(s3Config.getS3Region()).isEqualTo("us-east-1");
     assertThat(s3Config.getS3EndPoint()).isEqualTo("localhost:9090");
     assertThat(s3Config.getS3Bucket()).isEqualTo("test-s3-bucket");
+    assertThat(s3Config.getS3UploadConcurrency()).isEqualTo(8);
+    assertThat(s3Config.getS3MultipartPartSizeBytes()).isEqualTo(16777216);
+    assertThat(s3Config.getS3DownloadConcurrency()).isEqualTo(16);
+    assertThat(s3Config.getS3DownloadRangeSizeBytes()).isEqualTo(8388608);
 
     final KaldbConfigs.TracingConfig tracingConfig = config.getTracingConfig();
     assertThat(tracingConfig.getZipkinEndpoint()).isEqualTo("http://localhost:9411/api/v2/spans");
@@ -341,10 +375,20 @@ public class KaldbConfigTest {
     assertThat(indexerConfig.getMaxBytesPerChunk()).isEqualTo(100000);
     assertThat(indexerConfig.getLuceneConfig().getCommitDurationSecs()).isEqualTo(10);
     assertThat(indexerConfig.getLuceneConfig().getRefreshDurationSecs()).isEqualTo(11);
+    assertThat(indexerConfig.getLuceneConfig().getFieldConfigsMap()).hasSize(2);
+    assertThat(indexerConfig.getLuceneConfig().getFieldConfigsOrThrow("trace_id").getType())
+        .isEqualTo(KaldbConfigs.FieldConfig.FieldType.KEYWORD);
+    assertThat(indexerConfig.getLuceneConfig().getFieldConfigsOrThrow("duration_ms").getDocValues())
+        .isTrue();
     assertThat(indexerConfig.getStaleDurationSecs()).isEqualTo(7200);
     assertThat(indexerConfig.getDataTransformer()).isEqualTo("api_log");
     assertThat(indexerConfig.getDataDirectory()).isEqualTo("/tmp");
     assertThat(indexerConfig.getMaxOffsetDelayMessages()).isEqualTo(10001);
+    assertThat(indexerConfig.getMaxChunkDataSpanSecs()).isEqualTo(3600);
+    assertThat(indexerConfig.getMaxConcurrentRollovers()).isEqualTo(2);
+    assertThat(indexerConfig.getMaxPendingRollovers()).isEqualTo(4);
+    assertThat(indexerConfig.getPackSnapshots()).isTrue();
+    assertThat(indexerConfig.getCatchUpMinMessages()).isEqualTo(5000);
     assertThat(indexerConfig.getServerConfig().getServerPort()).isEqualTo(8080);
     assertThat(indexerConfig.getServerConfig().getServerAddress()).isEqualTo("localhost");
 
@@ -352,6 +396,7 @@ public class KaldbConfigTest {
     assertThat(readConfig.getServerConfig().getServerPort()).isEqualTo(8081);
     assertThat(readConfig.getServerConfig().getServerAddress()).isEqualTo("1.2.3.4");
     assertThat(readConfig.getManagerConnectString()).isEqualTo("localhost:8083");
+    assertThat(readConfig.getSnapshotHeatPublishSecs()).isEqualTo(30);
 
     final KaldbConfigs.MetadataStoreConfig metadataStoreConfig = config.getMetadataStoreConfig();
     final KaldbConfigs.ZookeeperConfig zookeeperConfig = metadataStoreConfig.getZookeeperConfig();
@@ -360,12 +405,27 @@ public class KaldbConfigTest {
     assertThat(zookeeperConfig.getZkSessionTimeoutMs()).isEqualTo(1000);
     assertThat(zookeeperConfig.getZkConnectionTimeoutMs()).isEqualTo(1500);
     assertThat(zookeeperConfig.getSleepBetweenRetriesMs()).isEqualTo(500);
+    assertThat(zookeeperConfig.getNotificationDebounceMs()).isEqualTo(100);
+    assertThat(zookeeperConfig.getNotificationMaxLatencyMs()).isEqualTo(1000);
+    assertThat(zookeeperConfig.getBinaryMetadataEncoding()).isTrue();
 
     final KaldbConfigs.CacheConfig cacheConfig = config.getCacheConfig();
     final KaldbConfigs.ServerConfig cacheServerConfig = cacheConfig.getServerConfig();
+    assertThat(cacheServerConfig.getSearchNodeMetadataPublishMs()).isEqualTo(1000);
     assertThat(cacheConfig.getSlotsPerInstance()).isEqualTo(10);
     assertThat(cacheServerConfig.getServerPort()).isEqualTo(8082);
     assertThat(cacheConfig.getDataDirectory()).isEqualTo("/tmp");
+    assertThat(cacheConfig.getMaxConcurrentDownloads()).isEqualTo(6);
+    assertThat(cacheConfig.getMaxDownloadBytesPerSec()).isEqualTo(104857600);
+    assertThat(cacheConfig.getDiskCacheMaxBytes()).isEqualTo(10737418240L);
+    assertThat(cacheConfig.getBlockCacheMaxBytes()).isEqualTo(1073741824);
+    assertThat(cacheConfig.getBlockCacheBlockSizeBytes()).isEqualTo(262144);
+    assertThat(cacheConfig.getWarmChunks()).isTrue();
+    assertThat(cacheConfig.getWarmQueriesList()).containsExactly("*:*", "level:error");
+    assertThat(cacheConfig.getWarmMaxPreloadBytes()).isEqualTo(2147483648L);
+    assertThat(cacheConfig.getWarmPinRecentSecs()).isEqualTo(3600);
+    assertThat(cacheConfig.getDiskCapacityBytes()).isEqualTo(107374182400L);
+    assertThat(cacheConfig.getMemoryCapacityBytes()).isEqualTo(68719476736L);
     assertThat(cacheServerConfig.getServerAddress()).isEqualTo("localhost");
 
     final KaldbConfigs.ManagerConfig managerConfig = config.getManagerConfig();
@@ -381,6 +441,10 @@ public class KaldbConfigTest {
     assertThat(replicaCreationServiceConfig.getReplicasPerSnapshot()).isEqualTo(2);
     assertThat(replicaCreationServiceConfig.getSchedulePeriodMins()).isEqualTo(15);
     assertThat(replicaCreationServiceConfig.getReplicaLifespanMins()).isEqualTo(1440);
+    assertThat(replicaCreationServiceConfig.getMaxReplicasPerSnapshot()).isEqualTo(4);
+    assertThat(replicaCreationServiceConfig.getQueriesPerExtraReplica()).isEqualTo(50);
+    assertThat(replicaCreationServiceConfig.getExtraReplicasMaxBytes()).isEqualTo(1073741824);
+    assertThat(replicaCreationServiceConfig.getExtraReplicaMinLifespanMins()).isEqualTo(30);
 
     final KaldbConfigs.ManagerConfig.ReplicaEvictionServiceConfig replicaEvictionServiceConfig =
         managerConfig.getReplicaEvictionServiceConfig();
@@ -394,6 +458,8 @@ public class KaldbConfigTest {
         recoveryTaskAssignmentServiceConfig =
             managerConfig.getRecoveryTaskAssignmentServiceConfig();
     assertThat(recoveryTaskAssignmentServiceConfig.getSchedulePeriodMins()).isEqualTo(10);
+    assertThat(recoveryTaskAssignmentServiceConfig.getAssignNewestTasksFirst()).isTrue();
+    assertThat(recoveryTaskAssignmentServiceConfig.getMinMessagesPerSplitTask()).isEqualTo(100000);
 
     final KaldbConfigs.ManagerConfig.ReplicaAssignmentServiceConfig replicaAssignmentServiceConfig =
         managerConfig.getReplicaAssignmentServiceConfig();
@@ -418,6 +484,7 @@ public class KaldbConfigTest {
     final KaldbConfigs.ServerConfig recoveryServerConfig = recoveryConfig.getServerConfig();
     assertThat(recoveryServerConfig.getServerPort()).isEqualTo(8084);
     assertThat(recoveryServerConfig.getServerAddress()).isEqualTo("localhost");
+    assertThat(recoveryConfig.getIndexWriterPerThread()).isTrue();
 
     final KaldbConfigs.PreprocessorConfig preprocessorConfig = config.getPreprocessorConfig();
     assertThat(preprocessorConfig.getPreprocessorInstanceCount()).isEqualTo(1);
@@ -502,6 +569,7 @@ public class KaldbConfigTest {
     assertThat(indexerConfig.getDefaultQueryTimeoutMs()).isEqualTo(2500);
     assertThat(indexerConfig.getDataTransformer()).isEqualTo("api_log");
     assertThat(indexerConfig.getMaxOffsetDelayMessages()).isZero();
+    assertThat(indexerConfig.getCatchUpMinMessages()).isZero();
     assertThat(indexerConfig.getServerConfig().getServerPort()).isZero();
     assertThat(indexerConfig.getServerConfig().getServerAddress()).isEmpty();
     assertThat(indexerConfig.getServerConfig().getRequestTimeoutMs()).isEqualTo(3000);
@@ -510,6 +578,7 @@ public class KaldbConfigTest {
     assertThat(queryServiceConfig.getServerConfig().getServerPort()).isZero();
     assertThat(queryServiceConfig.getServerConfig().getServerAddress()).isEmpty();
     assertThat(queryServiceConfig.getManagerConnectString()).isEmpty();
+    assertThat(queryServiceConfig.getSnapshotHeatPublishSecs()).isZero();
 
     final KaldbConfigs.MetadataStoreConfig metadataStoreConfig = config.getMetadataStoreConfig();
     final KaldbConfigs.ZookeeperConfig zookeeperConfig = metadataStoreConfig.getZookeeperConfig();
@@ -518,9 +587,13 @@ public class KaldbConfigTest {
     assertThat(zookeeperConfig.getZkSessionTimeoutMs()).isZero();
     assertThat(zookeeperConfig.getZkConnectionTimeoutMs()).isZero();
     assertThat(zookeeperConfig.getSleepBetweenRetriesMs()).isZero();
+    assertThat(zookeeperConfig.getNotificationDebounceMs()).isZero();
+    assertThat(zookeeperConfig.getNotificationMaxLatencyMs()).isZero();
+    assertThat(zookeeperConfig.getBinaryMetadataEncoding()).isFalse();
 
     final KaldbConfigs.CacheConfig cacheConfig = config.getCacheConfig();
     final KaldbConfigs.ServerConfig cacheServerConfig = cacheConfig.getServerConfig();
+    assertThat(cacheServerConfig.getSearchNodeMetadataPublishMs()).isZero();
     assertThat(cacheConfig.getSlotsPerInstance()).isZero();
     assertThat(cacheConfig.getDataDirectory()).isEmpty();
     assertThat(cacheServerConfig.getServerPort()).isZero();
@@ -535,6 +608,10 @@ public class KaldbConfigTest {
     assertThat(replicaCreationServiceConfig.getReplicasPerSnapshot()).isZero();
     assertThat(replicaCreationServiceConfig.getSchedulePeriodMins()).isZero();
     assertThat(replicaCreationServiceConfig.getReplicaLifespanMins()).isZero();
+    assertThat(replicaCreationServiceConfig.getMaxReplicasPerSnapshot()).isZero();
+    assertThat(replicaCreationServiceConfig.getQueriesPerExtraReplica()).isZero();
+    assertThat(replicaCreationServiceConfig.getExtraReplicasMaxBytes()).isZero();
+    assertThat(replicaCreationServiceConfig.getExtraReplicaMinLifespanMins()).isZero();
 
     final KaldbConfigs.ManagerConfig.ReplicaEvictionServiceConfig replicaEvictionServiceConfig =
         managerConfig.getReplicaEvictionServiceConfig();
@@ -548,6 +625,8 @@ public class KaldbConfigTest {
         recoveryTaskAssignmentServiceConfig =
             managerConfig.getRecoveryTaskAssignmentServiceConfig();
     assertThat(recoveryTaskAssignmentServiceConfig.getSchedulePeriodMins()).isZero();
+    assertThat(recoveryTaskAssignmentServiceConfig.getAssignNewestTasksFirst()).isFalse();
+    assertThat(recoveryTaskAssignmentServiceConfig.getMinMessagesPerSplitTask()).isZero();
 
     final KaldbConfigs.ManagerConfig.ReplicaAssignmentServiceConfig replicaAssignmentServiceConfig =
         managerConfig.getReplicaAssignmentServiceConfig();
@@ -576,6 +655,7 @@ public class KaldbConfigTest {
     final KaldbConfigs.ServerConfig recoveryServerConfig = recoveryConfig.getServerConfig();
     assertThat(recoveryServerConfig.getServerPort()).isZero();
     assertThat(recoveryServerConfig.getServerAddress()).isEmpty();
+    assertThat(recoveryConfig.getIndexWriterPerThread()).isFalse();
 
     final KaldbConfigs.PreprocessorConfig preprocessorConfig = config.getPreprocessorConfig();
     assertThat(preprocessorConfig.getPreprocessorInstanceCount()).isZero();
@@ -638,6 +718,7 @@ public class KaldbConfigTest {
     assertThat(indexerConfig.getDataDirectory()).isEmpty();
     assertThat(indexerConfig.getDataTransformer()).isEqualTo("api_log");
     assertThat(indexerConfig.getMaxOffsetDelayMessages()).isZero();
+    assertThat(indexerConfig.getCatchUpMinMessages()).isZero();
     assertThat(indexerConfig.getServerConfig().getServerPort()).isZero();
     assertThat(indexerConfig.getServerConfig().getServerAddress()).isEmpty();
 
@@ -645,6 +726,7 @@ public class KaldbConfigTest {
     assertThat(queryServiceConfig.getServerConfig().getServerPort()).isZero();
     assertThat(queryServiceConfig.getServerConfig().getServerAddress()).isEmpty();
     assertThat(queryServiceConfig.getManagerConnectString()).isEmpty();
+    assertThat(queryServiceConfig.getSnapshotHeatPublishSecs()).isZero();
 
     final KaldbConfigs.MetadataStoreConfig metadataStoreConfig = config.getMetadataStoreConfig();
     final KaldbConfigs.ZookeeperConfig zookeeperConfig = metadataStoreConfig.getZookeeperConfig();
@@ -653,9 +735,13 @@ public class KaldbConfigTest {
     assertThat(zookeeperConfig.getZkSessionTimeoutMs()).isZero();
     assertThat(zookeeperConfig.getZkConnectionTimeoutMs()).isZero();
     assertThat(zookeeperConfig.getSleepBetweenRetriesMs()).isZero();
+    assertThat(zookeeperConfig.getNotificationDebounceMs()).isZero();
+    assertThat(zookeeperConfig.getNotificationMaxLatencyMs()).isZero();
+    assertThat(zookeeperConfig.getBinaryMetadataEncoding()).isFalse();
 
     final KaldbConfigs.CacheConfig cacheConfig = config.getCacheConfig();
     final KaldbConfigs.ServerConfig cacheServerConfig = cacheConfig.getServerConfig();
+    assertThat(cacheServerConfig.getSearchNodeMetadataPublishMs()).isZero();
     assertThat(cacheConfig.getSlotsPerInstance()).isZero();
     assertThat(cacheConfig.getDataDirectory()).isEmpty();
     assertThat(cacheServerConfig.getServerPort()).isZero();
@@ -670,6 +756,10 @@ public class KaldbConfigTest {
     assertThat(replicaCreationServiceConfig.getReplicasPerSnapshot()).isZero();
     assertThat(replicaCreationServiceConfig.getSchedulePeriodMins()).isZero();
     assertThat(replicaCreationServiceConfig.getReplicaLifespanMins()).isZero();
+    assertThat(replicaCreationServiceConfig.getMaxReplicasPerSnapshot()).isZero();
+    assertThat(replicaCreationServiceConfig.getQueriesPerExtraReplica()).isZero();
+    assertThat(replicaCreationServiceConfig.getExtraReplicasMaxBytes()).isZero();
+    assertThat(replicaCreationServiceConfig.getExtraReplicaMinLifespanMins()).isZero();
 
     final KaldbConfigs.ManagerConfig.ReplicaEvictionServiceConfig replicaEvictionServiceConfig =
         managerConfig.getReplicaEvictionServiceConfig();
@@ -683,6 +773,8 @@ public class KaldbConfigTest {
         recoveryTaskAssignmentServiceConfig =
             managerConfig.getRecoveryTaskAssignmentServiceConfig();
     assertThat(recoveryTaskAssignmentServiceConfig.getSchedulePeriodMins()).isZero();
+    assertThat(recoveryTaskAssignmentServiceConfig.getAssignNewestTasksFirst()).isFalse();
+    assertThat(recoveryTaskAssignmentServiceConfig.getMinMessagesPerSplitTask()).isZero();
 
     final KaldbConfigs.ManagerConfig.ReplicaAssignmentServiceConfig replicaAssignmentServiceConfig =
         managerConfig.getReplicaAssignmentServiceConfig();
@@ -5,11 +5,14 @@ import static com.slack.kaldb.logstore.LuceneIndexStoreImpl.MESSAGES_RECEIVED_CO
 import static com.slack.kaldb.metadata.snapshot.SnapshotMetadata.LIVE_SNAPSHOT_PATH;
 import static com.slack.kaldb.proto.metadata.Metadata.IndexType.LOGS_LUCENE9;
 import static com.slack.kaldb.server.KaldbConfig.DEFAULT_START_STOP_DURATION;
+import static com.slack.kaldb.server.KaldbIndexer.CATCH_UP_MESSAGES_REMAINING;
+import static com.slack.kaldb.testlib.ChunkManagerUtil.S3_TEST_BUCKET;
 import static com.slack.kaldb.testlib.ChunkManagerUtil.TEST_HOST;
 import static com.slack.kaldb.testlib.ChunkManagerUtil.TEST_PORT;
 import static com.slack.kaldb.testlib.KaldbConfigUtil.makeIndexerConfig;
 import static com.slack.kaldb.testlib.KaldbConfigUtil.makeKafkaConfig;
 import static com.slack.kaldb.testlib.MetricsUtil.getCount;
+import static com.slack.kaldb.testlib.MetricsUtil.getValue;
 import static com.slack.kaldb.testlib.TestKafkaServer.produceMessagesToKafka;
 import static org.assertj.core.api.Assertions.assertThat;
 import static org.assertj.core.api.Assertions.assertThatExceptionOfType;
@@ -22,6 +25,7 @@ import brave.Tracing;
 import com.adobe.testing.s3mock.junit4.S3MockRule;
 import com.github.charithe.kafka.EphemeralKafkaBroker;
 import com.google.common.util.concurrent.Service;
+import com.slack.kaldb.blobfs.s3.S3BlobFs;
 import com.slack.kaldb.chunk.ReadWriteChunk;
 import com.slack.kaldb.chunk.SearchContext;
 import com.slack.kaldb.chunkManager.RollOverChunkTask;
@@ -469,6 +473,65 @@ public class KaldbIndexerTest {
     assertThat(recoveryTask1.partitionId).isEqualTo("0");
   }
 
+  @Test
+  public void testIndexerCatchesUpBeforeIndexingLiveData() throws Exception {
+    startKafkaServer();
+    assertThat(snapshotMetadataStore.listSync()).isEmpty();
+    assertThat(recoveryTaskStore.listSync()).isEmpty();
+
+    final String name = "testSnapshotId";
+    final String path = "/testPath_" + name;
+    final long startTimeMs = 1;
+    final long endTimeMs = 100;
+    final long maxOffset = 30;
+    final SnapshotMetadata partition0 =
+        new SnapshotMetadata(name, path, startTimeMs, endTimeMs, maxOffset, "0", LOGS_LUCENE9);
+    snapshotMetadataStore.createSync(partition0);
+
+    // The indexer is 69 messages behind, which is within the max offset delay but enough to catch
+    // up with the backlog in parallel.
+    KaldbConfigs.IndexerConfig indexerConfig =
+        makeIndexerConfig(1000, "api_log")
+            .toBuilder()
+            .setCatchUpMinMessages(50)
+            .setDataDirectory(temporaryFolder.newFolder().getAbsolutePath())
+            .build();
+    kaldbIndexer =
+        new KaldbIndexer(
+            chunkManagerUtil.chunkManager,
+            zkMetadataStore,
+            indexerConfig,
+            getKafkaConfig(),
+            new S3BlobFs(chunkManagerUtil.s3Client),
+            KaldbConfigs.S3Config.newBuilder().setS3Bucket(S3_TEST_BUCKET).build(),
+            metricsRegistry);
+    kaldbIndexer.startAsync();
+    kaldbIndexer.awaitRunning(DEFAULT_START_STOP_DURATION);
+
+    // The backlog is uploaded as a snapshot, like the output of a recovery task.
+    await()
+        .until(
+            () ->
+                snapshotMetadataStore
+                    .listSync()
+                    .stream()
+                    .anyMatch(
+                        snapshot ->
+                            !SnapshotMetadata.isLive(snapshot)
+                                && snapshot.partitionId.equals("0")
+                                && snapshot.maxOffset == 99));
+    await().until(() -> getCount(MESSAGES_RECEIVED_COUNTER, metricsRegistry) == 69);
+    assertThat(getValue(CATCH_UP_MESSAGES_REMAINING, metricsRegistry)).isZero();
+
+    // The live data is indexed from the head once the indexer caught up.
+    produceMessagesToKafka(kafkaServer.getBroker(), startTime);
+    await().until(() -> getCount(MESSAGES_RECEIVED_COUNTER, metricsRegistry) == 169);
+    assertThat(getCount(MESSAGES_FAILED_COUNTER, metricsRegistry)).isZero();
+    assertThat(chunkManagerUtil.chunkManager.getChunkList().size()).isEqualTo(1);
+    assertThat(recoveryTaskStore.listSync()).isEmpty();
+    assertThat(searchMetadataStore.listSync().size()).isEqualTo(1);
+  }
+
   @Test
   public void testIndexerShutdownTwice() throws Exception {
     startKafkaServer();
@@ -0,0 +1,121 @@
+package com.slack.kaldb.util;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.catchThrowable;
+import static org.awaitility.Awaitility.await;
+
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+public class KeyedSerialExecutorTest {
+  private ExecutorService executorService;
+  private KeyedSerialExecutor keyedSerialExecutor;
+
+  @Before
+  public void setUp() {
+    executorService = Executors.newFixedThreadPool(4);
+    keyedSerialExecutor = new KeyedSerialExecutor(executorService);
+  }
+
+  @After
+  public void tearDown() {
+    executorService.shutdownNow();
+  }
+
+  @Test
+  public void testRunsTasksOfAKeyInOrder() {
+    List<Integer> completed = new CopyOnWriteArrayList<>();
+    AtomicInteger running = new AtomicInteger();
+    AtomicBoolean overlapped = new AtomicBoolean(false);
+    for (int i = 0; i < 100; i++) {
+      int task = i;
+      keyedSerialExecutor.execute(
+          "key",
+          () -> {
+            if (running.incrementAndGet() > 1) {
+              overlapped.set(true);
+            }
+            completed.add(task);
+            running.decrementAndGet();
+          });
+    }
+
+    await().until(() -> completed.size() == 100);
+    assertThat(overlapped.get()).isFalse();
+    for (int i = 0; i < 100; i++) {
+      assertThat(completed.get(i)).isEqualTo(i);
+    }
+  }
+
+  @Test
+  public void testBlockedKeyDoesNotBlockOtherKeys() throws InterruptedException {
+    CountDownLatch release = new CountDownLatch(1);
+    AtomicBoolean blockedKeySecondTaskRan = new AtomicBoolean(false);
+    keyedSerialExecutor.execute(
+        "blocked",
+        () -> {
+          try {
+            release.await();
+          } catch (InterruptedException ignored) {
+          }
+        });
+    keyedSerialExecutor.execute("blocked", () -> blockedKeySecondTaskRan.set(true));
+
+    CountDownLatch otherKeyRan = new CountDownLatch(1);
+    keyedSerialExecutor.execute("other", otherKeyRan::countDown);
+    assertThat(otherKeyRan.await(5, TimeUnit.SECONDS)).isTrue();
+    assertThat(blockedKeySecondTaskRan.get()).isFalse();
+
+    release.countDown();
+    await().until(blockedKeySecondTaskRan::get);
+  }
+
+  @Test
+  public void testShutdownNowOfAKey() throws InterruptedException {
+    CountDownLatch started = new CountDownLatch(1);
+    AtomicBoolean interrupted = new AtomicBoolean(false);
+    AtomicBoolean queuedTaskRan = new AtomicBoolean(false);
+    keyedSerialExecutor.execute(
+        "key",
+        () -> {
+          started.countDown();
+          try {
+            Thread.sleep(10_000);
+          } catch (InterruptedException e) {
+            interrupted.set(true);
+          }
+        });
+    keyedSerialExecutor.execute("key", () -> queuedTaskRan.set(true));
+    assertThat(started.await(5, TimeUnit.SECONDS)).isTrue();
+
+    keyedSerialExecutor.shutdownNow("key");
+    await().until(interrupted::get);
+    Throwable ex = catchThrowable(() -> keyedSerialExecutor.execute("key", () -> {}));
+    assertThat(ex).isInstanceOf(RejectedExecutionException.class);
+
+    // the other keys keep running, on threads that are no longer interrupted
+    AtomicBoolean otherKeyInterrupted = new AtomicBoolean(true);
+    CountDownLatch otherKeyRan = new CountDownLatch(4);
+    for (int i = 0; i < 4; i++) {
+      keyedSerialExecutor.execute(
+          "other" + i,
+          () -> {
+            otherKeyInterrupted.set(Thread.currentThread().isInterrupted());
+            otherKeyRan.countDown();
+          });
+    }
+    assertThat(otherKeyRan.await(5, TimeUnit.SECONDS)).isTrue();
+    assertThat(otherKeyInterrupted.get()).isFalse();
+    assertThat(queuedTaskRan.get()).isFalse();
+  }
+}
@@ -6,6 +6,7 @@ import static com.slack.kaldb.server.ValidateKaldbConfig.INDEXER_DATA_TRANSFORME
 import static com.slack.kaldb.testlib.ChunkManagerUtil.makeChunkManagerUtil;
 import static com.slack.kaldb.testlib.MetricsUtil.getCount;
 import static com.slack.kaldb.testlib.MetricsUtil.getValue;
+import static com.slack.kaldb.writer.kafka.KaldbKafkaConsumer.CONSUMER_PAUSES_COUNTER;
 import static com.slack.kaldb.writer.kafka.KaldbKafkaConsumer.KAFKA_POLL_TIMEOUT_MS;
 import static com.slack.kaldb.writer.kafka.KaldbKafkaConsumer.RECORDS_RECEIVED_COUNTER;
 import static org.assertj.core.api.Assertions.assertThat;
@@ -124,6 +125,35 @@ public class KaldbKafkaConsumerTest {
       assertThat(kafkaServer.getConnectedConsumerGroups()).isEqualTo(0);
     }
 
+    @Test
+    public void testPausedConsumerDoesNotConsumeMessages() throws Exception {
+      EphemeralKafkaBroker broker = kafkaServer.getBroker();
+      final Instant startTime =
+          LocalDateTime.of(2020, 10, 1, 10, 10, 0).atZone(ZoneOffset.UTC).toInstant();
+      TestKafkaServer.produceMessagesToKafka(broker, startTime);
+      await().until(() -> testConsumer.getEndOffSetForPartition() == 100);
+
+      testConsumer.prepConsumerForConsumption(0);
+      testConsumer.setPaused(true);
+      testConsumer.setPaused(true);
+      assertThat(testConsumer.isPaused()).isTrue();
+      assertThat(testConsumer.getKafkaConsumer().paused()).hasSize(1);
+      assertThat(getCount(CONSUMER_PAUSES_COUNTER, metricsRegistry)).isEqualTo(1);
+
+      testConsumer.consumeMessages();
+      assertThat(getCount(RECORDS_RECEIVED_COUNTER, metricsRegistry)).isEqualTo(0);
+
+      testConsumer.setPaused(false);
+      assertThat(testConsumer.getKafkaConsumer().paused()).isEmpty();
+      await()
+          .until(
+              () -> {
+                testConsumer.consumeMessages();
+                return getCount(RECORDS_RECEIVED_COUNTER, metricsRegistry) == 100;
+              });
+      assertThat(getCount(CONSUMER_PAUSES_COUNTER, metricsRegistry)).isEqualTo(1);
+    }
+
     @Test
     public void testConsumeMessagesBetweenOffsets() throws Exception {
       EphemeralKafkaBroker broker = kafkaServer.getBroker();